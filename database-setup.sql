@@ -1,4 +1,8 @@
 -- Criação do banco de dados GlicemIA e tabelas iniciais (Executar no SQL Editor do NeonDB)
+-- Somente para banco novo. Um banco criado por versão anterior deste script, com a tabela única
+-- TB_REGISTRO, não deve executá-lo: a aplicação o converte na inicialização (MigradorSchema,
+-- versão 0), copiando as leituras para as tabelas por tipo e renomeando a antiga para
+-- TB_REGISTRO_LEGADO.
 
 -- Tipos ENUM
 CREATE TYPE tipo_sinal_enum AS ENUM ('GLICEMIA', 'PRESSAO', 'PESO');
@@ -6,8 +10,9 @@ CREATE TYPE nivel_risco_enum AS ENUM ('NORMAL', 'ATENCAO', 'ALTO', 'CRITICO');
 CREATE TYPE sim_nao_enum AS ENUM ('S', 'N');
 
 -- Tabela de Pacientes
+-- IDs atribuídos pela aplicação em blocos de 20 (AlocadorIds): cada nextval reserva um bloco
 CREATE TABLE TB_PACIENTE (
-    id_paciente BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id_paciente BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 20) PRIMARY KEY,
     nome VARCHAR(100) NOT NULL,
     cpf VARCHAR(14) UNIQUE NOT NULL,
     data_nascimento DATE NOT NULL,
@@ -16,59 +21,276 @@ CREATE TABLE TB_PACIENTE (
     data_cadastro TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
--- Tabela de Registros de Sinais Vitais
-CREATE TABLE TB_REGISTRO (
-    id_registro BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+-- Registros de Sinais Vitais: uma tabela por tipo de sinal, só com as colunas do tipo.
+-- Os IDs vêm de uma sequência compartilhada, únicos entre os tipos (TB_CONSULTA_IA os referencia),
+-- e são atribuídos pela aplicação em blocos de 50 (AlocadorIds); o DEFAULT atende as demais inserções.
+-- Cada tabela é particionada por mês em data_hora; a chave primária inclui data_hora, exigência
+-- do particionamento por faixa.
+CREATE SEQUENCE seq_registro INCREMENT BY 50;
+
+CREATE TABLE TB_REGISTRO_GLICEMIA (
+    id_registro BIGINT NOT NULL DEFAULT nextval('seq_registro'),
     id_paciente BIGINT NOT NULL,
-    tipo_sinal tipo_sinal_enum NOT NULL,
     data_hora TIMESTAMP NOT NULL,
-    valor_principal NUMERIC(6,2) NOT NULL,
-    valor_secundario NUMERIC(6,2),
-    unidade_medida VARCHAR(10) NOT NULL,
+    valor_glicemia NUMERIC(6,2) NOT NULL,
+    em_jejum BOOLEAN NOT NULL,
+    tipo_insulina VARCHAR(50),
     nivel_risco nivel_risco_enum NOT NULL,
     observacoes VARCHAR(500),
+    chave_idempotencia VARCHAR(64),
 
-    -- Campos específicos de glicemia
-    em_jejum sim_nao_enum,
-    tipo_insulina VARCHAR(50),
+    CONSTRAINT pk_registro_glicemia PRIMARY KEY (id_registro, data_hora),
+    CONSTRAINT fk_registro_glicemia_paciente FOREIGN KEY (id_paciente)
+        REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE
+) PARTITION BY RANGE (data_hora);
 
-    -- Campos específicos de peso
-    altura NUMERIC(3,2),
+CREATE TABLE TB_REGISTRO_PRESSAO (
+    id_registro BIGINT NOT NULL DEFAULT nextval('seq_registro'),
+    id_paciente BIGINT NOT NULL,
+    data_hora TIMESTAMP NOT NULL,
+    sistolica SMALLINT NOT NULL,
+    diastolica SMALLINT NOT NULL,
+    nivel_risco nivel_risco_enum NOT NULL,
+    observacoes VARCHAR(500),
+    chave_idempotencia VARCHAR(64),
+
+    CONSTRAINT pk_registro_pressao PRIMARY KEY (id_registro, data_hora),
+    CONSTRAINT fk_registro_pressao_paciente FOREIGN KEY (id_paciente)
+        REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE
+) PARTITION BY RANGE (data_hora);
+
+CREATE TABLE TB_REGISTRO_PESO (
+    id_registro BIGINT NOT NULL DEFAULT nextval('seq_registro'),
+    id_paciente BIGINT NOT NULL,
+    data_hora TIMESTAMP NOT NULL,
+    peso NUMERIC(5,2) NOT NULL,
+    altura NUMERIC(3,2) NOT NULL,
     imc NUMERIC(4,2),
+    nivel_risco nivel_risco_enum NOT NULL,
+    observacoes VARCHAR(500),
+    chave_idempotencia VARCHAR(64),
+
+    CONSTRAINT pk_registro_peso PRIMARY KEY (id_registro, data_hora),
+    CONSTRAINT fk_registro_peso_paciente FOREIGN KEY (id_paciente)
+        REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE
+) PARTITION BY RANGE (data_hora);
+
+-- Recebem as leituras de meses ainda sem partição (ex.: importações retroativas);
+-- fn_garantir_particoes_registro as move para a partição do mês
+CREATE TABLE TB_REGISTRO_GLICEMIA_PADRAO PARTITION OF TB_REGISTRO_GLICEMIA DEFAULT;
+CREATE TABLE TB_REGISTRO_PRESSAO_PADRAO PARTITION OF TB_REGISTRO_PRESSAO DEFAULT;
+CREATE TABLE TB_REGISTRO_PESO_PADRAO PARTITION OF TB_REGISTRO_PESO DEFAULT;
+
+-- Cria a partição mensal (<tabela>_AAAAMM) do mês informado, se ainda não existir, movendo
+-- para ela as leituras do mês que estejam na partição padrão. Retorna se a partição foi criada.
+CREATE FUNCTION fn_criar_particao_registro(tabela TEXT, mes DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    inicio DATE := date_trunc('month', mes)::date;
+    fim DATE := (date_trunc('month', mes) + INTERVAL '1 month')::date;
+    nome TEXT := lower(tabela) || '_' || to_char(mes, 'YYYYMM');
+    padrao TEXT := lower(tabela) || '_padrao';
+BEGIN
+    IF to_regclass(nome) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
 
-    CONSTRAINT fk_registro_paciente FOREIGN KEY (id_paciente)
+    -- Impede novas leituras do mês na partição padrão até a anexação
+    EXECUTE format('LOCK TABLE %I IN SHARE ROW EXCLUSIVE MODE', padrao);
+
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', nome, lower(tabela));
+    EXECUTE format('WITH movidas AS (DELETE FROM %I WHERE data_hora >= %L ' ||
+                   'AND data_hora < %L RETURNING *) INSERT INTO %I SELECT * FROM movidas',
+                   padrao, inicio, fim, nome);
+    -- Índices, chave estrangeira e triggers da tabela são aplicados à partição na anexação
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   lower(tabela), nome, inicio, fim);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Garante, em cada tabela de leituras, as partições dos meses com leituras na partição padrão e
+-- do mês atual até meses_a_frente meses adiante. Retorna a quantidade de partições criadas.
+CREATE FUNCTION fn_garantir_particoes_registro(meses_a_frente INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    tabela TEXT;
+    mes DATE;
+    criadas INTEGER := 0;
+BEGIN
+    FOREACH tabela IN ARRAY ARRAY['tb_registro_glicemia', 'tb_registro_pressao', 'tb_registro_peso']
+    LOOP
+        FOR mes IN EXECUTE format(
+            'SELECT DISTINCT date_trunc(''month'', data_hora)::date FROM %I ' ||
+            'UNION SELECT generate_series(date_trunc(''month'', CURRENT_DATE), ' ||
+            'date_trunc(''month'', CURRENT_DATE) + make_interval(months => %s), ' ||
+            'INTERVAL ''1 month'')::date ORDER BY 1', tabela || '_padrao', meses_a_frente)
+        LOOP
+            IF fn_criar_particao_registro(tabela, mes) THEN
+                criadas := criadas + 1;
+            END IF;
+        END LOOP;
+    END LOOP;
+    RETURN criadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Histórico de todos os tipos, com as colunas da antiga tabela única de registros.
+-- Consultas com filtro em tipo_sinal só varrem a tabela do tipo.
+CREATE VIEW VW_REGISTRO AS
+    SELECT id_registro, id_paciente, 'GLICEMIA'::tipo_sinal_enum AS tipo_sinal, data_hora,
+           valor_glicemia AS valor_principal, NULL::numeric AS valor_secundario,
+           'mg/dL'::varchar AS unidade_medida, nivel_risco, observacoes,
+           (CASE WHEN em_jejum THEN 'S' ELSE 'N' END)::sim_nao_enum AS em_jejum, tipo_insulina,
+           NULL::numeric AS altura, NULL::numeric AS imc
+    FROM TB_REGISTRO_GLICEMIA
+    UNION ALL
+    SELECT id_registro, id_paciente, 'PRESSAO'::tipo_sinal_enum, data_hora,
+           sistolica::numeric, diastolica::numeric, 'mmHg'::varchar, nivel_risco, observacoes,
+           NULL::sim_nao_enum, NULL::varchar, NULL::numeric, NULL::numeric
+    FROM TB_REGISTRO_PRESSAO
+    UNION ALL
+    SELECT id_registro, id_paciente, 'PESO'::tipo_sinal_enum, data_hora,
+           peso::numeric, NULL::numeric, 'kg'::varchar, nivel_risco, observacoes,
+           NULL::sim_nao_enum, NULL::varchar, altura::numeric, imc::numeric
+    FROM TB_REGISTRO_PESO;
+
+-- Rollup diário por paciente e tipo de sinal (mantido incrementalmente pela aplicação)
+CREATE TABLE TB_REGISTRO_DIARIO (
+    id_paciente BIGINT NOT NULL,
+    tipo_sinal tipo_sinal_enum NOT NULL,
+    dia DATE NOT NULL,
+    quantidade INTEGER NOT NULL,
+    valor_minimo NUMERIC(6,2) NOT NULL,
+    valor_maximo NUMERIC(6,2) NOT NULL,
+    soma_valores NUMERIC(14,2) NOT NULL,
+    qtd_normal INTEGER NOT NULL DEFAULT 0,
+    qtd_atencao INTEGER NOT NULL DEFAULT 0,
+    qtd_alto INTEGER NOT NULL DEFAULT 0,
+    qtd_critico INTEGER NOT NULL DEFAULT 0,
+
+    CONSTRAINT pk_registro_diario PRIMARY KEY (id_paciente, tipo_sinal, dia),
+    CONSTRAINT fk_registro_diario_paciente FOREIGN KEY (id_paciente)
+        REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE
+);
+
+-- Agregados horários das leituras NORMAL compactadas pelo job de retenção (RetencaoRegistros).
+-- Leituras fora do NORMAL continuam brutas; média = soma_valores / quantidade.
+CREATE TABLE TB_REGISTRO_HORARIO (
+    id_paciente BIGINT NOT NULL,
+    tipo_sinal tipo_sinal_enum NOT NULL,
+    hora TIMESTAMP NOT NULL,
+    quantidade INTEGER NOT NULL,
+    valor_minimo NUMERIC(6,2) NOT NULL,
+    valor_maximo NUMERIC(6,2) NOT NULL,
+    soma_valores NUMERIC(14,2) NOT NULL,
+
+    CONSTRAINT pk_registro_horario PRIMARY KEY (id_paciente, tipo_sinal, hora),
+    CONSTRAINT fk_registro_horario_paciente FOREIGN KEY (id_paciente)
         REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE
 );
 
 -- Tabela de Consultas à IA
+-- id_registro é opcional: consultas do chat não partem de uma leitura específica. Sem FK, pois a
+-- leitura pode estar em qualquer das tabelas por tipo, cuja chave particionada é
+-- (id_registro, data_hora); os jobs que excluem leituras preservam as referenciadas aqui.
+-- id_paciente sem FK para que o log em lote não falhe se o paciente for excluído.
 CREATE TABLE TB_CONSULTA_IA (
     id_consulta BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
-    id_registro BIGINT NOT NULL,
+    id_registro BIGINT,
+    id_paciente BIGINT,
     data_consulta TIMESTAMP NOT NULL,
+    tipo_consulta VARCHAR(20),
+    provedor VARCHAR(50),
+    fallback sim_nao_enum,
+    tamanho_prompt INTEGER,
+    tamanho_resposta INTEGER,
     contexto_enviado TEXT,
     resposta_ia TEXT,
     tempo_resposta_ms INTEGER,
     sucesso sim_nao_enum NOT NULL,
-    erro VARCHAR(500),
-
-    CONSTRAINT fk_consulta_registro FOREIGN KEY (id_registro)
-        REFERENCES TB_REGISTRO(id_registro) ON DELETE CASCADE
+    erro VARCHAR(500)
 );
 
--- Índices para performance
-CREATE INDEX idx_registro_paciente ON TB_REGISTRO(id_paciente);
-CREATE INDEX idx_registro_data ON TB_REGISTRO(data_hora);
-CREATE INDEX idx_registro_risco ON TB_REGISTRO(nivel_risco);
+-- Índices para performance. Os índices das leituras são ajustados depois pelas migrações da
+-- aplicação (MigradorSchema), aplicadas na inicialização.
+CREATE INDEX idx_glicemia_paciente ON TB_REGISTRO_GLICEMIA(id_paciente);
+CREATE INDEX idx_glicemia_data ON TB_REGISTRO_GLICEMIA(data_hora);
+CREATE INDEX idx_pressao_paciente ON TB_REGISTRO_PRESSAO(id_paciente);
+CREATE INDEX idx_pressao_data ON TB_REGISTRO_PRESSAO(data_hora);
+CREATE INDEX idx_peso_paciente ON TB_REGISTRO_PESO(id_paciente);
+CREATE INDEX idx_peso_data ON TB_REGISTRO_PESO(data_hora);
+-- Índices parciais para os níveis de risco que importam: cobrem só uma pequena fração das
+-- leituras, ao contrário de um índice sobre os 4 valores do enum. As consultas precisam repetir
+-- o predicado literalmente (nivel_risco = 'CRITICO'), não como parâmetro, para usá-los.
+CREATE INDEX idx_glicemia_critico_data ON TB_REGISTRO_GLICEMIA(data_hora, id_paciente) WHERE nivel_risco = 'CRITICO';
+CREATE INDEX idx_glicemia_alto_data ON TB_REGISTRO_GLICEMIA(data_hora, id_paciente) WHERE nivel_risco = 'ALTO';
+CREATE INDEX idx_glicemia_critico_paciente ON TB_REGISTRO_GLICEMIA(id_paciente) WHERE nivel_risco = 'CRITICO';
+CREATE INDEX idx_pressao_critico_data ON TB_REGISTRO_PRESSAO(data_hora, id_paciente) WHERE nivel_risco = 'CRITICO';
+CREATE INDEX idx_pressao_alto_data ON TB_REGISTRO_PRESSAO(data_hora, id_paciente) WHERE nivel_risco = 'ALTO';
+CREATE INDEX idx_pressao_critico_paciente ON TB_REGISTRO_PRESSAO(id_paciente) WHERE nivel_risco = 'CRITICO';
+CREATE INDEX idx_peso_critico_data ON TB_REGISTRO_PESO(data_hora, id_paciente) WHERE nivel_risco = 'CRITICO';
+CREATE INDEX idx_peso_alto_data ON TB_REGISTRO_PESO(data_hora, id_paciente) WHERE nivel_risco = 'ALTO';
+CREATE INDEX idx_peso_critico_paciente ON TB_REGISTRO_PESO(id_paciente) WHERE nivel_risco = 'CRITICO';
+-- Idempotência da ingestão: um reenvio da mesma leitura (mesma chave, enviada pelo dispositivo
+-- ou derivada de paciente, tipo, data_hora e valor) é ignorado com ON CONFLICT DO NOTHING.
+-- A chave do dispositivo só é única por dispositivo, por isso a restrição é por paciente; inclui
+-- data_hora, exigência do particionamento. Limitações decorrentes:
+--  * a mesma chave reenviada com a data_hora corrigida é gravada como outra leitura;
+--  * a leitura compactada pela retenção (TB_REGISTRO_HORARIO) não existe mais, e um reenvio dela
+--    seria gravado de novo; com a retenção ativa a aplicação recusa leituras que já estariam
+--    compactadas. A carga COPY de histórico não faz essa verificação.
+CREATE UNIQUE INDEX uq_glicemia_chave ON TB_REGISTRO_GLICEMIA(id_paciente, chave_idempotencia, data_hora);
+CREATE UNIQUE INDEX uq_pressao_chave ON TB_REGISTRO_PRESSAO(id_paciente, chave_idempotencia, data_hora);
+CREATE UNIQUE INDEX uq_peso_chave ON TB_REGISTRO_PESO(id_paciente, chave_idempotencia, data_hora);
 CREATE INDEX idx_consulta_registro ON TB_CONSULTA_IA(id_registro);
+CREATE INDEX idx_consulta_data ON TB_CONSULTA_IA(data_consulta);
+
+-- Partições do mês atual e dos próximos 3 meses; a aplicação mantém a janela adiante
+SELECT fn_garantir_particoes_registro(3);
+
+-- Feed de leituras de risco (FeedLeiturasRisco): cada leitura ALTO/CRITICO inserida publica um
+-- NOTIFY no canal registro_risco, entregue no commit.
+-- Payload: id_registro|id_paciente|tipo_sinal|nivel_risco|valor_principal|data_hora
+-- Argumentos do trigger: tipo_sinal da tabela e coluna do valor principal.
+CREATE FUNCTION fn_notificar_registro_risco() RETURNS trigger AS $$
+BEGIN
+    PERFORM pg_notify('registro_risco', concat_ws('|', NEW.id_registro, NEW.id_paciente,
+        TG_ARGV[0], NEW.nivel_risco, to_jsonb(NEW) ->> TG_ARGV[1],
+        to_char(NEW.data_hora, 'YYYY-MM-DD"T"HH24:MI:SS')));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_glicemia_risco AFTER INSERT ON TB_REGISTRO_GLICEMIA
+    FOR EACH ROW WHEN (NEW.nivel_risco IN ('ALTO', 'CRITICO'))
+    EXECUTE FUNCTION fn_notificar_registro_risco('GLICEMIA', 'valor_glicemia');
+CREATE TRIGGER trg_pressao_risco AFTER INSERT ON TB_REGISTRO_PRESSAO
+    FOR EACH ROW WHEN (NEW.nivel_risco IN ('ALTO', 'CRITICO'))
+    EXECUTE FUNCTION fn_notificar_registro_risco('PRESSAO', 'sistolica');
+CREATE TRIGGER trg_peso_risco AFTER INSERT ON TB_REGISTRO_PESO
+    FOR EACH ROW WHEN (NEW.nivel_risco IN ('ALTO', 'CRITICO'))
+    EXECUTE FUNCTION fn_notificar_registro_risco('PESO', 'peso');
+
+-- Versões de schema aplicadas por MigradorSchema
+CREATE TABLE TB_SCHEMA_VERSAO (
+    versao INTEGER PRIMARY KEY,
+    descricao VARCHAR(200) NOT NULL,
+    aplicada_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    duracao_ms INTEGER NOT NULL
+);
 
 -- Comentários nas tabelas (documentação)
 COMMENT ON TABLE TB_PACIENTE IS 'Cadastro de pacientes do sistema GlicemIA';
-COMMENT ON TABLE TB_REGISTRO IS 'Histórico de medições de sinais vitais';
+COMMENT ON TABLE TB_REGISTRO_GLICEMIA IS 'Medições de glicemia';
+COMMENT ON TABLE TB_REGISTRO_PRESSAO IS 'Medições de pressão arterial';
+COMMENT ON TABLE TB_REGISTRO_PESO IS 'Medições de peso corporal';
+COMMENT ON VIEW VW_REGISTRO IS 'Histórico de medições de sinais vitais de todos os tipos';
+COMMENT ON TABLE TB_REGISTRO_DIARIO IS 'Resumo diário (mín/máx/média/contagens) por paciente e tipo de sinal';
+COMMENT ON TABLE TB_REGISTRO_HORARIO IS 'Agregados horários (mín/máx/soma) das leituras antigas compactadas';
 COMMENT ON TABLE TB_CONSULTA_IA IS 'Log de consultas realizadas à IA generativa';
 
 -- Mensagem de sucesso
 DO $$
 BEGIN
     RAISE NOTICE 'Database GlicemIA criado com sucesso!';
-    RAISE NOTICE 'Tabelas: TB_PACIENTE, TB_REGISTRO, TB_CONSULTA_IA';
+    RAISE NOTICE 'Tabelas: TB_PACIENTE, TB_REGISTRO_GLICEMIA, TB_REGISTRO_PRESSAO, TB_REGISTRO_PESO, TB_REGISTRO_DIARIO, TB_REGISTRO_HORARIO, TB_CONSULTA_IA';
 END $$;
@@ -2,10 +2,12 @@ package br.com.glicemia;
 
 import br.com.glicemia.bo.GerenciadorPacienteBO;
 import br.com.glicemia.bo.GerenciadorRegistroBO;
+import br.com.glicemia.dao.impl.CargaRegistroCopy;
 import br.com.glicemia.model.exceptions.RiscoEmergenciaException;
 import br.com.glicemia.model.vo.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 public class TestBusinessObject {
     public static void main(String[] args) {
@@ -112,6 +114,43 @@ public class TestBusinessObject {
             int episodiosCriticos = registroBO.contarEpisodiosCriticos(paciente.getIdPaciente());
             System.out.println("✓ Total de episódios críticos: " + episodiosCriticos);
 
+            System.out.println("\n=== Teste 9: Registrar Lote de Leituras ===");
+            var lote = java.util.List.<SinalVital>of(
+                new Glicemia(paciente.getIdPaciente(), 98.0, true),
+                new Glicemia(paciente.getIdPaciente(), 160.0, false),
+                new PressaoArterial(paciente.getIdPaciente(), 118, 76)
+            );
+            var resultados = registroBO.registrarLote(lote);
+            for (var resultado : resultados) {
+                System.out.println("  " + (resultado.isPersistido() ? "✓ " : resultado.isEnfileirado() ? "… " : "✗ ") +
+                    resultado.getSinalVital().getDescricao() + " | Risco: " + resultado.getNivelRisco());
+            }
+
+            System.out.println("\n=== Teste 10: Cache de Pacientes ===");
+            pacienteBO.buscarPacientePorId(paciente.getIdPaciente());
+            pacienteBO.buscarPacientePorCPF(paciente.getCpf());
+            System.out.println("  " + GerenciadorPacienteBO.getEstatisticasCache());
+
+            System.out.println("\n=== Teste 11: Carga de Histórico via COPY ===");
+            registroBO.buscarHistoricoRecente(paciente.getIdPaciente(), 5);
+            Glicemia carregadaRecente = new Glicemia(paciente.getIdPaciente(), 101.0, true);
+            carregadaRecente.setDataHora(LocalDateTime.now().plusMinutes(1));
+            Glicemia semDataHora = new Glicemia(paciente.getIdPaciente(), 99.0, true);
+            semDataHora.setDataHora(null);
+            var historicoCarga = java.util.List.<SinalVital>of(
+                new PressaoArterial(paciente.getIdPaciente(), 122, 81),
+                carregadaRecente,
+                semDataHora
+            );
+            historicoCarga.get(0).setDataHora(LocalDateTime.now().minusDays(30));
+            var carga = registroBO.carregarHistorico(historicoCarga.iterator(), CargaRegistroCopy.Modo.STAGING);
+            System.out.println("  " + carga);
+            System.out.println("  " + (carga.getLinhasRejeitadas() >= 1 ? "✓" : "✗") +
+                " Leitura sem data_hora descartada");
+            var aposCarga = registroBO.buscarHistoricoRecente(paciente.getIdPaciente(), 1);
+            boolean visivel = !aposCarga.isEmpty() &&
+                carregadaRecente.getDataHora().withNano(0).equals(aposCarga.get(0).getDataHora().withNano(0));
+            System.out.println("  " + (visivel ? "✓" : "✗") + " Leitura carregada visível no histórico recente");
 
             System.out.println("\n ✅ Todos os testes da fase 05 passaram com sucesso!");
 
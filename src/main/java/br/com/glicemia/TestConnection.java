@@ -14,6 +14,10 @@ public class TestConnection {
             System.out.println("✓ Conexão com banco de dados OK!");
             System.out.println("✓ SSL habilitado");
             System.out.println("\nVersão do banco: " + DatabaseConnection.getDatabaseVersion());
+            System.out.println(DatabaseConnection.getEstatisticasPool());
+            if (DatabaseConnection.getEstatisticasReplica() != null) {
+                System.out.println(DatabaseConnection.getEstatisticasReplica());
+            }
             System.out.println("\n🎉 Setup concluído com sucesso!");
         } else {
             System.out.println("✗ Falha na conexão com banco de dados");
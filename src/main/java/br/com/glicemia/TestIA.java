@@ -185,6 +185,9 @@ public class TestIA {
             System.out.println();
 
             System.out.println("🔧 Provedor de IA utilizado: " + gerenciadorIA.getProvedorAtivo());
+            if (GerenciadorIA.getEstatisticasLog() != null) {
+                System.out.println("🗂 " + GerenciadorIA.getEstatisticasLog());
+            }
             System.out.println();
 
             if (gerenciadorIA.isFallbackAtivo() ||
@@ -1,60 +1,86 @@
 package br.com.glicemia.bo;
 
 import br.com.glicemia.dao.interfaces.PacienteDAO;
+import br.com.glicemia.dao.impl.ArmazemLocal;
+import br.com.glicemia.dao.impl.PacienteDAOCache;
 import br.com.glicemia.dao.impl.PacienteDAOImpl;
+import br.com.glicemia.dao.impl.PacienteDAOLocal;
 import br.com.glicemia.model.exceptions.ValorInvalidoException;
 import br.com.glicemia.model.vo.Paciente;
+import br.com.glicemia.util.EnvLoader;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 
 public class GerenciadorPacienteBO {
 
+    // Cache compartilhado por todas as instâncias criadas com o construtor padrão
+    private static final PacienteDAOCache CACHE_PACIENTES = new PacienteDAOCache(
+        ArmazemLocal.isHabilitado() ? new PacienteDAOLocal(ArmazemLocal.getInstancia()) : new PacienteDAOImpl(),
+        Integer.parseInt(EnvLoader.get("CACHE_PACIENTE_CAPACIDADE", "1000")),
+        Long.parseLong(EnvLoader.get("CACHE_PACIENTE_TTL_SECONDS", "300")) * 1000L
+    );
+
     private final PacienteDAO pacienteDAO;
 
     public GerenciadorPacienteBO() {
-        this.pacienteDAO = new PacienteDAOImpl();
+        this.pacienteDAO = CACHE_PACIENTES;
     }
 
     public GerenciadorPacienteBO(PacienteDAO pacienteDAO) {
         this.pacienteDAO = pacienteDAO;
     }
 
+    // Cada alteração de paciente é um único comando no banco: a unicidade do CPF e a existência
+    // do paciente são verificadas pelo próprio INSERT/UPDATE/DELETE, sem consulta prévia.
     public Paciente cadastrarPaciente(String nome, String cpf, LocalDate dataNascimento,
                                      String email, String telefone)
             throws ValorInvalidoException, SQLException {
 
-        Paciente pacienteExistente = pacienteDAO.buscarPorCPF(cpf);
-        if (pacienteExistente != null) {
+        validarIdadeMinima(dataNascimento);
+
+        Paciente paciente = new Paciente(nome, cpf, dataNascimento);
+        paciente.setEmail(email);
+        paciente.setTelefone(telefone);
+
+        Long idGerado = pacienteDAO.inserirSeCpfLivre(paciente);
+        if (idGerado == null) {
             throw new ValorInvalidoException(
                 "Já existe um paciente cadastrado com o CPF: " + cpf
             );
         }
+        paciente.setIdPaciente(idGerado);
+
+        return paciente;
+    }
 
-        if (dataNascimento.isAfter(LocalDate.now().minusYears(1))) {
+    // Importa pacientes de um CSV (ver ImportadorPacientes); linhas rejeitadas vão para o relatório
+    public ImportadorPacientes.Relatorio importarPacientes(Path arquivo) throws IOException, SQLException {
+        ImportadorPacientes importador = new ImportadorPacientes(pacienteDAO,
+            Integer.parseInt(EnvLoader.get("IMPORTACAO_TAMANHO_BLOCO", "1000")));
+        try (Reader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            return importador.importar(leitor);
+        }
+    }
+
+    static void validarIdadeMinima(LocalDate dataNascimento) throws ValorInvalidoException {
+        if (dataNascimento != null && dataNascimento.isAfter(LocalDate.now().minusYears(1))) {
             throw new ValorInvalidoException(
                 "Paciente deve ter pelo menos 1 ano de idade"
             );
         }
-
-        Paciente paciente = new Paciente(nome, cpf, dataNascimento);
-        paciente.setEmail(email);
-        paciente.setTelefone(telefone);
-
-        Long idGerado = pacienteDAO.inserir(paciente);
-        paciente.setIdPaciente(idGerado);
-
-        return paciente;
     }
 
     public void atualizarPaciente(Paciente paciente) throws SQLException {
-        Paciente existente = pacienteDAO.buscarPorId(paciente.getIdPaciente());
-        if (existente == null) {
+        if (!pacienteDAO.atualizar(paciente)) {
             throw new SQLException("Paciente não encontrado: " + paciente.getIdPaciente());
         }
-
-        pacienteDAO.atualizar(paciente);
     }
 
     public Paciente buscarPacientePorId(Long idPaciente) throws SQLException {
@@ -70,11 +96,12 @@ public class GerenciadorPacienteBO {
     }
 
     public void removerPaciente(Long idPaciente) throws SQLException {
-        Paciente paciente = pacienteDAO.buscarPorId(idPaciente);
-        if (paciente == null) {
+        if (!pacienteDAO.deletar(idPaciente)) {
             throw new SQLException("Paciente não encontrado: " + idPaciente);
         }
+    }
 
-        pacienteDAO.deletar(idPaciente);
+    public static PacienteDAOCache.Estatisticas getEstatisticasCache() {
+        return CACHE_PACIENTES.getEstatisticas();
     }
 }
@@ -1,27 +1,161 @@
 package br.com.glicemia.bo;
 
 import br.com.glicemia.dao.interfaces.RegistroDAO;
+import br.com.glicemia.dao.interfaces.ResumoDiarioDAO;
+import br.com.glicemia.dao.impl.ArmazemLocal;
+import br.com.glicemia.dao.impl.ArquivamentoRegistros;
+import br.com.glicemia.dao.impl.CargaRegistroCopy;
+import br.com.glicemia.dao.impl.ParticionamentoRegistros;
+import br.com.glicemia.dao.impl.RegistroDAOArquivado;
+import br.com.glicemia.dao.impl.RegistroDAOCache;
 import br.com.glicemia.dao.impl.RegistroDAOImpl;
+import br.com.glicemia.dao.impl.RegistroDAOLocal;
+import br.com.glicemia.dao.impl.RegistroDAOWriteBehind;
+import br.com.glicemia.dao.impl.ResumoDiarioDAOImpl;
+import br.com.glicemia.dao.impl.RetencaoRegistros;
 import br.com.glicemia.model.exceptions.RiscoEmergenciaException;
 import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.StatusInsercao;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.CursorRegistro;
+import br.com.glicemia.model.vo.OcorrenciaRisco;
+import br.com.glicemia.model.vo.PaginaRegistros;
+import br.com.glicemia.model.vo.ResumoDiario;
+import br.com.glicemia.model.vo.ResumoEstatistico;
+import br.com.glicemia.model.vo.SerieSinalVital;
 import br.com.glicemia.model.vo.SinalVital;
+import br.com.glicemia.util.EnvLoader;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class GerenciadorRegistroBO {
 
+    // Presente apenas com REGISTRO_WRITE_BEHIND=true
+    private static RegistroDAOWriteBehind writeBehind;
+
+    // Presente apenas com ARQUIVO_HABILITADO=true
+    private static RegistroDAOArquivado arquivado;
+
+    // Cache compartilhado por todas as instâncias criadas com o construtor padrão
+    private static final RegistroDAOCache CACHE_REGISTROS = new RegistroDAOCache(
+        criarRegistroDAOPadrao(),
+        Integer.parseInt(EnvLoader.get("CACHE_REGISTRO_POR_PACIENTE", "20")),
+        Long.parseLong(EnvLoader.get("CACHE_REGISTRO_MEMORIA_MB", "16")) * 1024L * 1024L,
+        Long.parseLong(EnvLoader.get("CACHE_REGISTRO_TTL_SECONDS", "60")) * 1000L
+    );
+
+    // Presente apenas com RETENCAO_HABILITADA=true
+    private static final RetencaoRegistros RETENCAO = criarRetencao();
+
+    private static final ParticionamentoRegistros PARTICOES = criarParticionamento();
+
     private final RegistroDAO registroDAO;
+    private final ResumoDiarioDAO resumoDiarioDAO;
 
     public GerenciadorRegistroBO() {
-        this.registroDAO = new RegistroDAOImpl();
+        this(CACHE_REGISTROS, new ResumoDiarioDAOImpl());
     }
 
     public GerenciadorRegistroBO(RegistroDAO registroDAO) {
+        this(registroDAO, new ResumoDiarioDAOImpl());
+    }
+
+    public GerenciadorRegistroBO(RegistroDAO registroDAO, ResumoDiarioDAO resumoDiarioDAO) {
         this.registroDAO = registroDAO;
+        this.resumoDiarioDAO = resumoDiarioDAO;
+    }
+
+    private static RegistroDAO criarRegistroDAOPadrao() {
+        // O armazenamento local já grava de forma assíncrona e substitui o write-behind
+        if (ArmazemLocal.isHabilitado()) {
+            return new RegistroDAOLocal(ArmazemLocal.getInstancia());
+        }
+
+        RegistroDAO registroDAO = new RegistroDAOImpl();
+        if (Boolean.parseBoolean(EnvLoader.get("ARQUIVO_HABILITADO", "false"))) {
+            try {
+                arquivado = new RegistroDAOArquivado(registroDAO,
+                    Paths.get(EnvLoader.get("ARQUIVO_DIRETORIO", "dados/arquivo")));
+                registroDAO = arquivado;
+            } catch (IOException e) {
+                System.err.println("Arquivo de leituras indisponível, usando apenas o banco: " + e.getMessage());
+            }
+        }
+
+        if (!Boolean.parseBoolean(EnvLoader.get("REGISTRO_WRITE_BEHIND", "false"))) {
+            return registroDAO;
+        }
+
+        try {
+            writeBehind = new RegistroDAOWriteBehind(
+                registroDAO,
+                Paths.get(EnvLoader.get("REGISTRO_WB_ARQUIVO", "dados/registros-pendentes.log")),
+                RegistroDAOWriteBehind.PoliticaFsync.valueOf(EnvLoader.get("REGISTRO_WB_FSYNC", "SEMPRE")),
+                Long.parseLong(EnvLoader.get("REGISTRO_WB_INTERVALO_MS", "200")),
+                Integer.parseInt(EnvLoader.get("DB_BATCH_SIZE", "500"))
+            );
+            return writeBehind;
+        } catch (IOException e) {
+            System.err.println("Write-behind indisponível, usando gravação síncrona: " + e.getMessage());
+            return registroDAO;
+        }
     }
 
+    private static RetencaoRegistros criarRetencao() {
+        if (!Boolean.parseBoolean(EnvLoader.get("RETENCAO_HABILITADA", "false"))) {
+            return null;
+        }
+
+        List<TipoSinal> tipos = new ArrayList<>();
+        for (String tipo : EnvLoader.get("RETENCAO_TIPOS", "GLICEMIA").split(",")) {
+            if (!tipo.trim().isEmpty()) {
+                tipos.add(TipoSinal.valueOf(tipo.trim().toUpperCase()));
+            }
+        }
+
+        RetencaoRegistros retencao = new RetencaoRegistros(
+            tipos,
+            Integer.parseInt(EnvLoader.get("RETENCAO_IDADE_DIAS", "90")),
+            Integer.parseInt(EnvLoader.get("RETENCAO_LOTE", "5000")),
+            Long.parseLong(EnvLoader.get("RETENCAO_PAUSA_MS", "100")),
+            Paths.get(EnvLoader.get("RETENCAO_CHECKPOINT", "dados/retencao.checkpoint"))
+        );
+
+        RegistroDAOImpl.usarRetencao(retencao);
+
+        long intervaloHoras = Long.parseLong(EnvLoader.get("RETENCAO_INTERVALO_HORAS", "24"));
+        if (intervaloHoras > 0) {
+            retencao.agendar(intervaloHoras * 3_600_000L);
+        }
+        return retencao;
+    }
+
+    // A manutenção roda ao carregar a classe e depois a cada PARTICAO_INTERVALO_HORAS
+    private static ParticionamentoRegistros criarParticionamento() {
+        ParticionamentoRegistros particoes = new ParticionamentoRegistros(
+            Integer.parseInt(EnvLoader.get("PARTICAO_MESES_A_FRENTE", "3")),
+            Integer.parseInt(EnvLoader.get("PARTICAO_MESES_RETIDOS", "0")),
+            Boolean.parseBoolean(EnvLoader.get("PARTICAO_EXCLUIR_DESANEXADAS", "false"))
+        );
+
+        long intervaloHoras = Long.parseLong(EnvLoader.get("PARTICAO_INTERVALO_HORAS", "24"));
+        if (intervaloHoras > 0) {
+            particoes.agendar(intervaloHoras * 3_600_000L);
+        }
+        return particoes;
+    }
+
+    // Com write-behind ativo, a leitura é analisada e anexada ao log local antes de retornar;
+    // a gravação no banco ocorre em segundo plano.
     public boolean registrarSinalVital(SinalVital sinalVital)
             throws RiscoEmergenciaException, SQLException {
 
@@ -32,11 +166,80 @@ public class GerenciadorRegistroBO {
         return risco != NivelRisco.CRITICO;
     }
 
+    // Registra um lote de leituras (ex.: upload de glicosímetro/CGM). A análise de risco é feita
+    // item a item e o lote é gravado em uma única operação em lote. Diferente do registro
+    // manual, leituras críticas importadas são gravadas e sinalizadas como emergência, pois
+    // representam medições já ocorridas. Retorna um resultado por item, na ordem de entrada;
+    // com write-behind ou modo offline os itens aceitos voltam como enfileirados, não persistidos.
+    public List<ResultadoRegistro> registrarLote(List<SinalVital> sinais) throws SQLException {
+        List<ResultadoRegistro.Builder> builders = new ArrayList<>(sinais.size());
+        List<SinalVital> validos = new ArrayList<>(sinais.size());
+        List<Integer> posicoes = new ArrayList<>(sinais.size());
+
+        for (int i = 0; i < sinais.size(); i++) {
+            SinalVital sinal = sinais.get(i);
+            ResultadoRegistro.Builder builder = new ResultadoRegistro.Builder().comSinalVital(sinal);
+            builders.add(builder);
+
+            if (sinal == null) {
+                builder.erro("Registro nulo no lote");
+                continue;
+            }
+
+            try {
+                NivelRisco risco = sinal.analisarRisco();
+                builder.liberadoParaIA(risco != NivelRisco.CRITICO)
+                       .mensagemAlerta(sinal.getRecomendacaoImediata());
+            } catch (RiscoEmergenciaException e) {
+                builder.emergencia(true)
+                       .liberadoParaIA(false)
+                       .mensagemAlerta(e.getMessage())
+                       .protocoloEmergencia(e.getProtocolo());
+            }
+
+            validos.add(sinal);
+            posicoes.add(i);
+        }
+
+        if (!validos.isEmpty()) {
+            StatusInsercao[] status = registroDAO.inserirLote(validos);
+            for (int i = 0; i < status.length; i++) {
+                ResultadoRegistro.Builder builder = builders.get(posicoes.get(i));
+                switch (status[i]) {
+                    case FALHOU:
+                        builder.erro("Registro rejeitado pelo banco de dados");
+                        break;
+                    case INTERROMPIDO:
+                        builder.erro("Registro não gravado: envio interrompido, reenvie o item");
+                        break;
+                    case PENDENTE:
+                        // Write-behind/modo offline: só aceito no log local, a gravação vem depois
+                        builder.enfileirado(true);
+                        break;
+                    default:
+                        builder.persistido(true);
+                }
+            }
+        }
+
+        List<ResultadoRegistro> resultados = new ArrayList<>(builders.size());
+        for (ResultadoRegistro.Builder builder : builders) {
+            resultados.add(builder.build());
+        }
+        return resultados;
+    }
+
     public List<SinalVital> buscarHistoricoRecente(Long idPaciente, int limite)
             throws SQLException {
         return registroDAO.buscarUltimosRegistros(idPaciente, limite);
     }
 
+    // Painéis com muitos pacientes: uma consulta para todos em vez de uma por paciente
+    public Map<Long, List<SinalVital>> buscarHistoricoRecentePorPacientes(Collection<Long> idsPacientes,
+                                                                         int limite) throws SQLException {
+        return registroDAO.buscarUltimosRegistrosPorPacientes(idsPacientes, limite);
+    }
+
     public List<SinalVital> buscarRegistrosPorPeriodo(Long idPaciente,
                                                        LocalDateTime inicio,
                                                        LocalDateTime fim)
@@ -48,62 +251,173 @@ public class GerenciadorRegistroBO {
         return registroDAO.listarPorPaciente(idPaciente);
     }
 
+    public PaginaRegistros listarHistoricoPaginado(Long idPaciente, CursorRegistro cursor,
+                                                   int tamanhoPagina) throws SQLException {
+        if (tamanhoPagina <= 0) {
+            throw new IllegalArgumentException("Tamanho de página deve ser positivo: " + tamanhoPagina);
+        }
+        return registroDAO.listarPagina(idPaciente, cursor, tamanhoPagina);
+    }
+
     public int contarEpisodiosCriticos(Long idPaciente) throws SQLException {
         return registroDAO.contarRegistrosCriticos(idPaciente);
     }
 
+    // Pacientes com leituras do nível (ALTO ou CRITICO) nas últimas horas; leve o bastante
+    // para ser consultado periodicamente sobre toda a base
+    public List<OcorrenciaRisco> buscarPacientesEmRisco(NivelRisco nivel, int horas) throws SQLException {
+        return registroDAO.buscarOcorrenciasRisco(nivel, LocalDateTime.now().minusHours(horas));
+    }
+
+    // Carga de histórico em massa (migração de outro sistema, exportação de glicosímetro) via COPY,
+    // direto no banco: sem análise de risco item a item, write-behind ou modo offline. O cache
+    // de leituras recentes dos pacientes carregados é descartado.
+    public CargaRegistroCopy.ResultadoCarga carregarHistorico(Iterator<SinalVital> sinais,
+                                                             CargaRegistroCopy.Modo modo) throws SQLException {
+        CargaRegistroCopy.ResultadoCarga resultado = new CargaRegistroCopy().carregar(sinais, modo);
+        for (Long idPaciente : resultado.getPacientes()) {
+            CACHE_REGISTROS.invalidar(idPaciente);
+        }
+        return resultado;
+    }
+
     public SinalVital buscarRegistroPorId(Long idRegistro) throws SQLException {
         return registroDAO.buscarPorId(idRegistro);
     }
 
-    public String gerarResumoEstatistico(Long idPaciente) throws SQLException {
-        List<SinalVital> registros = registroDAO.listarPorPaciente(idPaciente);
+    public List<ResumoDiario> buscarResumoDiario(Long idPaciente, LocalDate inicio, LocalDate fim)
+            throws SQLException {
+        if (fim.isBefore(inicio)) {
+            throw new IllegalArgumentException("Data final anterior à data inicial");
+        }
+        return resumoDiarioDAO.listarPorPeriodo(idPaciente, inicio, fim);
+    }
 
-        if (registros.isEmpty()) {
-            return "Nenhum registro encontrado para este paciente.";
+    public void reconstruirResumoDiario(Long idPaciente, LocalDate inicio, LocalDate fim)
+            throws SQLException {
+        resumoDiarioDAO.reconstruir(idPaciente, inicio, fim);
+    }
+
+    public void reconstruirResumoDiarioCompleto() throws SQLException {
+        resumoDiarioDAO.reconstruirTudo();
+    }
+
+    public ResumoEstatistico obterResumoEstatistico(Long idPaciente) throws SQLException {
+        return registroDAO.calcularResumo(idPaciente);
+    }
+
+    // Série dos últimos dias em arrays primitivos, para análises sobre históricos longos
+    public SerieSinalVital carregarSerie(Long idPaciente, TipoSinal tipo, int dias) throws SQLException {
+        if (dias <= 0) {
+            throw new IllegalArgumentException("Quantidade de dias deve ser positiva: " + dias);
         }
+        LocalDateTime fim = LocalDateTime.now();
+        return registroDAO.carregarSerie(idPaciente, tipo, fim.minusDays(dias), fim);
+    }
 
-        int totalRegistros = registros.size();
-        int countNormal = 0;
-        int countAtencao = 0;
-        int countAlto = 0;
-        int countCritico = 0;
+    public String gerarResumoEstatistico(Long idPaciente) throws SQLException {
+        ResumoEstatistico estatisticas = registroDAO.calcularResumo(idPaciente);
 
-        for (SinalVital sinal : registros) {
-            if (sinal.getNivelRisco() != null) {
-                switch (sinal.getNivelRisco()) {
-                    case NORMAL:
-                        countNormal++;
-                        break;
-                    case ATENCAO:
-                        countAtencao++;
-                        break;
-                    case ALTO:
-                        countAlto++;
-                        break;
-                    case CRITICO:
-                        countCritico++;
-                        break;
-                }
-            }
+        if (estatisticas.isVazio()) {
+            return "Nenhum registro encontrado para este paciente.";
         }
 
+        long totalRegistros = estatisticas.getTotalRegistros();
+
         StringBuilder resumo = new StringBuilder();
         resumo.append("=== Resumo Estatístico ===\n");
         resumo.append("Total de Registros: ").append(totalRegistros).append("\n");
-        resumo.append("Normal: ").append(countNormal).append(" (")
-              .append(String.format("%.1f%%", (countNormal * 100.0 / totalRegistros)))
-              .append(")\n");
-        resumo.append("Atenção: ").append(countAtencao).append(" (")
-              .append(String.format("%.1f%%", (countAtencao * 100.0 / totalRegistros)))
-              .append(")\n");
-        resumo.append("Alto: ").append(countAlto).append(" (")
-              .append(String.format("%.1f%%", (countAlto * 100.0 / totalRegistros)))
-              .append(")\n");
-        resumo.append("Crítico: ").append(countCritico).append(" (")
-              .append(String.format("%.1f%%", (countCritico * 100.0 / totalRegistros)))
-              .append(")\n");
+        anexarContagem(resumo, "Normal", estatisticas.contarPorRisco(NivelRisco.NORMAL), totalRegistros);
+        anexarContagem(resumo, "Atenção", estatisticas.contarPorRisco(NivelRisco.ATENCAO), totalRegistros);
+        anexarContagem(resumo, "Alto", estatisticas.contarPorRisco(NivelRisco.ALTO), totalRegistros);
+        anexarContagem(resumo, "Crítico", estatisticas.contarPorRisco(NivelRisco.CRITICO), totalRegistros);
+
+        for (TipoSinal tipo : TipoSinal.values()) {
+            long quantidade = estatisticas.contarPorTipo(tipo);
+            if (quantidade > 0) {
+                resumo.append(String.format("%s: %d registros | mín %.1f | máx %.1f | média %.1f %s\n",
+                    tipo.getDescricao(), quantidade,
+                    estatisticas.getMinimo(tipo), estatisticas.getMaximo(tipo),
+                    estatisticas.getMedia(tipo), tipo.getUnidadePadrao()));
+            }
+        }
 
         return resumo.toString();
     }
+
+    private void anexarContagem(StringBuilder resumo, String rotulo, long quantidade, long total) {
+        resumo.append(rotulo).append(": ").append(quantidade).append(" (")
+              .append(String.format("%.1f%%", (quantidade * 100.0 / total)))
+              .append(")\n");
+    }
+
+    // Leituras gravadas por este processo já foram alertadas por quem as registrou
+    public static boolean isLeituraDesteTerminal(Long idRegistro) {
+        return idRegistro != null && RegistroDAOImpl.isGravadoAqui(idRegistro);
+    }
+
+    public static RegistroDAOCache.Estatisticas getEstatisticasCache() {
+        return CACHE_REGISTROS.getEstatisticas();
+    }
+
+    public static boolean isArquivoHabilitado() {
+        return arquivado != null;
+    }
+
+    // Move para o arquivo colunar as leituras mais antigas que ARQUIVO_IDADE_DIAS
+    public static ArquivamentoRegistros.Relatorio arquivarLeiturasAntigas() throws SQLException {
+        if (arquivado == null) {
+            throw new IllegalStateException("Arquivo de leituras desabilitado (ARQUIVO_HABILITADO)");
+        }
+        ArquivamentoRegistros.Relatorio relatorio = new ArquivamentoRegistros(arquivado,
+            Integer.parseInt(EnvLoader.get("ARQUIVO_IDADE_DIAS", "365"))).executar();
+        CACHE_REGISTROS.limpar();
+        return relatorio;
+    }
+
+    public static RegistroDAOArquivado.Estatisticas getEstatisticasArquivo() {
+        return arquivado != null ? arquivado.getEstatisticas() : null;
+    }
+
+    public static boolean isRetencaoHabilitada() {
+        return RETENCAO != null;
+    }
+
+    // Compacta em agregados horários as leituras NORMAL mais antigas que RETENCAO_IDADE_DIAS
+    public static RetencaoRegistros.Relatorio compactarLeiturasAntigas() throws SQLException {
+        if (RETENCAO == null) {
+            throw new IllegalStateException("Retenção de leituras desabilitada (RETENCAO_HABILITADA)");
+        }
+        RetencaoRegistros.Relatorio relatorio = RETENCAO.executar();
+        CACHE_REGISTROS.limpar();
+        return relatorio;
+    }
+
+    // Cria as partições mensais pendentes e desanexa as anteriores a PARTICAO_MESES_RETIDOS
+    public static ParticionamentoRegistros.Relatorio manterParticoes() throws SQLException {
+        ParticionamentoRegistros.Relatorio relatorio = PARTICOES.executar();
+        if (!relatorio.getDesanexadas().isEmpty()) {
+            CACHE_REGISTROS.limpar();
+        }
+        return relatorio;
+    }
+
+    public static List<ParticionamentoRegistros.Particao> listarParticoes() throws SQLException {
+        return PARTICOES.listarParticoes();
+    }
+
+    // Drena os registros pendentes do write-behind (ou tenta uma última sincronização do
+    // armazenamento local); deve ser chamado no encerramento normal.
+    public static void encerrar() {
+        if (RETENCAO != null) {
+            RETENCAO.encerrar();
+        }
+        PARTICOES.encerrar();
+        if (writeBehind != null) {
+            writeBehind.encerrar();
+        }
+        if (ArmazemLocal.isHabilitado()) {
+            ArmazemLocal.getInstancia().encerrar();
+        }
+    }
 }
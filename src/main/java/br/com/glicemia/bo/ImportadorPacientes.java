@@ -0,0 +1,349 @@
+package br.com.glicemia.bo;
+
+import br.com.glicemia.dao.interfaces.PacienteDAO;
+import br.com.glicemia.model.exceptions.ValorInvalidoException;
+import br.com.glicemia.model.vo.Paciente;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Importação de pacientes a partir de CSV, lido em blocos para não materializar o arquivo.
+// Cabeçalho obrigatório com as colunas nome, cpf e data_nascimento (email e telefone opcionais),
+// separadas por ';' ou ','; datas em dd/MM/yyyy ou yyyy-MM-dd. Por bloco: valida as linhas em
+// paralelo com as mesmas regras do cadastro unitário, descarta CPFs repetidos no arquivo, consulta
+// de uma vez os CPFs já cadastrados e insere o restante em lote. Os CPFs são comparados só pelos
+// dígitos, e no banco nas duas grafias usuais (com e sem pontuação).
+public class ImportadorPacientes {
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final PacienteDAO pacienteDAO;
+    private final int tamanhoBloco;
+
+    public ImportadorPacientes(PacienteDAO pacienteDAO, int tamanhoBloco) {
+        this.pacienteDAO = pacienteDAO;
+        this.tamanhoBloco = tamanhoBloco;
+    }
+
+    public Relatorio importar(Reader entrada) throws IOException, SQLException {
+        long inicio = System.nanoTime();
+        Relatorio relatorio = new Relatorio();
+        BufferedReader leitor = new BufferedReader(entrada);
+
+        String cabecalho = leitor.readLine();
+        if (cabecalho == null) {
+            throw new IOException("Arquivo vazio: cabeçalho ausente");
+        }
+        char separador = cabecalho.indexOf(';') >= 0 ? ';' : ',';
+        Colunas colunas = new Colunas(separarCampos(removerBom(cabecalho), separador));
+
+        // Dígitos do CPF -> linha em que apareceu primeiro
+        Map<String, Long> cpfsDoArquivo = new HashMap<>();
+        List<Linha> bloco = new ArrayList<>(tamanhoBloco);
+        long numeroLinha = 1;
+        String texto;
+
+        while ((texto = leitor.readLine()) != null) {
+            numeroLinha++;
+            if (texto.trim().isEmpty()) {
+                continue;
+            }
+            bloco.add(new Linha(numeroLinha, texto));
+            if (bloco.size() == tamanhoBloco) {
+                processarBloco(bloco, separador, colunas, cpfsDoArquivo, relatorio);
+                bloco.clear();
+            }
+        }
+        if (!bloco.isEmpty()) {
+            processarBloco(bloco, separador, colunas, cpfsDoArquivo, relatorio);
+        }
+
+        relatorio.erros.sort(Comparator.comparingLong(ErroLinha::getLinha));
+        relatorio.duracaoNanos = System.nanoTime() - inicio;
+        return relatorio;
+    }
+
+    private void processarBloco(List<Linha> bloco, char separador, Colunas colunas,
+                                Map<String, Long> cpfsDoArquivo, Relatorio relatorio)
+            throws SQLException {
+        relatorio.linhasLidas += bloco.size();
+
+        // Validação sem estado compartilhado; a ordem do bloco é preservada
+        List<Linha> validadas = bloco.parallelStream()
+            .map(linha -> validar(linha, separador, colunas))
+            .collect(Collectors.toList());
+
+        List<Linha> candidatas = new ArrayList<>(validadas.size());
+        for (Linha linha : validadas) {
+            if (linha.erro != null) {
+                relatorio.registrarErro(linha, linha.erro);
+                continue;
+            }
+            Long primeira = cpfsDoArquivo.putIfAbsent(linha.digitosCpf, linha.numero);
+            if (primeira != null) {
+                relatorio.registrarErro(linha, "CPF repetido no arquivo (linha " + primeira + ")");
+                continue;
+            }
+            candidatas.add(linha);
+        }
+        if (candidatas.isEmpty()) {
+            return;
+        }
+
+        Set<String> grafias = new HashSet<>();
+        for (Linha linha : candidatas) {
+            grafias.add(linha.paciente.getCpf());
+            grafias.add(linha.digitosCpf);
+            grafias.add(formatarCpf(linha.digitosCpf));
+        }
+        Set<String> existentes = new HashSet<>();
+        for (String cpf : pacienteDAO.buscarCpfsExistentes(grafias)) {
+            existentes.add(digitos(cpf));
+        }
+
+        List<Linha> aInserir = new ArrayList<>(candidatas.size());
+        for (Linha linha : candidatas) {
+            if (existentes.contains(linha.digitosCpf)) {
+                relatorio.registrarErro(linha, "CPF já cadastrado");
+            } else {
+                aInserir.add(linha);
+            }
+        }
+        if (aInserir.isEmpty()) {
+            return;
+        }
+
+        List<Paciente> pacientes = new ArrayList<>(aInserir.size());
+        for (Linha linha : aInserir) {
+            pacientes.add(linha.paciente);
+        }
+        int[] status = pacienteDAO.inserirLoteSeCpfLivre(pacientes);
+        for (int i = 0; i < status.length; i++) {
+            if (status[i] == 1) {
+                relatorio.inseridos++;
+            } else if (status[i] == Statement.EXECUTE_FAILED) {
+                relatorio.registrarErro(aInserir.get(i), "Rejeitado pelo banco");
+            } else {
+                relatorio.registrarErro(aInserir.get(i), "CPF cadastrado durante a importação");
+            }
+        }
+    }
+
+    private static Linha validar(Linha linha, char separador, Colunas colunas) {
+        try {
+            List<String> campos = separarCampos(linha.texto, separador);
+            String nome = colunas.obter(campos, colunas.nome);
+            String cpf = colunas.obter(campos, colunas.cpf);
+            String nascimento = colunas.obter(campos, colunas.dataNascimento);
+            String email = colunas.obter(campos, colunas.email);
+            String telefone = colunas.obter(campos, colunas.telefone);
+
+            linha.cpf = cpf;
+            LocalDate dataNascimento = converterData(nascimento);
+            GerenciadorPacienteBO.validarIdadeMinima(dataNascimento);
+
+            Paciente paciente = new Paciente(nome, cpf, dataNascimento);
+            paciente.setEmail(email);
+            paciente.setTelefone(telefone);
+            validarTamanhos(paciente);
+
+            linha.paciente = paciente;
+            linha.digitosCpf = digitos(cpf);
+        } catch (ValorInvalidoException e) {
+            linha.erro = e.getMessage();
+        } catch (RuntimeException e) {
+            linha.erro = "Linha malformada: " + e.getMessage();
+        }
+        return linha;
+    }
+
+    private static LocalDate converterData(String valor) throws ValorInvalidoException {
+        if (valor == null) {
+            throw new ValorInvalidoException("Data de nascimento inválida");
+        }
+        try {
+            return valor.indexOf('/') >= 0 ? LocalDate.parse(valor, FORMATO_DATA) : LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new ValorInvalidoException("Data de nascimento inválida: " + valor);
+        }
+    }
+
+    // Limites das colunas de TB_PACIENTE; violá-los faria o lote inteiro ser reprocessado
+    private static void validarTamanhos(Paciente paciente) throws ValorInvalidoException {
+        if (paciente.getNome().length() > 100) {
+            throw new ValorInvalidoException("Nome excede 100 caracteres");
+        }
+        if (paciente.getCpf().length() > 14) {
+            throw new ValorInvalidoException("CPF inválido: " + paciente.getCpf());
+        }
+        if (paciente.getEmail() != null && paciente.getEmail().length() > 100) {
+            throw new ValorInvalidoException("E-mail excede 100 caracteres");
+        }
+        if (paciente.getTelefone() != null && paciente.getTelefone().length() > 20) {
+            throw new ValorInvalidoException("Telefone excede 20 caracteres");
+        }
+    }
+
+    // Campos entre aspas podem conter o separador; aspas internas são escritas em dobro
+    static List<String> separarCampos(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreAspas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString().trim());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString().trim());
+        return campos;
+    }
+
+    private static String removerBom(String texto) {
+        return !texto.isEmpty() && texto.charAt(0) == '\uFEFF' ? texto.substring(1) : texto;
+    }
+
+    private static String digitos(String cpf) {
+        return cpf.replaceAll("[^0-9]", "");
+    }
+
+    private static String formatarCpf(String digitos) {
+        return digitos.substring(0, 3) + "." + digitos.substring(3, 6) + "." +
+               digitos.substring(6, 9) + "-" + digitos.substring(9);
+    }
+
+    private static class Colunas {
+        final int nome;
+        final int cpf;
+        final int dataNascimento;
+        final int email;
+        final int telefone;
+
+        Colunas(List<String> cabecalho) throws IOException {
+            List<String> nomes = new ArrayList<>();
+            for (String coluna : cabecalho) {
+                nomes.add(coluna.toLowerCase(Locale.ROOT));
+            }
+            this.nome = nomes.indexOf("nome");
+            this.cpf = nomes.indexOf("cpf");
+            this.dataNascimento = nomes.indexOf("data_nascimento");
+            this.email = nomes.indexOf("email");
+            this.telefone = nomes.indexOf("telefone");
+
+            if (nome < 0 || cpf < 0 || dataNascimento < 0) {
+                throw new IOException("Cabeçalho deve conter as colunas nome, cpf e data_nascimento: " +
+                                      String.join(",", cabecalho));
+            }
+        }
+
+        // Campo vazio ou ausente é null
+        String obter(List<String> campos, int indice) {
+            if (indice < 0 || indice >= campos.size() || campos.get(indice).isEmpty()) {
+                return null;
+            }
+            return campos.get(indice);
+        }
+    }
+
+    private static class Linha {
+        final long numero;
+        final String texto;
+        String cpf;
+        String digitosCpf;
+        Paciente paciente;
+        String erro;
+
+        Linha(long numero, String texto) {
+            this.numero = numero;
+            this.texto = texto;
+        }
+    }
+
+    public static class ErroLinha {
+        private final long linha;
+        private final String cpf;
+        private final String mensagem;
+
+        ErroLinha(long linha, String cpf, String mensagem) {
+            this.linha = linha;
+            this.cpf = cpf;
+            this.mensagem = mensagem;
+        }
+
+        public long getLinha() { return linha; }
+        public String getCpf() { return cpf; }
+        public String getMensagem() { return mensagem; }
+
+        @Override
+        public String toString() {
+            return "Linha " + linha + (cpf != null ? " (CPF " + cpf + ")" : "") + ": " + mensagem;
+        }
+    }
+
+    public static class Relatorio {
+        private long linhasLidas;
+        private long inseridos;
+        private long duracaoNanos;
+        private final List<ErroLinha> erros = new ArrayList<>();
+
+        private void registrarErro(Linha linha, String mensagem) {
+            erros.add(new ErroLinha(linha.numero, linha.cpf, mensagem));
+        }
+
+        public long getLinhasLidas() { return linhasLidas; }
+        public long getInseridos() { return inseridos; }
+        public long getRejeitados() { return erros.size(); }
+        public List<ErroLinha> getErros() { return erros; }
+        public long getDuracaoMs() { return duracaoNanos / 1_000_000; }
+
+        public double getLinhasPorSegundo() {
+            return duracaoNanos > 0 ? linhasLidas * 1_000_000_000.0 / duracaoNanos : 0.0;
+        }
+
+        // Relatório de erros em CSV separado por ';' (linha, cpf, mensagem)
+        public void escreverErros(Appendable destino) throws IOException {
+            destino.append("linha;cpf;mensagem\n");
+            for (ErroLinha erro : erros) {
+                destino.append(String.valueOf(erro.linha)).append(';')
+                       .append(erro.cpf != null ? erro.cpf : "").append(';')
+                       .append('"').append(erro.mensagem.replace("\"", "\"\"")).append("\"\n");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Importação: %d linhas | %d inseridos | %d rejeitados | %d ms | %.0f linhas/s",
+                linhasLidas, inseridos, erros.size(), getDuracaoMs(), getLinhasPorSegundo());
+        }
+    }
+}
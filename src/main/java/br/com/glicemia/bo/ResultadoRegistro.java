@@ -10,6 +10,10 @@ public class ResultadoRegistro {
     private final boolean liberadoParaIA;
     private final String mensagemAlerta;
     private final String protocoloEmergencia;
+    private final boolean persistido;
+    // Aceito pelo log local (write-behind/modo offline), ainda não gravado no banco
+    private final boolean enfileirado;
+    private final String erro;
 
     private ResultadoRegistro(Builder builder) {
         this.sinalVital = builder.sinalVital;
@@ -17,6 +21,9 @@ public class ResultadoRegistro {
         this.liberadoParaIA = builder.liberadoParaIA;
         this.mensagemAlerta = builder.mensagemAlerta;
         this.protocoloEmergencia = builder.protocoloEmergencia;
+        this.persistido = builder.persistido;
+        this.enfileirado = builder.enfileirado;
+        this.erro = builder.erro;
     }
 
     public SinalVital getSinalVital() {
@@ -39,6 +46,18 @@ public class ResultadoRegistro {
         return protocoloEmergencia;
     }
 
+    public boolean isPersistido() {
+        return persistido;
+    }
+
+    public boolean isEnfileirado() {
+        return enfileirado;
+    }
+
+    public String getErro() {
+        return erro;
+    }
+
     public NivelRisco getNivelRisco() {
         return sinalVital != null ? sinalVital.getNivelRisco() : null;
     }
@@ -49,6 +68,9 @@ public class ResultadoRegistro {
         private boolean liberadoParaIA = false;
         private String mensagemAlerta;
         private String protocoloEmergencia;
+        private boolean persistido = false;
+        private boolean enfileirado = false;
+        private String erro;
 
         public Builder comSinalVital(SinalVital sinalVital) {
             this.sinalVital = sinalVital;
@@ -75,6 +97,21 @@ public class ResultadoRegistro {
             return this;
         }
 
+        public Builder persistido(boolean persistido) {
+            this.persistido = persistido;
+            return this;
+        }
+
+        public Builder enfileirado(boolean enfileirado) {
+            this.enfileirado = enfileirado;
+            return this;
+        }
+
+        public Builder erro(String erro) {
+            this.erro = erro;
+            return this;
+        }
+
         public ResultadoRegistro build() {
             return new ResultadoRegistro(this);
         }
@@ -84,10 +121,15 @@ public class ResultadoRegistro {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("=== Resultado do Registro ===\n");
-        sb.append("Sinal: ").append(sinalVital.getDescricao()).append("\n");
+        sb.append("Sinal: ").append(sinalVital != null ? sinalVital.getDescricao() : "-").append("\n");
         sb.append("Risco: ").append(getNivelRisco()).append("\n");
         sb.append("Emergência: ").append(isEmergencia ? "SIM" : "NÃO").append("\n");
         sb.append("Liberado para IA: ").append(liberadoParaIA ? "SIM" : "NÃO").append("\n");
+        sb.append("Persistido: ").append(persistido ? "SIM" : enfileirado ? "NA FILA" : "NÃO").append("\n");
+
+        if (erro != null) {
+            sb.append("\nErro: ").append(erro).append("\n");
+        }
 
         if (mensagemAlerta != null) {
             sb.append("\nAlerta: ").append(mensagemAlerta).append("\n");
@@ -0,0 +1,698 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.PacienteDAO;
+import br.com.glicemia.model.exceptions.ValorInvalidoException;
+import br.com.glicemia.model.vo.CursorRegistro;
+import br.com.glicemia.model.vo.Paciente;
+import br.com.glicemia.model.vo.SinalVital;
+import br.com.glicemia.util.EnvLoader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+// Réplica local, em arquivos, dos pacientes usados recentemente e de suas leituras. Permite
+// registrar leituras e consultar o histórico sem conexão com o banco; uma thread em segundo
+// plano envia as leituras pendentes (inserção idempotente) e traz o que foi gravado por outros
+// clientes a partir da marca (data_hora, id_registro) da última sincronização.
+//
+// Arquivos no diretório configurado:
+//   pacientes.dat         pacientes replicados, um por linha
+//   estado.properties     janela replicada e marca de sincronização de cada paciente
+//   registros-<id>.dat    leituras do paciente; as sem ID ainda não foram enviadas ao banco
+public class ArmazemLocal {
+
+    private static final Comparator<SinalVital> ORDEM_CRONOLOGICA = Comparator
+            .comparing(SinalVital::getDataHora)
+            .thenComparing(s -> s.getIdRegistro() != null ? s.getIdRegistro() : Long.MAX_VALUE);
+
+    private static final int TAMANHO_PAGINA_SINCRONIZACAO = 500;
+
+    private static volatile ArmazemLocal instancia;
+
+    private final Path diretorio;
+    private final RegistroDAOImpl registroRemoto;
+    private final PacienteDAO pacienteRemoto;
+    private final int maxPacientes;
+    private final int janelaDias;
+    private final int leiturasMinimas;
+    private final long sobreposicaoMinutos;
+    private final long intervaloSincronizacaoMs;
+
+    // Ordem de acesso: o primeiro elemento é o paciente usado há mais tempo
+    private final LinkedHashMap<Long, Replica> replicas = new LinkedHashMap<>(16, 0.75f, true);
+    private final Thread sincronizacao;
+
+    private volatile boolean online = true;
+    private volatile boolean encerrando = false;
+
+    public ArmazemLocal(Path diretorio, RegistroDAOImpl registroRemoto, PacienteDAO pacienteRemoto,
+                        int maxPacientes, int janelaDias, int leiturasMinimas,
+                        long sobreposicaoMinutos, long intervaloSincronizacaoMs) throws IOException {
+        this.diretorio = diretorio;
+        this.registroRemoto = registroRemoto;
+        this.pacienteRemoto = pacienteRemoto;
+        this.maxPacientes = maxPacientes;
+        this.janelaDias = janelaDias;
+        this.leiturasMinimas = leiturasMinimas;
+        this.sobreposicaoMinutos = sobreposicaoMinutos;
+        this.intervaloSincronizacaoMs = intervaloSincronizacaoMs;
+
+        Files.createDirectories(diretorio);
+        carregar();
+
+        this.sincronizacao = new Thread(this::executarSincronizacao, "glicemia-sincronizacao-local");
+        this.sincronizacao.setDaemon(true);
+        this.sincronizacao.start();
+    }
+
+    public static ArmazemLocal getInstancia() {
+        if (instancia == null) {
+            synchronized (ArmazemLocal.class) {
+                if (instancia == null) {
+                    try {
+                        instancia = new ArmazemLocal(
+                            Paths.get(EnvLoader.get("LOCAL_DIRETORIO", "dados/local")),
+                            new RegistroDAOImpl(),
+                            new PacienteDAOImpl(),
+                            Integer.parseInt(EnvLoader.get("LOCAL_MAX_PACIENTES", "200")),
+                            Integer.parseInt(EnvLoader.get("LOCAL_JANELA_DIAS", "90")),
+                            Integer.parseInt(EnvLoader.get("LOCAL_LEITURAS_MINIMAS", "50")),
+                            Long.parseLong(EnvLoader.get("LOCAL_SYNC_SOBREPOSICAO_MINUTES", "10")),
+                            Long.parseLong(EnvLoader.get("LOCAL_SYNC_INTERVALO_SECONDS", "60")) * 1000L
+                        );
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Falha ao abrir armazenamento local: " + e.getMessage(), e);
+                    }
+                }
+            }
+        }
+        return instancia;
+    }
+
+    public static boolean isHabilitado() {
+        return Boolean.parseBoolean(EnvLoader.get("LOCAL_ARMAZEM", "false"));
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    RegistroDAOImpl getRegistroRemoto() {
+        return registroRemoto;
+    }
+
+    PacienteDAO getPacienteRemoto() {
+        return pacienteRemoto;
+    }
+
+    // Marca a conexão como indisponível; as consultas passam a ser atendidas localmente
+    // até a próxima sincronização bem-sucedida.
+    void registrarFalhaRemota(SQLException e) {
+        if (online) {
+            System.err.println("Banco indisponível, operando com o armazenamento local: " + e.getMessage());
+        }
+        online = false;
+    }
+
+    synchronized Paciente pacienteLocal(Long idPaciente) {
+        Replica replica = replicas.get(idPaciente);
+        return replica != null ? replica.paciente : null;
+    }
+
+    synchronized Paciente pacienteLocalPorCpf(String cpf) {
+        for (Replica replica : replicas.values()) {
+            if (replica.paciente != null && replica.paciente.getCpf().equals(cpf)) {
+                return replica.paciente;
+            }
+        }
+        return null;
+    }
+
+    synchronized List<Paciente> pacientesLocais() {
+        List<Paciente> pacientes = new ArrayList<>();
+        for (Replica replica : replicas.values()) {
+            if (replica.paciente != null) {
+                pacientes.add(replica.paciente);
+            }
+        }
+        pacientes.sort(Comparator.comparing(Paciente::getNome));
+        return pacientes;
+    }
+
+    // Guarda ou atualiza o paciente; as leituras são replicadas na próxima sincronização.
+    synchronized void guardarPaciente(Paciente paciente) throws IOException {
+        Replica replica = replicas.computeIfAbsent(paciente.getIdPaciente(), Replica::new);
+        replica.paciente = paciente;
+        gravarPacientes();
+        despejarExcedente();
+    }
+
+    synchronized void removerReplica(Long idPaciente) throws IOException {
+        if (replicas.remove(idPaciente) != null) {
+            Files.deleteIfExists(arquivoRegistros(idPaciente));
+            gravarPacientes();
+            gravarEstado();
+        }
+    }
+
+    // Réplica do paciente, trazendo-a do banco na primeira vez. Sem conexão e sem réplica,
+    // devolve null.
+    Replica replica(Long idPaciente) throws SQLException {
+        synchronized (this) {
+            Replica replica = replicas.get(idPaciente);
+            if (replica != null && replica.hidratada) {
+                return replica;
+            }
+            if (!online) {
+                return replica;
+            }
+        }
+
+        try {
+            hidratar(idPaciente);
+        } catch (SQLException e) {
+            registrarFalhaRemota(e);
+        } catch (IOException e) {
+            throw new SQLException("Falha ao gravar armazenamento local: " + e.getMessage(), e);
+        }
+
+        synchronized (this) {
+            return replicas.get(idPaciente);
+        }
+    }
+
+    // Grava a leitura localmente (com fsync) como pendente de envio.
+    void adicionarPendente(SinalVital sinal) throws SQLException {
+        synchronized (this) {
+            Replica replica = replicas.computeIfAbsent(sinal.getIdPaciente(), Replica::new);
+            try {
+                Files.write(arquivoRegistros(sinal.getIdPaciente()),
+                            (CodecSinalVital.codificar(sinal) + '\n').getBytes(StandardCharsets.UTF_8),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+            } catch (IOException e) {
+                throw new SQLException("Falha ao gravar leitura localmente: " + e.getMessage(), e);
+            }
+            replica.adicionar(sinal);
+            notifyAll();
+        }
+    }
+
+    // Cópia das leituras da réplica em ordem cronológica crescente
+    synchronized List<SinalVital> leituras(Replica replica) {
+        return new ArrayList<>(replica.leituras);
+    }
+
+    synchronized SinalVital buscarLocalPorId(Long idRegistro) {
+        for (Replica replica : replicas.values()) {
+            for (SinalVital sinal : replica.leituras) {
+                if (idRegistro.equals(sinal.getIdRegistro())) {
+                    return sinal;
+                }
+            }
+        }
+        return null;
+    }
+
+    public synchronized int contarPendentes() {
+        int total = 0;
+        for (Replica replica : replicas.values()) {
+            total += replica.contarPendentes();
+        }
+        return total;
+    }
+
+    // Tenta uma última sincronização e interrompe a thread. O que não for enviado permanece
+    // nos arquivos para o próximo início.
+    public void encerrar() {
+        synchronized (this) {
+            encerrando = true;
+            notifyAll();
+        }
+        try {
+            sincronizacao.join(intervaloSincronizacaoMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Leituras novas são enviadas assim que registradas (se online); a sincronização completa,
+    // que também detecta a volta da conexão, ocorre a cada intervalo. Depois de qualquer falha
+    // (banco ou arquivos locais) o envio imediato fica suspenso por um intervalo.
+    private void executarSincronizacao() {
+        long proximaCompleta = 0;
+        long retomarEnvio = 0;
+
+        while (true) {
+            boolean completa;
+            synchronized (this) {
+                while (!encerrando) {
+                    long agora = System.currentTimeMillis();
+                    if (agora >= proximaCompleta
+                            || (online && agora >= retomarEnvio && contarPendentes() > 0)) {
+                        break;
+                    }
+                    try {
+                        wait(proximaCompleta - agora);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                completa = encerrando || System.currentTimeMillis() >= proximaCompleta;
+            }
+
+            try {
+                if (completa) {
+                    proximaCompleta = System.currentTimeMillis() + intervaloSincronizacaoMs;
+                    sincronizar();
+                } else {
+                    enviarTodosPendentes();
+                }
+                online = true;
+            } catch (SQLException e) {
+                registrarFalhaRemota(e);
+                retomarEnvio = System.currentTimeMillis() + intervaloSincronizacaoMs;
+            } catch (IOException e) {
+                System.err.println("Falha ao gravar armazenamento local: " + e.getMessage());
+                retomarEnvio = System.currentTimeMillis() + intervaloSincronizacaoMs;
+            }
+
+            if (encerrando) {
+                return;
+            }
+        }
+    }
+
+    private void enviarTodosPendentes() throws SQLException, IOException {
+        List<Long> ids;
+        synchronized (this) {
+            ids = new ArrayList<>(replicas.keySet());
+        }
+        for (Long idPaciente : ids) {
+            enviarPendentes(idPaciente);
+        }
+    }
+
+    public void sincronizar() throws SQLException, IOException {
+        enviarTodosPendentes();
+
+        List<Long> ids;
+        synchronized (this) {
+            ids = new ArrayList<>(replicas.keySet());
+        }
+        for (Long idPaciente : ids) {
+            Replica replica;
+            synchronized (this) {
+                replica = replicas.get(idPaciente);
+            }
+            if (replica == null) {
+                continue;
+            }
+            if (replica.hidratada) {
+                receberNovas(replica);
+            } else {
+                hidratar(idPaciente);
+            }
+        }
+
+        synchronized (this) {
+            gravarPacientes();
+            gravarEstado();
+            despejarExcedente();
+        }
+    }
+
+    private void enviarPendentes(Long idPaciente) throws SQLException, IOException {
+        List<SinalVital> pendentes;
+        synchronized (this) {
+            Replica replica = replicas.get(idPaciente);
+            if (replica == null || replica.contarPendentes() == 0) {
+                return;
+            }
+            pendentes = replica.pendentes();
+        }
+
+        List<SinalVital> rejeitadas = new ArrayList<>();
+        try {
+            for (SinalVital sinal : pendentes) {
+                try {
+                    Long id = registroRemoto.inserirSeAusente(sinal);
+                    // O sinal é compartilhado com as consultas locais
+                    synchronized (this) {
+                        sinal.setIdRegistro(id);
+                    }
+                } catch (SQLException e) {
+                    // Violação de integridade (ex.: paciente removido) não se resolve reenviando
+                    if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                        throw e;
+                    }
+                    System.err.println("Leitura local descartada pelo banco: " + e.getMessage());
+                    rejeitadas.add(sinal);
+                }
+            }
+        } finally {
+            // Regrava com os IDs já atribuídos, mesmo que o envio tenha parado no meio
+            synchronized (this) {
+                Replica replica = replicas.get(idPaciente);
+                if (replica != null) {
+                    replica.leituras.removeAll(rejeitadas);
+                    replica.ordenar();
+                    gravarRegistros(replica);
+                }
+            }
+        }
+    }
+
+    // Traz as leituras gravadas após a marca. A consulta recua alguns minutos antes da marca
+    // para não perder leituras com data_hora retroativa ou de transações confirmadas fora de
+    // ordem; o que já existe localmente é ignorado pelo ID.
+    private void receberNovas(Replica replica) throws SQLException, IOException {
+        Paciente atualizado = pacienteRemoto.buscarPorId(replica.idPaciente);
+        if (atualizado == null && replica.contarPendentes() == 0) {
+            removerReplica(replica.idPaciente);
+            return;
+        }
+
+        CursorRegistro cursor = replica.marca != null
+            ? new CursorRegistro(replica.marca.getDataHora().minusMinutes(sobreposicaoMinutos), 0L)
+            : null;
+        List<SinalVital> novas = new ArrayList<>();
+        List<SinalVital> pagina;
+        do {
+            pagina = registroRemoto.listarApos(replica.idPaciente, cursor, TAMANHO_PAGINA_SINCRONIZACAO);
+            novas.addAll(pagina);
+            if (!pagina.isEmpty()) {
+                cursor = CursorRegistro.aPartirDe(pagina.get(pagina.size() - 1));
+            }
+        } while (pagina.size() == TAMANHO_PAGINA_SINCRONIZACAO);
+
+        synchronized (this) {
+            if (atualizado != null) {
+                replica.paciente = atualizado;
+            }
+            if (replica.mesclar(novas) > 0) {
+                gravarRegistros(replica);
+            }
+        }
+    }
+
+    // Traz o paciente, as leituras dos últimos dias e ao menos as últimas leituras mínimas.
+    // Se o paciente tiver menos leituras que o mínimo, a réplica contém o histórico completo.
+    private void hidratar(Long idPaciente) throws SQLException, IOException {
+        Paciente paciente = pacienteRemoto.buscarPorId(idPaciente);
+        List<SinalVital> ultimas = registroRemoto.buscarUltimosRegistros(idPaciente, leiturasMinimas);
+
+        LocalDateTime inicioJanela = LocalDate.now().minusDays(janelaDias).atStartOfDay();
+        List<SinalVital> recebidas = new ArrayList<>(ultimas);
+        CursorRegistro cursor = new CursorRegistro(inicioJanela, 0L);
+        List<SinalVital> pagina;
+        do {
+            pagina = registroRemoto.listarApos(idPaciente, cursor, TAMANHO_PAGINA_SINCRONIZACAO);
+            recebidas.addAll(pagina);
+            if (!pagina.isEmpty()) {
+                cursor = CursorRegistro.aPartirDe(pagina.get(pagina.size() - 1));
+            }
+        } while (pagina.size() == TAMANHO_PAGINA_SINCRONIZACAO);
+
+        synchronized (this) {
+            if (paciente == null && !replicas.containsKey(idPaciente)) {
+                return;
+            }
+            Replica replica = replicas.computeIfAbsent(idPaciente, Replica::new);
+            if (paciente != null) {
+                replica.paciente = paciente;
+            }
+            replica.mesclar(recebidas);
+
+            if (ultimas.size() < leiturasMinimas) {
+                replica.desde = null;
+            } else {
+                LocalDateTime maisAntiga = ultimas.get(ultimas.size() - 1).getDataHora();
+                replica.desde = maisAntiga.isBefore(inicioJanela) ? maisAntiga : inicioJanela;
+            }
+            replica.hidratada = true;
+
+            gravarRegistros(replica);
+            gravarPacientes();
+            gravarEstado();
+            despejarExcedente();
+        }
+    }
+
+    // Remove as réplicas usadas há mais tempo que não tenham leituras pendentes.
+    private void despejarExcedente() throws IOException {
+        Iterator<Replica> iterador = replicas.values().iterator();
+        while (replicas.size() > maxPacientes && iterador.hasNext()) {
+            Replica replica = iterador.next();
+            if (replica.contarPendentes() == 0) {
+                iterador.remove();
+                Files.deleteIfExists(arquivoRegistros(replica.idPaciente));
+            }
+        }
+    }
+
+    private Path arquivoRegistros(Long idPaciente) {
+        return diretorio.resolve("registros-" + idPaciente + ".dat");
+    }
+
+    private void carregar() throws IOException {
+        Path arquivoPacientes = diretorio.resolve("pacientes.dat");
+        if (Files.exists(arquivoPacientes)) {
+            for (String linha : Files.readAllLines(arquivoPacientes, StandardCharsets.UTF_8)) {
+                Paciente paciente = decodificarPaciente(linha);
+                if (paciente != null) {
+                    replicas.computeIfAbsent(paciente.getIdPaciente(), Replica::new).paciente = paciente;
+                }
+            }
+        }
+
+        Properties estado = new Properties();
+        Path arquivoEstado = diretorio.resolve("estado.properties");
+        if (Files.exists(arquivoEstado)) {
+            try (InputStream entrada = Files.newInputStream(arquivoEstado)) {
+                estado.load(entrada);
+            }
+        }
+
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "registros-*.dat")) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                Long idPaciente = Long.valueOf(nome.substring("registros-".length(), nome.length() - 4));
+                Replica replica = replicas.computeIfAbsent(idPaciente, Replica::new);
+                lerRegistros(arquivo, replica);
+            }
+        }
+
+        for (Replica replica : replicas.values()) {
+            String prefixo = replica.idPaciente + ".";
+            replica.hidratada = Boolean.parseBoolean(estado.getProperty(prefixo + "hidratada", "false"));
+            String desde = estado.getProperty(prefixo + "desde");
+            replica.desde = desde != null && !desde.isEmpty() ? LocalDateTime.parse(desde) : null;
+            String marcaData = estado.getProperty(prefixo + "marca.dataHora");
+            if (marcaData != null) {
+                replica.marca = new CursorRegistro(LocalDateTime.parse(marcaData),
+                    Long.valueOf(estado.getProperty(prefixo + "marca.id")));
+            }
+        }
+    }
+
+    // Linhas corrompidas (gravação interrompida) são ignoradas e somem na próxima regravação.
+    private void lerRegistros(Path arquivo, Replica replica) throws IOException {
+        try (BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                try {
+                    SinalVital sinal = CodecSinalVital.decodificar(linha);
+                    if (sinal != null) {
+                        replica.leituras.add(sinal);
+                    }
+                } catch (ValorInvalidoException | RuntimeException e) {
+                    System.err.println("Leitura local ignorada em " + arquivo.getFileName() + ": " + e.getMessage());
+                }
+            }
+        }
+        replica.ordenar();
+    }
+
+    private void gravarRegistros(Replica replica) throws IOException {
+        Path temporario = diretorio.resolve("registros-" + replica.idPaciente + ".tmp");
+        try (BufferedWriter escritor = Files.newBufferedWriter(temporario, StandardCharsets.UTF_8)) {
+            for (SinalVital sinal : replica.leituras) {
+                escritor.write(CodecSinalVital.codificar(sinal));
+                escritor.write('\n');
+            }
+        }
+        substituir(temporario, arquivoRegistros(replica.idPaciente));
+    }
+
+    private void gravarPacientes() throws IOException {
+        Path temporario = diretorio.resolve("pacientes.tmp");
+        try (BufferedWriter escritor = Files.newBufferedWriter(temporario, StandardCharsets.UTF_8)) {
+            for (Replica replica : replicas.values()) {
+                if (replica.paciente != null) {
+                    escritor.write(codificarPaciente(replica.paciente));
+                    escritor.write('\n');
+                }
+            }
+        }
+        substituir(temporario, diretorio.resolve("pacientes.dat"));
+    }
+
+    private void gravarEstado() throws IOException {
+        Properties estado = new Properties();
+        for (Replica replica : replicas.values()) {
+            String prefixo = replica.idPaciente + ".";
+            estado.setProperty(prefixo + "hidratada", Boolean.toString(replica.hidratada));
+            estado.setProperty(prefixo + "desde", replica.desde != null ? replica.desde.toString() : "");
+            if (replica.marca != null) {
+                estado.setProperty(prefixo + "marca.dataHora", replica.marca.getDataHora().toString());
+                estado.setProperty(prefixo + "marca.id", replica.marca.getIdRegistro().toString());
+            }
+        }
+
+        Path temporario = diretorio.resolve("estado.tmp");
+        try (OutputStream saida = Files.newOutputStream(temporario)) {
+            estado.store(saida, "Estado da sincronização local");
+        }
+        substituir(temporario, diretorio.resolve("estado.properties"));
+    }
+
+    private static void substituir(Path temporario, Path destino) throws IOException {
+        Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String codificarPaciente(Paciente paciente) {
+        StringBuilder linha = new StringBuilder(96);
+        CodecSinalVital.anexar(linha, paciente.getIdPaciente().toString()).append('\t');
+        CodecSinalVital.anexar(linha, paciente.getNome()).append('\t');
+        CodecSinalVital.anexar(linha, paciente.getCpf()).append('\t');
+        CodecSinalVital.anexar(linha, paciente.getDataNascimento().toString()).append('\t');
+        CodecSinalVital.anexar(linha, paciente.getEmail()).append('\t');
+        CodecSinalVital.anexar(linha, paciente.getTelefone());
+        return linha.toString();
+    }
+
+    private static Paciente decodificarPaciente(String linha) {
+        String[] campos = linha.split("\t", -1);
+        if (campos.length != 6) {
+            return null;
+        }
+        try {
+            Paciente paciente = new Paciente(CodecSinalVital.ler(campos[1]), CodecSinalVital.ler(campos[2]),
+                                             LocalDate.parse(CodecSinalVital.ler(campos[3])));
+            paciente.setIdPaciente(Long.valueOf(CodecSinalVital.ler(campos[0])));
+            paciente.setEmail(CodecSinalVital.ler(campos[4]));
+            paciente.setTelefone(CodecSinalVital.ler(campos[5]));
+            return paciente;
+        } catch (ValorInvalidoException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Dados replicados de um paciente. As leituras ficam em ordem cronológica crescente.
+    static class Replica {
+        final Long idPaciente;
+        final List<SinalVital> leituras = new ArrayList<>();
+        Paciente paciente;
+        // Início da janela replicada; null quando a réplica contém o histórico completo
+        LocalDateTime desde;
+        // Leitura mais recente já recebida do banco
+        CursorRegistro marca;
+        boolean hidratada = false;
+
+        Replica(Long idPaciente) {
+            this.idPaciente = idPaciente;
+        }
+
+        boolean isCompleta() {
+            return hidratada && desde == null;
+        }
+
+        // Indica se a réplica contém todas as leituras a partir do instante informado
+        boolean cobre(LocalDateTime inicio) {
+            return hidratada && (desde == null || !inicio.isBefore(desde));
+        }
+
+        void adicionar(SinalVital sinal) {
+            leituras.add(sinal);
+            ordenar();
+        }
+
+        // Incorpora leituras vindas do banco que ainda não existem localmente; devolve quantas
+        int mesclar(List<SinalVital> recebidas) {
+            Set<Long> conhecidos = new HashSet<>();
+            for (SinalVital sinal : leituras) {
+                if (sinal.getIdRegistro() != null) {
+                    conhecidos.add(sinal.getIdRegistro());
+                }
+            }
+
+            int novas = 0;
+            for (SinalVital sinal : recebidas) {
+                if (conhecidos.add(sinal.getIdRegistro())) {
+                    leituras.add(sinal);
+                    novas++;
+                }
+                if (posteriorAMarca(sinal)) {
+                    marca = CursorRegistro.aPartirDe(sinal);
+                }
+            }
+            if (novas > 0) {
+                ordenar();
+            }
+            return novas;
+        }
+
+        void ordenar() {
+            leituras.sort(ORDEM_CRONOLOGICA);
+        }
+
+        int contarPendentes() {
+            int pendentes = 0;
+            for (SinalVital sinal : leituras) {
+                if (sinal.getIdRegistro() == null) {
+                    pendentes++;
+                }
+            }
+            return pendentes;
+        }
+
+        List<SinalVital> pendentes() {
+            List<SinalVital> pendentes = new ArrayList<>();
+            for (SinalVital sinal : leituras) {
+                if (sinal.getIdRegistro() == null) {
+                    pendentes.add(sinal);
+                }
+            }
+            return pendentes;
+        }
+
+        private boolean posteriorAMarca(SinalVital sinal) {
+            if (marca == null) {
+                return true;
+            }
+            int comparacao = sinal.getDataHora().compareTo(marca.getDataHora());
+            return comparacao > 0 || (comparacao == 0 && sinal.getIdRegistro() > marca.getIdRegistro());
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.model.vo.SinalVital;
+import br.com.glicemia.util.DatabaseConnection;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Move leituras antigas do banco para os arquivos colunares de RegistroDAOArquivado.
+// Por paciente: lê as leituras anteriores ao limite, mescla com o arquivo existente, grava um
+// arquivo temporário, verifica-o (releitura linha a linha e contagem/soma conferidas no banco),
+// substitui o arquivo atual e só então exclui as linhas do banco. Uma falha em qualquer etapa
+// mantém as leituras no banco. Leituras referenciadas em TB_CONSULTA_IA não são arquivadas,
+// pois as consultas ficariam sem a leitura de origem.
+public class ArquivamentoRegistros {
+
+    private static final String SQL_PACIENTES =
+            "SELECT DISTINCT r.id_paciente FROM VW_REGISTRO r WHERE r.data_hora < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM TB_CONSULTA_IA c WHERE c.id_registro = r.id_registro)";
+
+    private static final String SQL_LEITURAS =
+            "SELECT * FROM VW_REGISTRO r WHERE r.id_paciente = ? AND r.data_hora < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM TB_CONSULTA_IA c WHERE c.id_registro = r.id_registro) " +
+            "ORDER BY r.data_hora, r.id_registro";
+
+    private static final String SQL_CONFERIR =
+            "SELECT COUNT(*), COALESCE(SUM(round(valor_principal * 100)), 0) " +
+            "FROM VW_REGISTRO WHERE id_registro = ANY(?) AND data_hora < ?";
+
+    // Executado na tabela de cada tipo (%s)
+    private static final String SQL_EXCLUIR =
+            "DELETE FROM %s r WHERE r.id_registro = ANY(?) AND r.data_hora < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM TB_CONSULTA_IA c WHERE c.id_registro = r.id_registro)";
+
+    private static final Comparator<SinalVital> CRESCENTE =
+        Comparator.comparing(SinalVital::getDataHora).thenComparing(SinalVital::getIdRegistro);
+
+    private final RegistroDAOArquivado arquivado;
+    private final int idadeDias;
+
+    public ArquivamentoRegistros(RegistroDAOArquivado arquivado, int idadeDias) {
+        this.arquivado = arquivado;
+        this.idadeDias = idadeDias;
+    }
+
+    public Relatorio executar() throws SQLException {
+        long inicio = System.nanoTime();
+        LocalDateTime limite = LocalDateTime.now().minusDays(idadeDias);
+        Relatorio relatorio = new Relatorio();
+
+        List<Long> pacientes = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_PACIENTES)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(limite));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    pacientes.add(rs.getLong(1));
+                }
+            }
+        }
+
+        for (Long idPaciente : pacientes) {
+            try {
+                arquivarPaciente(idPaciente, limite, relatorio);
+            } catch (SQLException | IOException | RuntimeException e) {
+                relatorio.falhas.add("Paciente " + idPaciente + ": " + e.getMessage());
+            }
+        }
+
+        relatorio.duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        return relatorio;
+    }
+
+    private void arquivarPaciente(long idPaciente, LocalDateTime limite, Relatorio relatorio)
+            throws SQLException, IOException {
+        List<SinalVital> novas = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_LEITURAS)) {
+            stmt.setLong(1, idPaciente);
+            stmt.setTimestamp(2, Timestamp.valueOf(limite));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    novas.add(RegistroDAOImpl.extrairSinalVitalDoResultSet(rs));
+                }
+            }
+        }
+        if (novas.isEmpty()) {
+            return;
+        }
+
+        // Mescla com o arquivo atual; uma execução anterior interrompida antes da exclusão
+        // deixa leituras nos dois níveis, e o ID evita duplicá-las
+        List<SinalVital> todas = new ArrayList<>();
+        Set<Long> ids = new HashSet<>();
+        ArquivoColunar atual = arquivado.arquivo(idPaciente);
+        if (atual != null) {
+            for (int i = 0; i < atual.getQuantidade(); i++) {
+                todas.add(atual.ler(i));
+                ids.add(atual.getId(i));
+            }
+        }
+        for (SinalVital sinal : novas) {
+            if (ids.add(sinal.getIdRegistro())) {
+                todas.add(sinal);
+            }
+        }
+        todas.sort(CRESCENTE);
+
+        Path destino = arquivado.caminhoArquivo(idPaciente);
+        Path temporario = destino.resolveSibling(destino.getFileName() + ".tmp");
+        ArquivoColunar.gravar(temporario, idPaciente, todas);
+
+        ArquivoColunar gravado;
+        try {
+            gravado = ArquivoColunar.abrir(temporario);
+            verificar(gravado, idPaciente, todas);
+            conferirNoBanco(novas, limite);
+        } catch (SQLException | IOException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+
+        Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        arquivado.recarregar(idPaciente, gravado);
+        relatorio.pacientes++;
+        relatorio.bytesGravados += Files.size(destino);
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Array idsNovas = arrayDeIds(conn, novas);
+                for (TabelaRegistro tabela : TabelaRegistro.values()) {
+                    try (PreparedStatement stmt = conn.prepareStatement(String.format(SQL_EXCLUIR, tabela.nome))) {
+                        stmt.setArray(1, idsNovas);
+                        stmt.setTimestamp(2, Timestamp.valueOf(limite));
+                        relatorio.leiturasArquivadas += stmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                DatabaseConnection.registrarEscrita(idPaciente);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Relê o arquivo mapeado e compara cada linha com a origem
+    private static void verificar(ArquivoColunar arquivo, long idPaciente, List<SinalVital> origem)
+            throws IOException {
+        if (arquivo.getIdPaciente() != idPaciente || arquivo.getQuantidade() != origem.size()) {
+            throw new IOException("Verificação falhou: quantidade de linhas divergente");
+        }
+        for (int i = 0; i < origem.size(); i++) {
+            SinalVital esperado = origem.get(i);
+            SinalVital lido = arquivo.ler(i);
+            if (!esperado.getIdRegistro().equals(lido.getIdRegistro()) ||
+                    !esperado.getDataHora().equals(lido.getDataHora()) ||
+                    esperado.getClass() != lido.getClass() ||
+                    esperado.getNivelRisco() != lido.getNivelRisco() ||
+                    ArquivoColunar.centesimos(RegistroDAOImpl.obterValorPrincipal(esperado)) !=
+                        ArquivoColunar.centesimos(RegistroDAOImpl.obterValorPrincipal(lido))) {
+                throw new IOException("Verificação falhou na leitura " + esperado.getIdRegistro());
+            }
+        }
+    }
+
+    // Confere, no banco, que as leituras a excluir ainda existem e têm os valores arquivados
+    private static void conferirNoBanco(List<SinalVital> novas, LocalDateTime limite) throws SQLException {
+        long soma = 0;
+        for (SinalVital sinal : novas) {
+            soma += ArquivoColunar.centesimos(RegistroDAOImpl.obterValorPrincipal(sinal));
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_CONFERIR)) {
+            stmt.setArray(1, arrayDeIds(conn, novas));
+            stmt.setTimestamp(2, Timestamp.valueOf(limite));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                if (rs.getLong(1) != novas.size() || rs.getLong(2) != soma) {
+                    throw new SQLException("Verificação falhou: banco divergente do arquivo " +
+                                           "(" + rs.getLong(1) + " de " + novas.size() + " leituras)");
+                }
+            }
+        }
+    }
+
+    private static Array arrayDeIds(Connection conn, List<SinalVital> sinais) throws SQLException {
+        Long[] ids = new Long[sinais.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = sinais.get(i).getIdRegistro();
+        }
+        return conn.createArrayOf("bigint", ids);
+    }
+
+    public static class Relatorio {
+        private int pacientes;
+        private long leiturasArquivadas;
+        private long bytesGravados;
+        private long duracaoMs;
+        private final List<String> falhas = new ArrayList<>();
+
+        public int getPacientes() { return pacientes; }
+        public long getLeiturasArquivadas() { return leiturasArquivadas; }
+        public long getBytesGravados() { return bytesGravados; }
+        public long getDuracaoMs() { return duracaoMs; }
+        public List<String> getFalhas() { return falhas; }
+
+        @Override
+        public String toString() {
+            return String.format("Arquivamento: %d pacientes | %d leituras movidas | %d KB gravados | " +
+                    "%d falhas | %d ms",
+                pacientes, leiturasArquivadas, bytesGravados / 1024, falhas.size(), duracaoMs);
+        }
+    }
+}
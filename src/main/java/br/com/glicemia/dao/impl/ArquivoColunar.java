@@ -0,0 +1,332 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.exceptions.ValorInvalidoException;
+import br.com.glicemia.model.vo.Glicemia;
+import br.com.glicemia.model.vo.PesoCorporal;
+import br.com.glicemia.model.vo.PressaoArterial;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Arquivo colunar, somente leitura e mapeado em memória, com as leituras arquivadas de um paciente
+// em ordem cronológica. Layout (big-endian):
+//   cabeçalho   int mágico, short versão, long id do paciente, int quantidade
+//   id          long[n]
+//   data_hora   long base (micros desde a época) + n deltas varint em relação à linha anterior
+//   tipo        byte[n] (ordinal de TipoSinal)
+//   risco       byte[n] (ordinal de NivelRisco)
+//   valores     int[n] principal, int[n] secundário, int[n] altura (centésimos; MIN_VALUE = nulo)
+//   em_jejum    byte[n] (0 = nulo, 1 = S, 2 = N)
+//   textos      int[n] observações, int[n] tipo de insulina (posição no bloco; -1 = nulo),
+//               int tamanho do bloco + bloco (int comprimento + UTF-8 por texto)
+//   rodapé      int CRC32 de tudo que vem antes
+final class ArquivoColunar {
+
+    private static final int MAGICO = 0x474C4341;
+    private static final short VERSAO = 1;
+    private static final int NULO = Integer.MIN_VALUE;
+
+    private final MappedByteBuffer mapa;
+    private final long idPaciente;
+    private final int quantidade;
+    private final long[] temposMicros;
+    private final int inicioIds;
+    private final int inicioTipos;
+    private final int inicioRiscos;
+    private final int inicioPrincipal;
+    private final int inicioSecundario;
+    private final int inicioAltura;
+    private final int inicioJejum;
+    private final int inicioObservacoes;
+    private final int inicioInsulina;
+    private final int inicioBloco;
+
+    private ArquivoColunar(MappedByteBuffer mapa) throws IOException {
+        this.mapa = mapa;
+
+        CRC32 crc = new CRC32();
+        ByteBuffer conteudo = mapa.duplicate();
+        conteudo.limit(mapa.capacity() - 4);
+        crc.update(conteudo);
+        if ((int) crc.getValue() != mapa.getInt(mapa.capacity() - 4)) {
+            throw new IOException("Arquivo colunar corrompido (CRC divergente)");
+        }
+
+        if (mapa.getInt(0) != MAGICO || mapa.getShort(4) != VERSAO) {
+            throw new IOException("Formato de arquivo colunar desconhecido");
+        }
+        this.idPaciente = mapa.getLong(6);
+        this.quantidade = mapa.getInt(14);
+        this.inicioIds = 18;
+
+        // Os deltas têm tamanho variável: decodifica a coluna de tempo para acesso direto
+        ByteBuffer leitor = mapa.duplicate();
+        leitor.position(inicioIds + 8 * quantidade);
+        this.temposMicros = new long[quantidade];
+        long tempo = leitor.getLong();
+        for (int i = 0; i < quantidade; i++) {
+            tempo += lerVarint(leitor);
+            temposMicros[i] = tempo;
+        }
+
+        this.inicioTipos = leitor.position();
+        this.inicioRiscos = inicioTipos + quantidade;
+        this.inicioPrincipal = inicioRiscos + quantidade;
+        this.inicioSecundario = inicioPrincipal + 4 * quantidade;
+        this.inicioAltura = inicioSecundario + 4 * quantidade;
+        this.inicioJejum = inicioAltura + 4 * quantidade;
+        this.inicioObservacoes = inicioJejum + quantidade;
+        this.inicioInsulina = inicioObservacoes + 4 * quantidade;
+        this.inicioBloco = inicioInsulina + 4 * quantidade + 4;
+    }
+
+    static ArquivoColunar abrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            return new ArquivoColunar(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    // Grava as leituras (em ordem cronológica) e força o conteúdo para o disco.
+    static void gravar(Path destino, long idPaciente, List<SinalVital> leituras) throws IOException {
+        int n = leituras.size();
+        ByteArrayOutputStream blobBytes = new ByteArrayOutputStream();
+        DataOutputStream blob = new DataOutputStream(blobBytes);
+        int[] observacoes = new int[n];
+        int[] insulina = new int[n];
+        for (int i = 0; i < n; i++) {
+            SinalVital sinal = leituras.get(i);
+            observacoes[i] = anexarTexto(blob, sinal.getObservacoes());
+            insulina[i] = anexarTexto(blob,
+                sinal instanceof Glicemia ? ((Glicemia) sinal).getTipoInsulina() : null);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + n * 40 + blobBytes.size());
+        DataOutputStream saida = new DataOutputStream(bytes);
+        saida.writeInt(MAGICO);
+        saida.writeShort(VERSAO);
+        saida.writeLong(idPaciente);
+        saida.writeInt(n);
+
+        for (SinalVital sinal : leituras) {
+            saida.writeLong(sinal.getIdRegistro());
+        }
+
+        long anterior = n > 0 ? paraMicros(leituras.get(0).getDataHora()) : 0;
+        saida.writeLong(anterior);
+        for (SinalVital sinal : leituras) {
+            long tempo = paraMicros(sinal.getDataHora());
+            if (tempo < anterior) {
+                throw new IllegalArgumentException("Leituras fora de ordem cronológica");
+            }
+            escreverVarint(saida, tempo - anterior);
+            anterior = tempo;
+        }
+
+        for (SinalVital sinal : leituras) {
+            saida.writeByte(TipoSinal.valueOf(RegistroDAOImpl.obterTipoSinal(sinal)).ordinal());
+        }
+        for (SinalVital sinal : leituras) {
+            NivelRisco risco = sinal.getNivelRisco() != null ? sinal.getNivelRisco() : NivelRisco.NORMAL;
+            saida.writeByte(risco.ordinal());
+        }
+        for (SinalVital sinal : leituras) {
+            saida.writeInt(centesimos(RegistroDAOImpl.obterValorPrincipal(sinal)));
+        }
+        for (SinalVital sinal : leituras) {
+            saida.writeInt(sinal instanceof PressaoArterial
+                ? centesimos(((PressaoArterial) sinal).getDiastolica()) : NULO);
+        }
+        for (SinalVital sinal : leituras) {
+            saida.writeInt(sinal instanceof PesoCorporal
+                ? centesimos(((PesoCorporal) sinal).getAltura()) : NULO);
+        }
+        for (SinalVital sinal : leituras) {
+            saida.writeByte(sinal instanceof Glicemia ? (((Glicemia) sinal).isEmJejum() ? 1 : 2) : 0);
+        }
+        for (int posicao : observacoes) {
+            saida.writeInt(posicao);
+        }
+        for (int posicao : insulina) {
+            saida.writeInt(posicao);
+        }
+        saida.writeInt(blobBytes.size());
+        blobBytes.writeTo(saida);
+        saida.flush();
+
+        CRC32 crc = new CRC32();
+        byte[] conteudo = bytes.toByteArray();
+        crc.update(conteudo);
+
+        try (FileOutputStream arquivo = new FileOutputStream(destino.toFile());
+             DataOutputStream destinoDados = new DataOutputStream(new BufferedOutputStream(arquivo))) {
+            destinoDados.write(conteudo);
+            destinoDados.writeInt((int) crc.getValue());
+            destinoDados.flush();
+            arquivo.getFD().sync();
+        }
+    }
+
+    long getIdPaciente() {
+        return idPaciente;
+    }
+
+    int getQuantidade() {
+        return quantidade;
+    }
+
+    long getId(int linha) {
+        return mapa.getLong(inicioIds + 8 * linha);
+    }
+
+    LocalDateTime getDataHora(int linha) {
+        return deMicros(temposMicros[linha]);
+    }
+
+    TipoSinal getTipo(int linha) {
+        return TipoSinal.values()[mapa.get(inicioTipos + linha)];
+    }
+
+    NivelRisco getRisco(int linha) {
+        return NivelRisco.values()[mapa.get(inicioRiscos + linha)];
+    }
+
+    double getValorPrincipal(int linha) {
+        return mapa.getInt(inicioPrincipal + 4 * linha) / 100.0;
+    }
+
+    // Diastólica da pressão (0 nos demais tipos)
+    int getSecundario(int linha) {
+        int centesimos = mapa.getInt(inicioSecundario + 4 * linha);
+        return centesimos != NULO ? centesimos / 100 : 0;
+    }
+
+    boolean isEmJejum(int linha) {
+        return mapa.get(inicioJejum + linha) == 1;
+    }
+
+    // Primeira linha com data_hora >= instante (quantidade se não houver)
+    int primeiraLinhaAPartirDe(LocalDateTime instante) {
+        return buscar(paraMicros(instante), false);
+    }
+
+    // Primeira linha com data_hora > instante (quantidade se não houver)
+    int primeiraLinhaApos(LocalDateTime instante) {
+        return buscar(paraMicros(instante), true);
+    }
+
+    private int buscar(long alvo, boolean inclusiveIguais) {
+        int baixo = 0;
+        int alto = quantidade;
+        while (baixo < alto) {
+            int meio = (baixo + alto) >>> 1;
+            if (temposMicros[meio] < alvo || (inclusiveIguais && temposMicros[meio] == alvo)) {
+                baixo = meio + 1;
+            } else {
+                alto = meio;
+            }
+        }
+        return baixo;
+    }
+
+    // Materializa a linha como SinalVital, como RegistroDAOImpl faz a partir do ResultSet
+    SinalVital ler(int linha) throws IOException {
+        try {
+            SinalVital sinal;
+            double principal = getValorPrincipal(linha);
+
+            switch (getTipo(linha)) {
+                case GLICEMIA:
+                    sinal = new Glicemia(idPaciente, principal, isEmJejum(linha));
+                    ((Glicemia) sinal).setTipoInsulina(lerTexto(mapa.getInt(inicioInsulina + 4 * linha)));
+                    break;
+                case PRESSAO:
+                    sinal = new PressaoArterial(idPaciente, (int) principal, getSecundario(linha));
+                    break;
+                default:
+                    sinal = new PesoCorporal(idPaciente, principal,
+                        mapa.getInt(inicioAltura + 4 * linha) / 100.0);
+            }
+
+            sinal.setIdRegistro(getId(linha));
+            sinal.setDataHora(getDataHora(linha));
+            sinal.setObservacoes(lerTexto(mapa.getInt(inicioObservacoes + 4 * linha)));
+            sinal.setNivelRiscoFromDB(getRisco(linha));
+            return sinal;
+
+        } catch (ValorInvalidoException e) {
+            throw new IOException("Dados inválidos no arquivo colunar: " + e.getMessage(), e);
+        }
+    }
+
+    private String lerTexto(int posicao) {
+        if (posicao < 0) {
+            return null;
+        }
+        int comprimento = mapa.getInt(inicioBloco + posicao);
+        byte[] bytes = new byte[comprimento];
+        ByteBuffer leitor = mapa.duplicate();
+        leitor.position(inicioBloco + posicao + 4);
+        leitor.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int anexarTexto(DataOutputStream blob, String texto) throws IOException {
+        if (texto == null) {
+            return -1;
+        }
+        int posicao = blob.size();
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        blob.writeInt(bytes.length);
+        blob.write(bytes);
+        return posicao;
+    }
+
+    static int centesimos(double valor) {
+        return (int) Math.round(valor * 100);
+    }
+
+    static long paraMicros(LocalDateTime dataHora) {
+        return dataHora.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dataHora.getNano() / 1_000;
+    }
+
+    private static LocalDateTime deMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static void escreverVarint(DataOutputStream saida, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            saida.writeByte((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.writeByte((int) valor);
+    }
+
+    private static long lerVarint(ByteBuffer leitor) {
+        long valor = 0;
+        int deslocamento = 0;
+        byte b;
+        do {
+            b = leitor.get();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            deslocamento += 7;
+        } while ((b & 0x80) != 0);
+        return valor;
+    }
+}
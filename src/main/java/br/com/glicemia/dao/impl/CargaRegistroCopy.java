@@ -0,0 +1,306 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.model.exceptions.RiscoEmergenciaException;
+import br.com.glicemia.model.vo.*;
+import br.com.glicemia.util.DatabaseConnection;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+// Carga em massa de registros históricos via COPY FROM STDIN (pgjdbc CopyManager).
+// Os sinais são convertidos para CSV sob demanda, sem materializar a carga em memória.
+public class CargaRegistroCopy {
+
+    // As leituras são copiadas para uma tabela temporária com as colunas da antiga tabela única
+    // e distribuídas às tabelas de cada tipo por um único INSERT ... SELECT por tipo.
+    public enum Modo {
+        // Sem filtrar: qualquer violação (FK, enums, precisão dos NUMERIC) aborta a carga inteira
+        DIRETO,
+        // Descarta as linhas que violariam restrições e insere as demais
+        STAGING
+    }
+
+    private static final String COLUNAS = "id_paciente, tipo_sinal, data_hora, valor_principal, " +
+            "valor_secundario, unidade_medida, nivel_risco, observacoes, em_jejum, tipo_insulina, altura, imc, " +
+            "chave_idempotencia";
+
+    private static final String SQL_CRIAR_STAGING =
+            "CREATE TEMP TABLE tmp_carga_registro (" +
+            "linha BIGINT GENERATED ALWAYS AS IDENTITY, id_paciente BIGINT, tipo_sinal TEXT, data_hora TIMESTAMP, valor_principal NUMERIC, " +
+            "valor_secundario NUMERIC, unidade_medida TEXT, nivel_risco TEXT, observacoes TEXT, " +
+            "em_jejum TEXT, tipo_insulina TEXT, altura NUMERIC, imc NUMERIC, chave_idempotencia TEXT) ON COMMIT DROP";
+
+    // Os limites numéricos seguem as colunas de cada tipo: valor_glicemia NUMERIC(6,2), sistólica
+    // e diastólica SMALLINT, peso NUMERIC(5,2), altura NUMERIC(3,2), imc NUMERIC(4,2)
+    private static final String FILTRO_VALIDAS =
+            " WHERE s.id_paciente IS NOT NULL AND s.data_hora IS NOT NULL " +
+            "AND s.valor_principal IS NOT NULL " +
+            "AND s.nivel_risco IN ('NORMAL', 'ATENCAO', 'ALTO', 'CRITICO') " +
+            "AND (s.em_jejum IS NULL OR s.em_jejum IN ('S', 'N')) " +
+            "AND (s.tipo_sinal <> 'GLICEMIA' OR abs(round(s.valor_principal, 2)) < 10000) " +
+            "AND (s.tipo_sinal <> 'PRESSAO' OR (round(s.valor_principal) BETWEEN -32768 AND 32767 " +
+            "AND round(s.valor_secundario) BETWEEN -32768 AND 32767)) " +
+            "AND (s.tipo_sinal <> 'PESO' OR (abs(round(s.valor_principal, 2)) < 1000 " +
+            "AND abs(round(s.altura, 2)) < 10)) " +
+            "AND (s.imc IS NULL OR abs(round(s.imc, 2)) < 100) " +
+            "AND (s.observacoes IS NULL OR length(s.observacoes) <= 500) " +
+            "AND (s.tipo_insulina IS NULL OR length(s.tipo_insulina) <= 50) " +
+            "AND (s.chave_idempotencia IS NULL OR length(s.chave_idempotencia) <= 64) " +
+            "AND EXISTS (SELECT 1 FROM TB_PACIENTE p WHERE p.id_paciente = s.id_paciente)";
+
+    private static final String SQL_MESCLAR_DIRETO = sqlMesclar("");
+    private static final String SQL_MESCLAR_STAGING = sqlMesclar(FILTRO_VALIDAS);
+
+    // Um INSERT ... SELECT por tabela de tipo; linhas de tipo desconhecido não entram em nenhum.
+    // Leituras com chave de idempotência já gravada são ignoradas (ON CONFLICT DO NOTHING), e só
+    // as linhas efetivamente inseridas alimentam o rollup diário, no mesmo comando.
+    // O id_registro da n-ésima linha copiada sai dos blocos reservados após o COPY (parâmetros:
+    // início de cada bloco e o incremento, duas vezes), como em AlocadorIds.reservarBlocos.
+    private static String sqlMesclar(String filtro) {
+        String comuns = "id_registro, id_paciente, data_hora, nivel_risco::nivel_risco_enum, observacoes, " +
+                        "chave_idempotencia";
+        String conflito = "ON CONFLICT (id_paciente, chave_idempotencia, data_hora) DO NOTHING ";
+        return "WITH validas AS (SELECT s.*, (?::bigint[])[((s.linha - 1) / ?)::int + 1] + (s.linha - 1) % ? " +
+               "AS id_registro FROM tmp_carga_registro s" + filtro + "), " +
+               "glicemia AS (INSERT INTO TB_REGISTRO_GLICEMIA (id_registro, id_paciente, data_hora, nivel_risco, " +
+               "observacoes, chave_idempotencia, valor_glicemia, em_jejum, tipo_insulina) " +
+               "SELECT " + comuns + ", valor_principal, COALESCE(em_jejum = 'S', FALSE), tipo_insulina " +
+               "FROM validas WHERE tipo_sinal = 'GLICEMIA' " + conflito +
+               "RETURNING id_paciente, 'GLICEMIA'::tipo_sinal_enum AS tipo_sinal, data_hora, " +
+               "valor_glicemia AS valor_principal, nivel_risco), " +
+               "pressao AS (INSERT INTO TB_REGISTRO_PRESSAO (id_registro, id_paciente, data_hora, nivel_risco, " +
+               "observacoes, chave_idempotencia, sistolica, diastolica) " +
+               "SELECT " + comuns + ", round(valor_principal), round(valor_secundario) " +
+               "FROM validas WHERE tipo_sinal = 'PRESSAO' " + conflito +
+               "RETURNING id_paciente, 'PRESSAO'::tipo_sinal_enum, data_hora, sistolica::numeric, nivel_risco), " +
+               "peso AS (INSERT INTO TB_REGISTRO_PESO (id_registro, id_paciente, data_hora, nivel_risco, " +
+               "observacoes, chave_idempotencia, peso, altura, imc) " +
+               "SELECT " + comuns + ", valor_principal, altura, imc " +
+               "FROM validas WHERE tipo_sinal = 'PESO' " + conflito +
+               "RETURNING id_paciente, 'PESO'::tipo_sinal_enum, data_hora, peso, nivel_risco), " +
+               "inseridos AS (SELECT * FROM glicemia UNION ALL SELECT * FROM pressao " +
+               "UNION ALL SELECT * FROM peso), " +
+               "diario AS (" + ResumoDiarioDAOImpl.sqlAgregarDe("inseridos") + ResumoDiarioDAOImpl.SQL_AGRUPAR + ") " +
+               "SELECT COUNT(*) FROM inseridos";
+    }
+
+    public ResultadoCarga carregar(Iterable<SinalVital> sinais, Modo modo) throws SQLException {
+        return carregar(sinais.iterator(), modo);
+    }
+
+    public ResultadoCarga carregar(Iterator<SinalVital> sinais, Modo modo) throws SQLException {
+        long inicio = System.nanoTime();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+            LeitorCsvSinais leitor = new LeitorCsvSinais(sinais);
+
+            long lidas;
+            long inseridas;
+
+            conn.setAutoCommit(false);
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(SQL_CRIAR_STAGING);
+                }
+                lidas = copiar(copyManager, "tmp_carga_registro", leitor);
+
+                // Os IDs são reservados nesta mesma conexão, com o COPY já concluído: a carga
+                // nunca segura uma segunda conexão do pool
+                long[] blocos = RegistroDAOImpl.IDS.reservarBlocos(conn, lidas);
+                long incremento = RegistroDAOImpl.IDS.getIncremento(conn);
+                Long[] inicios = new Long[blocos.length];
+                for (int i = 0; i < blocos.length; i++) {
+                    inicios[i] = blocos[i];
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        modo == Modo.DIRETO ? SQL_MESCLAR_DIRETO : SQL_MESCLAR_STAGING)) {
+                    stmt.setArray(1, conn.createArrayOf("bigint", inicios));
+                    stmt.setLong(2, incremento);
+                    stmt.setLong(3, incremento);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        inseridas = rs.getLong(1);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            for (Long idPaciente : leitor.getPacientes()) {
+                DatabaseConnection.registrarEscrita(idPaciente);
+            }
+            return new ResultadoCarga(lidas, inseridas, System.nanoTime() - inicio, leitor.getPacientes());
+        }
+    }
+
+    private long copiar(CopyManager copyManager, String tabela, Reader leitor) throws SQLException {
+        String sql = "COPY " + tabela + " (" + COLUNAS + ") FROM STDIN WITH (FORMAT csv)";
+        try {
+            return copyManager.copyIn(sql, leitor);
+        } catch (IOException e) {
+            throw new SQLException("Falha ao transmitir dados para o COPY: " + e.getMessage(), e);
+        }
+    }
+
+    // Reader que gera as linhas CSV à medida que o COPY consome o fluxo. As linhas saem sem
+    // id_registro: a tabela temporária as numera e os IDs são atribuídos na mesclagem.
+    private static class LeitorCsvSinais extends Reader {
+
+        private final Iterator<SinalVital> sinais;
+        private final StringBuilder buffer = new StringBuilder(256);
+        private final Set<Long> pacientes = new HashSet<>();
+        private int posicao = 0;
+
+        LeitorCsvSinais(Iterator<SinalVital> sinais) {
+            this.sinais = sinais;
+        }
+
+        @Override
+        public int read(char[] destino, int deslocamento, int tamanho) throws IOException {
+            if (tamanho == 0) {
+                return 0;
+            }
+
+            int lidos = 0;
+            while (lidos < tamanho) {
+                if (posicao >= buffer.length()) {
+                    if (!sinais.hasNext()) {
+                        break;
+                    }
+                    SinalVital sinal = sinais.next();
+                    buffer.setLength(0);
+                    posicao = 0;
+                    escreverLinha(sinal, buffer);
+                    if (sinal.getIdPaciente() != null) {
+                        pacientes.add(sinal.getIdPaciente());
+                    }
+                }
+
+                int quantidade = Math.min(tamanho - lidos, buffer.length() - posicao);
+                buffer.getChars(posicao, posicao + quantidade, destino, deslocamento + lidos);
+                posicao += quantidade;
+                lidos += quantidade;
+            }
+
+            return lidos == 0 ? -1 : lidos;
+        }
+
+        Set<Long> getPacientes() {
+            return pacientes;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // Colunas da antiga tabela única, como em VW_REGISTRO, exceto id_registro.
+    // Campo vazio sem aspas é NULL no CSV do COPY; textos vão sempre entre aspas. Uma leitura sem
+    // data_hora sai com o campo e a chave vazios, e o filtro do modo STAGING a descarta.
+    static void escreverLinha(SinalVital sinal, StringBuilder linha) {
+        if (sinal.getNivelRisco() == null) {
+            try {
+                sinal.analisarRisco();
+            } catch (RiscoEmergenciaException e) {
+                // Nível CRITICO já foi atribuído pela análise
+            }
+        }
+
+        String valorPrincipal = null;
+        String valorSecundario = null;
+        String emJejum = null;
+        String tipoInsulina = null;
+        String altura = null;
+        String imc = null;
+
+        if (sinal instanceof Glicemia) {
+            Glicemia glicemia = (Glicemia) sinal;
+            valorPrincipal = String.valueOf(glicemia.getValorGlicemia());
+            emJejum = glicemia.isEmJejum() ? "S" : "N";
+            tipoInsulina = glicemia.getTipoInsulina();
+
+        } else if (sinal instanceof PressaoArterial) {
+            PressaoArterial pressao = (PressaoArterial) sinal;
+            valorPrincipal = String.valueOf(pressao.getSistolica());
+            valorSecundario = String.valueOf(pressao.getDiastolica());
+
+        } else if (sinal instanceof PesoCorporal) {
+            PesoCorporal peso = (PesoCorporal) sinal;
+            valorPrincipal = String.valueOf(peso.getPeso());
+            altura = String.valueOf(peso.getAltura());
+            imc = peso.getImc() != null ? String.valueOf(peso.getImc()) : null;
+        }
+
+        anexar(linha, sinal.getIdPaciente() != null ? String.valueOf(sinal.getIdPaciente()) : null, false).append(',');
+        linha.append(RegistroDAOImpl.obterTipoSinal(sinal)).append(',');
+        LocalDateTime dataHora = sinal.getDataHora();
+        anexar(linha, dataHora != null ? dataHora.truncatedTo(ChronoUnit.MICROS).toString() : null, false).append(',');
+        anexar(linha, valorPrincipal, false).append(',');
+        anexar(linha, valorSecundario, false).append(',');
+        anexar(linha, sinal.getUnidadeMedida(), true).append(',');
+        linha.append(sinal.getNivelRisco() != null ? sinal.getNivelRisco().name() : "NORMAL").append(',');
+        anexar(linha, sinal.getObservacoes(), true).append(',');
+        anexar(linha, emJejum, false).append(',');
+        anexar(linha, tipoInsulina, true).append(',');
+        anexar(linha, altura, false).append(',');
+        anexar(linha, imc, false).append(',');
+        anexar(linha, dataHora != null ? TabelaRegistro.de(sinal).chave(sinal) : null, true).append('\n');
+    }
+
+    private static StringBuilder anexar(StringBuilder linha, String valor, boolean texto) {
+        if (valor == null) {
+            return linha;
+        }
+        if (!texto) {
+            return linha.append(valor);
+        }
+        return linha.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+
+    public static class ResultadoCarga {
+        private final long linhasLidas;
+        private final long linhasInseridas;
+        private final long duracaoNanos;
+        // Pacientes das linhas lidas, inclusive as descartadas
+        private final Set<Long> pacientes;
+
+        ResultadoCarga(long linhasLidas, long linhasInseridas, long duracaoNanos, Set<Long> pacientes) {
+            this.linhasLidas = linhasLidas;
+            this.linhasInseridas = linhasInseridas;
+            this.duracaoNanos = duracaoNanos;
+            this.pacientes = pacientes;
+        }
+
+        public long getLinhasLidas() { return linhasLidas; }
+        public long getLinhasInseridas() { return linhasInseridas; }
+        public long getLinhasRejeitadas() { return linhasLidas - linhasInseridas; }
+        public long getDuracaoMs() { return duracaoNanos / 1_000_000; }
+        public Set<Long> getPacientes() { return pacientes; }
+
+        public double getLinhasPorSegundo() {
+            return duracaoNanos > 0 ? linhasInseridas * 1_000_000_000.0 / duracaoNanos : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Carga COPY: %d lidas | %d inseridas | %d rejeitadas | %d ms | %.0f linhas/s",
+                linhasLidas, linhasInseridas, getLinhasRejeitadas(), getDuracaoMs(), getLinhasPorSegundo());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.exceptions.ValorInvalidoException;
+import br.com.glicemia.model.vo.Glicemia;
+import br.com.glicemia.model.vo.PesoCorporal;
+import br.com.glicemia.model.vo.PressaoArterial;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+
+// Representação textual de um SinalVital em uma linha, usada pelos arquivos locais de registros.
+// Campos separados por TAB, com \t, \n, \r e \ escapados e \N para nulo (anexar/ler). Cada linha carrega
+// um CRC32 do conteúdo para detectar gravações interrompidas.
+final class CodecSinalVital {
+
+    private static final String NULO = "\\N";
+
+    private CodecSinalVital() {
+    }
+
+    static String codificar(SinalVital sinal) {
+        String tipo = RegistroDAOImpl.obterTipoSinal(sinal);
+        String valorSecundario = null;
+        String emJejum = null;
+        String tipoInsulina = null;
+        String altura = null;
+
+        if (sinal instanceof Glicemia) {
+            Glicemia glicemia = (Glicemia) sinal;
+            emJejum = glicemia.isEmJejum() ? "S" : "N";
+            tipoInsulina = glicemia.getTipoInsulina();
+        } else if (sinal instanceof PressaoArterial) {
+            valorSecundario = String.valueOf(((PressaoArterial) sinal).getDiastolica());
+        } else if (sinal instanceof PesoCorporal) {
+            altura = String.valueOf(((PesoCorporal) sinal).getAltura());
+        }
+
+        StringBuilder conteudo = new StringBuilder(128);
+        anexar(conteudo, sinal.getIdRegistro() != null ? sinal.getIdRegistro().toString() : null).append('\t');
+        anexar(conteudo, tipo).append('\t');
+        anexar(conteudo, sinal.getIdPaciente().toString()).append('\t');
+        anexar(conteudo, sinal.getDataHora().toString()).append('\t');
+        anexar(conteudo, String.valueOf(RegistroDAOImpl.obterValorPrincipal(sinal))).append('\t');
+        anexar(conteudo, valorSecundario).append('\t');
+        anexar(conteudo, sinal.getNivelRisco() != null ? sinal.getNivelRisco().name() : null).append('\t');
+        anexar(conteudo, emJejum).append('\t');
+        anexar(conteudo, tipoInsulina).append('\t');
+        anexar(conteudo, altura).append('\t');
+        anexar(conteudo, sinal.getObservacoes()).append('\t');
+        anexar(conteudo, sinal.getChaveIdempotencia());
+
+        String texto = conteudo.toString();
+        return Long.toHexString(crc(texto)) + '\t' + texto;
+    }
+
+    // Devolve null para linhas truncadas ou corrompidas (CRC divergente).
+    static SinalVital decodificar(String linha) throws ValorInvalidoException {
+        int separador = linha.indexOf('\t');
+        if (separador < 0) {
+            return null;
+        }
+
+        String texto = linha.substring(separador + 1);
+        try {
+            if (Long.parseLong(linha.substring(0, separador), 16) != crc(texto)) {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        // Linhas gravadas antes da chave de idempotência têm 11 campos
+        String[] campos = texto.split("\t", -1);
+        if (campos.length != 11 && campos.length != 12) {
+            return null;
+        }
+
+        Long idPaciente = Long.valueOf(ler(campos[2]));
+        double valorPrincipal = Double.parseDouble(ler(campos[4]));
+        SinalVital sinal;
+
+        switch (ler(campos[1])) {
+            case "GLICEMIA":
+                sinal = new Glicemia(idPaciente, valorPrincipal, "S".equals(ler(campos[7])));
+                ((Glicemia) sinal).setTipoInsulina(ler(campos[8]));
+                break;
+            case "PRESSAO":
+                sinal = new PressaoArterial(idPaciente, (int) valorPrincipal, Integer.parseInt(ler(campos[5])));
+                break;
+            case "PESO":
+                sinal = new PesoCorporal(idPaciente, valorPrincipal, Double.parseDouble(ler(campos[9])));
+                break;
+            default:
+                return null;
+        }
+
+        String idRegistro = ler(campos[0]);
+        if (idRegistro != null) {
+            sinal.setIdRegistro(Long.valueOf(idRegistro));
+        }
+        sinal.setDataHora(LocalDateTime.parse(ler(campos[3])));
+        String risco = ler(campos[6]);
+        if (risco != null) {
+            sinal.setNivelRiscoFromDB(NivelRisco.valueOf(risco));
+        }
+        sinal.setObservacoes(ler(campos[10]));
+        if (campos.length == 12) {
+            sinal.setChaveIdempotencia(ler(campos[11]));
+        }
+        return sinal;
+    }
+
+    private static long crc(String texto) {
+        CRC32 crc = new CRC32();
+        crc.update(texto.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    static StringBuilder anexar(StringBuilder destino, String valor) {
+        if (valor == null) {
+            return destino.append(NULO);
+        }
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '\\': destino.append("\\\\"); break;
+                case '\t': destino.append("\\t"); break;
+                case '\n': destino.append("\\n"); break;
+                case '\r': destino.append("\\r"); break;
+                default: destino.append(c);
+            }
+        }
+        return destino;
+    }
+
+    static String ler(String campo) {
+        if (NULO.equals(campo)) {
+            return null;
+        }
+        if (campo.indexOf('\\') < 0) {
+            return campo;
+        }
+        StringBuilder valor = new StringBuilder(campo.length());
+        for (int i = 0; i < campo.length(); i++) {
+            char c = campo.charAt(i);
+            if (c == '\\' && i + 1 < campo.length()) {
+                char seguinte = campo.charAt(++i);
+                valor.append(seguinte == 't' ? '\t' : seguinte == 'n' ? '\n' : seguinte == 'r' ? '\r' : seguinte);
+            } else {
+                valor.append(c);
+            }
+        }
+        return valor.toString();
+    }
+}
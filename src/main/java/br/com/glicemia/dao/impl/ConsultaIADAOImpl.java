@@ -0,0 +1,66 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.ConsultaIADAO;
+import br.com.glicemia.model.vo.ConsultaIA;
+import br.com.glicemia.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+public class ConsultaIADAOImpl implements ConsultaIADAO {
+
+    private static final int TAMANHO_MAXIMO_ERRO = 500;
+
+    private static final String SQL_INSERIR =
+            "INSERT INTO TB_CONSULTA_IA (id_paciente, data_consulta, tipo_consulta, provedor, fallback, " +
+            "tamanho_prompt, tamanho_resposta, tempo_resposta_ms, sucesso, erro) " +
+            "VALUES (?, ?, ?, ?, ?::sim_nao_enum, ?, ?, ?, ?::sim_nao_enum, ?)";
+
+    @Override
+    public void inserirLote(List<ConsultaIA> consultas) throws SQLException {
+        if (consultas.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERIR)) {
+                for (ConsultaIA consulta : consultas) {
+                    if (consulta.getIdPaciente() != null) {
+                        stmt.setLong(1, consulta.getIdPaciente());
+                    } else {
+                        stmt.setNull(1, Types.BIGINT);
+                    }
+                    stmt.setTimestamp(2, Timestamp.valueOf(consulta.getDataConsulta()));
+                    stmt.setString(3, consulta.getTipoConsulta());
+                    stmt.setString(4, consulta.getProvedor());
+                    stmt.setString(5, consulta.isFallback() ? "S" : "N");
+                    stmt.setInt(6, consulta.getTamanhoPrompt());
+                    stmt.setInt(7, consulta.getTamanhoResposta());
+                    stmt.setInt(8, (int) Math.min(consulta.getTempoRespostaMs(), Integer.MAX_VALUE));
+                    stmt.setString(9, consulta.isSucesso() ? "S" : "N");
+                    stmt.setString(10, truncar(consulta.getErro()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static String truncar(String erro) {
+        if (erro == null || erro.length() <= TAMANHO_MAXIMO_ERRO) {
+            return erro;
+        }
+        return erro.substring(0, TAMANHO_MAXIMO_ERRO);
+    }
+}
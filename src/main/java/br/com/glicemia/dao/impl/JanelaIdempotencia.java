@@ -0,0 +1,44 @@
+package br.com.glicemia.dao.impl;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Chaves de idempotência gravadas recentemente por esta instância, com o ID de cada leitura.
+// Reenvios de dispositivos/gateways costumam chegar logo após o original; encontrados aqui, são
+// descartados sem ida ao banco. A janela é limitada (LRU) e não substitui a restrição única do
+// banco, que cobre reenvios mais antigos e os de outras instâncias.
+class JanelaIdempotencia {
+
+    private final int capacidade;
+    private final LinkedHashMap<String, Long> ids;
+
+    JanelaIdempotencia(int capacidade) {
+        this.capacidade = capacidade;
+        this.ids = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> maisAntiga) {
+                return size() > JanelaIdempotencia.this.capacidade;
+            }
+        };
+    }
+
+    // A restrição única é (id_paciente, chave_idempotencia, data_hora): a janela usa a mesma tripla
+    private static String entrada(Long idPaciente, String chave, LocalDateTime dataHora) {
+        return idPaciente + "|" + chave + '@' + dataHora;
+    }
+
+    // ID da leitura do paciente já gravada com a chave, ou null
+    synchronized Long buscar(Long idPaciente, String chave, LocalDateTime dataHora) {
+        if (capacidade <= 0) {
+            return null;
+        }
+        return ids.get(entrada(idPaciente, chave, dataHora));
+    }
+
+    synchronized void registrar(Long idPaciente, String chave, LocalDateTime dataHora, Long idRegistro) {
+        if (capacidade > 0) {
+            ids.put(entrada(idPaciente, chave, dataHora), idRegistro);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.PacienteDAO;
+import br.com.glicemia.model.exceptions.ValorInvalidoException;
+import br.com.glicemia.model.vo.Paciente;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Cache read-through de pacientes sobre outro PacienteDAO, com tamanho limitado (LRU) e TTL.
+// As escritas feitas por este DAO atualizam ou invalidam a entrada; alterações feitas por
+// outros processos ficam visíveis no máximo após o TTL.
+public class PacienteDAOCache implements PacienteDAO {
+
+    private final PacienteDAO delegado;
+    private final int capacidade;
+    private final long ttlNanos;
+
+    // Ordem de acesso: o primeiro elemento é o menos usado recentemente
+    private final LinkedHashMap<Long, Entrada> porId;
+    private final Map<String, Long> idPorCpf = new HashMap<>();
+
+    private long acertos = 0;
+    private long faltas = 0;
+    private long expiracoes = 0;
+    private long despejos = 0;
+
+    public PacienteDAOCache(PacienteDAO delegado, int capacidade, long ttlMs) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade do cache deve ser positiva: " + capacidade);
+        }
+        this.delegado = delegado;
+        this.capacidade = capacidade;
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.porId = new LinkedHashMap<Long, Entrada>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entrada> maisAntiga) {
+                if (size() <= PacienteDAOCache.this.capacidade) {
+                    return false;
+                }
+                idPorCpf.remove(maisAntiga.getValue().paciente.getCpf());
+                despejos++;
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public Long inserir(Paciente paciente) throws SQLException {
+        Long id = delegado.inserir(paciente);
+        armazenar(paciente);
+        return id;
+    }
+
+    @Override
+    public Long inserirSeCpfLivre(Paciente paciente) throws SQLException {
+        Long id = delegado.inserirSeCpfLivre(paciente);
+        if (id != null) {
+            armazenar(paciente);
+        }
+        return id;
+    }
+
+    // Pacientes importados em lote não entram no cache: seriam, em sua maioria, logo expulsos
+    @Override
+    public int[] inserirLoteSeCpfLivre(List<Paciente> pacientes) throws SQLException {
+        return delegado.inserirLoteSeCpfLivre(pacientes);
+    }
+
+    @Override
+    public Set<String> buscarCpfsExistentes(Collection<String> cpfs) throws SQLException {
+        return delegado.buscarCpfsExistentes(cpfs);
+    }
+
+    @Override
+    public boolean atualizar(Paciente paciente) throws SQLException {
+        boolean atualizado;
+        try {
+            atualizado = delegado.atualizar(paciente);
+        } catch (SQLException e) {
+            invalidar(paciente.getIdPaciente());
+            throw e;
+        }
+        if (atualizado) {
+            armazenar(paciente);
+        } else {
+            invalidar(paciente.getIdPaciente());
+        }
+        return atualizado;
+    }
+
+    @Override
+    public boolean deletar(Long idPaciente) throws SQLException {
+        try {
+            return delegado.deletar(idPaciente);
+        } finally {
+            invalidar(idPaciente);
+        }
+    }
+
+    @Override
+    public Paciente buscarPorId(Long idPaciente) throws SQLException {
+        Paciente emCache = obter(idPaciente);
+        if (emCache != null) {
+            return emCache;
+        }
+
+        Paciente paciente = delegado.buscarPorId(idPaciente);
+        if (paciente != null) {
+            armazenar(paciente);
+        }
+        return paciente;
+    }
+
+    @Override
+    public Paciente buscarPorCPF(String cpf) throws SQLException {
+        Long id;
+        synchronized (this) {
+            id = idPorCpf.get(cpf);
+        }
+        Paciente emCache = id != null ? obter(id) : null;
+        if (emCache != null) {
+            return emCache;
+        }
+        if (id == null) {
+            contarFalta();
+        }
+
+        Paciente paciente = delegado.buscarPorCPF(cpf);
+        if (paciente != null) {
+            armazenar(paciente);
+        }
+        return paciente;
+    }
+
+    // A listagem completa não passa pelo cache, mas aproveita o resultado para aquecê-lo
+    // até o limite de capacidade.
+    @Override
+    public List<Paciente> listarTodos() throws SQLException {
+        List<Paciente> pacientes = delegado.listarTodos();
+        for (int i = 0; i < pacientes.size() && i < capacidade; i++) {
+            armazenar(pacientes.get(i));
+        }
+        return pacientes;
+    }
+
+    public synchronized void invalidar(Long idPaciente) {
+        Entrada entrada = porId.remove(idPaciente);
+        if (entrada != null) {
+            idPorCpf.remove(entrada.paciente.getCpf());
+        }
+    }
+
+    public synchronized void limpar() {
+        porId.clear();
+        idPorCpf.clear();
+    }
+
+    public synchronized Estatisticas getEstatisticas() {
+        return new Estatisticas(porId.size(), capacidade, acertos, faltas, expiracoes, despejos);
+    }
+
+    // Devolve uma cópia da entrada válida, contando acerto; entradas expiradas são removidas.
+    private Paciente obter(Long idPaciente) throws SQLException {
+        Paciente paciente;
+        synchronized (this) {
+            Entrada entrada = porId.get(idPaciente);
+            if (entrada == null) {
+                faltas++;
+                return null;
+            }
+            if (System.nanoTime() - entrada.criadaEm > ttlNanos) {
+                porId.remove(idPaciente);
+                idPorCpf.remove(entrada.paciente.getCpf());
+                expiracoes++;
+                faltas++;
+                return null;
+            }
+            acertos++;
+            paciente = entrada.paciente;
+        }
+        return copiar(paciente);
+    }
+
+    private synchronized void contarFalta() {
+        faltas++;
+    }
+
+    // Guarda uma cópia para que alterações no objeto do chamador não contaminem o cache.
+    private void armazenar(Paciente paciente) throws SQLException {
+        if (paciente.getIdPaciente() == null) {
+            return;
+        }
+        Paciente copia = copiar(paciente);
+
+        synchronized (this) {
+            Entrada anterior = porId.put(copia.getIdPaciente(), new Entrada(copia, System.nanoTime()));
+            if (anterior != null && !anterior.paciente.getCpf().equals(copia.getCpf())) {
+                idPorCpf.remove(anterior.paciente.getCpf());
+            }
+            idPorCpf.put(copia.getCpf(), copia.getIdPaciente());
+        }
+    }
+
+    private static Paciente copiar(Paciente origem) throws SQLException {
+        try {
+            Paciente copia = new Paciente(origem.getNome(), origem.getCpf(), origem.getDataNascimento());
+            copia.setIdPaciente(origem.getIdPaciente());
+            copia.setEmail(origem.getEmail());
+            copia.setTelefone(origem.getTelefone());
+            return copia;
+        } catch (ValorInvalidoException e) {
+            throw new SQLException("Dados inválidos no cache de pacientes: " + e.getMessage(), e);
+        }
+    }
+
+    private static class Entrada {
+        private final Paciente paciente;
+        private final long criadaEm;
+
+        Entrada(Paciente paciente, long criadaEm) {
+            this.paciente = paciente;
+            this.criadaEm = criadaEm;
+        }
+    }
+
+    public static class Estatisticas {
+        private final int tamanho;
+        private final int capacidade;
+        private final long acertos;
+        private final long faltas;
+        private final long expiracoes;
+        private final long despejos;
+
+        Estatisticas(int tamanho, int capacidade, long acertos, long faltas,
+                     long expiracoes, long despejos) {
+            this.tamanho = tamanho;
+            this.capacidade = capacidade;
+            this.acertos = acertos;
+            this.faltas = faltas;
+            this.expiracoes = expiracoes;
+            this.despejos = despejos;
+        }
+
+        public int getTamanho() { return tamanho; }
+        public int getCapacidade() { return capacidade; }
+        public long getAcertos() { return acertos; }
+        public long getFaltas() { return faltas; }
+        public long getExpiracoes() { return expiracoes; }
+        public long getDespejos() { return despejos; }
+
+        public double getTaxaAcerto() {
+            long consultas = acertos + faltas;
+            return consultas > 0 ? acertos * 100.0 / consultas : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cache de pacientes: %d/%d entradas | %d acertos | %d faltas | " +
+                    "taxa de acerto %.1f%% | %d expiradas | %d despejadas",
+                tamanho, capacidade, acertos, faltas, getTaxaAcerto(), expiracoes, despejos);
+        }
+    }
+}
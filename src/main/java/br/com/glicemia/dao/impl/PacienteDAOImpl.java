@@ -3,32 +3,44 @@ package br.com.glicemia.dao.impl;
 import br.com.glicemia.dao.interfaces.PacienteDAO;
 import br.com.glicemia.model.exceptions.ValorInvalidoException;
 import br.com.glicemia.model.vo.Paciente;
+import br.com.glicemia.util.AlocadorIds;
 import br.com.glicemia.util.DatabaseConnection;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PacienteDAOImpl implements PacienteDAO {
 
+    private static final String SQL_INSERIR =
+            "INSERT INTO TB_PACIENTE (id_paciente, nome, cpf, data_nascimento, email, telefone, data_cadastro) " +
+            "VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    // Verificação de CPF e inserção no mesmo comando: sem corrida entre consulta e INSERT
+    private static final String SQL_INSERIR_SE_CPF_LIVRE = SQL_INSERIR + " ON CONFLICT (cpf) DO NOTHING";
+
+    private static final String SQL_IDS_INSERIDOS =
+            "SELECT id_paciente FROM TB_PACIENTE WHERE id_paciente = ANY(?)";
+
+    // id_paciente é atribuído no cliente: as inserções não leem chaves geradas
+    private static final AlocadorIds IDS = new AlocadorIds("tb_paciente_id_paciente_seq");
+
     @Override
     public Long inserir(Paciente paciente) throws SQLException {
-        String sql = "INSERT INTO TB_PACIENTE (nome, cpf, data_nascimento, email, telefone, data_cadastro) VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+        long id = IDS.proximo();
 
         Connection conn = null;
         PreparedStatement stmt = null;
-        ResultSet rs = null;
 
         try {
             conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            stmt = conn.prepareStatement(SQL_INSERIR);
 
-            stmt.setString(1, paciente.getNome());
-            stmt.setString(2, paciente.getCpf());
-            stmt.setDate(3, Date.valueOf(paciente.getDataNascimento()));
-            stmt.setString(4, paciente.getEmail());
-            stmt.setString(5, paciente.getTelefone());
+            preencherParametrosInsercao(stmt, id, paciente);
 
             int linhasAfetadas = stmt.executeUpdate();
 
@@ -36,25 +48,154 @@ public class PacienteDAOImpl implements PacienteDAO {
                 throw new SQLException("Falha ao inserir paciente, nenhuma linha afetada.");
             }
 
-            rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                Long idGerado = rs.getLong(1);
-                paciente.setIdPaciente(idGerado);
-                return idGerado;
-            } else {
-                throw new SQLException("Falha ao inserir paciente, ID não gerado.");
-            }
+            paciente.setIdPaciente(id);
+            DatabaseConnection.registrarEscrita(id);
+            return id;
 
         } finally {
-            if (rs != null) rs.close();
             if (stmt != null) stmt.close();
             if (conn != null) conn.close();
         }
     }
 
     @Override
-    public void atualizar(Paciente paciente) throws SQLException {
-        String sql = "UPDATE TB_PACIENTE SET nome = ?, data_nascimento = ?, email = ?, telefone = ? WHERE id_paciente = ?";
+    public Long inserirSeCpfLivre(Paciente paciente) throws SQLException {
+        long id = IDS.proximo();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERIR_SE_CPF_LIVRE)) {
+
+            preencherParametrosInsercao(stmt, id, paciente);
+
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+            paciente.setIdPaciente(id);
+            DatabaseConnection.registrarEscrita(id);
+            return id;
+        }
+    }
+
+    @Override
+    public int[] inserirLoteSeCpfLivre(List<Paciente> pacientes) throws SQLException {
+        int[] status = new int[pacientes.size()];
+        if (pacientes.isEmpty()) {
+            return status;
+        }
+
+        long[] ids = IDS.reservar(pacientes.size());
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERIR_SE_CPF_LIVRE)) {
+
+            conn.setAutoCommit(false);
+            try {
+                for (int i = 0; i < pacientes.size(); i++) {
+                    preencherParametrosInsercao(stmt, ids[i], pacientes.get(i));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                // O batch reescrito não informa linha a linha; as de CPF em conflito são as
+                // que não ficaram com o ID reservado
+                Set<Long> inseridos = new HashSet<>();
+                try (PreparedStatement consulta = conn.prepareStatement(SQL_IDS_INSERIDOS)) {
+                    Long[] reservados = new Long[ids.length];
+                    for (int i = 0; i < ids.length; i++) {
+                        reservados[i] = ids[i];
+                    }
+                    consulta.setArray(1, conn.createArrayOf("bigint", reservados));
+                    try (ResultSet rs = consulta.executeQuery()) {
+                        while (rs.next()) {
+                            inseridos.add(rs.getLong(1));
+                        }
+                    }
+                }
+                conn.commit();
+
+                for (int i = 0; i < pacientes.size(); i++) {
+                    if (inseridos.contains(ids[i])) {
+                        pacientes.get(i).setIdPaciente(ids[i]);
+                        DatabaseConnection.registrarEscrita(ids[i]);
+                        status[i] = 1;
+                    }
+                }
+
+            } catch (BatchUpdateException e) {
+                // Uma linha inválida aborta o lote inteiro; reprocessa linha a linha para isolá-la
+                conn.rollback();
+                stmt.clearBatch();
+                inserirIndividualmente(conn, pacientes, ids, status);
+            }
+        }
+
+        return status;
+    }
+
+    private void inserirIndividualmente(Connection conn, List<Paciente> pacientes, long[] ids, int[] status)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERIR_SE_CPF_LIVRE)) {
+            for (int i = 0; i < pacientes.size(); i++) {
+                Paciente paciente = pacientes.get(i);
+                try {
+                    preencherParametrosInsercao(stmt, ids[i], paciente);
+                    if (stmt.executeUpdate() > 0) {
+                        paciente.setIdPaciente(ids[i]);
+                        status[i] = 1;
+                    }
+                    conn.commit();
+                    if (status[i] == 1) {
+                        DatabaseConnection.registrarEscrita(paciente.getIdPaciente());
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    paciente.setIdPaciente(null);
+                    status[i] = Statement.EXECUTE_FAILED;
+                    System.err.println("Paciente " + paciente.getCpf() + " do lote rejeitado: " +
+                                       e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Set<String> buscarCpfsExistentes(Collection<String> cpfs) throws SQLException {
+        Set<String> existentes = new HashSet<>();
+        if (cpfs.isEmpty()) {
+            return existentes;
+        }
+
+        String sql = "SELECT cpf FROM TB_PACIENTE WHERE cpf = ANY(?)";
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setArray(1, conn.createArrayOf("varchar", cpfs.toArray()));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    existentes.add(rs.getString(1));
+                }
+            }
+        }
+
+        return existentes;
+    }
+
+    private static void preencherParametrosInsercao(PreparedStatement stmt, long id, Paciente paciente)
+            throws SQLException {
+        stmt.setLong(1, id);
+        stmt.setString(2, paciente.getNome());
+        stmt.setString(3, paciente.getCpf());
+        stmt.setDate(4, Date.valueOf(paciente.getDataNascimento()));
+        stmt.setString(5, paciente.getEmail());
+        stmt.setString(6, paciente.getTelefone());
+    }
+
+    @Override
+    public boolean atualizar(Paciente paciente) throws SQLException {
+        String sql = "UPDATE TB_PACIENTE SET nome = ?, data_nascimento = ?, email = ?, telefone = ? " +
+                     "WHERE id_paciente = ? RETURNING id_paciente";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -65,28 +206,32 @@ public class PacienteDAOImpl implements PacienteDAO {
             stmt.setString(4, paciente.getTelefone());
             stmt.setLong(5, paciente.getIdPaciente());
 
-            int linhasAfetadas = stmt.executeUpdate();
-
-            if (linhasAfetadas == 0) {
-                throw new SQLException("Paciente não encontrado para atualização: " +
-                                     paciente.getIdPaciente());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
             }
+            DatabaseConnection.registrarEscrita(paciente.getIdPaciente());
+            return true;
         }
     }
 
     @Override
-    public void deletar(Long idPaciente) throws SQLException {
-        String sql = "DELETE FROM TB_PACIENTE WHERE id_paciente = ?";
+    public boolean deletar(Long idPaciente) throws SQLException {
+        String sql = "DELETE FROM TB_PACIENTE WHERE id_paciente = ? RETURNING id_paciente";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, idPaciente);
-            int linhasAfetadas = stmt.executeUpdate();
 
-            if (linhasAfetadas == 0) {
-                throw new SQLException("Paciente não encontrado para exclusão: " + idPaciente);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
             }
+            DatabaseConnection.registrarEscrita(idPaciente);
+            return true;
         }
     }
 
@@ -94,7 +239,7 @@ public class PacienteDAOImpl implements PacienteDAO {
     public Paciente buscarPorId(Long idPaciente) throws SQLException {
         String sql = "SELECT * FROM TB_PACIENTE WHERE id_paciente = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, idPaciente);
@@ -112,7 +257,7 @@ public class PacienteDAOImpl implements PacienteDAO {
     public Paciente buscarPorCPF(String cpf) throws SQLException {
         String sql = "SELECT * FROM TB_PACIENTE WHERE cpf = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, cpf);
@@ -131,7 +276,7 @@ public class PacienteDAOImpl implements PacienteDAO {
         String sql = "SELECT * FROM TB_PACIENTE ORDER BY nome";
         List<Paciente> pacientes = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura();
              PreparedStatement stmt = conn.prepareStatement(sql);
              ResultSet rs = stmt.executeQuery()) {
 
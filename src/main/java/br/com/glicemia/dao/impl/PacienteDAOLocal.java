@@ -0,0 +1,140 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.PacienteDAO;
+import br.com.glicemia.model.vo.Paciente;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// PacienteDAO sobre o ArmazemLocal. Consultas são respondidas pela réplica local e, para
+// pacientes ainda não replicados, pelo banco (que passam a ser replicados). Cadastro, alteração e exclusão exigem conexão,
+// pois o ID e a unicidade do CPF são definidos pelo banco; a réplica é atualizada em seguida.
+public class PacienteDAOLocal implements PacienteDAO {
+
+    private final ArmazemLocal armazem;
+    private final PacienteDAO remoto;
+
+    public PacienteDAOLocal(ArmazemLocal armazem) {
+        this.armazem = armazem;
+        this.remoto = armazem.getPacienteRemoto();
+    }
+
+    @Override
+    public Long inserir(Paciente paciente) throws SQLException {
+        Long id = remoto.inserir(paciente);
+        guardar(paciente);
+        return id;
+    }
+
+    @Override
+    public Long inserirSeCpfLivre(Paciente paciente) throws SQLException {
+        Long id = remoto.inserirSeCpfLivre(paciente);
+        if (id != null) {
+            guardar(paciente);
+        }
+        return id;
+    }
+
+    // Importação em lote vai direto ao banco; os pacientes são replicados quando consultados
+    @Override
+    public int[] inserirLoteSeCpfLivre(List<Paciente> pacientes) throws SQLException {
+        return remoto.inserirLoteSeCpfLivre(pacientes);
+    }
+
+    @Override
+    public Set<String> buscarCpfsExistentes(Collection<String> cpfs) throws SQLException {
+        return remoto.buscarCpfsExistentes(cpfs);
+    }
+
+    @Override
+    public boolean atualizar(Paciente paciente) throws SQLException {
+        boolean atualizado = remoto.atualizar(paciente);
+        if (atualizado) {
+            guardar(paciente);
+        }
+        return atualizado;
+    }
+
+    @Override
+    public boolean deletar(Long idPaciente) throws SQLException {
+        boolean removido = remoto.deletar(idPaciente);
+        try {
+            armazem.removerReplica(idPaciente);
+        } catch (IOException e) {
+            throw new SQLException("Falha ao atualizar armazenamento local: " + e.getMessage(), e);
+        }
+        return removido;
+    }
+
+    @Override
+    public Paciente buscarPorId(Long idPaciente) throws SQLException {
+        Paciente local = armazem.pacienteLocal(idPaciente);
+        if (local != null) {
+            return local;
+        }
+        if (!armazem.isOnline()) {
+            throw new SQLException("Banco indisponível e paciente sem réplica local: " + idPaciente);
+        }
+
+        Paciente paciente = consultarRemoto(() -> remoto.buscarPorId(idPaciente));
+        if (paciente != null) {
+            guardar(paciente);
+        }
+        return paciente;
+    }
+
+    @Override
+    public Paciente buscarPorCPF(String cpf) throws SQLException {
+        Paciente local = armazem.pacienteLocalPorCpf(cpf);
+        if (local != null) {
+            return local;
+        }
+        if (!armazem.isOnline()) {
+            throw new SQLException("Banco indisponível e CPF não encontrado na réplica local.");
+        }
+
+        Paciente paciente = consultarRemoto(() -> remoto.buscarPorCPF(cpf));
+        if (paciente != null) {
+            guardar(paciente);
+        }
+        return paciente;
+    }
+
+    // Sem conexão, lista apenas os pacientes replicados.
+    @Override
+    public List<Paciente> listarTodos() throws SQLException {
+        if (armazem.isOnline()) {
+            try {
+                return remoto.listarTodos();
+            } catch (SQLException e) {
+                armazem.registrarFalhaRemota(e);
+            }
+        }
+        return armazem.pacientesLocais();
+    }
+
+    private interface ConsultaRemota<T> {
+        T executar() throws SQLException;
+    }
+
+    // Falha em consulta indica banco inacessível: passa a operar pela réplica
+    private <T> T consultarRemoto(ConsultaRemota<T> consulta) throws SQLException {
+        try {
+            return consulta.executar();
+        } catch (SQLException e) {
+            armazem.registrarFalhaRemota(e);
+            throw e;
+        }
+    }
+
+    private void guardar(Paciente paciente) throws SQLException {
+        try {
+            armazem.guardarPaciente(paciente);
+        } catch (IOException e) {
+            throw new SQLException("Falha ao atualizar armazenamento local: " + e.getMessage(), e);
+        }
+    }
+}
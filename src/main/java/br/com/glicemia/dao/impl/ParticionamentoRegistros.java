@@ -0,0 +1,199 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.util.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Manutenção das partições mensais das tabelas de leituras de cada tipo. Garante as partições do mês atual até
+// mesesAFrente meses adiante (e as dos meses que caíram na partição padrão), para que as
+// inserções nunca dependam da partição padrão. Com mesesRetidos > 0, desanexa as partições de
+// meses anteriores à janela: DETACH só altera o catálogo, sem o custo de um DELETE em massa.
+// A tabela desanexada é mantida (para backup ou consulta) ou excluída, conforme configurado.
+public class ParticionamentoRegistros {
+
+    private static final Pattern NOME_PARTICAO = Pattern.compile("tb_registro_(?:glicemia|pressao|peso)_(\\d{6})");
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String SQL_PARTICOES =
+            "SELECT c.relname, p.relname, pg_total_relation_size(c.oid) FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname IN ('tb_registro_glicemia', 'tb_registro_pressao', 'tb_registro_peso') " +
+            "ORDER BY p.relname, c.relname";
+
+    private final int mesesAFrente;
+    private final int mesesRetidos;
+    private final boolean excluirDesanexadas;
+    private volatile Thread agendamento;
+
+    public ParticionamentoRegistros(int mesesAFrente, int mesesRetidos, boolean excluirDesanexadas) {
+        this.mesesAFrente = mesesAFrente;
+        this.mesesRetidos = mesesRetidos;
+        this.excluirDesanexadas = excluirDesanexadas;
+    }
+
+    // Sincronizado: a execução agendada e a manual não alteram as partições ao mesmo tempo
+    public synchronized Relatorio executar() throws SQLException {
+        long inicio = System.nanoTime();
+        Relatorio relatorio = new Relatorio();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT fn_garantir_particoes_registro(?)")) {
+            stmt.setInt(1, mesesAFrente);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                relatorio.particoesCriadas = rs.getInt(1);
+            }
+        }
+
+        if (mesesRetidos > 0) {
+            YearMonth primeiroRetido = YearMonth.now().minusMonths(mesesRetidos - 1L);
+            for (Particao particao : listarParticoes()) {
+                if (particao.getMes() != null && particao.getMes().isBefore(primeiroRetido)) {
+                    try {
+                        desanexar(particao);
+                        relatorio.desanexadas.add(particao.getNome());
+                        if (excluirDesanexadas) {
+                            relatorio.bytesExcluidos += particao.getBytes();
+                        }
+                    } catch (SQLException e) {
+                        relatorio.falhas.add(particao.getNome() + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        relatorio.duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        return relatorio;
+    }
+
+    // Partições atuais, por tabela e em ordem de mês; a partição padrão vem com mês null
+    public List<Particao> listarParticoes() throws SQLException {
+        List<Particao> particoes = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_PARTICOES)) {
+            while (rs.next()) {
+                String nome = rs.getString(1);
+                Matcher matcher = NOME_PARTICAO.matcher(nome);
+                YearMonth mes = matcher.matches() ? YearMonth.parse(matcher.group(1), FORMATO_MES) : null;
+                particoes.add(new Particao(nome, rs.getString(2), mes, rs.getLong(3)));
+            }
+        }
+
+        return particoes;
+    }
+
+    // Sem CONCURRENTLY (incompatível com a partição padrão): o lock na tabela do tipo dura apenas
+    // a alteração do catálogo
+    private void desanexar(Particao particao) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET LOCAL lock_timeout = '5s'");
+                stmt.execute("ALTER TABLE " + particao.getTabela() + " DETACH PARTITION " + particao.getNome());
+                if (excluirDesanexadas) {
+                    stmt.execute("DROP TABLE " + particao.getNome());
+                }
+                conn.commit();
+                DatabaseConnection.registrarEscrita(null);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Executa a manutenção agora e depois periodicamente, em uma thread daemon
+    public void agendar(long intervaloMs) {
+        if (agendamento != null) {
+            return;
+        }
+        agendamento = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Relatorio relatorio = executar();
+                    for (String falha : relatorio.getFalhas()) {
+                        System.err.println("Falha ao desanexar partição " + falha);
+                    }
+                    Thread.sleep(intervaloMs);
+                } catch (InterruptedException e) {
+                    break;
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Falha na manutenção de partições (nova tentativa no próximo ciclo): " +
+                                       e.getMessage());
+                    try {
+                        Thread.sleep(intervaloMs);
+                    } catch (InterruptedException ie) {
+                        break;
+                    }
+                }
+            }
+        }, "glicemia-particoes");
+        agendamento.setDaemon(true);
+        agendamento.start();
+    }
+
+    public void encerrar() {
+        Thread thread = agendamento;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public static class Particao {
+        private final String nome;
+        private final String tabela;
+        private final YearMonth mes;
+        private final long bytes;
+
+        Particao(String nome, String tabela, YearMonth mes, long bytes) {
+            this.nome = nome;
+            this.tabela = tabela;
+            this.mes = mes;
+            this.bytes = bytes;
+        }
+
+        public String getNome() { return nome; }
+        public String getTabela() { return tabela; }
+        public YearMonth getMes() { return mes; }
+        public long getBytes() { return bytes; }
+
+        @Override
+        public String toString() {
+            return String.format("%-30s %-8s %10d KB", nome, mes != null ? mes : "padrão", bytes / 1024);
+        }
+    }
+
+    public static class Relatorio {
+        private int particoesCriadas;
+        private long bytesExcluidos;
+        private long duracaoMs;
+        private final List<String> desanexadas = new ArrayList<>();
+        private final List<String> falhas = new ArrayList<>();
+
+        public int getParticoesCriadas() { return particoesCriadas; }
+        public long getBytesExcluidos() { return bytesExcluidos; }
+        public long getDuracaoMs() { return duracaoMs; }
+        public List<String> getDesanexadas() { return desanexadas; }
+        public List<String> getFalhas() { return falhas; }
+
+        @Override
+        public String toString() {
+            return String.format("Partições: %d criadas | %d desanexadas | %d KB excluídos | %d falhas | %d ms",
+                particoesCriadas, desanexadas.size(), bytesExcluidos / 1024, falhas.size(), duracaoMs);
+        }
+    }
+}
@@ -0,0 +1,530 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.RegistroDAO;
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.CursorRegistro;
+import br.com.glicemia.model.vo.OcorrenciaRisco;
+import br.com.glicemia.model.vo.PaginaRegistros;
+import br.com.glicemia.model.vo.ResumoEstatistico;
+import br.com.glicemia.model.vo.SerieSinalVital;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Camada de leitura em dois níveis: leituras recentes no banco (quente) e leituras antigas em
+// arquivos colunares por paciente (frio), gerados por ArquivamentoRegistros. As consultas
+// combinam os dois níveis e removem duplicatas pelo ID, pois uma leitura recém-arquivada pode
+// existir nos dois até a exclusão no banco ser confirmada.
+public class RegistroDAOArquivado extends RegistroDAODelegado {
+
+    // Mais recente primeiro; empates em data_hora seguem o id_registro, como na paginação
+    private static final Comparator<SinalVital> DECRESCENTE =
+        Comparator.comparing(SinalVital::getDataHora)
+                  .thenComparing(SinalVital::getIdRegistro, Comparator.nullsLast(Comparator.naturalOrder()))
+                  .reversed();
+
+    private final Path diretorio;
+    private final Set<Long> pacientesArquivados = ConcurrentHashMap.newKeySet();
+    private final Map<Long, ArquivoColunar> abertos = new ConcurrentHashMap<>();
+
+    private final Medidor quente = new Medidor();
+    private final Medidor frio = new Medidor();
+
+    public RegistroDAOArquivado(RegistroDAO delegado, Path diretorio) throws IOException {
+        super(delegado);
+        this.diretorio = diretorio;
+        Files.createDirectories(diretorio);
+
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "paciente-*.col")) {
+            for (Path arquivo : arquivos) {
+                String nome = arquivo.getFileName().toString();
+                pacientesArquivados.add(Long.parseLong(nome.substring(9, nome.length() - 4)));
+            }
+        }
+    }
+
+    @Override
+    public List<SinalVital> listarPorPaciente(Long idPaciente) throws SQLException {
+        long inicio = System.nanoTime();
+        List<SinalVital> quentes = delegado.listarPorPaciente(idPaciente);
+        quente.registrar(inicio);
+
+        ArquivoColunar arquivo = arquivo(idPaciente);
+        if (arquivo == null) {
+            return quentes;
+        }
+        return mesclar(quentes, lerDecrescente(arquivo, arquivo.getQuantidade(), 0, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<SinalVital> listarPorPeriodo(Long idPaciente, LocalDateTime inicio, LocalDateTime fim)
+            throws SQLException {
+        long inicioConsulta = System.nanoTime();
+        List<SinalVital> quentes = delegado.listarPorPeriodo(idPaciente, inicio, fim);
+        quente.registrar(inicioConsulta);
+
+        ArquivoColunar arquivo = arquivo(idPaciente);
+        if (arquivo == null) {
+            return quentes;
+        }
+        // Busca binária nos tempos: só as linhas do período são materializadas
+        int ate = arquivo.primeiraLinhaApos(fim);
+        int de = arquivo.primeiraLinhaAPartirDe(inicio);
+        if (de >= ate) {
+            return quentes;
+        }
+        return mesclar(quentes, lerDecrescente(arquivo, ate, de, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public PaginaRegistros listarPagina(Long idPaciente, CursorRegistro cursor, int tamanhoPagina)
+            throws SQLException {
+        long inicio = System.nanoTime();
+        PaginaRegistros pagina = delegado.listarPagina(idPaciente, cursor, tamanhoPagina);
+        quente.registrar(inicio);
+
+        ArquivoColunar arquivo = arquivo(idPaciente);
+        if (arquivo == null) {
+            return pagina;
+        }
+
+        int ate = arquivo.getQuantidade();
+        if (cursor != null) {
+            // Linhas no mesmo instante do cursor entram apenas se tiverem ID menor
+            ate = arquivo.primeiraLinhaApos(cursor.getDataHora());
+            while (ate > 0 && arquivo.getDataHora(ate - 1).equals(cursor.getDataHora()) &&
+                   arquivo.getId(ate - 1) >= cursor.getIdRegistro()) {
+                ate--;
+            }
+        }
+        if (ate == 0) {
+            return pagina;
+        }
+
+        // Uma linha a mais do arquivo, como no banco, indica se existe próxima página. Se as
+        // linhas do arquivo forem todas duplicatas, a página mesclada é a do banco e o cursor
+        // dele é mantido; havendo os dois, vale o mais recente, que não salta linhas de nenhum nível.
+        List<SinalVital> registros = mesclar(pagina.getRegistros(),
+            lerDecrescente(arquivo, ate, 0, tamanhoPagina + 1));
+        CursorRegistro proximoCursor = pagina.getProximoCursor();
+        if (registros.size() > tamanhoPagina) {
+            registros = new ArrayList<>(registros.subList(0, tamanhoPagina));
+            CursorRegistro mesclado = CursorRegistro.aPartirDe(registros.get(tamanhoPagina - 1));
+            if (proximoCursor == null || posterior(mesclado, proximoCursor)) {
+                proximoCursor = mesclado;
+            }
+        }
+        return new PaginaRegistros(registros, proximoCursor);
+    }
+
+    private static boolean posterior(CursorRegistro a, CursorRegistro b) {
+        int comparacao = a.getDataHora().compareTo(b.getDataHora());
+        return comparacao != 0 ? comparacao > 0 : a.getIdRegistro() > b.getIdRegistro();
+    }
+
+    @Override
+    public List<SinalVital> buscarUltimosRegistros(Long idPaciente, int limite) throws SQLException {
+        long inicio = System.nanoTime();
+        List<SinalVital> quentes = delegado.buscarUltimosRegistros(idPaciente, limite);
+        quente.registrar(inicio);
+        return completarComArquivo(idPaciente, quentes, limite);
+    }
+
+    @Override
+    public Map<Long, List<SinalVital>> buscarUltimosRegistrosPorPacientes(Collection<Long> idsPacientes,
+                                                                         int limite) throws SQLException {
+        long inicio = System.nanoTime();
+        Map<Long, List<SinalVital>> registros = delegado.buscarUltimosRegistrosPorPacientes(idsPacientes, limite);
+        quente.registrar(inicio);
+
+        for (Map.Entry<Long, List<SinalVital>> entrada : registros.entrySet()) {
+            entrada.setValue(completarComArquivo(entrada.getKey(), entrada.getValue(), limite));
+        }
+        return registros;
+    }
+
+    // O arquivo só é lido se as leituras quentes não preencherem o limite ou se ele tiver
+    // leituras mais recentes que a última delas
+    private List<SinalVital> completarComArquivo(Long idPaciente, List<SinalVital> quentes, int limite)
+            throws SQLException {
+        ArquivoColunar arquivo = arquivo(idPaciente);
+        if (arquivo == null || (quentes.size() == limite &&
+                arquivo.getDataHora(arquivo.getQuantidade() - 1).isBefore(
+                    quentes.get(limite - 1).getDataHora()))) {
+            return quentes;
+        }
+
+        List<SinalVital> registros = mesclar(quentes,
+            lerDecrescente(arquivo, arquivo.getQuantidade(), 0, limite));
+        return registros.size() > limite ? new ArrayList<>(registros.subList(0, limite)) : registros;
+    }
+
+    // Para janelas recentes a busca binária de cada arquivo termina no fim dele, sem ler linhas.
+    // Uma execução de arquivamento interrompida antes da exclusão pode deixar a mesma leitura
+    // contada nos dois níveis até a execução seguinte.
+    @Override
+    public List<OcorrenciaRisco> buscarOcorrenciasRisco(NivelRisco nivel, LocalDateTime desde)
+            throws SQLException {
+        long inicio = System.nanoTime();
+        List<OcorrenciaRisco> quentes = delegado.buscarOcorrenciasRisco(nivel, desde);
+        quente.registrar(inicio);
+        if (pacientesArquivados.isEmpty()) {
+            return quentes;
+        }
+
+        inicio = System.nanoTime();
+        Map<Long, OcorrenciaRisco> porPaciente = new LinkedHashMap<>();
+        for (OcorrenciaRisco ocorrencia : quentes) {
+            porPaciente.put(ocorrencia.getIdPaciente(), ocorrencia);
+        }
+
+        boolean mesclou = false;
+        for (Long idPaciente : pacientesArquivados) {
+            ArquivoColunar arquivo = arquivo(idPaciente);
+            if (arquivo == null) {
+                continue;
+            }
+            int quantidade = 0;
+            int ultima = -1;
+            for (int i = arquivo.primeiraLinhaAPartirDe(desde); i < arquivo.getQuantidade(); i++) {
+                if (arquivo.getRisco(i) == nivel) {
+                    quantidade++;
+                    ultima = i;
+                }
+            }
+            if (quantidade == 0) {
+                continue;
+            }
+
+            mesclou = true;
+            OcorrenciaRisco doBanco = porPaciente.get(idPaciente);
+            SinalVital ultimaLeitura;
+            try {
+                ultimaLeitura = arquivo.ler(ultima);
+            } catch (IOException e) {
+                throw new SQLException(e.getMessage(), e);
+            }
+            if (doBanco != null) {
+                quantidade += doBanco.getQuantidade();
+                if (!doBanco.getUltimaLeitura().getDataHora().isBefore(ultimaLeitura.getDataHora())) {
+                    ultimaLeitura = doBanco.getUltimaLeitura();
+                }
+            }
+            porPaciente.put(idPaciente, new OcorrenciaRisco(idPaciente, nivel, quantidade, ultimaLeitura));
+        }
+        frio.registrar(inicio);
+
+        if (!mesclou) {
+            return quentes;
+        }
+        List<OcorrenciaRisco> ocorrencias = new ArrayList<>(porPaciente.values());
+        ocorrencias.sort(Comparator.comparing((OcorrenciaRisco o) -> o.getUltimaLeitura().getDataHora())
+            .reversed().thenComparing(OcorrenciaRisco::getIdPaciente));
+        return ocorrencias;
+    }
+
+    @Override
+    public int contarRegistrosCriticos(Long idPaciente) throws SQLException {
+        long inicio = System.nanoTime();
+        int criticos = delegado.contarRegistrosCriticos(idPaciente);
+        quente.registrar(inicio);
+
+        ArquivoColunar arquivo = arquivo(idPaciente);
+        if (arquivo == null) {
+            return criticos;
+        }
+        Set<Long> noBanco = idsNoBanco(idPaciente, arquivo);
+
+        // Lê apenas as colunas de risco e ID
+        inicio = System.nanoTime();
+        for (int i = 0; i < arquivo.getQuantidade(); i++) {
+            if (arquivo.getRisco(i) == NivelRisco.CRITICO && !noBanco.contains(arquivo.getId(i))) {
+                criticos++;
+            }
+        }
+        frio.registrar(inicio);
+        return criticos;
+    }
+
+    // Soma os grupos do banco com os do arquivo, sem as linhas do arquivo que ainda estão no
+    // banco. A média é recomposta pela quantidade.
+    @Override
+    public ResumoEstatistico calcularResumo(Long idPaciente) throws SQLException {
+        long inicio = System.nanoTime();
+        ResumoEstatistico resumo = delegado.calcularResumo(idPaciente);
+        quente.registrar(inicio);
+
+        ArquivoColunar arquivo = arquivo(idPaciente);
+        if (arquivo == null) {
+            return resumo;
+        }
+        Set<Long> noBanco = idsNoBanco(idPaciente, arquivo);
+
+        // quantidade, mínimo, máximo, soma
+        Map<String, double[]> acumulados = new TreeMap<>();
+        for (ResumoEstatistico.Grupo grupo : resumo.getGrupos()) {
+            acumulados.put(grupo.getTipoSinal().name() + "|" + grupo.getNivelRisco().name(), new double[]{
+                grupo.getQuantidade(), grupo.getMinimo(), grupo.getMaximo(),
+                grupo.getMedia() * grupo.getQuantidade()});
+        }
+
+        inicio = System.nanoTime();
+        for (int i = 0; i < arquivo.getQuantidade(); i++) {
+            if (noBanco.contains(arquivo.getId(i))) {
+                continue;
+            }
+            double valor = arquivo.getValorPrincipal(i);
+            double[] acumulado = acumulados.computeIfAbsent(
+                arquivo.getTipo(i).name() + "|" + arquivo.getRisco(i).name(),
+                k -> new double[]{0, Double.MAX_VALUE, -Double.MAX_VALUE, 0});
+            acumulado[0]++;
+            acumulado[1] = Math.min(acumulado[1], valor);
+            acumulado[2] = Math.max(acumulado[2], valor);
+            acumulado[3] += valor;
+        }
+        frio.registrar(inicio);
+
+        List<ResumoEstatistico.Grupo> grupos = new ArrayList<>();
+        for (Map.Entry<String, double[]> entrada : acumulados.entrySet()) {
+            String[] partes = entrada.getKey().split("\\|");
+            double[] acumulado = entrada.getValue();
+            grupos.add(new ResumoEstatistico.Grupo(
+                TipoSinal.valueOf(partes[0]),
+                NivelRisco.valueOf(partes[1]),
+                (long) acumulado[0],
+                acumulado[1],
+                acumulado[2],
+                acumulado[3] / acumulado[0]
+            ));
+        }
+        return new ResumoEstatistico(idPaciente, grupos);
+    }
+
+    // A série não carrega IDs: do arquivo entram só leituras anteriores à mais antiga do banco,
+    // o que também descarta as que estão nos dois níveis durante um arquivamento.
+    @Override
+    public SerieSinalVital carregarSerie(Long idPaciente, TipoSinal tipo, LocalDateTime inicio,
+                                         LocalDateTime fim) throws SQLException {
+        long inicioConsulta = System.nanoTime();
+        SerieSinalVital quentes = delegado.carregarSerie(idPaciente, tipo, inicio, fim);
+        quente.registrar(inicioConsulta);
+
+        ArquivoColunar arquivo = arquivo(idPaciente);
+        if (arquivo == null) {
+            return quentes;
+        }
+
+        // Com o banco recortado após as horas compactadas, o arquivo segue o mesmo recorte
+        int de = arquivo.primeiraLinhaAPartirDe(
+            quentes.getInicioCompleto() != null ? quentes.getInicioCompleto() : inicio);
+        int ate = arquivo.primeiraLinhaAPartirDe(fim);
+        if (!quentes.isVazia()) {
+            ate = Math.min(ate, arquivo.primeiraLinhaAPartirDe(quentes.getDataHora(0)));
+        }
+        if (de >= ate) {
+            return quentes;
+        }
+
+        inicioConsulta = System.nanoTime();
+        SerieSinalVital serie = new SerieSinalVital(idPaciente, tipo, ate - de + quentes.getTamanho());
+        serie.setInicioCompleto(quentes.getInicioCompleto());
+        for (int i = de; i < ate; i++) {
+            if (arquivo.getTipo(i) == tipo) {
+                serie.adicionar(ArquivoColunar.paraMicros(arquivo.getDataHora(i)) / 1000,
+                                arquivo.getValorPrincipal(i), arquivo.getSecundario(i),
+                                arquivo.getRisco(i), arquivo.isEmJejum(i));
+            }
+        }
+        frio.registrar(inicioConsulta);
+
+        for (int i = 0; i < quentes.getTamanho(); i++) {
+            serie.adicionar(quentes.getInstante(i), quentes.getValor(i), quentes.getSecundario(i),
+                            quentes.getRisco(i), quentes.isEmJejum(i));
+        }
+        serie.compactar();
+        return serie;
+    }
+
+    public Estatisticas getEstatisticas() {
+        long linhas = 0;
+        for (ArquivoColunar arquivo : abertos.values()) {
+            linhas += arquivo.getQuantidade();
+        }
+        return new Estatisticas(pacientesArquivados.size(), abertos.size(), linhas,
+                                quente.consultas.get(), quente.nanos.get(), quente.maximo.get(),
+                                frio.consultas.get(), frio.nanos.get(), frio.maximo.get());
+    }
+
+    Path getDiretorio() {
+        return diretorio;
+    }
+
+    Path caminhoArquivo(long idPaciente) {
+        return diretorio.resolve("paciente-" + idPaciente + ".col");
+    }
+
+    // Chamado por ArquivamentoRegistros após substituir o arquivo de um paciente
+    void recarregar(long idPaciente, ArquivoColunar arquivo) {
+        abertos.put(idPaciente, arquivo);
+        pacientesArquivados.add(idPaciente);
+    }
+
+    ArquivoColunar arquivo(Long idPaciente) throws SQLException {
+        if (!pacientesArquivados.contains(idPaciente)) {
+            return null;
+        }
+        ArquivoColunar arquivo = abertos.get(idPaciente);
+        if (arquivo == null) {
+            try {
+                arquivo = ArquivoColunar.abrir(caminhoArquivo(idPaciente));
+            } catch (IOException e) {
+                throw new SQLException("Falha ao abrir arquivo do paciente " + idPaciente + ": " +
+                                       e.getMessage(), e);
+            }
+            ArquivoColunar existente = abertos.putIfAbsent(idPaciente, arquivo);
+            if (existente != null) {
+                arquivo = existente;
+            }
+        }
+        return arquivo.getQuantidade() > 0 ? arquivo : null;
+    }
+
+    // IDs das leituras do banco no período coberto pelo arquivo. ArquivamentoRegistros só
+    // exclui do banco depois de gravar o arquivo; uma execução interrompida nesse intervalo
+    // deixa leituras nos dois níveis, que os totais não podem contar duas vezes. Fora disso,
+    // o período só tem no banco as leituras referenciadas por consultas da IA.
+    private Set<Long> idsNoBanco(Long idPaciente, ArquivoColunar arquivo) throws SQLException {
+        long inicio = System.nanoTime();
+        List<SinalVital> quentes = delegado.listarPorPeriodo(idPaciente, arquivo.getDataHora(0),
+                                                             arquivo.getDataHora(arquivo.getQuantidade() - 1));
+        quente.registrar(inicio);
+
+        Set<Long> ids = new HashSet<>();
+        for (SinalVital sinal : quentes) {
+            if (sinal.getIdRegistro() != null) {
+                ids.add(sinal.getIdRegistro());
+            }
+        }
+        return ids;
+    }
+
+    // Linhas [de, ate) do arquivo, da mais nova para a mais antiga, até o limite
+    private List<SinalVital> lerDecrescente(ArquivoColunar arquivo, int ate, int de, int limite)
+            throws SQLException {
+        long inicio = System.nanoTime();
+        List<SinalVital> registros = new ArrayList<>(Math.min(ate - de, limite));
+        try {
+            for (int i = ate - 1; i >= de && registros.size() < limite; i--) {
+                registros.add(arquivo.ler(i));
+            }
+        } catch (IOException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+        frio.registrar(inicio);
+        return registros;
+    }
+
+    private static List<SinalVital> mesclar(List<SinalVital> quentes, List<SinalVital> frios) {
+        List<SinalVital> registros = new ArrayList<>(quentes.size() + frios.size());
+        Set<Long> ids = new HashSet<>();
+        for (SinalVital sinal : quentes) {
+            ids.add(sinal.getIdRegistro());
+            registros.add(sinal);
+        }
+        for (SinalVital sinal : frios) {
+            if (!ids.contains(sinal.getIdRegistro())) {
+                registros.add(sinal);
+            }
+        }
+        registros.sort(DECRESCENTE);
+        return registros;
+    }
+
+    private static class Medidor {
+        private final AtomicLong consultas = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong maximo = new AtomicLong();
+
+        void registrar(long inicio) {
+            long decorrido = System.nanoTime() - inicio;
+            consultas.incrementAndGet();
+            nanos.addAndGet(decorrido);
+            maximo.accumulateAndGet(decorrido, Math::max);
+        }
+    }
+
+    public static class Estatisticas {
+        private final int pacientesArquivados;
+        private final int arquivosAbertos;
+        private final long linhasMapeadas;
+        private final long consultasQuente;
+        private final long nanosQuente;
+        private final long maximoQuente;
+        private final long consultasFrio;
+        private final long nanosFrio;
+        private final long maximoFrio;
+
+        Estatisticas(int pacientesArquivados, int arquivosAbertos, long linhasMapeadas,
+                     long consultasQuente, long nanosQuente, long maximoQuente,
+                     long consultasFrio, long nanosFrio, long maximoFrio) {
+            this.pacientesArquivados = pacientesArquivados;
+            this.arquivosAbertos = arquivosAbertos;
+            this.linhasMapeadas = linhasMapeadas;
+            this.consultasQuente = consultasQuente;
+            this.nanosQuente = nanosQuente;
+            this.maximoQuente = maximoQuente;
+            this.consultasFrio = consultasFrio;
+            this.nanosFrio = nanosFrio;
+            this.maximoFrio = maximoFrio;
+        }
+
+        public int getPacientesArquivados() { return pacientesArquivados; }
+        public int getArquivosAbertos() { return arquivosAbertos; }
+        public long getLinhasMapeadas() { return linhasMapeadas; }
+        public long getConsultasQuente() { return consultasQuente; }
+        public long getConsultasFrio() { return consultasFrio; }
+
+        public double getMediaQuenteMs() {
+            return consultasQuente > 0 ? nanosQuente / 1_000_000.0 / consultasQuente : 0.0;
+        }
+
+        public double getMaximoQuenteMs() {
+            return maximoQuente / 1_000_000.0;
+        }
+
+        public double getMediaFrioMs() {
+            return consultasFrio > 0 ? nanosFrio / 1_000_000.0 / consultasFrio : 0.0;
+        }
+
+        public double getMaximoFrioMs() {
+            return maximoFrio / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Arquivo de leituras: %d pacientes arquivados | %d arquivos abertos " +
+                    "(%d linhas) | banco: %d consultas, média %.2f ms, máx %.2f ms | " +
+                    "arquivo: %d leituras, média %.3f ms, máx %.3f ms",
+                pacientesArquivados, arquivosAbertos, linhasMapeadas,
+                consultasQuente, getMediaQuenteMs(), getMaximoQuenteMs(),
+                consultasFrio, getMediaFrioMs(), getMaximoFrioMs());
+        }
+    }
+}
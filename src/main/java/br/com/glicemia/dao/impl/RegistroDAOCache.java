@@ -0,0 +1,361 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.RegistroDAO;
+import br.com.glicemia.model.StatusInsercao;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Mantém em memória, por paciente, um buffer circular com as leituras mais recentes e atende
+// buscarUltimosRegistros sem ir ao banco quando o limite pedido cabe no buffer. Os buffers são
+// carregados sob demanda, recebem as inserções feitas por este DAO (write-through) e são
+// descartados do paciente usado há mais tempo quando o total estimado excede o orçamento de memória.
+// Os objetos devolvidos são compartilhados com o cache e devem ser tratados como somente leitura.
+public class RegistroDAOCache extends RegistroDAODelegado {
+
+    // Estimativas conservadoras de ocupação no heap (cabeçalhos, campos, LocalDateTime e enum)
+    private static final long BYTES_POR_LEITURA = 192;
+    private static final long BYTES_POR_BUFFER = 96;
+
+    private final int leiturasPorPaciente;
+    private final long orcamentoBytes;
+    private final long ttlNanos;
+
+    // Ordem de acesso: o primeiro elemento é o paciente usado há mais tempo
+    private final LinkedHashMap<Long, Buffer> buffers = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesEstimados = 0;
+
+    // Incrementado a cada escrita; carregamentos concorrentes com escritas não são armazenados
+    private long geracao = 0;
+
+    private long acertos = 0;
+    private long faltas = 0;
+    private long carregamentos = 0;
+    private long despejos = 0;
+
+    public RegistroDAOCache(RegistroDAO delegado, int leiturasPorPaciente, long orcamentoBytes, long ttlMs) {
+        super(delegado);
+        if (leiturasPorPaciente < 1) {
+            throw new IllegalArgumentException("Leituras por paciente deve ser positivo: " + leiturasPorPaciente);
+        }
+        this.leiturasPorPaciente = leiturasPorPaciente;
+        this.orcamentoBytes = orcamentoBytes;
+        this.ttlNanos = ttlMs * 1_000_000L;
+    }
+
+    @Override
+    public Long inserir(SinalVital sinalVital) throws SQLException {
+        Long id;
+        try {
+            id = delegado.inserir(sinalVital);
+        } catch (SQLException e) {
+            invalidar(sinalVital.getIdPaciente());
+            throw e;
+        }
+        // Reenvio descartado pela idempotência: o DAO síncrono devolve o ID da leitura existente,
+        // que pode já estar no buffer. Com write-behind ou modo offline não há ID ainda.
+        aplicarEscrita(sinalVital, id != null);
+        return id;
+    }
+
+    @Override
+    public StatusInsercao[] inserirLote(List<SinalVital> sinais) throws SQLException {
+        StatusInsercao[] status;
+        try {
+            status = delegado.inserirLote(sinais);
+        } catch (SQLException e) {
+            for (SinalVital sinal : sinais) {
+                invalidar(sinal.getIdPaciente());
+            }
+            throw e;
+        }
+
+        // DUPLICADO indica reenvio descartado pela idempotência: a leitura já existia
+        for (int i = 0; i < status.length; i++) {
+            if (status[i] == StatusInsercao.INSERIDO || status[i] == StatusInsercao.PENDENTE) {
+                aplicarEscrita(sinais.get(i), false);
+            } else if (status[i] == StatusInsercao.INTERROMPIDO) {
+                invalidar(sinais.get(i).getIdPaciente());
+            }
+        }
+        return status;
+    }
+
+    @Override
+    public List<SinalVital> buscarUltimosRegistros(Long idPaciente, int limite) throws SQLException {
+        long geracaoInicial;
+
+        synchronized (this) {
+            Buffer buffer = obterValido(idPaciente);
+            if (buffer != null && (limite <= buffer.tamanho || buffer.completo)) {
+                acertos++;
+                return buffer.ultimos(limite);
+            }
+            faltas++;
+            geracaoInicial = geracao;
+        }
+
+        // Pedidos maiores que o buffer vão direto ao banco
+        if (limite > leiturasPorPaciente) {
+            return delegado.buscarUltimosRegistros(idPaciente, limite);
+        }
+
+        List<SinalVital> recentes = delegado.buscarUltimosRegistros(idPaciente, leiturasPorPaciente);
+
+        synchronized (this) {
+            if (geracao == geracaoInicial) {
+                carregar(idPaciente, recentes);
+                despejarExcedente();
+            }
+        }
+
+        return new ArrayList<>(recentes.subList(0, Math.min(limite, recentes.size())));
+    }
+
+    // Responde do cache os pacientes com buffer suficiente e busca os demais em uma só
+    // consulta, carregando seus buffers
+    @Override
+    public Map<Long, List<SinalVital>> buscarUltimosRegistrosPorPacientes(Collection<Long> idsPacientes,
+                                                                         int limite) throws SQLException {
+        Map<Long, List<SinalVital>> registros = new LinkedHashMap<>();
+        List<Long> faltantes = new ArrayList<>();
+        long geracaoInicial;
+
+        synchronized (this) {
+            for (Long idPaciente : idsPacientes) {
+                if (registros.containsKey(idPaciente)) {
+                    continue;
+                }
+                Buffer buffer = obterValido(idPaciente);
+                if (buffer != null && (limite <= buffer.tamanho || buffer.completo)) {
+                    acertos++;
+                    registros.put(idPaciente, buffer.ultimos(limite));
+                } else {
+                    faltas++;
+                    registros.put(idPaciente, null);
+                    faltantes.add(idPaciente);
+                }
+            }
+            geracaoInicial = geracao;
+        }
+
+        if (faltantes.isEmpty()) {
+            return registros;
+        }
+        if (limite > leiturasPorPaciente) {
+            registros.putAll(delegado.buscarUltimosRegistrosPorPacientes(faltantes, limite));
+            return registros;
+        }
+
+        Map<Long, List<SinalVital>> recentes =
+            delegado.buscarUltimosRegistrosPorPacientes(faltantes, leiturasPorPaciente);
+
+        synchronized (this) {
+            if (geracao == geracaoInicial) {
+                for (Map.Entry<Long, List<SinalVital>> entrada : recentes.entrySet()) {
+                    carregar(entrada.getKey(), entrada.getValue());
+                }
+                despejarExcedente();
+            }
+        }
+
+        for (Map.Entry<Long, List<SinalVital>> entrada : recentes.entrySet()) {
+            List<SinalVital> doPaciente = entrada.getValue();
+            registros.put(entrada.getKey(),
+                new ArrayList<>(doPaciente.subList(0, Math.min(limite, doPaciente.size()))));
+        }
+        return registros;
+    }
+
+    // Deve ser chamado com o lock; recentes em ordem decrescente de data_hora
+    private void carregar(Long idPaciente, List<SinalVital> recentes) {
+        Buffer buffer = new Buffer(leiturasPorPaciente);
+        for (int i = recentes.size() - 1; i >= 0; i--) {
+            buffer.adicionar(recentes.get(i));
+        }
+        buffer.completo = recentes.size() < leiturasPorPaciente;
+        substituir(idPaciente, buffer);
+        carregamentos++;
+    }
+
+    public synchronized void invalidar(Long idPaciente) {
+        geracao++;
+        Buffer buffer = buffers.remove(idPaciente);
+        if (buffer != null) {
+            bytesEstimados -= buffer.bytes;
+        }
+    }
+
+    public synchronized void limpar() {
+        geracao++;
+        buffers.clear();
+        bytesEstimados = 0;
+    }
+
+    public synchronized Estatisticas getEstatisticas() {
+        return new Estatisticas(buffers.size(), bytesEstimados, orcamentoBytes,
+                                acertos, faltas, carregamentos, despejos);
+    }
+
+    // Leituras mais novas que a do topo entram no buffer; leituras antigas que não alcançam
+    // o buffer cheio são ignoradas; inserções fora de ordem dentro da janela descartam o buffer,
+    // que será recarregado na próxima consulta.
+    private synchronized void aplicarEscrita(SinalVital sinal, boolean verificarRepetida) {
+        geracao++;
+        Buffer buffer = obterValido(sinal.getIdPaciente());
+        if (buffer == null || (verificarRepetida && buffer.contem(sinal.getIdRegistro()))) {
+            return;
+        }
+
+        if (buffer.tamanho == 0 || !sinal.getDataHora().isBefore(buffer.maisRecente().getDataHora())) {
+            bytesEstimados -= buffer.bytes;
+            buffer.adicionar(sinal);
+            bytesEstimados += buffer.bytes;
+            despejarExcedente();
+        } else if (!buffer.completo && sinal.getDataHora().isBefore(buffer.maisAntigo().getDataHora())) {
+            return;
+        } else {
+            invalidar(sinal.getIdPaciente());
+        }
+    }
+
+    private Buffer obterValido(Long idPaciente) {
+        Buffer buffer = buffers.get(idPaciente);
+        if (buffer != null && System.nanoTime() - buffer.carregadoEm > ttlNanos) {
+            buffers.remove(idPaciente);
+            bytesEstimados -= buffer.bytes;
+            return null;
+        }
+        return buffer;
+    }
+
+    private void substituir(Long idPaciente, Buffer buffer) {
+        Buffer anterior = buffers.put(idPaciente, buffer);
+        if (anterior != null) {
+            bytesEstimados -= anterior.bytes;
+        }
+        bytesEstimados += buffer.bytes;
+    }
+
+    // Mantém ao menos o paciente mais recente, mesmo que sozinho exceda o orçamento
+    private void despejarExcedente() {
+        var iterador = buffers.values().iterator();
+        while (bytesEstimados > orcamentoBytes && buffers.size() > 1) {
+            Buffer buffer = iterador.next();
+            iterador.remove();
+            bytesEstimados -= buffer.bytes;
+            despejos++;
+        }
+    }
+
+    static long estimarBytes(SinalVital sinal) {
+        long bytes = BYTES_POR_LEITURA;
+        if (sinal.getObservacoes() != null) {
+            bytes += 40 + 2L * sinal.getObservacoes().length();
+        }
+        return bytes;
+    }
+
+    // Buffer circular das leituras mais recentes de um paciente, da mais antiga para a mais nova
+    private static class Buffer {
+        private final SinalVital[] itens;
+        private final long carregadoEm = System.nanoTime();
+        private int proximo = 0;
+        private int tamanho = 0;
+        private long bytes;
+        // Indica que o buffer contém todas as leituras do paciente
+        private boolean completo = true;
+
+        Buffer(int capacidade) {
+            this.itens = new SinalVital[capacidade];
+            this.bytes = BYTES_POR_BUFFER + 8L * capacidade;
+        }
+
+        void adicionar(SinalVital sinal) {
+            SinalVital substituido = itens[proximo];
+            if (substituido != null) {
+                bytes -= estimarBytes(substituido);
+                completo = false;
+            }
+            itens[proximo] = sinal;
+            bytes += estimarBytes(sinal);
+            proximo = (proximo + 1) % itens.length;
+            tamanho = Math.min(tamanho + 1, itens.length);
+        }
+
+        boolean contem(Long idRegistro) {
+            for (int i = 1; i <= tamanho; i++) {
+                if (Objects.equals(idRegistro, itens[(proximo - i + itens.length) % itens.length].getIdRegistro())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        SinalVital maisRecente() {
+            return itens[(proximo - 1 + itens.length) % itens.length];
+        }
+
+        SinalVital maisAntigo() {
+            return itens[(proximo - tamanho + itens.length) % itens.length];
+        }
+
+        // Mesma ordem de buscarUltimosRegistros: da mais nova para a mais antiga
+        List<SinalVital> ultimos(int limite) {
+            int quantidade = Math.min(limite, tamanho);
+            List<SinalVital> resultado = new ArrayList<>(quantidade);
+            for (int i = 1; i <= quantidade; i++) {
+                resultado.add(itens[(proximo - i + itens.length) % itens.length]);
+            }
+            return resultado;
+        }
+    }
+
+    public static class Estatisticas {
+        private final int pacientes;
+        private final long bytesEstimados;
+        private final long orcamentoBytes;
+        private final long acertos;
+        private final long faltas;
+        private final long carregamentos;
+        private final long despejos;
+
+        Estatisticas(int pacientes, long bytesEstimados, long orcamentoBytes, long acertos,
+                     long faltas, long carregamentos, long despejos) {
+            this.pacientes = pacientes;
+            this.bytesEstimados = bytesEstimados;
+            this.orcamentoBytes = orcamentoBytes;
+            this.acertos = acertos;
+            this.faltas = faltas;
+            this.carregamentos = carregamentos;
+            this.despejos = despejos;
+        }
+
+        public int getPacientes() { return pacientes; }
+        public long getBytesEstimados() { return bytesEstimados; }
+        public long getOrcamentoBytes() { return orcamentoBytes; }
+        public long getAcertos() { return acertos; }
+        public long getFaltas() { return faltas; }
+        public long getCarregamentos() { return carregamentos; }
+        public long getDespejos() { return despejos; }
+
+        public double getTaxaAcerto() {
+            long consultas = acertos + faltas;
+            return consultas > 0 ? acertos * 100.0 / consultas : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cache de leituras recentes: %d pacientes | %d/%d KB | %d acertos | " +
+                    "%d faltas | taxa de acerto %.1f%% | %d carregamentos | %d despejados",
+                pacientes, bytesEstimados / 1024, orcamentoBytes / 1024, acertos, faltas,
+                getTaxaAcerto(), carregamentos, despejos);
+        }
+    }
+}
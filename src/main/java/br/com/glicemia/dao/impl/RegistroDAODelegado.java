@@ -0,0 +1,100 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.RegistroDAO;
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.StatusInsercao;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.CursorRegistro;
+import br.com.glicemia.model.vo.OcorrenciaRisco;
+import br.com.glicemia.model.vo.PaginaRegistros;
+import br.com.glicemia.model.vo.ResumoEstatistico;
+import br.com.glicemia.model.vo.SerieSinalVital;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Base para decoradores de RegistroDAO: repassa todas as operações ao DAO decorado,
+// de modo que cada decorador sobrescreve apenas o que altera.
+public abstract class RegistroDAODelegado implements RegistroDAO {
+
+    protected final RegistroDAO delegado;
+
+    protected RegistroDAODelegado(RegistroDAO delegado) {
+        this.delegado = delegado;
+    }
+
+    @Override
+    public Long inserir(SinalVital sinalVital) throws SQLException {
+        return delegado.inserir(sinalVital);
+    }
+
+    @Override
+    public StatusInsercao[] inserirLote(List<SinalVital> sinais) throws SQLException {
+        return delegado.inserirLote(sinais);
+    }
+
+    @Override
+    public SinalVital buscarPorId(Long idRegistro) throws SQLException {
+        return delegado.buscarPorId(idRegistro);
+    }
+
+    @Override
+    public List<SinalVital> listarPorPaciente(Long idPaciente) throws SQLException {
+        return delegado.listarPorPaciente(idPaciente);
+    }
+
+    @Override
+    public PaginaRegistros listarPagina(Long idPaciente, CursorRegistro cursor, int tamanhoPagina)
+            throws SQLException {
+        return delegado.listarPagina(idPaciente, cursor, tamanhoPagina);
+    }
+
+    @Override
+    public List<SinalVital> listarApos(Long idPaciente, CursorRegistro marca, int limite)
+            throws SQLException {
+        return delegado.listarApos(idPaciente, marca, limite);
+    }
+
+    @Override
+    public List<SinalVital> listarPorPeriodo(Long idPaciente, LocalDateTime inicio, LocalDateTime fim)
+            throws SQLException {
+        return delegado.listarPorPeriodo(idPaciente, inicio, fim);
+    }
+
+    @Override
+    public List<SinalVital> buscarUltimosRegistros(Long idPaciente, int limite) throws SQLException {
+        return delegado.buscarUltimosRegistros(idPaciente, limite);
+    }
+
+    @Override
+    public Map<Long, List<SinalVital>> buscarUltimosRegistrosPorPacientes(Collection<Long> idsPacientes,
+                                                                         int limite) throws SQLException {
+        return delegado.buscarUltimosRegistrosPorPacientes(idsPacientes, limite);
+    }
+
+    @Override
+    public int contarRegistrosCriticos(Long idPaciente) throws SQLException {
+        return delegado.contarRegistrosCriticos(idPaciente);
+    }
+
+    @Override
+    public List<OcorrenciaRisco> buscarOcorrenciasRisco(NivelRisco nivel, LocalDateTime desde)
+            throws SQLException {
+        return delegado.buscarOcorrenciasRisco(nivel, desde);
+    }
+
+    @Override
+    public ResumoEstatistico calcularResumo(Long idPaciente) throws SQLException {
+        return delegado.calcularResumo(idPaciente);
+    }
+
+    @Override
+    public SerieSinalVital carregarSerie(Long idPaciente, TipoSinal tipo, LocalDateTime inicio,
+                                         LocalDateTime fim) throws SQLException {
+        return delegado.carregarSerie(idPaciente, tipo, inicio, fim);
+    }
+}
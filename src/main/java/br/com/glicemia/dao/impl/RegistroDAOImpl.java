@@ -4,68 +4,418 @@ import br.com.glicemia.dao.interfaces.RegistroDAO;
 import br.com.glicemia.model.exceptions.ValorInvalidoException;
 import br.com.glicemia.model.vo.*;
 import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.StatusInsercao;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.util.AlocadorIds;
 import br.com.glicemia.util.DatabaseConnection;
+import br.com.glicemia.util.EnvLoader;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+// Grava cada leitura na tabela do seu tipo (TabelaRegistro). Consultas de um só tipo leem a
+// tabela do tipo; as que misturam tipos leem a visão VW_REGISTRO, cujos filtros chegam às tabelas.
 public class RegistroDAOImpl implements RegistroDAO {
 
+    // Uma subconsulta LATERAL por paciente, cada uma resolvida pelo índice de id_paciente
+    // nas partições a partir de data_hora >= ? (ver JANELA_RECENTE_DIAS)
+    private static final String SQL_ULTIMOS_POR_PACIENTES =
+            "SELECT r.* FROM unnest(?::bigint[]) AS p(id_paciente) " +
+            "CROSS JOIN LATERAL (SELECT * FROM VW_REGISTRO t WHERE t.id_paciente = p.id_paciente " +
+            "AND t.data_hora >= ? ORDER BY t.data_hora DESC LIMIT ?) r " +
+            "ORDER BY r.id_paciente, r.data_hora DESC";
+
+    // O nível entra como literal (ver buscarOcorrenciasRisco). A contagem por paciente é calculada
+    // antes do DISTINCT ON, que mantém a leitura mais recente de cada um.
+    private static final String SQL_OCORRENCIAS_RISCO =
+            "SELECT * FROM (SELECT DISTINCT ON (r.id_paciente) r.*, " +
+            "COUNT(*) OVER (PARTITION BY r.id_paciente) AS quantidade_ocorrencias " +
+            "FROM VW_REGISTRO r WHERE r.nivel_risco = '%s' AND r.data_hora >= ? " +
+            "ORDER BY r.id_paciente, r.data_hora DESC, r.id_registro DESC) o " +
+            "ORDER BY o.data_hora DESC, o.id_paciente";
+
+    // Limita o tamanho do array enviado e do resultado de cada consulta
+    private static final int PACIENTES_POR_CONSULTA = 500;
+
+    // As buscas das últimas leituras procuram primeiro nesta janela, o que restringe a consulta às
+    // partições mensais mais recentes; só quem tiver menos leituras que o pedido é buscado sem limite
+    private static final int JANELA_RECENTE_DIAS = 31;
+    private static final LocalDateTime SEM_LIMITE = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    private static final int TAMANHO_LOTE =
+            Integer.parseInt(EnvLoader.get("DB_BATCH_SIZE", "500"));
+
+    // IDs das leituras de todos os tipos (sequência compartilhada), também usados pela carga COPY
+    static final AlocadorIds IDS = new AlocadorIds("seq_registro");
+
+    // Se a leitura foi gravada por esta instância (ID de um bloco reservado aqui)
+    public static boolean isGravadoAqui(long idRegistro) {
+        return IDS.isReservadoAqui(idRegistro);
+    }
+
+    private static final JanelaIdempotencia CHAVES_RECENTES =
+        new JanelaIdempotencia(Integer.parseInt(EnvLoader.get("IDEMPOTENCIA_JANELA", "10000")));
+
+    // Presente apenas com a retenção ativa (GerenciadorRegistroBO)
+    private static volatile RetencaoRegistros retencao;
+
+    public static void usarRetencao(RetencaoRegistros retencaoAtiva) {
+        retencao = retencaoAtiva;
+    }
+
+    // Uma leitura com chave de idempotência já gravada (reenvio) não é inserida de novo nem
+    // contada no rollup: o retorno é o ID da leitura existente.
     @Override
     public Long inserir(SinalVital sinalVital) throws SQLException {
-        String sql = "INSERT INTO TB_REGISTRO (id_paciente, tipo_sinal, " +
-                     "data_hora, valor_principal, valor_secundario, unidade_medida, " +
-                     "nivel_risco, observacoes, em_jejum, tipo_insulina, altura, imc) " +
-                     "VALUES (?, ?::tipo_sinal_enum, ?, ?, ?, ?, ?::nivel_risco_enum, ?, ?::sim_nao_enum, ?, ?, ?)";
+        validarJanelaRetencao(sinalVital);
+        TabelaRegistro tabela = TabelaRegistro.de(sinalVital);
+        String chave = tabela.chave(sinalVital);
+
+        Long conhecido = CHAVES_RECENTES.buscar(sinalVital.getIdPaciente(), chave, sinalVital.getDataHora());
+        if (conhecido != null) {
+            sinalVital.setIdRegistro(conhecido);
+            return conhecido;
+        }
 
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+        long id = IDS.proximo();
 
-        try {
-            conn = DatabaseConnection.getConnection();
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(tabela.sqlInserir)) {
+
+            conn.setAutoCommit(false);
+            try {
+                sinalVital.setIdRegistro(id);
+                tabela.preencher(stmt, sinalVital, 1);
+
+                if (stmt.executeUpdate() == 0) {
+                    id = buscarPorChave(conn, tabela, chave, sinalVital);
+                    sinalVital.setIdRegistro(id);
+                } else {
+                    ResumoDiarioDAOImpl.acumular(conn, List.of(sinalVital));
+                }
+                conn.commit();
+                DatabaseConnection.registrarEscrita(sinalVital.getIdPaciente());
+                CHAVES_RECENTES.registrar(sinalVital.getIdPaciente(), chave, sinalVital.getDataHora(), id);
+
+                return id;
 
-            stmt.setLong(1, sinalVital.getIdPaciente());
-            stmt.setString(2, obterTipoSinal(sinalVital));
-            stmt.setTimestamp(3, Timestamp.valueOf(sinalVital.getDataHora()));
+            } catch (SQLException e) {
+                conn.rollback();
+                sinalVital.setIdRegistro(null);
+                throw e;
+            }
+        }
+    }
 
-            preencherCamposEspecificos(stmt, sinalVital);
+    // Insere em lotes via addBatch/executeBatch, um batch por tabela de tipo dentro da mesma
+    // transação. Com os IDs atribuídos no cliente, não há chaves geradas a ler de volta e o driver
+    // reescreve cada batch em INSERTs de várias linhas (reWriteBatchedInserts); uma consulta por
+    // tabela confirma quais IDs entraram, pois o batch reescrito não informa item a item.
+    // Cada posição do retorno indica o resultado do item correspondente. Uma falha que não é de
+    // um item (conexão, lock, timeout) desfaz só o lote da vez e encerra a gravação: os lotes já
+    // confirmados mantêm seus status e os itens restantes voltam como INTERROMPIDO.
+    @Override
+    public StatusInsercao[] inserirLote(List<SinalVital> sinais) throws SQLException {
+        StatusInsercao[] status = new StatusInsercao[sinais.size()];
+        Map<TabelaRegistro, PreparedStatement> statements = new EnumMap<>(TabelaRegistro.class);
+        long[] ids = IDS.reservar(sinais.size());
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+
+            conn.setAutoCommit(false);
+
+            try {
+                for (int inicio = 0; inicio < sinais.size(); inicio += TAMANHO_LOTE) {
+                    int fim = Math.min(inicio + TAMANHO_LOTE, sinais.size());
+                    List<SinalVital> lote = sinais.subList(inicio, fim);
+                    // Reenvios já vistos por esta instância não chegam ao banco
+                    boolean[] conhecidos = new boolean[lote.size()];
+                    Map<TabelaRegistro, List<SinalVital>> porTabela = new EnumMap<>(TabelaRegistro.class);
+                    for (int i = inicio; i < fim; i++) {
+                        SinalVital sinal = sinais.get(i);
+                        TabelaRegistro tabela = TabelaRegistro.de(sinal);
+                        if (isForaDaJanelaRetencao(sinal)) {
+                            sinal.setIdRegistro(null);
+                            conhecidos[i - inicio] = true;
+                            status[i] = StatusInsercao.FALHOU;
+                            System.err.println("Registro " + i + " do lote anterior à janela de retenção: " +
+                                               sinal.getDataHora());
+                            continue;
+                        }
+                        Long conhecido = CHAVES_RECENTES.buscar(sinal.getIdPaciente(), tabela.chave(sinal), sinal.getDataHora());
+                        if (conhecido != null) {
+                            sinal.setIdRegistro(conhecido);
+                            conhecidos[i - inicio] = true;
+                            status[i] = StatusInsercao.DUPLICADO;
+                        } else {
+                            sinal.setIdRegistro(ids[i]);
+                            porTabela.computeIfAbsent(tabela, t -> new ArrayList<>()).add(sinal);
+                        }
+                    }
+
+                    try {
+                        try {
+                            List<SinalVital> inseridos = new ArrayList<>(lote.size());
+                            for (Map.Entry<TabelaRegistro, List<SinalVital>> grupo : porTabela.entrySet()) {
+                                PreparedStatement stmt = statement(conn, statements, grupo.getKey());
+                                for (SinalVital sinal : grupo.getValue()) {
+                                    grupo.getKey().preencher(stmt, sinal, 1);
+                                    stmt.addBatch();
+                                }
+                                stmt.executeBatch();
+                                separarInseridos(conn, grupo.getKey(), grupo.getValue(), inseridos);
+                            }
+                            if (!inseridos.isEmpty()) {
+                                ResumoDiarioDAOImpl.acumular(conn, inseridos);
+                            }
+                            conn.commit();
+                            registrarEscritas(lote);
+                            Set<SinalVital> novos = Collections.newSetFromMap(new IdentityHashMap<>());
+                            novos.addAll(inseridos);
+                            for (int i = inicio; i < fim; i++) {
+                                SinalVital sinal = sinais.get(i);
+                                if (!conhecidos[i - inicio]) {
+                                    status[i] = novos.contains(sinal) ? StatusInsercao.INSERIDO
+                                                                      : StatusInsercao.DUPLICADO;
+                                    CHAVES_RECENTES.registrar(sinal.getIdPaciente(), TabelaRegistro.de(sinal).chave(sinal),
+                                                              sinal.getDataHora(), sinal.getIdRegistro());
+                                }
+                            }
+
+                        } catch (BatchUpdateException e) {
+                            // Um item inválido aborta a transação do lote inteiro; reprocessa
+                            // item a item para isolar as falhas sem perder os demais registros.
+                            conn.rollback();
+                            for (PreparedStatement stmt : statements.values()) {
+                                stmt.clearBatch();
+                            }
+                            inserirIndividualmente(conn, statements, lote, conhecidos, status, inicio);
+                        }
+
+                    } catch (SQLException e) {
+                        // Itens já gravados um a um mantêm o status
+                        desfazer(conn);
+                        for (int i = inicio; i < fim; i++) {
+                            if (status[i] == null) {
+                                sinais.get(i).setIdRegistro(null);
+                                status[i] = StatusInsercao.INTERROMPIDO;
+                            }
+                        }
+                        Arrays.fill(status, fim, status.length, StatusInsercao.INTERROMPIDO);
+                        System.err.println("Lote interrompido no registro " + inicio + " de " +
+                                           sinais.size() + ": " + e.getMessage());
+                        return status;
+                    }
+                }
+            } finally {
+                for (PreparedStatement stmt : statements.values()) {
+                    stmt.close();
+                }
+            }
+        }
 
-            stmt.setString(6, sinalVital.getUnidadeMedida());
-            stmt.setString(7, sinalVital.getNivelRisco() != null ?
-                           sinalVital.getNivelRisco().name() : "NORMAL");
-            stmt.setString(8, sinalVital.getObservacoes());
+        return status;
+    }
 
-            int linhasAfetadas = stmt.executeUpdate();
+    // Adiciona a inseridos os sinais do grupo cujo ID atribuído foi gravado; os demais tinham a
+    // chave de idempotência já gravada e recebem o ID da leitura existente
+    private static void separarInseridos(Connection conn, TabelaRegistro tabela, List<SinalVital> grupo,
+                                         List<SinalVital> inseridos) throws SQLException {
+        Long[] idsGrupo = new Long[grupo.size()];
+        LocalDateTime primeira = grupo.get(0).getDataHora();
+        LocalDateTime ultima = primeira;
+        for (int i = 0; i < idsGrupo.length; i++) {
+            SinalVital sinal = grupo.get(i);
+            idsGrupo[i] = sinal.getIdRegistro();
+            if (sinal.getDataHora().isBefore(primeira)) primeira = sinal.getDataHora();
+            if (sinal.getDataHora().isAfter(ultima)) ultima = sinal.getDataHora();
+        }
 
-            if (linhasAfetadas == 0) {
-                throw new SQLException("Falha ao inserir registro.");
+        // A faixa de data_hora limita a busca às partições do lote
+        Set<Long> gravados = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(tabela.sqlConfirmarIds)) {
+            stmt.setArray(1, conn.createArrayOf("bigint", idsGrupo));
+            stmt.setTimestamp(2, Timestamp.valueOf(primeira.minusSeconds(1)));
+            stmt.setTimestamp(3, Timestamp.valueOf(ultima.plusSeconds(1)));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    gravados.add(rs.getLong(1));
+                }
             }
+        }
 
-            rs = stmt.getGeneratedKeys();
-            if (rs.next()) {
-                Long idGerado = rs.getLong(1);
-                sinalVital.setIdRegistro(idGerado);
-                return idGerado;
+        for (SinalVital sinal : grupo) {
+            if (gravados.contains(sinal.getIdRegistro())) {
+                inseridos.add(sinal);
             } else {
-                throw new SQLException("Falha ao inserir registro, ID não gerado.");
+                sinal.setIdRegistro(buscarPorChave(conn, tabela, tabela.chave(sinal), sinal));
+            }
+        }
+    }
+
+    private static Long buscarPorChave(Connection conn, TabelaRegistro tabela, String chave, SinalVital sinal)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(tabela.sqlBuscarPorChave)) {
+            stmt.setLong(1, sinal.getIdPaciente());
+            stmt.setString(2, chave);
+            stmt.setTimestamp(3, Timestamp.valueOf(sinal.getDataHora()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Falha ao inserir registro: chave de idempotência em conflito " +
+                                           "sem leitura correspondente.");
+                }
+                return rs.getLong(1);
             }
+        }
+    }
+
+    private static PreparedStatement statement(Connection conn, Map<TabelaRegistro, PreparedStatement> statements,
+                                               TabelaRegistro tabela) throws SQLException {
+        PreparedStatement stmt = statements.get(tabela);
+        if (stmt == null) {
+            stmt = conn.prepareStatement(tabela.sqlInserir);
+            statements.put(tabela, stmt);
+        }
+        return stmt;
+    }
+
+    // Inserção idempotente usada na sincronização do armazenamento local: reenviar a mesma
+    // leitura após uma falha não a duplica. Retorna o ID da linha gravada sem alterar o sinal,
+    // que pertence ao armazenamento local.
+    Long inserirSeAusente(SinalVital sinalVital) throws SQLException {
+        validarJanelaRetencao(sinalVital);
+        TabelaRegistro tabela = TabelaRegistro.de(sinalVital);
+        long novoId = IDS.proximo();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(tabela.sqlInserirSeAusente)) {
+
+            conn.setAutoCommit(false);
+            try {
+                stmt.setTimestamp(1, Timestamp.valueOf(sinalVital.getDataHora()));
+                stmt.setLong(2, sinalVital.getIdPaciente());
+                stmt.setString(3, tabela.chave(sinalVital));
+                stmt.setDouble(4, obterValorPrincipal(sinalVital));
+                tabela.preencher(stmt, sinalVital, novoId, 5);
+
+                Long id;
+                boolean inserido;
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Falha ao inserir registro, ID não gerado.");
+                    }
+                    id = rs.getLong("id_registro");
+                    inserido = rs.getBoolean("inserido");
+                }
+
+                if (inserido) {
+                    ResumoDiarioDAOImpl.acumular(conn, List.of(sinalVital));
+                }
+                conn.commit();
+                DatabaseConnection.registrarEscrita(sinalVital.getIdPaciente());
+                return id;
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
 
-        } finally {
-            if (rs != null) rs.close();
-            if (stmt != null) stmt.close();
-            if (conn != null) conn.close();
+    // A chave única inclui data_hora, e a leitura compactada pela retenção não existe mais: um
+    // reenvio dela não seria reconhecido como repetido. Leituras que já estariam compactadas são
+    // recusadas como violação de restrição (23514), descartada pela sincronização local.
+    private static void validarJanelaRetencao(SinalVital sinal) throws SQLException {
+        if (isForaDaJanelaRetencao(sinal)) {
+            throw new SQLException("Leitura anterior à janela de retenção (" + retencao.getIdadeDias() +
+                                   " dias) não pode ser gravada: " + sinal.getDataHora(), "23514");
         }
     }
 
+    private static boolean isForaDaJanelaRetencao(SinalVital sinal) {
+        RetencaoRegistros atual = retencao;
+        return atual != null && atual.isCompactavel(sinal);
+    }
+
+    // A conexão pode ter caído; o status do lote já indica o que não foi gravado
+    private static void desfazer(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Falha ao desfazer o lote: " + e.getMessage());
+        }
+    }
+
+    private void inserirIndividualmente(Connection conn, Map<TabelaRegistro, PreparedStatement> statements,
+                                        List<SinalVital> lote, boolean[] conhecidos, StatusInsercao[] status,
+                                        int deslocamento) throws SQLException {
+        for (int i = 0; i < lote.size(); i++) {
+            if (conhecidos[i]) {
+                continue;
+            }
+            SinalVital sinal = lote.get(i);
+            try {
+                TabelaRegistro tabela = TabelaRegistro.de(sinal);
+                String chave = tabela.chave(sinal);
+                PreparedStatement stmt = statement(conn, statements, tabela);
+                tabela.preencher(stmt, sinal, 1);
+                boolean inserido = stmt.executeUpdate() > 0;
+                if (inserido) {
+                    ResumoDiarioDAOImpl.acumular(conn, List.of(sinal));
+                } else {
+                    sinal.setIdRegistro(buscarPorChave(conn, tabela, chave, sinal));
+                }
+                conn.commit();
+                DatabaseConnection.registrarEscrita(sinal.getIdPaciente());
+                CHAVES_RECENTES.registrar(sinal.getIdPaciente(), chave, sinal.getDataHora(), sinal.getIdRegistro());
+                status[deslocamento + i] = inserido ? StatusInsercao.INSERIDO : StatusInsercao.DUPLICADO;
+            } catch (SQLException e) {
+                if (!isFalhaDoItem(e)) {
+                    throw e;
+                }
+                conn.rollback();
+                sinal.setIdRegistro(null);
+                status[deslocamento + i] = StatusInsercao.FALHOU;
+                System.err.println("Registro " + (deslocamento + i) + " do lote rejeitado: " +
+                                   e.getMessage());
+            }
+        }
+    }
+
+    // Erros de dados (classe 22) e de restrição (23) são do próprio item; os demais (conexão,
+    // lock, timeout) atingiriam qualquer item e interrompem o lote
+    private static boolean isFalhaDoItem(SQLException e) {
+        String estado = e.getSQLState();
+        return estado != null && (estado.startsWith("22") || estado.startsWith("23"));
+    }
+
+    private static void registrarEscritas(List<SinalVital> sinais) {
+        Long anterior = null;
+        for (SinalVital sinal : sinais) {
+            if (!sinal.getIdPaciente().equals(anterior)) {
+                anterior = sinal.getIdPaciente();
+                DatabaseConnection.registrarEscrita(anterior);
+            }
+        }
+    }
+
+    // Sem data_hora, a busca passa pelo índice da chave primária de cada partição
     @Override
     public SinalVital buscarPorId(Long idRegistro) throws SQLException {
-        String sql = "SELECT * FROM TB_REGISTRO WHERE id_registro = ?";
+        String sql = "SELECT * FROM VW_REGISTRO WHERE id_registro = ?";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, idRegistro);
@@ -81,19 +431,93 @@ public class RegistroDAOImpl implements RegistroDAO {
 
     @Override
     public List<SinalVital> listarPorPaciente(Long idPaciente) throws SQLException {
-        String sql = "SELECT * FROM TB_REGISTRO WHERE id_paciente = ? ORDER BY data_hora DESC";
+        String sql = "SELECT * FROM VW_REGISTRO WHERE id_paciente = ? ORDER BY data_hora DESC";
         return executarConsultaLista(sql, idPaciente);
     }
 
+    // Paginação por chave: continua a partir do último (data_hora, id_registro) lido, sem OFFSET,
+    // então o custo de cada página independe do tamanho do histórico. Cursor null = primeira página.
+    @Override
+    public PaginaRegistros listarPagina(Long idPaciente, CursorRegistro cursor, int tamanhoPagina)
+            throws SQLException {
+        String sql = "SELECT * FROM VW_REGISTRO WHERE id_paciente = ? " +
+                     (cursor != null ? "AND data_hora <= ? AND (data_hora, id_registro) < (?, ?) " : "") +
+                     "ORDER BY data_hora DESC, id_registro DESC LIMIT ?";
+
+        List<SinalVital> registros = new ArrayList<>(tamanhoPagina + 1);
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            stmt.setLong(indice++, idPaciente);
+            if (cursor != null) {
+                // Comparação simples além da de tupla: só ela permite descartar partições
+                stmt.setTimestamp(indice++, Timestamp.valueOf(cursor.getDataHora()));
+                stmt.setTimestamp(indice++, Timestamp.valueOf(cursor.getDataHora()));
+                stmt.setLong(indice++, cursor.getIdRegistro());
+            }
+            // Uma linha a mais indica se existe próxima página
+            stmt.setInt(indice, tamanhoPagina + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    registros.add(extrairSinalVitalDoResultSet(rs));
+                }
+            }
+        }
+
+        CursorRegistro proximoCursor = null;
+        if (registros.size() > tamanhoPagina) {
+            registros.remove(tamanhoPagina);
+            proximoCursor = CursorRegistro.aPartirDe(registros.get(tamanhoPagina - 1));
+        }
+
+        return new PaginaRegistros(registros, proximoCursor);
+    }
+
+    // Leituras posteriores à marca (data_hora, id_registro), em ordem crescente. Usado para
+    // trazer apenas o que mudou desde a última sincronização. Marca null = desde o início.
+    @Override
+    public List<SinalVital> listarApos(Long idPaciente, CursorRegistro marca, int limite)
+            throws SQLException {
+        String sql = "SELECT * FROM VW_REGISTRO WHERE id_paciente = ? " +
+                     (marca != null ? "AND data_hora >= ? AND (data_hora, id_registro) > (?, ?) " : "") +
+                     "ORDER BY data_hora, id_registro LIMIT ?";
+
+        List<SinalVital> registros = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = 1;
+            stmt.setLong(indice++, idPaciente);
+            if (marca != null) {
+                stmt.setTimestamp(indice++, Timestamp.valueOf(marca.getDataHora()));
+                stmt.setTimestamp(indice++, Timestamp.valueOf(marca.getDataHora()));
+                stmt.setLong(indice++, marca.getIdRegistro());
+            }
+            stmt.setInt(indice, limite);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    registros.add(extrairSinalVitalDoResultSet(rs));
+                }
+            }
+        }
+
+        return registros;
+    }
+
     @Override
     public List<SinalVital> listarPorPeriodo(Long idPaciente, LocalDateTime inicio,
                                              LocalDateTime fim) throws SQLException {
-        String sql = "SELECT * FROM TB_REGISTRO WHERE id_paciente = ? " +
+        String sql = "SELECT * FROM VW_REGISTRO WHERE id_paciente = ? " +
                      "AND data_hora BETWEEN ? AND ? ORDER BY data_hora DESC";
 
         List<SinalVital> registros = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, idPaciente);
@@ -113,33 +537,133 @@ public class RegistroDAOImpl implements RegistroDAO {
     @Override
     public List<SinalVital> buscarUltimosRegistros(Long idPaciente, int limite)
             throws SQLException {
-        String sql = "SELECT * FROM TB_REGISTRO WHERE id_paciente = ? " +
+        String sql = "SELECT * FROM VW_REGISTRO WHERE id_paciente = ? AND data_hora >= ? " +
                      "ORDER BY data_hora DESC LIMIT ?";
 
         List<SinalVital> registros = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setLong(1, idPaciente);
-            stmt.setInt(2, limite);
+            for (LocalDateTime desde : new LocalDateTime[]{inicioJanelaRecente(), SEM_LIMITE}) {
+                registros.clear();
+                stmt.setLong(1, idPaciente);
+                stmt.setTimestamp(2, Timestamp.valueOf(desde));
+                stmt.setInt(3, limite);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        registros.add(extrairSinalVitalDoResultSet(rs));
+                    }
+                }
+                if (registros.size() >= limite) {
+                    break;
+                }
+            }
+        }
+
+        return registros;
+    }
+
+    @Override
+    public Map<Long, List<SinalVital>> buscarUltimosRegistrosPorPacientes(Collection<Long> idsPacientes,
+                                                                         int limite) throws SQLException {
+        Map<Long, List<SinalVital>> registros = new LinkedHashMap<>();
+        for (Long idPaciente : idsPacientes) {
+            registros.putIfAbsent(idPaciente, new ArrayList<>());
+        }
+        if (registros.isEmpty() || limite <= 0) {
+            return registros;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura();
+             PreparedStatement stmt = conn.prepareStatement(SQL_ULTIMOS_POR_PACIENTES)) {
+
+            List<Long> pendentes = new ArrayList<>(registros.keySet());
+            for (LocalDateTime desde : new LocalDateTime[]{inicioJanelaRecente(), SEM_LIMITE}) {
+                for (Long idPaciente : pendentes) {
+                    registros.get(idPaciente).clear();
+                }
+                buscarUltimosPorBloco(conn, stmt, pendentes, desde, limite, registros);
+
+                List<Long> incompletos = new ArrayList<>();
+                for (Long idPaciente : pendentes) {
+                    if (registros.get(idPaciente).size() < limite) {
+                        incompletos.add(idPaciente);
+                    }
+                }
+                if (incompletos.isEmpty()) {
+                    break;
+                }
+                pendentes = incompletos;
+            }
+        }
+
+        return registros;
+    }
+
+    private static void buscarUltimosPorBloco(Connection conn, PreparedStatement stmt, List<Long> ids,
+                                              LocalDateTime desde, int limite,
+                                              Map<Long, List<SinalVital>> registros) throws SQLException {
+        for (int inicio = 0; inicio < ids.size(); inicio += PACIENTES_POR_CONSULTA) {
+            List<Long> bloco = ids.subList(inicio, Math.min(inicio + PACIENTES_POR_CONSULTA, ids.size()));
+            stmt.setArray(1, conn.createArrayOf("bigint", bloco.toArray()));
+            stmt.setTimestamp(2, Timestamp.valueOf(desde));
+            stmt.setInt(3, limite);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    registros.add(extrairSinalVitalDoResultSet(rs));
+                    SinalVital sinal = extrairSinalVitalDoResultSet(rs);
+                    registros.get(sinal.getIdPaciente()).add(sinal);
                 }
             }
         }
+    }
 
-        return registros;
+    private static LocalDateTime inicioJanelaRecente() {
+        return LocalDateTime.now().minusDays(JANELA_RECENTE_DIAS);
+    }
+
+    @Override
+    public List<OcorrenciaRisco> buscarOcorrenciasRisco(NivelRisco nivel, LocalDateTime desde)
+            throws SQLException {
+        validarNivelVarredura(nivel);
+
+        // Com o nível como parâmetro, o plano genérico de uma consulta preparada não poderia
+        // usar os índices parciais; o nome da constante do enum é seguro como literal
+        String sql = String.format(SQL_OCORRENCIAS_RISCO, nivel.name());
+        List<OcorrenciaRisco> ocorrencias = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(desde));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    SinalVital ultima = extrairSinalVitalDoResultSet(rs);
+                    ocorrencias.add(new OcorrenciaRisco(ultima.getIdPaciente(), nivel,
+                        rs.getInt("quantidade_ocorrencias"), ultima));
+                }
+            }
+        }
+
+        return ocorrencias;
+    }
+
+    // Apenas os níveis com índice parcial; os demais percorreriam a maior parte da tabela
+    static void validarNivelVarredura(NivelRisco nivel) {
+        if (nivel != NivelRisco.ALTO && nivel != NivelRisco.CRITICO) {
+            throw new IllegalArgumentException("Varredura disponível apenas para ALTO e CRITICO: " + nivel);
+        }
     }
 
     @Override
     public int contarRegistrosCriticos(Long idPaciente) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM TB_REGISTRO WHERE id_paciente = ? " +
+        String sql = "SELECT COUNT(*) FROM VW_REGISTRO WHERE id_paciente = ? " +
                      "AND nivel_risco = 'CRITICO'";
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, idPaciente);
@@ -153,50 +677,121 @@ public class RegistroDAOImpl implements RegistroDAO {
         }
     }
 
-    private String obterTipoSinal(SinalVital sinal) {
+    // Agrega no banco: o resultado tem no máximo (tipos x níveis de risco) linhas,
+    // independente do tamanho do histórico. As leituras NORMAL compactadas por RetencaoRegistros
+    // entram pelos agregados horários, com a média recomposta por soma e quantidade.
+    @Override
+    public ResumoEstatistico calcularResumo(Long idPaciente) throws SQLException {
+        String sql = "SELECT tipo_sinal, nivel_risco, SUM(quantidade) AS quantidade, " +
+                     "MIN(minimo) AS minimo, MAX(maximo) AS maximo, SUM(soma) / SUM(quantidade) AS media " +
+                     "FROM (SELECT tipo_sinal::text, nivel_risco::text, COUNT(*) AS quantidade, " +
+                     "MIN(valor_principal) AS minimo, MAX(valor_principal) AS maximo, " +
+                     "SUM(valor_principal) AS soma " +
+                     "FROM VW_REGISTRO WHERE id_paciente = ? GROUP BY tipo_sinal, nivel_risco " +
+                     "UNION ALL SELECT tipo_sinal::text, 'NORMAL', SUM(quantidade), MIN(valor_minimo), " +
+                     "MAX(valor_maximo), SUM(soma_valores) " +
+                     "FROM TB_REGISTRO_HORARIO WHERE id_paciente = ? GROUP BY tipo_sinal) g " +
+                     "GROUP BY tipo_sinal, nivel_risco";
+
+        List<ResumoEstatistico.Grupo> grupos = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, idPaciente);
+            stmt.setLong(2, idPaciente);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    grupos.add(new ResumoEstatistico.Grupo(
+                        TipoSinal.valueOf(rs.getString("tipo_sinal")),
+                        NivelRisco.valueOf(rs.getString("nivel_risco")),
+                        rs.getLong("quantidade"),
+                        rs.getDouble("minimo"),
+                        rs.getDouble("maximo"),
+                        rs.getDouble("media")
+                    ));
+                }
+            }
+        }
+
+        return new ResumoEstatistico(idPaciente, grupos);
+    }
+
+    // Lê só a tabela do tipo e as colunas da série, já como primitivos: instante em milissegundos e risco pela
+    // posição no enum (nivel_risco_enum segue a ordem de NivelRisco). Com autocommit desligado
+    // o driver traz as linhas em blocos de TAMANHO_LOTE, sem materializar o resultado inteiro.
+    // Média, faixa e variabilidade precisam das leituras individuais: se o período alcança horas
+    // compactadas por RetencaoRegistros (só restam as fora do NORMAL), a série começa após a
+    // última delas e registra esse início em getInicioCompleto.
+    @Override
+    public SerieSinalVital carregarSerie(Long idPaciente, TipoSinal tipo, LocalDateTime inicio,
+                                         LocalDateTime fim) throws SQLException {
+        TabelaRegistro tabela = TabelaRegistro.de(tipo);
+        String sqlCompactadas = "SELECT MAX(hora) + INTERVAL '1 hour' FROM TB_REGISTRO_HORARIO " +
+                                "WHERE id_paciente = ? AND tipo_sinal = ?::tipo_sinal_enum AND hora < ?";
+        String sql = "SELECT (extract(epoch FROM data_hora) * 1000)::bigint, " + tabela.colunaValor + ", " +
+                     tabela.expressaoSecundario + ", " +
+                     "array_position(enum_range(NULL::nivel_risco_enum), nivel_risco) - 1, " +
+                     tabela.expressaoJejum + " " +
+                     "FROM " + tabela.nome + " WHERE id_paciente = ? " +
+                     "AND data_hora >= ? AND data_hora < ? ORDER BY data_hora";
+
+        SerieSinalVital serie = new SerieSinalVital(idPaciente, tipo);
+        NivelRisco[] riscos = NivelRisco.values();
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente)) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement compactadas = conn.prepareStatement(sqlCompactadas);
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                compactadas.setLong(1, idPaciente);
+                compactadas.setString(2, tipo.name());
+                compactadas.setTimestamp(3, Timestamp.valueOf(fim));
+                try (ResultSet rs = compactadas.executeQuery()) {
+                    Timestamp aposCompactadas = rs.next() ? rs.getTimestamp(1) : null;
+                    if (aposCompactadas != null && aposCompactadas.toLocalDateTime().isAfter(inicio)) {
+                        inicio = aposCompactadas.toLocalDateTime();
+                        serie.setInicioCompleto(inicio);
+                    }
+                }
+
+                stmt.setFetchSize(TAMANHO_LOTE);
+                stmt.setLong(1, idPaciente);
+                stmt.setTimestamp(2, Timestamp.valueOf(inicio));
+                stmt.setTimestamp(3, Timestamp.valueOf(fim));
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        serie.adicionar(rs.getLong(1), rs.getDouble(2), rs.getInt(3),
+                                        riscos[rs.getInt(4)], rs.getBoolean(5));
+                    }
+                }
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+
+        serie.compactar();
+        return serie;
+    }
+
+    static String obterTipoSinal(SinalVital sinal) {
         if (sinal instanceof Glicemia) return "GLICEMIA";
         if (sinal instanceof PressaoArterial) return "PRESSAO";
         if (sinal instanceof PesoCorporal) return "PESO";
         return "DESCONHECIDO";
     }
 
-    private void preencherCamposEspecificos(PreparedStatement stmt, SinalVital sinal)
-            throws SQLException {
-
-        if (sinal instanceof Glicemia) {
-            Glicemia glicemia = (Glicemia) sinal;
-            stmt.setDouble(4, glicemia.getValorGlicemia());
-            stmt.setNull(5, Types.NUMERIC);
-            stmt.setString(9, glicemia.isEmJejum() ? "S" : "N");
-            stmt.setString(10, glicemia.getTipoInsulina());
-            stmt.setNull(11, Types.NUMERIC);
-            stmt.setNull(12, Types.NUMERIC);
-
-        } else if (sinal instanceof PressaoArterial) {
-            PressaoArterial pressao = (PressaoArterial) sinal;
-            stmt.setInt(4, pressao.getSistolica());
-            stmt.setInt(5, pressao.getDiastolica());
-            stmt.setNull(9, Types.CHAR);
-            stmt.setNull(10, Types.VARCHAR);
-            stmt.setNull(11, Types.NUMERIC);
-            stmt.setNull(12, Types.NUMERIC);
-
-        } else if (sinal instanceof PesoCorporal) {
-            PesoCorporal peso = (PesoCorporal) sinal;
-            stmt.setDouble(4, peso.getPeso());
-            stmt.setNull(5, Types.NUMERIC);
-            stmt.setNull(9, Types.CHAR);
-            stmt.setNull(10, Types.VARCHAR);
-            stmt.setDouble(11, peso.getAltura());
-            if (peso.getImc() != null) {
-                stmt.setDouble(12, peso.getImc());
-            } else {
-                stmt.setNull(12, Types.NUMERIC);
-            }
-        }
+    // Valor gravado em valor_principal: glicemia, pressão sistólica ou peso.
+    static double obterValorPrincipal(SinalVital sinal) {
+        if (sinal instanceof Glicemia) return ((Glicemia) sinal).getValorGlicemia();
+        if (sinal instanceof PressaoArterial) return ((PressaoArterial) sinal).getSistolica();
+        if (sinal instanceof PesoCorporal) return ((PesoCorporal) sinal).getPeso();
+        throw new IllegalArgumentException("Tipo de sinal desconhecido: " + sinal.getClass().getName());
     }
 
-    private SinalVital extrairSinalVitalDoResultSet(ResultSet rs) throws SQLException {
+    static SinalVital extrairSinalVitalDoResultSet(ResultSet rs) throws SQLException {
         try {
             String tipoSinal = rs.getString("tipo_sinal");
             Long idPaciente = rs.getLong("id_paciente");
@@ -247,7 +842,7 @@ public class RegistroDAOImpl implements RegistroDAO {
             throws SQLException {
         List<SinalVital> registros = new ArrayList<>();
 
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setLong(1, idPaciente);
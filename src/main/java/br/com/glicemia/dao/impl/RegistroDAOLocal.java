@@ -0,0 +1,335 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.RegistroDAO;
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.StatusInsercao;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.CursorRegistro;
+import br.com.glicemia.model.vo.OcorrenciaRisco;
+import br.com.glicemia.model.vo.PaginaRegistros;
+import br.com.glicemia.model.vo.ResumoEstatistico;
+import br.com.glicemia.model.vo.SerieSinalVital;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+// RegistroDAO sobre o ArmazemLocal. Gravações vão sempre para o armazenamento local e são
+// enviadas ao banco em segundo plano. Consultas cobertas pela réplica são respondidas localmente;
+// as demais vão ao banco e, sem conexão, são respondidas com o que houver na réplica.
+public class RegistroDAOLocal implements RegistroDAO {
+
+    private final ArmazemLocal armazem;
+    private final RegistroDAO remoto;
+
+    public RegistroDAOLocal(ArmazemLocal armazem) {
+        this.armazem = armazem;
+        this.remoto = armazem.getRegistroRemoto();
+    }
+
+    // Retorna null: o ID é atribuído ao próprio objeto quando a leitura chega ao banco.
+    @Override
+    public Long inserir(SinalVital sinalVital) throws SQLException {
+        armazem.adicionarPendente(sinalVital);
+        return null;
+    }
+
+    @Override
+    public StatusInsercao[] inserirLote(List<SinalVital> sinais) throws SQLException {
+        for (SinalVital sinal : sinais) {
+            armazem.adicionarPendente(sinal);
+        }
+        StatusInsercao[] status = new StatusInsercao[sinais.size()];
+        Arrays.fill(status, StatusInsercao.PENDENTE);
+        return status;
+    }
+
+    @Override
+    public SinalVital buscarPorId(Long idRegistro) throws SQLException {
+        SinalVital local = armazem.buscarLocalPorId(idRegistro);
+        if (local != null) {
+            return local;
+        }
+        return consultar(null, () -> remoto.buscarPorId(idRegistro), () -> null);
+    }
+
+    @Override
+    public List<SinalVital> listarPorPaciente(Long idPaciente) throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        if (replica != null && replica.isCompleta()) {
+            return decrescente(replica);
+        }
+        return consultar(replica, () -> remoto.listarPorPaciente(idPaciente), () -> decrescente(replica));
+    }
+
+    @Override
+    public PaginaRegistros listarPagina(Long idPaciente, CursorRegistro cursor, int tamanhoPagina)
+            throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        if (replica != null && replica.isCompleta()) {
+            return paginar(replica, cursor, tamanhoPagina);
+        }
+        return consultar(replica, () -> remoto.listarPagina(idPaciente, cursor, tamanhoPagina),
+                         () -> paginar(replica, cursor, tamanhoPagina));
+    }
+
+    @Override
+    public List<SinalVital> listarApos(Long idPaciente, CursorRegistro marca, int limite)
+            throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        Supplier<List<SinalVital>> local = () -> {
+            List<SinalVital> registros = new ArrayList<>();
+            for (SinalVital sinal : armazem.leituras(replica)) {
+                if (registros.size() == limite) break;
+                if (marca == null || comparar(sinal, marca) > 0) {
+                    registros.add(sinal);
+                }
+            }
+            return registros;
+        };
+
+        if (replica != null && (replica.isCompleta() || (marca != null && replica.cobre(marca.getDataHora())))) {
+            return local.get();
+        }
+        return consultar(replica, () -> remoto.listarApos(idPaciente, marca, limite), local);
+    }
+
+    @Override
+    public List<SinalVital> listarPorPeriodo(Long idPaciente, LocalDateTime inicio, LocalDateTime fim)
+            throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        Supplier<List<SinalVital>> local = () -> {
+            List<SinalVital> registros = new ArrayList<>();
+            for (SinalVital sinal : decrescente(replica)) {
+                if (!sinal.getDataHora().isBefore(inicio) && !sinal.getDataHora().isAfter(fim)) {
+                    registros.add(sinal);
+                }
+            }
+            return registros;
+        };
+
+        if (replica != null && replica.cobre(inicio)) {
+            return local.get();
+        }
+        return consultar(replica, () -> remoto.listarPorPeriodo(idPaciente, inicio, fim), local);
+    }
+
+    @Override
+    public List<SinalVital> buscarUltimosRegistros(Long idPaciente, int limite) throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        Supplier<List<SinalVital>> local = () -> ultimosLocais(replica, limite);
+
+        if (replica != null && replica.hidratada &&
+                (replica.isCompleta() || armazem.leituras(replica).size() >= limite)) {
+            return local.get();
+        }
+        return consultar(replica, () -> remoto.buscarUltimosRegistros(idPaciente, limite), local);
+    }
+
+    // Pacientes cuja réplica basta são respondidos localmente; os demais, em uma só consulta remota.
+    // Sem o banco, os que têm réplica recebem o que ela tiver, como em buscarUltimosRegistros.
+    @Override
+    public Map<Long, List<SinalVital>> buscarUltimosRegistrosPorPacientes(Collection<Long> idsPacientes,
+                                                                         int limite) throws SQLException {
+        Map<Long, List<SinalVital>> registros = new LinkedHashMap<>();
+        List<Long> remotos = new ArrayList<>();
+
+        for (Long idPaciente : idsPacientes) {
+            if (registros.containsKey(idPaciente)) {
+                continue;
+            }
+            ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+            if (replica != null && replica.hidratada &&
+                    (replica.isCompleta() || armazem.leituras(replica).size() >= limite)) {
+                registros.put(idPaciente, ultimosLocais(replica, limite));
+            } else {
+                registros.put(idPaciente, null);
+                remotos.add(idPaciente);
+            }
+        }
+        if (remotos.isEmpty()) {
+            return registros;
+        }
+
+        SQLException falha = null;
+        if (armazem.isOnline()) {
+            try {
+                registros.putAll(remoto.buscarUltimosRegistrosPorPacientes(remotos, limite));
+                return registros;
+            } catch (SQLException e) {
+                armazem.registrarFalhaRemota(e);
+                falha = e;
+            }
+        }
+
+        for (Long idPaciente : remotos) {
+            ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+            if (replica == null) {
+                throw falha != null ? falha
+                    : new SQLException("Banco indisponível e paciente sem réplica local: " + idPaciente);
+            }
+            registros.put(idPaciente, ultimosLocais(replica, limite));
+        }
+        return registros;
+    }
+
+    private List<SinalVital> ultimosLocais(ArmazemLocal.Replica replica, int limite) {
+        List<SinalVital> registros = decrescente(replica);
+        return new ArrayList<>(registros.subList(0, Math.min(limite, registros.size())));
+    }
+
+    // Abrange todos os pacientes: exige o banco
+    @Override
+    public List<OcorrenciaRisco> buscarOcorrenciasRisco(NivelRisco nivel, LocalDateTime desde)
+            throws SQLException {
+        return consultar(null, () -> remoto.buscarOcorrenciasRisco(nivel, desde), () -> null);
+    }
+
+    @Override
+    public int contarRegistrosCriticos(Long idPaciente) throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        Supplier<Integer> local = () -> {
+            int criticos = 0;
+            for (SinalVital sinal : armazem.leituras(replica)) {
+                if (sinal.getNivelRisco() == NivelRisco.CRITICO) {
+                    criticos++;
+                }
+            }
+            return criticos;
+        };
+
+        if (replica != null && replica.isCompleta()) {
+            return local.get();
+        }
+        return consultar(replica, () -> remoto.contarRegistrosCriticos(idPaciente), local);
+    }
+
+    @Override
+    public ResumoEstatistico calcularResumo(Long idPaciente) throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        Supplier<ResumoEstatistico> local = () -> resumir(idPaciente, armazem.leituras(replica));
+
+        if (replica != null && replica.isCompleta()) {
+            return local.get();
+        }
+        return consultar(replica, () -> remoto.calcularResumo(idPaciente), local);
+    }
+
+    @Override
+    public SerieSinalVital carregarSerie(Long idPaciente, TipoSinal tipo, LocalDateTime inicio,
+                                         LocalDateTime fim) throws SQLException {
+        ArmazemLocal.Replica replica = armazem.replica(idPaciente);
+        Supplier<SerieSinalVital> local = () -> {
+            List<SinalVital> periodo = new ArrayList<>();
+            for (SinalVital sinal : decrescente(replica)) {
+                if (!sinal.getDataHora().isBefore(inicio) && sinal.getDataHora().isBefore(fim)) {
+                    periodo.add(sinal);
+                }
+            }
+            return SerieSinalVital.aPartirDe(idPaciente, tipo, periodo);
+        };
+
+        if (replica != null && replica.cobre(inicio)) {
+            return local.get();
+        }
+        return consultar(replica, () -> remoto.carregarSerie(idPaciente, tipo, inicio, fim), local);
+    }
+
+    private interface ConsultaRemota<T> {
+        T executar() throws SQLException;
+    }
+
+    // Vai ao banco se houver conexão; em caso de falha (ou já sem conexão) responde com a
+    // réplica, possivelmente parcial. Sem réplica não há o que responder localmente.
+    private <T> T consultar(ArmazemLocal.Replica replica, ConsultaRemota<T> remota, Supplier<T> local)
+            throws SQLException {
+        if (armazem.isOnline()) {
+            try {
+                return remota.executar();
+            } catch (SQLException e) {
+                armazem.registrarFalhaRemota(e);
+                if (replica == null) {
+                    throw e;
+                }
+            }
+        } else if (replica == null) {
+            throw new SQLException("Banco indisponível e paciente sem réplica local.");
+        }
+        return local.get();
+    }
+
+    private List<SinalVital> decrescente(ArmazemLocal.Replica replica) {
+        List<SinalVital> registros = armazem.leituras(replica);
+        Collections.reverse(registros);
+        return registros;
+    }
+
+    private PaginaRegistros paginar(ArmazemLocal.Replica replica, CursorRegistro cursor, int tamanhoPagina) {
+        List<SinalVital> registros = new ArrayList<>(tamanhoPagina + 1);
+        for (SinalVital sinal : decrescente(replica)) {
+            if (registros.size() > tamanhoPagina) break;
+            if (cursor == null || comparar(sinal, cursor) < 0) {
+                registros.add(sinal);
+            }
+        }
+
+        CursorRegistro proximoCursor = null;
+        if (registros.size() > tamanhoPagina) {
+            registros.remove(tamanhoPagina);
+            proximoCursor = CursorRegistro.aPartirDe(registros.get(tamanhoPagina - 1));
+        }
+        return new PaginaRegistros(registros, proximoCursor);
+    }
+
+    // Mesma ordem de (data_hora, id_registro); leituras ainda sem ID ficam após as demais do instante
+    private static int comparar(SinalVital sinal, CursorRegistro cursor) {
+        int comparacao = sinal.getDataHora().compareTo(cursor.getDataHora());
+        if (comparacao != 0) {
+            return comparacao;
+        }
+        long idSinal = sinal.getIdRegistro() != null ? sinal.getIdRegistro() : Long.MAX_VALUE;
+        long idCursor = cursor.getIdRegistro() != null ? cursor.getIdRegistro() : Long.MAX_VALUE;
+        return Long.compare(idSinal, idCursor);
+    }
+
+    private static ResumoEstatistico resumir(Long idPaciente, List<SinalVital> leituras) {
+        Map<String, double[]> acumulados = new TreeMap<>();
+        for (SinalVital sinal : leituras) {
+            NivelRisco risco = sinal.getNivelRisco() != null ? sinal.getNivelRisco() : NivelRisco.NORMAL;
+            String chave = RegistroDAOImpl.obterTipoSinal(sinal) + "|" + risco.name();
+            double valor = RegistroDAOImpl.obterValorPrincipal(sinal);
+
+            // quantidade, mínimo, máximo, soma
+            double[] acumulado = acumulados.computeIfAbsent(chave,
+                k -> new double[]{0, Double.MAX_VALUE, -Double.MAX_VALUE, 0});
+            acumulado[0]++;
+            acumulado[1] = Math.min(acumulado[1], valor);
+            acumulado[2] = Math.max(acumulado[2], valor);
+            acumulado[3] += valor;
+        }
+
+        List<ResumoEstatistico.Grupo> grupos = new ArrayList<>();
+        for (Map.Entry<String, double[]> entrada : acumulados.entrySet()) {
+            String[] partes = entrada.getKey().split("\\|");
+            double[] acumulado = entrada.getValue();
+            grupos.add(new ResumoEstatistico.Grupo(
+                TipoSinal.valueOf(partes[0]),
+                NivelRisco.valueOf(partes[1]),
+                (long) acumulado[0],
+                acumulado[1],
+                acumulado[2],
+                acumulado[3] / acumulado[0]
+            ));
+        }
+        return new ResumoEstatistico(idPaciente, grupos);
+    }
+}
@@ -0,0 +1,451 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.RegistroDAO;
+import br.com.glicemia.model.StatusInsercao;
+import br.com.glicemia.model.exceptions.ValorInvalidoException;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Gravação assíncrona (write-behind) de registros. inserir apenas anexa a leitura a um log local
+// append-only e retorna; uma thread em segundo plano drena o log para o DAO decorado em lotes.
+// O ponto já gravado no banco fica em um arquivo de checkpoint, de modo que leituras pendentes
+// são reenviadas após reinício. A entrega é pelo menos uma vez: uma queda entre o commit e o
+// checkpoint reenvia o último lote.
+public class RegistroDAOWriteBehind extends RegistroDAODelegado {
+
+    public enum PoliticaFsync {
+        // fsync a cada leitura: nenhuma leitura confirmada se perde em queda do sistema
+        SEMPRE,
+        // fsync pela thread de drenagem a cada intervalo: perde no máximo um intervalo
+        PERIODICO,
+        // sem fsync explícito: o sistema operacional decide quando gravar
+        NUNCA
+    }
+
+    private static final long ESPERA_MAXIMA_RETENTATIVA_MS = 30_000;
+
+    private final Path arquivoCheckpoint;
+    private final PoliticaFsync politicaFsync;
+    private final long intervaloMs;
+    private final int tamanhoLote;
+
+    private final FileChannel canal;
+    private final Deque<Pendente> pendentes = new ArrayDeque<>();
+    private final Thread drenagem;
+
+    private long checkpoint;
+    private boolean sujo = false;
+    private volatile boolean encerrando = false;
+
+    private long drenadas = 0;
+    private long rejeitadas = 0;
+    private long falhas = 0;
+
+    public RegistroDAOWriteBehind(RegistroDAO delegado, Path arquivoLog, PoliticaFsync politicaFsync,
+                                  long intervaloMs, int tamanhoLote) throws IOException {
+        super(delegado);
+        this.arquivoCheckpoint = arquivoLog.resolveSibling(arquivoLog.getFileName() + ".checkpoint");
+        this.politicaFsync = politicaFsync;
+        this.intervaloMs = intervaloMs;
+        this.tamanhoLote = tamanhoLote;
+
+        if (arquivoLog.getParent() != null) {
+            Files.createDirectories(arquivoLog.getParent());
+        }
+        this.canal = FileChannel.open(arquivoLog, StandardOpenOption.CREATE,
+                                      StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = lerCheckpoint();
+        recuperarPendentes();
+
+        this.drenagem = new Thread(this::executarDrenagem, "glicemia-write-behind");
+        this.drenagem.setDaemon(true);
+        this.drenagem.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::encerrar, "glicemia-write-behind-shutdown"));
+    }
+
+    // Retorna null: o ID é atribuído ao próprio objeto quando a leitura chega ao banco.
+    @Override
+    public Long inserir(SinalVital sinalVital) throws SQLException {
+        anexar(List.of(sinalVital));
+        return null;
+    }
+
+    @Override
+    public StatusInsercao[] inserirLote(List<SinalVital> sinais) throws SQLException {
+        anexar(sinais);
+        StatusInsercao[] status = new StatusInsercao[sinais.size()];
+        Arrays.fill(status, StatusInsercao.PENDENTE);
+        return status;
+    }
+
+    // Inclui as leituras ainda não drenadas do paciente, para que o histórico recente
+    // reflita imediatamente o que acabou de ser registrado.
+    @Override
+    public List<SinalVital> buscarUltimosRegistros(Long idPaciente, int limite) throws SQLException {
+        List<SinalVital> doPaciente = new ArrayList<>();
+        synchronized (this) {
+            for (Pendente pendente : pendentes) {
+                if (pendente.sinal.getIdPaciente().equals(idPaciente)) {
+                    doPaciente.add(pendente.sinal);
+                }
+            }
+        }
+
+        List<SinalVital> doBanco = delegado.buscarUltimosRegistros(idPaciente, limite);
+        return mesclarPendentes(doBanco, doPaciente, limite);
+    }
+
+    @Override
+    public Map<Long, List<SinalVital>> buscarUltimosRegistrosPorPacientes(Collection<Long> idsPacientes,
+                                                                         int limite) throws SQLException {
+        Set<Long> ids = new HashSet<>(idsPacientes);
+        Map<Long, List<SinalVital>> pendentesPorPaciente = new HashMap<>();
+        synchronized (this) {
+            for (Pendente pendente : pendentes) {
+                Long idPaciente = pendente.sinal.getIdPaciente();
+                if (ids.contains(idPaciente)) {
+                    pendentesPorPaciente.computeIfAbsent(idPaciente, id -> new ArrayList<>()).add(pendente.sinal);
+                }
+            }
+        }
+
+        Map<Long, List<SinalVital>> registros = delegado.buscarUltimosRegistrosPorPacientes(idsPacientes, limite);
+        for (Map.Entry<Long, List<SinalVital>> doPaciente : pendentesPorPaciente.entrySet()) {
+            registros.put(doPaciente.getKey(),
+                mesclarPendentes(registros.get(doPaciente.getKey()), doPaciente.getValue(), limite));
+        }
+        return registros;
+    }
+
+    private static List<SinalVital> mesclarPendentes(List<SinalVital> doBanco, List<SinalVital> doPaciente,
+                                                     int limite) {
+        if (doPaciente.isEmpty()) {
+            return doBanco;
+        }
+
+        // Uma leitura pode ter sido drenada entre as duas consultas (já tem ID); evita duplicá-la
+        List<SinalVital> registros = new ArrayList<>(doBanco);
+        for (SinalVital sinal : doPaciente) {
+            if (sinal.getIdRegistro() == null || doBanco.stream()
+                    .noneMatch(r -> sinal.getIdRegistro().equals(r.getIdRegistro()))) {
+                registros.add(sinal);
+            }
+        }
+        registros.sort(Comparator.comparing(SinalVital::getDataHora).reversed());
+        return new ArrayList<>(registros.subList(0, Math.min(limite, registros.size())));
+    }
+
+    public synchronized int getPendentes() {
+        return pendentes.size();
+    }
+
+    public synchronized Estatisticas getEstatisticas() {
+        return new Estatisticas(pendentes.size(), drenadas, rejeitadas, falhas);
+    }
+
+    // Drena o que estiver pendente e fecha o log. Leituras que não puderem ser enviadas
+    // continuam no log e são reenviadas no próximo início.
+    public void encerrar() {
+        synchronized (this) {
+            if (encerrando) {
+                return;
+            }
+            encerrando = true;
+            notifyAll();
+        }
+
+        try {
+            drenagem.join(ESPERA_MAXIMA_RETENTATIVA_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            try {
+                canal.force(true);
+                canal.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar log de registros pendentes: " + e.getMessage());
+            }
+        }
+    }
+
+    private void anexar(List<SinalVital> sinais) throws SQLException {
+        List<byte[]> linhas = new ArrayList<>(sinais.size());
+        int total = 0;
+        for (SinalVital sinal : sinais) {
+            byte[] linha = (CodecSinalVital.codificar(sinal) + '\n').getBytes(StandardCharsets.UTF_8);
+            linhas.add(linha);
+            total += linha.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        linhas.forEach(buffer::put);
+        buffer.flip();
+
+        synchronized (this) {
+            if (encerrando) {
+                throw new SQLException("Gravação de registros encerrada.");
+            }
+
+            try {
+                long posicao = canal.size();
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer, posicao + buffer.position());
+                }
+                if (politicaFsync == PoliticaFsync.SEMPRE) {
+                    canal.force(false);
+                } else {
+                    sujo = true;
+                }
+
+                for (int i = 0; i < sinais.size(); i++) {
+                    posicao += linhas.get(i).length;
+                    pendentes.addLast(new Pendente(sinais.get(i), posicao));
+                }
+            } catch (IOException e) {
+                throw new SQLException("Falha ao gravar registro no log local: " + e.getMessage(), e);
+            }
+
+            notifyAll();
+        }
+    }
+
+    private void executarDrenagem() {
+        long espera = intervaloMs;
+
+        while (true) {
+            List<Pendente> lote;
+            synchronized (this) {
+                if (pendentes.isEmpty() && !encerrando) {
+                    try {
+                        wait(intervaloMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                sincronizarSePeriodico();
+                if (pendentes.isEmpty()) {
+                    if (encerrando) {
+                        return;
+                    }
+                    compactarSeDrenado();
+                    continue;
+                }
+                lote = new ArrayList<>(Math.min(tamanhoLote, pendentes.size()));
+                for (Pendente pendente : pendentes) {
+                    if (lote.size() == tamanhoLote) break;
+                    lote.add(pendente);
+                }
+            }
+
+            try {
+                enviar(lote);
+                espera = intervaloMs;
+            } catch (SQLException | IOException e) {
+                synchronized (this) {
+                    falhas++;
+                    if (encerrando) {
+                        System.err.println("Encerrando com " + pendentes.size() +
+                                           " registros pendentes no log local: " + e.getMessage());
+                        return;
+                    }
+                }
+                System.err.println("Falha ao drenar registros pendentes (nova tentativa em " +
+                                   espera + " ms): " + e.getMessage());
+                dormir(espera);
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_RETENTATIVA_MS);
+            }
+        }
+    }
+
+    private void enviar(List<Pendente> lote) throws SQLException, IOException {
+        List<SinalVital> sinais = new ArrayList<>(lote.size());
+        for (Pendente pendente : lote) {
+            sinais.add(pendente.sinal);
+        }
+
+        StatusInsercao[] status = delegado.inserirLote(sinais);
+
+        // Os itens a partir do primeiro INTERROMPIDO continuam pendentes e voltam na próxima tentativa
+        int enviados = 0;
+        while (enviados < status.length && status[enviados] != StatusInsercao.INTERROMPIDO) {
+            enviados++;
+        }
+
+        int rejeitadasLote = 0;
+        for (int i = 0; i < enviados; i++) {
+            if (status[i] == StatusInsercao.FALHOU) {
+                // Rejeição definitiva (ex.: paciente removido); reenviar não resolveria
+                rejeitadasLote++;
+                System.err.println("Registro pendente descartado pelo banco: " +
+                                   CodecSinalVital.codificar(sinais.get(i)));
+            }
+        }
+
+        if (enviados > 0) {
+            synchronized (this) {
+                for (int i = 0; i < enviados; i++) {
+                    pendentes.removeFirst();
+                }
+                drenadas += enviados - rejeitadasLote;
+                rejeitadas += rejeitadasLote;
+                gravarCheckpoint(lote.get(enviados - 1).fim);
+            }
+        }
+        if (enviados < lote.size()) {
+            throw new SQLException("Envio interrompido após " + enviados + " de " + lote.size() +
+                                   " registros pendentes");
+        }
+    }
+
+    private void sincronizarSePeriodico() {
+        if (sujo && politicaFsync == PoliticaFsync.PERIODICO) {
+            try {
+                canal.force(false);
+                sujo = false;
+            } catch (IOException e) {
+                System.err.println("Falha no fsync do log de registros: " + e.getMessage());
+            }
+        }
+    }
+
+    // Com tudo drenado, trunca o log e zera o checkpoint para o arquivo não crescer indefinidamente.
+    private void compactarSeDrenado() {
+        try {
+            if (checkpoint > 0 && checkpoint == canal.size()) {
+                canal.truncate(0);
+                canal.force(true);
+                gravarCheckpoint(0);
+            }
+        } catch (IOException e) {
+            System.err.println("Falha ao compactar log de registros: " + e.getMessage());
+        }
+    }
+
+    private void gravarCheckpoint(long posicao) throws IOException {
+        Path temporario = arquivoCheckpoint.resolveSibling(arquivoCheckpoint.getFileName() + ".tmp");
+        Files.write(temporario, Long.toString(posicao).getBytes(StandardCharsets.US_ASCII),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+        Files.move(temporario, arquivoCheckpoint, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = posicao;
+    }
+
+    private long lerCheckpoint() throws IOException {
+        if (!Files.exists(arquivoCheckpoint)) {
+            return 0;
+        }
+        String conteudo = new String(Files.readAllBytes(arquivoCheckpoint), StandardCharsets.US_ASCII).trim();
+        long posicao = conteudo.isEmpty() ? 0 : Long.parseLong(conteudo);
+        return Math.min(posicao, canal.size());
+    }
+
+    // Reenfileira as linhas após o checkpoint. Uma linha final incompleta ou corrompida
+    // (gravação interrompida) é descartada junto com o que vier depois dela.
+    private void recuperarPendentes() throws IOException {
+        canal.position(checkpoint);
+        long posicao = checkpoint;
+
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(
+            Channels.newInputStream(canal), StandardCharsets.UTF_8));
+        String linha;
+        while ((linha = leitor.readLine()) != null) {
+            long fim = posicao + linha.getBytes(StandardCharsets.UTF_8).length + 1;
+            SinalVital sinal = null;
+            if (fim <= canal.size()) {
+                try {
+                    sinal = CodecSinalVital.decodificar(linha);
+                } catch (ValorInvalidoException | RuntimeException e) {
+                    sinal = null;
+                }
+            }
+            if (sinal == null) {
+                System.err.println("Log de registros truncado na posição " + posicao +
+                                   " (gravação incompleta).");
+                canal.truncate(posicao);
+                break;
+            }
+            pendentes.addLast(new Pendente(sinal, fim));
+            posicao = fim;
+        }
+
+        if (!pendentes.isEmpty()) {
+            System.out.println("Reenviando " + pendentes.size() + " registros pendentes do log local.");
+        }
+    }
+
+    private void dormir(long ms) {
+        synchronized (this) {
+            if (encerrando) {
+                return;
+            }
+            try {
+                wait(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Pendente {
+        private final SinalVital sinal;
+        // Posição no log logo após a linha desta leitura
+        private final long fim;
+
+        Pendente(SinalVital sinal, long fim) {
+            this.sinal = sinal;
+            this.fim = fim;
+        }
+    }
+
+    public static class Estatisticas {
+        private final int pendentes;
+        private final long drenadas;
+        private final long rejeitadas;
+        private final long falhas;
+
+        Estatisticas(int pendentes, long drenadas, long rejeitadas, long falhas) {
+            this.pendentes = pendentes;
+            this.drenadas = drenadas;
+            this.rejeitadas = rejeitadas;
+            this.falhas = falhas;
+        }
+
+        public int getPendentes() { return pendentes; }
+        public long getDrenadas() { return drenadas; }
+        public long getRejeitadas() { return rejeitadas; }
+        public long getFalhas() { return falhas; }
+
+        @Override
+        public String toString() {
+            return String.format("Write-behind: %d pendentes | %d gravadas | %d rejeitadas | %d falhas de envio",
+                pendentes, drenadas, rejeitadas, falhas);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.dao.interfaces.ResumoDiarioDAO;
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.ResumoDiario;
+import br.com.glicemia.model.vo.SinalVital;
+import br.com.glicemia.util.DatabaseConnection;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Rollup diário por paciente e tipo de sinal. Mantido incrementalmente pelas inserções de
+// RegistroDAOImpl, permitindo resumos de período que leem O(dias) linhas em vez de O(leituras).
+public class ResumoDiarioDAOImpl implements ResumoDiarioDAO {
+
+    private static final String COLUNAS = "id_paciente, tipo_sinal, dia, quantidade, valor_minimo, " +
+            "valor_maximo, soma_valores, qtd_normal, qtd_atencao, qtd_alto, qtd_critico";
+
+    private static final String SQL_MESCLAR_CONFLITO =
+            " ON CONFLICT (id_paciente, tipo_sinal, dia) DO UPDATE SET " +
+            "quantidade = TB_REGISTRO_DIARIO.quantidade + EXCLUDED.quantidade, " +
+            "valor_minimo = LEAST(TB_REGISTRO_DIARIO.valor_minimo, EXCLUDED.valor_minimo), " +
+            "valor_maximo = GREATEST(TB_REGISTRO_DIARIO.valor_maximo, EXCLUDED.valor_maximo), " +
+            "soma_valores = TB_REGISTRO_DIARIO.soma_valores + EXCLUDED.soma_valores, " +
+            "qtd_normal = TB_REGISTRO_DIARIO.qtd_normal + EXCLUDED.qtd_normal, " +
+            "qtd_atencao = TB_REGISTRO_DIARIO.qtd_atencao + EXCLUDED.qtd_atencao, " +
+            "qtd_alto = TB_REGISTRO_DIARIO.qtd_alto + EXCLUDED.qtd_alto, " +
+            "qtd_critico = TB_REGISTRO_DIARIO.qtd_critico + EXCLUDED.qtd_critico";
+
+    static final String SQL_AGRUPAR = " GROUP BY id_paciente, tipo_sinal, data_hora::date" +
+            SQL_MESCLAR_CONFLITO;
+
+    // Leituras compactadas pela retenção: só existem nos agregados horários, todas NORMAL
+    private static final String SQL_AGREGAR_HORARIO =
+            "INSERT INTO TB_REGISTRO_DIARIO (" + COLUNAS + ") " +
+            "SELECT id_paciente, tipo_sinal, hora::date, SUM(quantidade), MIN(valor_minimo), " +
+            "MAX(valor_maximo), SUM(soma_valores), SUM(quantidade), 0, 0, 0 FROM TB_REGISTRO_HORARIO";
+
+    private static final String SQL_AGRUPAR_HORARIO = " GROUP BY id_paciente, tipo_sinal, hora::date" +
+            SQL_MESCLAR_CONFLITO;
+
+    private static final String SQL_ACUMULAR =
+            "INSERT INTO TB_REGISTRO_DIARIO (" + COLUNAS + ") " +
+            "VALUES (?, ?::tipo_sinal_enum, ?, ?, ?, ?, ?, ?, ?, ?, ?)" + SQL_MESCLAR_CONFLITO;
+
+    @Override
+    public List<ResumoDiario> listarPorPeriodo(Long idPaciente, LocalDate inicio, LocalDate fim)
+            throws SQLException {
+        String sql = "SELECT * FROM TB_REGISTRO_DIARIO WHERE id_paciente = ? " +
+                     "AND dia BETWEEN ? AND ? ORDER BY dia DESC, tipo_sinal";
+
+        List<ResumoDiario> resumos = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnection.getConnectionLeitura(idPaciente);
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setLong(1, idPaciente);
+            stmt.setDate(2, Date.valueOf(inicio));
+            stmt.setDate(3, Date.valueOf(fim));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    resumos.add(extrairResumoDoResultSet(rs));
+                }
+            }
+        }
+
+        return resumos;
+    }
+
+    // Recalcula o rollup do período a partir de VW_REGISTRO e dos agregados horários da retenção
+    // (ex.: após cargas via COPY).
+    @Override
+    public void reconstruir(Long idPaciente, LocalDate inicio, LocalDate fim) throws SQLException {
+        String sqlRemover = "DELETE FROM TB_REGISTRO_DIARIO WHERE id_paciente = ? AND dia BETWEEN ? AND ?";
+        String sqlRecalcular = sqlAgregarDe("VW_REGISTRO") +
+                " WHERE id_paciente = ? AND data_hora >= ? AND data_hora < ?" + SQL_AGRUPAR;
+        String sqlRecalcularHorario = SQL_AGREGAR_HORARIO +
+                " WHERE id_paciente = ? AND hora >= ? AND hora < ?" + SQL_AGRUPAR_HORARIO;
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement remover = conn.prepareStatement(sqlRemover);
+                 PreparedStatement recalcular = conn.prepareStatement(sqlRecalcular);
+                 PreparedStatement recalcularHorario = conn.prepareStatement(sqlRecalcularHorario)) {
+
+                remover.setLong(1, idPaciente);
+                remover.setDate(2, Date.valueOf(inicio));
+                remover.setDate(3, Date.valueOf(fim));
+                remover.executeUpdate();
+
+                recalcular.setLong(1, idPaciente);
+                recalcular.setTimestamp(2, Timestamp.valueOf(inicio.atStartOfDay()));
+                recalcular.setTimestamp(3, Timestamp.valueOf(fim.plusDays(1).atStartOfDay()));
+                recalcular.executeUpdate();
+
+                recalcularHorario.setLong(1, idPaciente);
+                recalcularHorario.setTimestamp(2, Timestamp.valueOf(inicio.atStartOfDay()));
+                recalcularHorario.setTimestamp(3, Timestamp.valueOf(fim.plusDays(1).atStartOfDay()));
+                recalcularHorario.executeUpdate();
+
+                conn.commit();
+                DatabaseConnection.registrarEscrita(idPaciente);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void reconstruirTudo() throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM TB_REGISTRO_DIARIO");
+                stmt.executeUpdate(sqlAgregarDe("VW_REGISTRO") + SQL_AGRUPAR);
+                stmt.executeUpdate(SQL_AGREGAR_HORARIO + SQL_AGRUPAR_HORARIO);
+                conn.commit();
+                DatabaseConnection.registrarEscrita(null);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // INSERT ... SELECT agregando leituras de uma relação com as colunas de VW_REGISTRO.
+    // O chamador completa com WHERE (opcional) e SQL_AGRUPAR.
+    static String sqlAgregarDe(String origem) {
+        return "INSERT INTO TB_REGISTRO_DIARIO (" + COLUNAS + ") " +
+               "SELECT id_paciente, tipo_sinal, data_hora::date, COUNT(*), MIN(valor_principal), " +
+               "MAX(valor_principal), SUM(valor_principal), " +
+               "COUNT(*) FILTER (WHERE nivel_risco = 'NORMAL'), " +
+               "COUNT(*) FILTER (WHERE nivel_risco = 'ATENCAO'), " +
+               "COUNT(*) FILTER (WHERE nivel_risco = 'ALTO'), " +
+               "COUNT(*) FILTER (WHERE nivel_risco = 'CRITICO') " +
+               "FROM " + origem;
+    }
+
+    // Acumula no rollup as leituras recém-inseridas, na transação do chamador. As leituras
+    // são pré-agregadas por (paciente, tipo, dia) e gravadas em ordem fixa de chave, o que
+    // reduz as linhas atualizadas e evita deadlock entre lotes concorrentes.
+    static void acumular(Connection conn, Collection<SinalVital> sinais) throws SQLException {
+        Map<String, Acumulador> acumuladores = new TreeMap<>();
+
+        for (SinalVital sinal : sinais) {
+            String tipo = RegistroDAOImpl.obterTipoSinal(sinal);
+            LocalDate dia = sinal.getDataHora().toLocalDate();
+            String chave = String.format("%019d|%s|%s", sinal.getIdPaciente(), tipo, dia);
+
+            acumuladores.computeIfAbsent(chave, k -> new Acumulador(sinal.getIdPaciente(), tipo, dia))
+                        .adicionar(RegistroDAOImpl.obterValorPrincipal(sinal), sinal.getNivelRisco());
+        }
+
+        if (acumuladores.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_ACUMULAR)) {
+            for (Acumulador acumulador : acumuladores.values()) {
+                stmt.setLong(1, acumulador.idPaciente);
+                stmt.setString(2, acumulador.tipoSinal);
+                stmt.setDate(3, Date.valueOf(acumulador.dia));
+                stmt.setInt(4, acumulador.quantidade);
+                stmt.setDouble(5, acumulador.minimo);
+                stmt.setDouble(6, acumulador.maximo);
+                stmt.setDouble(7, acumulador.soma);
+                stmt.setInt(8, acumulador.porRisco[NivelRisco.NORMAL.ordinal()]);
+                stmt.setInt(9, acumulador.porRisco[NivelRisco.ATENCAO.ordinal()]);
+                stmt.setInt(10, acumulador.porRisco[NivelRisco.ALTO.ordinal()]);
+                stmt.setInt(11, acumulador.porRisco[NivelRisco.CRITICO.ordinal()]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private ResumoDiario extrairResumoDoResultSet(ResultSet rs) throws SQLException {
+        return new ResumoDiario(
+            rs.getLong("id_paciente"),
+            TipoSinal.valueOf(rs.getString("tipo_sinal")),
+            rs.getDate("dia").toLocalDate(),
+            rs.getInt("quantidade"),
+            rs.getDouble("valor_minimo"),
+            rs.getDouble("valor_maximo"),
+            rs.getDouble("soma_valores"),
+            rs.getInt("qtd_normal"),
+            rs.getInt("qtd_atencao"),
+            rs.getInt("qtd_alto"),
+            rs.getInt("qtd_critico")
+        );
+    }
+
+    private static class Acumulador {
+        private final Long idPaciente;
+        private final String tipoSinal;
+        private final LocalDate dia;
+        private final int[] porRisco = new int[NivelRisco.values().length];
+        private int quantidade = 0;
+        private double minimo = Double.MAX_VALUE;
+        private double maximo = -Double.MAX_VALUE;
+        private double soma = 0;
+
+        Acumulador(Long idPaciente, String tipoSinal, LocalDate dia) {
+            this.idPaciente = idPaciente;
+            this.tipoSinal = tipoSinal;
+            this.dia = dia;
+        }
+
+        void adicionar(double valor, NivelRisco risco) {
+            quantidade++;
+            minimo = Math.min(minimo, valor);
+            maximo = Math.max(maximo, valor);
+            soma += valor;
+            porRisco[(risco != null ? risco : NivelRisco.NORMAL).ordinal()]++;
+        }
+    }
+}
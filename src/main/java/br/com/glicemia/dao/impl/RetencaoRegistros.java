@@ -0,0 +1,320 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.SinalVital;
+import br.com.glicemia.util.DatabaseConnection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Retenção de leituras de alta frequência (ex.: CGM a cada 5 minutos). Leituras NORMAL mais antigas
+// que o limite são substituídas por agregados horários (mín/máx/soma/quantidade) em
+// TB_REGISTRO_HORARIO; leituras fora do NORMAL permanecem brutas. O rollup diário
+// não muda, pois já contabiliza as leituras removidas.
+//
+// O trabalho é feito em lotes em ordem de data_hora, cada um em uma transação curta que exclui e
+// agrega no mesmo comando; FOR UPDATE SKIP LOCKED evita esperar por linhas em uso e nenhum lock de
+// tabela além do usual de DML é tomado; o índice parcial idx_*_retencao (MigradorSchema) entrega as
+// leituras NORMAL já nessa ordem, sem ordenar o período a cada lote. Os tipos são processados um
+// de cada vez, na tabela de cada um. Após cada lote, o tipo e a data_hora alcançada são gravados no
+// checkpoint, e uma execução interrompida é retomada dali. O checkpoint é removido ao fim de uma
+// execução completa, para que a seguinte revise também leituras antigas gravadas depois.
+// Leituras referenciadas em TB_CONSULTA_IA não são compactadas (as consultas ficariam sem a
+// leitura de origem).
+//
+// A leitura compactada deixa de existir, e com ela a sua chave de idempotência: um reenvio seria
+// gravado de novo e contado em dobro no agregado horário e no rollup. Por isso, com a retenção
+// ativa, RegistroDAOImpl recusa leituras que já estariam compactadas (isCompactavel).
+public class RetencaoRegistros {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(1900, 1, 1, 0, 0);
+
+    // %1$s: tabela do tipo; %2$s: coluna do valor principal; %3$s: tipo_sinal
+    private static final String SQL_COMPACTAR =
+            "WITH alvo AS (" +
+            "SELECT r.id_registro, r.data_hora FROM %1$s r " +
+            "WHERE r.nivel_risco = 'NORMAL' AND r.data_hora >= ? AND r.data_hora < ? " +
+            "AND NOT EXISTS (SELECT 1 FROM TB_CONSULTA_IA c WHERE c.id_registro = r.id_registro) " +
+            "ORDER BY r.data_hora, r.id_registro LIMIT ? FOR UPDATE OF r SKIP LOCKED), " +
+            "removidas AS (" +
+            "DELETE FROM %1$s r USING alvo a WHERE r.id_registro = a.id_registro " +
+            "AND r.data_hora = a.data_hora AND r.data_hora >= ? AND r.data_hora < ? " +
+            "RETURNING r.id_paciente, r.data_hora, r.%2$s::numeric AS valor, " +
+            "pg_column_size(r.*) AS bytes), " +
+            "horas AS (" +
+            "INSERT INTO TB_REGISTRO_HORARIO (id_paciente, tipo_sinal, hora, quantidade, " +
+            "valor_minimo, valor_maximo, soma_valores) " +
+            "SELECT id_paciente, '%3$s'::tipo_sinal_enum, date_trunc('hour', data_hora), COUNT(*), " +
+            "MIN(valor), MAX(valor), SUM(valor) FROM removidas " +
+            "GROUP BY id_paciente, date_trunc('hour', data_hora) " +
+            "ON CONFLICT (id_paciente, tipo_sinal, hora) DO UPDATE SET " +
+            "quantidade = TB_REGISTRO_HORARIO.quantidade + EXCLUDED.quantidade, " +
+            "valor_minimo = LEAST(TB_REGISTRO_HORARIO.valor_minimo, EXCLUDED.valor_minimo), " +
+            "valor_maximo = GREATEST(TB_REGISTRO_HORARIO.valor_maximo, EXCLUDED.valor_maximo), " +
+            "soma_valores = TB_REGISTRO_HORARIO.soma_valores + EXCLUDED.soma_valores " +
+            "RETURNING (xmax = 0) AS nova, pg_column_size(TB_REGISTRO_HORARIO.*) AS bytes) " +
+            "SELECT (SELECT COUNT(*) FROM alvo), (SELECT MAX(data_hora) FROM alvo), " +
+            "(SELECT COALESCE(SUM(bytes), 0) FROM removidas), " +
+            "(SELECT COUNT(*) FROM horas WHERE nova), " +
+            "(SELECT COALESCE(SUM(bytes), 0) FROM horas WHERE nova)";
+
+    private final List<TipoSinal> tipos;
+    private final int idadeDias;
+    private final int tamanhoLote;
+    private final long pausaMs;
+    private final Path arquivoCheckpoint;
+    private volatile Thread agendamento;
+
+    public RetencaoRegistros(List<TipoSinal> tipos, int idadeDias, int tamanhoLote, long pausaMs,
+                             Path arquivoCheckpoint) {
+        this.tipos = tipos;
+        this.idadeDias = idadeDias;
+        this.tamanhoLote = tamanhoLote;
+        this.pausaMs = pausaMs;
+        this.arquivoCheckpoint = arquivoCheckpoint;
+    }
+
+    // Se a leitura estaria entre as compactadas: tipo retido, nível NORMAL (ou ainda não
+    // analisado) e data_hora anterior ao limite
+    public boolean isCompactavel(SinalVital sinal) {
+        return sinal.getDataHora() != null
+            && (sinal.getNivelRisco() == null || sinal.getNivelRisco() == NivelRisco.NORMAL)
+            && tipos.contains(TabelaRegistro.de(sinal).tipo)
+            && sinal.getDataHora().isBefore(LocalDateTime.now().minusDays(idadeDias));
+    }
+
+    public int getIdadeDias() {
+        return idadeDias;
+    }
+
+    // Sincronizado: a execução agendada e a manual não compactam ao mesmo tempo
+    public synchronized Relatorio executar() throws SQLException {
+        long inicio = System.nanoTime();
+        LocalDateTime limite = LocalDateTime.now().minusDays(idadeDias);
+        Relatorio relatorio = new Relatorio();
+
+        Checkpoint checkpoint = lerCheckpoint();
+        boolean concluida = true;
+
+        for (TipoSinal tipo : tipos) {
+            LocalDateTime cursor = INICIO;
+            if (checkpoint != null) {
+                // Tipos anteriores ao do checkpoint já foram concluídos na execução interrompida
+                if (checkpoint.tipo != tipo) {
+                    continue;
+                }
+                cursor = checkpoint.cursor;
+                relatorio.retomadaDe = cursor;
+                checkpoint = null;
+            }
+
+            cursor = compactar(TabelaRegistro.de(tipo), cursor, limite, relatorio);
+            if (cursor != null) {
+                gravarCheckpoint(tipo, cursor, relatorio);
+                concluida = false;
+                break;
+            }
+        }
+
+        if (concluida) {
+            try {
+                Files.deleteIfExists(arquivoCheckpoint);
+            } catch (IOException e) {
+                relatorio.falhas.add("Checkpoint não removido: " + e.getMessage());
+            }
+        }
+
+        relatorio.concluida = concluida;
+        relatorio.duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        return relatorio;
+    }
+
+    // Compacta as leituras de um tipo a partir de cursor; retorna null ao concluir, ou a data_hora
+    // alcançada se a thread foi interrompida
+    private LocalDateTime compactar(TabelaRegistro tabela, LocalDateTime cursor, LocalDateTime limite,
+                                    Relatorio relatorio) throws SQLException {
+        String sql = String.format(SQL_COMPACTAR, tabela.nome, tabela.colunaValor, tabela.tipo.name());
+
+        while (!Thread.currentThread().isInterrupted()) {
+            int compactadas;
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(cursor));
+                    stmt.setTimestamp(2, Timestamp.valueOf(limite));
+                    stmt.setInt(3, tamanhoLote);
+                    // A faixa repetida no DELETE limita-o às partições do período
+                    stmt.setTimestamp(4, Timestamp.valueOf(cursor));
+                    stmt.setTimestamp(5, Timestamp.valueOf(limite));
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        compactadas = rs.getInt(1);
+                        if (compactadas > 0) {
+                            // Linhas da mesma data_hora ainda não lidas continuam >= cursor
+                            cursor = rs.getTimestamp(2).toLocalDateTime();
+                            relatorio.lotes++;
+                            relatorio.leiturasCompactadas += compactadas;
+                            relatorio.bytesRemovidos += rs.getLong(3);
+                            relatorio.linhasHorarias += rs.getLong(4);
+                            relatorio.bytesAgregados += rs.getLong(5);
+                        }
+                    }
+                    conn.commit();
+                    // Sem registrarEscrita: são leituras antigas, e a defasagem da réplica é irrelevante
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+
+            if (compactadas < tamanhoLote) {
+                return null;
+            }
+
+            gravarCheckpoint(tabela.tipo, cursor, relatorio);
+            if (pausaMs > 0) {
+                try {
+                    Thread.sleep(pausaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return cursor;
+    }
+
+    // Executa o job periodicamente em uma thread daemon; a primeira execução ocorre após um intervalo
+    public void agendar(long intervaloMs) {
+        if (agendamento != null) {
+            return;
+        }
+        agendamento = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(intervaloMs);
+                    Relatorio relatorio = executar();
+                    for (String falha : relatorio.getFalhas()) {
+                        System.err.println(falha);
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Falha no job de retenção (nova tentativa no próximo ciclo): " +
+                                       e.getMessage());
+                }
+            }
+        }, "glicemia-retencao");
+        agendamento.setDaemon(true);
+        agendamento.start();
+    }
+
+    // Interrompe o agendamento; um lote em andamento termina e grava o checkpoint
+    public void encerrar() {
+        Thread thread = agendamento;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // Formato: TIPO|data_hora
+    private Checkpoint lerCheckpoint() {
+        try {
+            if (!Files.exists(arquivoCheckpoint)) {
+                return null;
+            }
+            String[] partes = new String(Files.readAllBytes(arquivoCheckpoint),
+                                         StandardCharsets.UTF_8).trim().split("\\|", 2);
+            if (partes.length < 2) {
+                throw new IllegalArgumentException("formato inválido");
+            }
+            TipoSinal tipo = TipoSinal.valueOf(partes[0]);
+            if (!tipos.contains(tipo)) {
+                return null;
+            }
+            return new Checkpoint(tipo, LocalDateTime.parse(partes[1]));
+        } catch (IOException | DateTimeParseException | IllegalArgumentException e) {
+            // Checkpoint ilegível: recomeça do início, o que só custa uma varredura a mais
+            System.err.println("Checkpoint de retenção ignorado: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Grava em arquivo temporário e renomeia, para nunca deixar um checkpoint truncado
+    private void gravarCheckpoint(TipoSinal tipo, LocalDateTime cursor, Relatorio relatorio) {
+        try {
+            Path pai = arquivoCheckpoint.toAbsolutePath().getParent();
+            if (pai != null) {
+                Files.createDirectories(pai);
+            }
+            Path temporario = arquivoCheckpoint.resolveSibling(arquivoCheckpoint.getFileName() + ".tmp");
+            Files.write(temporario, (tipo.name() + "|" + cursor).getBytes(StandardCharsets.UTF_8));
+            Files.move(temporario, arquivoCheckpoint, StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            if (relatorio.falhas.isEmpty()) {
+                relatorio.falhas.add("Falha ao gravar checkpoint: " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Checkpoint {
+        private final TipoSinal tipo;
+        private final LocalDateTime cursor;
+
+        Checkpoint(TipoSinal tipo, LocalDateTime cursor) {
+            this.tipo = tipo;
+            this.cursor = cursor;
+        }
+    }
+
+    public static class Relatorio {
+        private int lotes;
+        private long leiturasCompactadas;
+        private long linhasHorarias;
+        private long bytesRemovidos;
+        private long bytesAgregados;
+        private long duracaoMs;
+        private boolean concluida;
+        private LocalDateTime retomadaDe;
+        private final List<String> falhas = new ArrayList<>();
+
+        public int getLotes() { return lotes; }
+        public long getLeiturasCompactadas() { return leiturasCompactadas; }
+        public long getLinhasHorarias() { return linhasHorarias; }
+        public long getBytesRemovidos() { return bytesRemovidos; }
+        public long getBytesAgregados() { return bytesAgregados; }
+        public long getDuracaoMs() { return duracaoMs; }
+        public boolean isConcluida() { return concluida; }
+        public LocalDateTime getRetomadaDe() { return retomadaDe; }
+        public List<String> getFalhas() { return falhas; }
+
+        // Dados de linha liberados (sem índices); o espaço volta a ser reutilizável após o VACUUM
+        public long getBytesLiberados() {
+            return bytesRemovidos - bytesAgregados;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Retenção: %d leituras compactadas em %d lotes | %d novas linhas horárias | " +
+                    "%d KB liberados | %s | %d ms",
+                leiturasCompactadas, lotes, linhasHorarias, getBytesLiberados() / 1024,
+                concluida ? "concluída" : "interrompida", duracaoMs);
+        }
+    }
+}
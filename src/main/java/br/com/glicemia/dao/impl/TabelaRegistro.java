@@ -0,0 +1,164 @@
+package br.com.glicemia.dao.impl;
+
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.Glicemia;
+import br.com.glicemia.model.vo.PesoCorporal;
+import br.com.glicemia.model.vo.PressaoArterial;
+import br.com.glicemia.model.vo.SinalVital;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+
+// Tabela de cada tipo de sinal (armazenamento vertical) e suas colunas próprias. As leituras de
+// todos os tipos são lidas em conjunto pela visão VW_REGISTRO, com as colunas da antiga tabela única.
+enum TabelaRegistro {
+
+    GLICEMIA(TipoSinal.GLICEMIA, "TB_REGISTRO_GLICEMIA", "valor_glicemia",
+             "valor_glicemia, em_jejum, tipo_insulina", "?::numeric, ?::boolean, ?::varchar",
+             "0", "em_jejum"),
+    PRESSAO(TipoSinal.PRESSAO, "TB_REGISTRO_PRESSAO", "sistolica",
+            "sistolica, diastolica", "?::smallint, ?::smallint",
+            "diastolica", "FALSE"),
+    PESO(TipoSinal.PESO, "TB_REGISTRO_PESO", "peso",
+         "peso, altura, imc", "?::numeric, ?::numeric, ?::numeric",
+         "0", "FALSE");
+
+    // id_registro vem do cliente (AlocadorIds), sem RETURNING de chaves geradas
+    private static final String COLUNAS_COMUNS =
+            "id_registro, id_paciente, data_hora, nivel_risco, observacoes, chave_idempotencia";
+    private static final String PARAMETROS_COMUNS =
+            "?::bigint, ?::bigint, ?::timestamp, ?::nivel_risco_enum, ?::varchar, ?::varchar";
+
+    // A chave enviada pelo dispositivo só é única por paciente. O índice único inclui data_hora
+    // (exigência do particionamento), então a mesma chave com a data_hora corrigida entra como
+    // outra leitura, e o reenvio de uma leitura já compactada pela retenção seria gravado de novo;
+    // este último caso é recusado por RegistroDAOImpl enquanto a retenção estiver ativa.
+    private static final String CONFLITO =
+            " ON CONFLICT (id_paciente, chave_idempotencia, data_hora) DO NOTHING";
+
+    final TipoSinal tipo;
+    final String nome;
+    // Coluna correspondente a valor_principal de VW_REGISTRO
+    final String colunaValor;
+    // Expressões das colunas auxiliares de carregarSerie
+    final String expressaoSecundario;
+    final String expressaoJejum;
+    // Sem linha inserida (chave repetida), a leitura existente é buscada por sqlBuscarPorChave
+    final String sqlInserir;
+    final String sqlInserirSeAusente;
+    final String sqlBuscarPorChave;
+    final String sqlConfirmarIds;
+
+    TabelaRegistro(TipoSinal tipo, String nome, String colunaValor, String colunasProprias,
+                   String parametrosProprios, String expressaoSecundario, String expressaoJejum) {
+        this.tipo = tipo;
+        this.nome = nome;
+        this.colunaValor = colunaValor;
+        this.expressaoSecundario = expressaoSecundario;
+        this.expressaoJejum = expressaoJejum;
+
+        String colunas = COLUNAS_COMUNS + ", " + colunasProprias;
+        String parametros = PARAMETROS_COMUNS + ", " + parametrosProprios;
+        this.sqlInserir = "INSERT INTO " + nome + " (" + colunas + ") VALUES (" + parametros + ")" + CONFLITO;
+
+        // Insere apenas se não houver leitura igual do paciente (mesma chave ou mesmo valor) na
+        // mesma data_hora e devolve o ID existente ou o novo, com a indicação de inserção.
+        // Parâmetros 1-4: data_hora, paciente, chave e valor da busca; 5 em diante: os de sqlInserir.
+        this.sqlInserirSeAusente =
+            "WITH existente AS (SELECT id_registro FROM " + nome + " WHERE data_hora = ? " +
+            "AND id_paciente = ? AND (chave_idempotencia = ? " +
+            "OR " + colunaValor + " = round(?::numeric, 2)) LIMIT 1), " +
+            "novo AS (INSERT INTO " + nome + " (" + colunas + ") " +
+            "SELECT * FROM (VALUES (" + parametros + ")) v " +
+            "WHERE NOT EXISTS (SELECT 1 FROM existente)" + CONFLITO + " RETURNING id_registro) " +
+            "SELECT id_registro, TRUE AS inserido FROM novo " +
+            "UNION ALL SELECT id_registro, FALSE FROM existente";
+
+        this.sqlBuscarPorChave = "SELECT id_registro FROM " + nome +
+            " WHERE id_paciente = ? AND chave_idempotencia = ? AND data_hora = ?";
+
+        // IDs de um lote que foram de fato gravados, na faixa de data_hora do lote
+        this.sqlConfirmarIds = "SELECT id_registro FROM " + nome +
+            " WHERE id_registro = ANY(?) AND data_hora BETWEEN ? AND ?";
+    }
+
+    static TabelaRegistro de(TipoSinal tipo) {
+        return valueOf(tipo.name());
+    }
+
+    static TabelaRegistro de(SinalVital sinal) {
+        if (sinal instanceof Glicemia) return GLICEMIA;
+        if (sinal instanceof PressaoArterial) return PRESSAO;
+        if (sinal instanceof PesoCorporal) return PESO;
+        throw new IllegalArgumentException("Tipo de sinal desconhecido: " + sinal.getClass().getName());
+    }
+
+    // Chave enviada pelo cliente ou, sem ela, derivada de paciente, tipo, data_hora e valor
+    // (com a precisão gravada no banco): 128 bits de SHA-256 em hexadecimal
+    String chave(SinalVital sinal) {
+        if (sinal.getChaveIdempotencia() != null) {
+            return sinal.getChaveIdempotencia();
+        }
+        String conteudo = sinal.getIdPaciente() + "|" + tipo.name() + "|" +
+            sinal.getDataHora().truncatedTo(ChronoUnit.MICROS) + "|" +
+            String.format(Locale.ROOT, "%.2f", RegistroDAOImpl.obterValorPrincipal(sinal));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(conteudo.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // Preenche os parâmetros de sqlInserir a partir da posição primeiro, com o ID já atribuído
+    // ao sinal; retorna a próxima posição
+    int preencher(PreparedStatement stmt, SinalVital sinal, int primeiro) throws SQLException {
+        return preencher(stmt, sinal, sinal.getIdRegistro(), primeiro);
+    }
+
+    int preencher(PreparedStatement stmt, SinalVital sinal, long idRegistro, int primeiro) throws SQLException {
+        int indice = primeiro;
+        stmt.setLong(indice++, idRegistro);
+        stmt.setLong(indice++, sinal.getIdPaciente());
+        stmt.setTimestamp(indice++, Timestamp.valueOf(sinal.getDataHora()));
+        stmt.setString(indice++, sinal.getNivelRisco() != null ? sinal.getNivelRisco().name() : "NORMAL");
+        stmt.setString(indice++, sinal.getObservacoes());
+        stmt.setString(indice++, chave(sinal));
+
+        switch (this) {
+            case GLICEMIA:
+                Glicemia glicemia = (Glicemia) sinal;
+                stmt.setDouble(indice++, glicemia.getValorGlicemia());
+                stmt.setBoolean(indice++, glicemia.isEmJejum());
+                stmt.setString(indice++, glicemia.getTipoInsulina());
+                break;
+            case PRESSAO:
+                PressaoArterial pressao = (PressaoArterial) sinal;
+                stmt.setInt(indice++, pressao.getSistolica());
+                stmt.setInt(indice++, pressao.getDiastolica());
+                break;
+            case PESO:
+                PesoCorporal peso = (PesoCorporal) sinal;
+                stmt.setDouble(indice++, peso.getPeso());
+                stmt.setDouble(indice++, peso.getAltura());
+                if (peso.getImc() != null) {
+                    stmt.setDouble(indice++, peso.getImc());
+                } else {
+                    stmt.setNull(indice++, Types.NUMERIC);
+                }
+                break;
+        }
+        return indice;
+    }
+}
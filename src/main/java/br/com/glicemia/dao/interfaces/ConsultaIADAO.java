@@ -0,0 +1,11 @@
+package br.com.glicemia.dao.interfaces;
+
+import br.com.glicemia.model.vo.ConsultaIA;
+import java.sql.SQLException;
+import java.util.List;
+
+public interface ConsultaIADAO {
+
+    // Grava todas as consultas em uma única transação
+    void inserirLote(List<ConsultaIA> consultas) throws SQLException;
+}
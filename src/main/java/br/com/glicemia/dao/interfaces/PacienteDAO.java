@@ -2,15 +2,29 @@ package br.com.glicemia.dao.interfaces;
 
 import br.com.glicemia.model.vo.Paciente;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface PacienteDAO {
 
     Long inserir(Paciente paciente) throws SQLException;
 
-    void atualizar(Paciente paciente) throws SQLException;
+    // Insere apenas se o CPF ainda não estiver cadastrado; null se já estiver
+    Long inserirSeCpfLivre(Paciente paciente) throws SQLException;
 
-    void deletar(Long idPaciente) throws SQLException;
+    // Importação em lote: status por paciente (1 = inserido, 0 = CPF já cadastrado,
+    // Statement.EXECUTE_FAILED = rejeitado). O ID é atribuído apenas aos pacientes inseridos.
+    int[] inserirLoteSeCpfLivre(List<Paciente> pacientes) throws SQLException;
+
+    // Dentre os CPFs informados, os que já estão cadastrados (uma única consulta)
+    Set<String> buscarCpfsExistentes(Collection<String> cpfs) throws SQLException;
+
+    // false se o paciente não existir
+    boolean atualizar(Paciente paciente) throws SQLException;
+
+    // false se o paciente não existir
+    boolean deletar(Long idPaciente) throws SQLException;
 
     Paciente buscarPorId(Long idPaciente) throws SQLException;
 
@@ -1,21 +1,56 @@
 package br.com.glicemia.dao.interfaces;
 
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.StatusInsercao;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.CursorRegistro;
+import br.com.glicemia.model.vo.OcorrenciaRisco;
+import br.com.glicemia.model.vo.PaginaRegistros;
+import br.com.glicemia.model.vo.ResumoEstatistico;
+import br.com.glicemia.model.vo.SerieSinalVital;
 import br.com.glicemia.model.vo.SinalVital;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface RegistroDAO {
 
     Long inserir(SinalVital sinalVital) throws SQLException;
 
+    // Um status por item, na ordem de entrada
+    StatusInsercao[] inserirLote(List<SinalVital> sinais) throws SQLException;
+
     SinalVital buscarPorId(Long idRegistro) throws SQLException;
 
     List<SinalVital> listarPorPaciente(Long idPaciente) throws SQLException;
 
+    PaginaRegistros listarPagina(Long idPaciente, CursorRegistro cursor, int tamanhoPagina) throws SQLException;
+
+    List<SinalVital> listarApos(Long idPaciente, CursorRegistro marca, int limite) throws SQLException;
+
+    // Só leituras individuais: as NORMAL já compactadas em agregados horários não aparecem
     List<SinalVital> listarPorPeriodo(Long idPaciente, LocalDateTime inicio, LocalDateTime fim) throws SQLException;
 
     List<SinalVital> buscarUltimosRegistros(Long idPaciente, int limite) throws SQLException;
 
+    // Últimas leituras de vários pacientes de uma vez, na ordem dos IDs informados; pacientes sem
+    // leituras aparecem com lista vazia
+    Map<Long, List<SinalVital>> buscarUltimosRegistrosPorPacientes(Collection<Long> idsPacientes, int limite)
+            throws SQLException;
+
     int contarRegistrosCriticos(Long idPaciente) throws SQLException;
+
+    // Varredura da coorte: pacientes com leituras do nível (ALTO ou CRITICO) desde o instante,
+    // com a contagem e a leitura mais recente de cada um, das ocorrências mais recentes às mais antigas
+    List<OcorrenciaRisco> buscarOcorrenciasRisco(NivelRisco nivel, LocalDateTime desde) throws SQLException;
+
+    // Inclui as leituras compactadas em agregados horários
+    ResumoEstatistico calcularResumo(Long idPaciente) throws SQLException;
+
+    // Leituras de um tipo em [inicio, fim), em ordem cronológica, como arrays primitivos. Se o
+    // período alcança leituras compactadas, começa depois delas (SerieSinalVital.getInicioCompleto)
+    SerieSinalVital carregarSerie(Long idPaciente, TipoSinal tipo, LocalDateTime inicio, LocalDateTime fim)
+            throws SQLException;
 }
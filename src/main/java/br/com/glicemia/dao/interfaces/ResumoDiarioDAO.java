@@ -0,0 +1,15 @@
+package br.com.glicemia.dao.interfaces;
+
+import br.com.glicemia.model.vo.ResumoDiario;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ResumoDiarioDAO {
+
+    List<ResumoDiario> listarPorPeriodo(Long idPaciente, LocalDate inicio, LocalDate fim) throws SQLException;
+
+    void reconstruir(Long idPaciente, LocalDate inicio, LocalDate fim) throws SQLException;
+
+    void reconstruirTudo() throws SQLException;
+}
@@ -0,0 +1,20 @@
+package br.com.glicemia.model;
+
+// Resultado de cada item de RegistroDAO.inserirLote
+public enum StatusInsercao {
+
+    INSERIDO,
+    // Reenvio: a leitura com a mesma chave de idempotência já estava gravada
+    DUPLICADO,
+    // Rejeitado pelo banco (ex.: paciente inexistente); reenviar não resolve
+    FALHOU,
+    // Aceito no log local (write-behind ou modo offline); a gravação no banco vem depois
+    PENDENTE,
+    // Não gravado: o lote parou por uma falha que não é do item (conexão, lock, timeout) e o
+    // item pode ser reenviado
+    INTERROMPIDO;
+
+    public boolean isGravado() {
+        return this == INSERIDO || this == DUPLICADO;
+    }
+}
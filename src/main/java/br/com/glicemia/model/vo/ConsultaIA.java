@@ -0,0 +1,55 @@
+package br.com.glicemia.model.vo;
+
+import java.time.LocalDateTime;
+
+// Uma chamada a um serviço de IA, como registrada em TB_CONSULTA_IA. Guarda apenas tamanhos
+// do prompt e da resposta, não o texto.
+public class ConsultaIA {
+
+    public static final String TIPO_RECOMENDACAO = "RECOMENDACAO";
+    public static final String TIPO_CHAT = "CHAT";
+
+    private final Long idPaciente;
+    private final LocalDateTime dataConsulta;
+    private final String tipoConsulta;
+    private final String provedor;
+    private final boolean fallback;
+    private final int tamanhoPrompt;
+    private final int tamanhoResposta;
+    private final long tempoRespostaMs;
+    private final boolean sucesso;
+    private final String erro;
+
+    public ConsultaIA(Long idPaciente, LocalDateTime dataConsulta, String tipoConsulta, String provedor,
+                      boolean fallback, int tamanhoPrompt, int tamanhoResposta, long tempoRespostaMs,
+                      boolean sucesso, String erro) {
+        this.idPaciente = idPaciente;
+        this.dataConsulta = dataConsulta;
+        this.tipoConsulta = tipoConsulta;
+        this.provedor = provedor;
+        this.fallback = fallback;
+        this.tamanhoPrompt = tamanhoPrompt;
+        this.tamanhoResposta = tamanhoResposta;
+        this.tempoRespostaMs = tempoRespostaMs;
+        this.sucesso = sucesso;
+        this.erro = erro;
+    }
+
+    public Long getIdPaciente() { return idPaciente; }
+    public LocalDateTime getDataConsulta() { return dataConsulta; }
+    public String getTipoConsulta() { return tipoConsulta; }
+    public String getProvedor() { return provedor; }
+    public boolean isFallback() { return fallback; }
+    public int getTamanhoPrompt() { return tamanhoPrompt; }
+    public int getTamanhoResposta() { return tamanhoResposta; }
+    public long getTempoRespostaMs() { return tempoRespostaMs; }
+    public boolean isSucesso() { return sucesso; }
+    public String getErro() { return erro; }
+
+    @Override
+    public String toString() {
+        return String.format("%s | %s via %s%s | %d ms | %s",
+            dataConsulta, tipoConsulta, provedor, fallback ? " (fallback)" : "",
+            tempoRespostaMs, sucesso ? "sucesso" : "erro: " + erro);
+    }
+}
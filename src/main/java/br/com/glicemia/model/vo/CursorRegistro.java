@@ -0,0 +1,27 @@
+package br.com.glicemia.model.vo;
+
+import java.time.LocalDateTime;
+
+// Posição de continuação na paginação por chave (keyset) do histórico: último (data_hora, id_registro) lido.
+public class CursorRegistro {
+
+    private final LocalDateTime dataHora;
+    private final Long idRegistro;
+
+    public CursorRegistro(LocalDateTime dataHora, Long idRegistro) {
+        this.dataHora = dataHora;
+        this.idRegistro = idRegistro;
+    }
+
+    public static CursorRegistro aPartirDe(SinalVital sinal) {
+        return new CursorRegistro(sinal.getDataHora(), sinal.getIdRegistro());
+    }
+
+    public LocalDateTime getDataHora() {
+        return dataHora;
+    }
+
+    public Long getIdRegistro() {
+        return idRegistro;
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.glicemia.model.vo;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import java.time.LocalDateTime;
+
+// Leitura ALTO/CRITICO recém-gravada, como publicada no canal de notificações do banco.
+public class EventoRisco {
+
+    private final Long idRegistro;
+    private final Long idPaciente;
+    private final TipoSinal tipoSinal;
+    private final NivelRisco nivelRisco;
+    private final double valorPrincipal;
+    private final LocalDateTime dataHora;
+
+    public EventoRisco(Long idRegistro, Long idPaciente, TipoSinal tipoSinal, NivelRisco nivelRisco,
+                       double valorPrincipal, LocalDateTime dataHora) {
+        this.idRegistro = idRegistro;
+        this.idPaciente = idPaciente;
+        this.tipoSinal = tipoSinal;
+        this.nivelRisco = nivelRisco;
+        this.valorPrincipal = valorPrincipal;
+        this.dataHora = dataHora;
+    }
+
+    public Long getIdRegistro() { return idRegistro; }
+    public Long getIdPaciente() { return idPaciente; }
+    public TipoSinal getTipoSinal() { return tipoSinal; }
+    public NivelRisco getNivelRisco() { return nivelRisco; }
+    public double getValorPrincipal() { return valorPrincipal; }
+    public LocalDateTime getDataHora() { return dataHora; }
+
+    @Override
+    public String toString() {
+        return String.format("Paciente %d: %s %s (%.2f) em %s",
+            idPaciente, tipoSinal, nivelRisco, valorPrincipal, dataHora);
+    }
+}
@@ -0,0 +1,31 @@
+package br.com.glicemia.model.vo;
+
+import br.com.glicemia.model.NivelRisco;
+
+// Resultado da varredura da coorte: leituras de um nível de risco de um paciente em uma janela,
+// com a mais recente delas.
+public class OcorrenciaRisco {
+
+    private final Long idPaciente;
+    private final NivelRisco nivelRisco;
+    private final int quantidade;
+    private final SinalVital ultimaLeitura;
+
+    public OcorrenciaRisco(Long idPaciente, NivelRisco nivelRisco, int quantidade, SinalVital ultimaLeitura) {
+        this.idPaciente = idPaciente;
+        this.nivelRisco = nivelRisco;
+        this.quantidade = quantidade;
+        this.ultimaLeitura = ultimaLeitura;
+    }
+
+    public Long getIdPaciente() { return idPaciente; }
+    public NivelRisco getNivelRisco() { return nivelRisco; }
+    public int getQuantidade() { return quantidade; }
+    public SinalVital getUltimaLeitura() { return ultimaLeitura; }
+
+    @Override
+    public String toString() {
+        return String.format("Paciente %d: %d leitura(s) %s | última em %s: %s",
+            idPaciente, quantidade, nivelRisco, ultimaLeitura.getDataHora(), ultimaLeitura.getDescricao());
+    }
+}
@@ -0,0 +1,32 @@
+package br.com.glicemia.model.vo;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PaginaRegistros {
+
+    private final List<SinalVital> registros;
+    private final CursorRegistro proximoCursor;
+
+    public PaginaRegistros(List<SinalVital> registros, CursorRegistro proximoCursor) {
+        this.registros = Collections.unmodifiableList(registros);
+        this.proximoCursor = proximoCursor;
+    }
+
+    public List<SinalVital> getRegistros() {
+        return registros;
+    }
+
+    // Cursor para buscar a página seguinte, ou null quando esta é a última.
+    public CursorRegistro getProximoCursor() {
+        return proximoCursor;
+    }
+
+    public boolean temProximaPagina() {
+        return proximoCursor != null;
+    }
+
+    public boolean isVazia() {
+        return registros.isEmpty();
+    }
+}
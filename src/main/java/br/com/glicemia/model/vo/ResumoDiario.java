@@ -0,0 +1,70 @@
+package br.com.glicemia.model.vo;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import java.time.LocalDate;
+
+// Linha do rollup diário (TB_REGISTRO_DIARIO): estatísticas de um tipo de sinal em um dia.
+public class ResumoDiario {
+
+    private final Long idPaciente;
+    private final TipoSinal tipoSinal;
+    private final LocalDate dia;
+    private final int quantidade;
+    private final double minimo;
+    private final double maximo;
+    private final double soma;
+    private final int quantidadeNormal;
+    private final int quantidadeAtencao;
+    private final int quantidadeAlto;
+    private final int quantidadeCritico;
+
+    public ResumoDiario(Long idPaciente, TipoSinal tipoSinal, LocalDate dia, int quantidade,
+                        double minimo, double maximo, double soma, int quantidadeNormal,
+                        int quantidadeAtencao, int quantidadeAlto, int quantidadeCritico) {
+        this.idPaciente = idPaciente;
+        this.tipoSinal = tipoSinal;
+        this.dia = dia;
+        this.quantidade = quantidade;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.soma = soma;
+        this.quantidadeNormal = quantidadeNormal;
+        this.quantidadeAtencao = quantidadeAtencao;
+        this.quantidadeAlto = quantidadeAlto;
+        this.quantidadeCritico = quantidadeCritico;
+    }
+
+    public double getMedia() {
+        return quantidade > 0 ? soma / quantidade : 0.0;
+    }
+
+    public int contarPorRisco(NivelRisco risco) {
+        switch (risco) {
+            case NORMAL:
+                return quantidadeNormal;
+            case ATENCAO:
+                return quantidadeAtencao;
+            case ALTO:
+                return quantidadeAlto;
+            case CRITICO:
+                return quantidadeCritico;
+            default:
+                return 0;
+        }
+    }
+
+    public Long getIdPaciente() { return idPaciente; }
+    public TipoSinal getTipoSinal() { return tipoSinal; }
+    public LocalDate getDia() { return dia; }
+    public int getQuantidade() { return quantidade; }
+    public double getMinimo() { return minimo; }
+    public double getMaximo() { return maximo; }
+    public double getSoma() { return soma; }
+
+    @Override
+    public String toString() {
+        return String.format("%s | %s: %d registros | mín %.1f | máx %.1f | média %.1f | críticos %d",
+            dia, tipoSinal.getDescricao(), quantidade, minimo, maximo, getMedia(), quantidadeCritico);
+    }
+}
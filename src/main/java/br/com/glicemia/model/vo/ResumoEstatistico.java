@@ -0,0 +1,118 @@
+package br.com.glicemia.model.vo;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import java.util.Collections;
+import java.util.List;
+
+// Estatísticas de um paciente agregadas no banco por tipo de sinal e nível de risco.
+public class ResumoEstatistico {
+
+    private final Long idPaciente;
+    private final List<Grupo> grupos;
+
+    public ResumoEstatistico(Long idPaciente, List<Grupo> grupos) {
+        this.idPaciente = idPaciente;
+        this.grupos = Collections.unmodifiableList(grupos);
+    }
+
+    public Long getIdPaciente() {
+        return idPaciente;
+    }
+
+    public List<Grupo> getGrupos() {
+        return grupos;
+    }
+
+    public boolean isVazio() {
+        return getTotalRegistros() == 0;
+    }
+
+    public long getTotalRegistros() {
+        long total = 0;
+        for (Grupo grupo : grupos) {
+            total += grupo.getQuantidade();
+        }
+        return total;
+    }
+
+    public long contarPorRisco(NivelRisco risco) {
+        long total = 0;
+        for (Grupo grupo : grupos) {
+            if (grupo.getNivelRisco() == risco) {
+                total += grupo.getQuantidade();
+            }
+        }
+        return total;
+    }
+
+    public long contarPorTipo(TipoSinal tipo) {
+        long total = 0;
+        for (Grupo grupo : grupos) {
+            if (grupo.getTipoSinal() == tipo) {
+                total += grupo.getQuantidade();
+            }
+        }
+        return total;
+    }
+
+    // Mínimo do valor principal (glicemia, sistólica ou peso) para o tipo, ou null sem registros.
+    public Double getMinimo(TipoSinal tipo) {
+        Double minimo = null;
+        for (Grupo grupo : grupos) {
+            if (grupo.getTipoSinal() == tipo && (minimo == null || grupo.getMinimo() < minimo)) {
+                minimo = grupo.getMinimo();
+            }
+        }
+        return minimo;
+    }
+
+    public Double getMaximo(TipoSinal tipo) {
+        Double maximo = null;
+        for (Grupo grupo : grupos) {
+            if (grupo.getTipoSinal() == tipo && (maximo == null || grupo.getMaximo() > maximo)) {
+                maximo = grupo.getMaximo();
+            }
+        }
+        return maximo;
+    }
+
+    // Média ponderada pelas quantidades de cada grupo de risco.
+    public Double getMedia(TipoSinal tipo) {
+        double soma = 0;
+        long quantidade = 0;
+        for (Grupo grupo : grupos) {
+            if (grupo.getTipoSinal() == tipo) {
+                soma += grupo.getMedia() * grupo.getQuantidade();
+                quantidade += grupo.getQuantidade();
+            }
+        }
+        return quantidade > 0 ? soma / quantidade : null;
+    }
+
+    public static class Grupo {
+        private final TipoSinal tipoSinal;
+        private final NivelRisco nivelRisco;
+        private final long quantidade;
+        private final double minimo;
+        private final double maximo;
+        private final double media;
+
+        public Grupo(TipoSinal tipoSinal, NivelRisco nivelRisco, long quantidade,
+                     double minimo, double maximo, double media) {
+            this.tipoSinal = tipoSinal;
+            this.nivelRisco = nivelRisco;
+            this.quantidade = quantidade;
+            this.minimo = minimo;
+            this.maximo = maximo;
+            this.media = media;
+        }
+
+        public TipoSinal getTipoSinal() { return tipoSinal; }
+        public NivelRisco getNivelRisco() { return nivelRisco; }
+        public long getQuantidade() { return quantidade; }
+        public double getMinimo() { return minimo; }
+        public double getMaximo() { return maximo; }
+        public double getMedia() { return media; }
+    }
+}
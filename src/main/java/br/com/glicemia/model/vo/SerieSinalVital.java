@@ -0,0 +1,299 @@
+package br.com.glicemia.model.vo;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+// Série temporal de um tipo de sinal de um paciente em arrays primitivos, em ordem cronológica.
+// Cada leitura ocupa de 17 a 21 bytes (instante, valor, risco e, conforme o tipo, diastólica ou
+// jejum), contra mais de 150 bytes de um SinalVital, e as agregações são laços simples sobre
+// arrays. Os instantes são milissegundos da data/hora local tomada como UTC, como em data_hora.
+public class SerieSinalVital {
+
+    private static final int CAPACIDADE_INICIAL = 64;
+
+    private final Long idPaciente;
+    private final TipoSinal tipo;
+
+    private long[] instantes;
+    private double[] valores;
+    private byte[] riscos;
+    // Diastólica (apenas PRESSAO)
+    private int[] secundarios;
+    // Apenas GLICEMIA
+    private boolean[] emJejum;
+    private int tamanho;
+    // Início efetivo quando o período pedido alcança leituras compactadas em agregados horários
+    // (a série não as contém); null se o período inteiro está presente
+    private LocalDateTime inicioCompleto;
+
+    public SerieSinalVital(Long idPaciente, TipoSinal tipo) {
+        this(idPaciente, tipo, CAPACIDADE_INICIAL);
+    }
+
+    public SerieSinalVital(Long idPaciente, TipoSinal tipo, int capacidade) {
+        this.idPaciente = idPaciente;
+        this.tipo = tipo;
+        int inicial = Math.max(capacidade, 1);
+        this.instantes = new long[inicial];
+        this.valores = new double[inicial];
+        this.riscos = new byte[inicial];
+        this.secundarios = tipo == TipoSinal.PRESSAO ? new int[inicial] : null;
+        this.emJejum = tipo == TipoSinal.GLICEMIA ? new boolean[inicial] : null;
+    }
+
+    // Monta a série a partir de objetos já carregados, ignorando os de outros tipos.
+    public static SerieSinalVital aPartirDe(Long idPaciente, TipoSinal tipo, List<SinalVital> sinais) {
+        SerieSinalVital serie = new SerieSinalVital(idPaciente, tipo, sinais.size());
+        for (int i = sinais.size() - 1; i >= 0; i--) {
+            SinalVital sinal = sinais.get(i);
+            NivelRisco risco = sinal.getNivelRisco() != null ? sinal.getNivelRisco() : NivelRisco.NORMAL;
+            if (tipo == TipoSinal.GLICEMIA && sinal instanceof Glicemia) {
+                Glicemia glicemia = (Glicemia) sinal;
+                serie.adicionar(paraInstante(sinal.getDataHora()), glicemia.getValorGlicemia(),
+                                0, risco, glicemia.isEmJejum());
+            } else if (tipo == TipoSinal.PRESSAO && sinal instanceof PressaoArterial) {
+                PressaoArterial pressao = (PressaoArterial) sinal;
+                serie.adicionar(paraInstante(sinal.getDataHora()), pressao.getSistolica(),
+                                pressao.getDiastolica(), risco, false);
+            } else if (tipo == TipoSinal.PESO && sinal instanceof PesoCorporal) {
+                serie.adicionar(paraInstante(sinal.getDataHora()), ((PesoCorporal) sinal).getPeso(),
+                                0, risco, false);
+            }
+        }
+        serie.ordenarSeNecessario();
+        return serie;
+    }
+
+    // Acrescenta uma leitura ao fim da série; quem carrega deve fornecer em ordem cronológica
+    // (ou chamar ordenarSeNecessario ao final). secundario e emJejum são ignorados nos tipos
+    // que não os usam.
+    public void adicionar(long instante, double valor, int secundario, NivelRisco risco, boolean jejum) {
+        if (tamanho == instantes.length) {
+            crescer();
+        }
+        instantes[tamanho] = instante;
+        valores[tamanho] = valor;
+        riscos[tamanho] = (byte) risco.ordinal();
+        if (secundarios != null) {
+            secundarios[tamanho] = secundario;
+        }
+        if (emJejum != null) {
+            emJejum[tamanho] = jejum;
+        }
+        tamanho++;
+    }
+
+    // Reordena por instante apenas se alguma leitura foi acrescentada fora de ordem
+    public void ordenarSeNecessario() {
+        for (int i = 1; i < tamanho; i++) {
+            if (instantes[i] < instantes[i - 1]) {
+                ordenar();
+                return;
+            }
+        }
+    }
+
+    private void ordenar() {
+        Integer[] ordem = new Integer[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            ordem[i] = i;
+        }
+        Arrays.sort(ordem, (a, b) -> Long.compare(instantes[a], instantes[b]));
+
+        long[] novosInstantes = new long[instantes.length];
+        double[] novosValores = new double[valores.length];
+        byte[] novosRiscos = new byte[riscos.length];
+        int[] novosSecundarios = secundarios != null ? new int[secundarios.length] : null;
+        boolean[] novoJejum = emJejum != null ? new boolean[emJejum.length] : null;
+        for (int i = 0; i < tamanho; i++) {
+            int origem = ordem[i];
+            novosInstantes[i] = instantes[origem];
+            novosValores[i] = valores[origem];
+            novosRiscos[i] = riscos[origem];
+            if (novosSecundarios != null) novosSecundarios[i] = secundarios[origem];
+            if (novoJejum != null) novoJejum[i] = emJejum[origem];
+        }
+        instantes = novosInstantes;
+        valores = novosValores;
+        riscos = novosRiscos;
+        secundarios = novosSecundarios;
+        emJejum = novoJejum;
+    }
+
+    // Libera a capacidade excedente após a carga
+    public void compactar() {
+        if (tamanho < instantes.length) {
+            redimensionar(Math.max(tamanho, 1));
+        }
+    }
+
+    private void crescer() {
+        redimensionar(instantes.length * 2);
+    }
+
+    private void redimensionar(int capacidade) {
+        instantes = Arrays.copyOf(instantes, capacidade);
+        valores = Arrays.copyOf(valores, capacidade);
+        riscos = Arrays.copyOf(riscos, capacidade);
+        if (secundarios != null) secundarios = Arrays.copyOf(secundarios, capacidade);
+        if (emJejum != null) emJejum = Arrays.copyOf(emJejum, capacidade);
+    }
+
+    public Long getIdPaciente() { return idPaciente; }
+    public TipoSinal getTipo() { return tipo; }
+    public int getTamanho() { return tamanho; }
+    public boolean isVazia() { return tamanho == 0; }
+
+    public LocalDateTime getInicioCompleto() { return inicioCompleto; }
+    public void setInicioCompleto(LocalDateTime inicioCompleto) { this.inicioCompleto = inicioCompleto; }
+
+    public long getInstante(int indice) { return instantes[indice]; }
+    public double getValor(int indice) { return valores[indice]; }
+    public NivelRisco getRisco(int indice) { return NivelRisco.values()[riscos[indice]]; }
+
+    public int getSecundario(int indice) {
+        return secundarios != null ? secundarios[indice] : 0;
+    }
+
+    public boolean isEmJejum(int indice) {
+        return emJejum != null && emJejum[indice];
+    }
+
+    public LocalDateTime getDataHora(int indice) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(instantes[indice], 1000L),
+            (int) Math.floorMod(instantes[indice], 1000L) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    public static long paraInstante(LocalDateTime dataHora) {
+        return dataHora.toEpochSecond(ZoneOffset.UTC) * 1000L + dataHora.getNano() / 1_000_000;
+    }
+
+    // Memória ocupada pelos arrays (capacidade, não apenas o tamanho)
+    public long getBytesEstimados() {
+        long porLeitura = 8 + 8 + 1 + (secundarios != null ? 4 : 0) + (emJejum != null ? 1 : 0);
+        return 64 + porLeitura * instantes.length;
+    }
+
+    // Primeiro índice com instante >= dataHora (tamanho se não houver)
+    public int indiceAPartirDe(LocalDateTime dataHora) {
+        int indice = Arrays.binarySearch(instantes, 0, tamanho, paraInstante(dataHora));
+        if (indice < 0) {
+            return -indice - 1;
+        }
+        while (indice > 0 && instantes[indice - 1] == instantes[indice]) {
+            indice--;
+        }
+        return indice;
+    }
+
+    // Agregações sobre o intervalo de índices [de, ate). As versões sem intervalo cobrem a série toda.
+
+    public double soma(int de, int ate) {
+        double soma = 0;
+        for (int i = de; i < ate; i++) {
+            soma += valores[i];
+        }
+        return soma;
+    }
+
+    public double media() {
+        return media(0, tamanho);
+    }
+
+    public double media(int de, int ate) {
+        return ate > de ? soma(de, ate) / (ate - de) : Double.NaN;
+    }
+
+    // Média entre dois instantes (fim exclusivo), localizados por busca binária
+    public double media(LocalDateTime inicio, LocalDateTime fim) {
+        return media(indiceAPartirDe(inicio), indiceAPartirDe(fim));
+    }
+
+    public double minimo() {
+        double minimo = Double.NaN;
+        if (tamanho > 0) {
+            minimo = valores[0];
+            for (int i = 1; i < tamanho; i++) {
+                minimo = Math.min(minimo, valores[i]);
+            }
+        }
+        return minimo;
+    }
+
+    public double maximo() {
+        double maximo = Double.NaN;
+        if (tamanho > 0) {
+            maximo = valores[0];
+            for (int i = 1; i < tamanho; i++) {
+                maximo = Math.max(maximo, valores[i]);
+            }
+        }
+        return maximo;
+    }
+
+    // Desvio padrão amostral em duas passadas, numericamente estável para séries longas
+    public double desvioPadrao() {
+        if (tamanho < 2) {
+            return Double.NaN;
+        }
+        double media = media();
+        double quadrados = 0;
+        for (int i = 0; i < tamanho; i++) {
+            double desvio = valores[i] - media;
+            quadrados += desvio * desvio;
+        }
+        return Math.sqrt(quadrados / (tamanho - 1));
+    }
+
+    // Coeficiente de variação (%): variabilidade relativa, usada para glicemia
+    public double coeficienteVariacao() {
+        return desvioPadrao() / media() * 100.0;
+    }
+
+    public double mediaSecundaria() {
+        if (secundarios == null || tamanho == 0) {
+            return Double.NaN;
+        }
+        long soma = 0;
+        for (int i = 0; i < tamanho; i++) {
+            soma += secundarios[i];
+        }
+        return (double) soma / tamanho;
+    }
+
+    // Quantidade por nível de risco, indexada pelo ordinal de NivelRisco
+    public int[] contarPorRisco() {
+        int[] contagem = new int[NivelRisco.values().length];
+        for (int i = 0; i < tamanho; i++) {
+            contagem[riscos[i]]++;
+        }
+        return contagem;
+    }
+
+    public int contarNaFaixa(double minimo, double maximo) {
+        int contagem = 0;
+        for (int i = 0; i < tamanho; i++) {
+            double valor = valores[i];
+            if (valor >= minimo && valor <= maximo) {
+                contagem++;
+            }
+        }
+        return contagem;
+    }
+
+    // Percentual de leituras dentro da faixa (ex.: 70-180 mg/dL, o "tempo no alvo" da glicemia)
+    public double percentualNaFaixa(double minimo, double maximo) {
+        return tamanho > 0 ? contarNaFaixa(minimo, maximo) * 100.0 / tamanho : Double.NaN;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SerieSinalVital[paciente=%d, tipo=%s, leituras=%d, ~%d KB]",
+            idPaciente, tipo, tamanho, getBytesEstimados() / 1024);
+    }
+}
@@ -13,6 +13,9 @@ public abstract class SinalVital implements Diagnosticavel {
     private String unidadeMedida;
     private String observacoes;
     private NivelRisco nivelRisco;
+    // Chave de idempotência enviada pelo dispositivo/gateway; sem ela, a gravação deriva uma
+    // de paciente, tipo, data_hora e valor
+    private String chaveIdempotencia;
 
     public SinalVital(Long idPaciente, String unidadeMedida) {
         this.idPaciente = idPaciente;
@@ -64,6 +67,17 @@ public abstract class SinalVital implements Diagnosticavel {
         this.observacoes = observacoes;
     }
 
+    public String getChaveIdempotencia() {
+        return chaveIdempotencia;
+    }
+
+    public void setChaveIdempotencia(String chaveIdempotencia) {
+        if (chaveIdempotencia != null && chaveIdempotencia.length() > 64) {
+            throw new IllegalArgumentException("Chave de idempotência com mais de 64 caracteres");
+        }
+        this.chaveIdempotencia = chaveIdempotencia;
+    }
+
     protected abstract void validar() throws ValorInvalidoException;
 
     public abstract String getDescricao();
@@ -1,5 +1,7 @@
 package br.com.glicemia.service;
 
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
 import br.com.glicemia.model.vo.*;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -117,4 +119,47 @@ public class ContextoIA {
         resumo.append(String.format("  - Peso: %d\n", countPeso));
         return resumo.toString();
     }
+
+    // Resumo de um histórico longo a partir da série primitiva, sem materializar SinalVital.
+    public static String criarResumoEstatistico(SerieSinalVital serie) {
+        if (serie == null || serie.isVazia()) {
+            return "Sem dados estatísticos disponíveis.";
+        }
+
+        TipoSinal tipo = serie.getTipo();
+        StringBuilder resumo = new StringBuilder();
+        resumo.append("═══ RESUMO ESTATÍSTICO (").append(tipo.getDescricao()).append(") ═══\n");
+        resumo.append(String.format("Período: %s a %s | %d registros\n",
+            serie.getDataHora(0).format(FORMATTER),
+            serie.getDataHora(serie.getTamanho() - 1).format(FORMATTER),
+            serie.getTamanho()));
+        if (serie.getInicioCompleto() != null) {
+            resumo.append(String.format("(Leituras anteriores a %s foram compactadas em agregados horários " +
+                "e não entram nesta análise)\n", serie.getInicioCompleto().format(FORMATTER)));
+        }
+
+        if (tipo == TipoSinal.PRESSAO) {
+            resumo.append(String.format("Média: %.0f/%.0f %s | sistólica mín %.0f | máx %.0f\n",
+                serie.media(), serie.mediaSecundaria(), tipo.getUnidadePadrao(),
+                serie.minimo(), serie.maximo()));
+        } else {
+            resumo.append(String.format("Média: %.1f %s | mín %.1f | máx %.1f | desvio padrão %.1f\n",
+                serie.media(), tipo.getUnidadePadrao(), serie.minimo(), serie.maximo(),
+                serie.getTamanho() > 1 ? serie.desvioPadrao() : 0.0));
+        }
+
+        if (tipo == TipoSinal.GLICEMIA) {
+            resumo.append(String.format("Tempo no alvo (70-180 mg/dL): %.1f%% | variabilidade (CV): %.1f%%\n",
+                serie.percentualNaFaixa(70, 180),
+                serie.getTamanho() > 1 ? serie.coeficienteVariacao() : 0.0));
+        }
+
+        int[] porRisco = serie.contarPorRisco();
+        for (NivelRisco risco : NivelRisco.values()) {
+            if (porRisco[risco.ordinal()] > 0) {
+                resumo.append(String.format("  - %s: %d\n", risco.getDescricao(), porRisco[risco.ordinal()]));
+            }
+        }
+        return resumo.toString();
+    }
 }
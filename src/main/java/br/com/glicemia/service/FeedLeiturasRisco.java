@@ -0,0 +1,244 @@
+package br.com.glicemia.service;
+
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.EventoRisco;
+import br.com.glicemia.util.DatabaseConnection;
+import br.com.glicemia.util.EnvLoader;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Feed em tempo real das leituras ALTO/CRITICO. Um trigger nas tabelas de leituras publica cada uma no
+// canal registro_risco (NOTIFY, entregue no commit); uma thread em segundo plano mantém uma conexão
+// dedicada em LISTEN, aguarda notificações por getNotifications e repassa cada evento aos
+// assinantes do processo, que são chamados nessa thread e devem retornar rápido.
+// NOTIFY não é durável: eventos publicados enquanto o listener está desconectado se perdem.
+// O feed é um canal de alerta; as tabelas de leituras continuam sendo a fonte da verdade.
+public class FeedLeiturasRisco {
+
+    public static final String CANAL = "registro_risco";
+
+    private static final long ESPERA_MAXIMA_RECONEXAO_MS = 60_000;
+
+    private static FeedLeiturasRisco instancia;
+    private static boolean instanciaVerificada = false;
+
+    private final List<Consumer<EventoRisco>> assinantes = new CopyOnWriteArrayList<>();
+    private final int esperaNotificacaoMs;
+    private final Thread escuta;
+
+    private volatile boolean encerrando = false;
+    private volatile boolean conectado = false;
+    // Acessado apenas pela thread de escuta
+    private Connection conexao;
+
+    private final AtomicLong recebidos = new AtomicLong();
+    private final AtomicLong invalidos = new AtomicLong();
+    private final AtomicLong falhasAssinantes = new AtomicLong();
+    private final AtomicLong reconexoes = new AtomicLong();
+
+    public FeedLeiturasRisco(int esperaNotificacaoMs) {
+        this.esperaNotificacaoMs = esperaNotificacaoMs;
+
+        this.escuta = new Thread(this::executarEscuta, "glicemia-feed-risco");
+        this.escuta.setDaemon(true);
+        this.escuta.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::encerrar, "glicemia-feed-risco-shutdown"));
+    }
+
+    public static boolean isHabilitado() {
+        return Boolean.parseBoolean(EnvLoader.get("FEED_RISCO_HABILITADO", "false"));
+    }
+
+    // Instância compartilhada; null se FEED_RISCO_HABILITADO=false
+    public static synchronized FeedLeiturasRisco getInstancia() {
+        if (!instanciaVerificada) {
+            instanciaVerificada = true;
+            if (isHabilitado()) {
+                instancia = new FeedLeiturasRisco(
+                    Integer.parseInt(EnvLoader.get("FEED_RISCO_ESPERA_MS", "500")));
+            }
+        }
+        return instancia;
+    }
+
+    public void assinar(Consumer<EventoRisco> assinante) {
+        assinantes.add(assinante);
+    }
+
+    public void cancelar(Consumer<EventoRisco> assinante) {
+        assinantes.remove(assinante);
+    }
+
+    private void executarEscuta() {
+        long espera = 1_000;
+        boolean falhando = false;
+
+        while (!encerrando) {
+            try {
+                if (conexao == null) {
+                    conectar();
+                    espera = 1_000;
+                    falhando = false;
+                }
+
+                // Bloqueia até a chegada de notificações ou o fim da espera, para rever encerrando
+                PGNotification[] notificacoes = conexao.unwrap(PGConnection.class)
+                                                       .getNotifications(esperaNotificacaoMs);
+                if (notificacoes != null) {
+                    for (PGNotification notificacao : notificacoes) {
+                        publicar(notificacao.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                fecharConexao();
+                if (encerrando) {
+                    break;
+                }
+                // Só avisa na primeira falha de uma sequência
+                if (!falhando) {
+                    System.err.println("Feed de leituras de risco desconectado, tentando reconectar: " +
+                                       e.getMessage());
+                    falhando = true;
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(espera);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_RECONEXAO_MS);
+            }
+        }
+
+        fecharConexao();
+    }
+
+    private void conectar() throws SQLException {
+        Connection nova = DatabaseConnection.criarConexaoDedicada();
+        try (Statement stmt = nova.createStatement()) {
+            stmt.execute("LISTEN " + CANAL);
+        } catch (SQLException e) {
+            nova.close();
+            throw e;
+        }
+        conexao = nova;
+        conectado = true;
+        reconexoes.incrementAndGet();
+    }
+
+    private void fecharConexao() {
+        conectado = false;
+        if (conexao != null) {
+            try {
+                conexao.close();
+            } catch (SQLException e) {
+                // Conexão já perdida
+            }
+            conexao = null;
+        }
+    }
+
+    private void publicar(String payload) {
+        EventoRisco evento = interpretar(payload);
+        if (evento == null) {
+            invalidos.incrementAndGet();
+            return;
+        }
+        recebidos.incrementAndGet();
+
+        for (Consumer<EventoRisco> assinante : assinantes) {
+            try {
+                assinante.accept(evento);
+            } catch (RuntimeException e) {
+                // Um assinante com falha não pode derrubar a escuta nem privar os demais
+                falhasAssinantes.incrementAndGet();
+            }
+        }
+    }
+
+    // Payload gerado pelo trigger: id_registro|id_paciente|tipo|nivel|valor|data_hora (ISO)
+    static EventoRisco interpretar(String payload) {
+        if (payload == null) {
+            return null;
+        }
+        String[] campos = payload.split("\\|");
+        if (campos.length != 6) {
+            return null;
+        }
+        try {
+            return new EventoRisco(
+                Long.parseLong(campos[0]),
+                Long.parseLong(campos[1]),
+                TipoSinal.valueOf(campos[2]),
+                NivelRisco.valueOf(campos[3]),
+                Double.parseDouble(campos[4]),
+                LocalDateTime.parse(campos[5])
+            );
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void encerrar() {
+        if (encerrando) {
+            return;
+        }
+        encerrando = true;
+        escuta.interrupt();
+        try {
+            escuta.join(esperaNotificacaoMs + 5_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        return new Estatisticas(conectado, assinantes.size(), recebidos.get(), invalidos.get(),
+                                falhasAssinantes.get(), reconexoes.get());
+    }
+
+    public static class Estatisticas {
+        private final boolean conectado;
+        private final int assinantes;
+        private final long recebidos;
+        private final long invalidos;
+        private final long falhasAssinantes;
+        private final long conexoes;
+
+        Estatisticas(boolean conectado, int assinantes, long recebidos, long invalidos,
+                     long falhasAssinantes, long conexoes) {
+            this.conectado = conectado;
+            this.assinantes = assinantes;
+            this.recebidos = recebidos;
+            this.invalidos = invalidos;
+            this.falhasAssinantes = falhasAssinantes;
+            this.conexoes = conexoes;
+        }
+
+        public boolean isConectado() { return conectado; }
+        public int getAssinantes() { return assinantes; }
+        public long getRecebidos() { return recebidos; }
+        public long getInvalidos() { return invalidos; }
+        public long getFalhasAssinantes() { return falhasAssinantes; }
+        public long getConexoes() { return conexoes; }
+
+        @Override
+        public String toString() {
+            return String.format("Feed de risco: %s | %d assinantes | %d eventos | %d inválidos | " +
+                    "%d falhas de assinantes | %d conexões",
+                conectado ? "conectado" : "desconectado", assinantes, recebidos, invalidos,
+                falhasAssinantes, conexoes);
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package br.com.glicemia.service;
 
+import br.com.glicemia.dao.impl.ConsultaIADAOImpl;
+import br.com.glicemia.model.vo.ConsultaIA;
 import br.com.glicemia.model.vo.SinalVital;
 import br.com.glicemia.service.impl.IALocalService;
 import br.com.glicemia.service.impl.OpenAIService;
 import br.com.glicemia.util.EnvLoader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Properties;
 
 public class GerenciadorIA {
+    private static final String TAG_PROMPT_CUSTOMIZADO = "__CUSTOM_PROMPT__:";
+
+    // Compartilhado entre instâncias; null se IA_LOG_HABILITADO=false
+    private static LogConsultasIA logConsultas;
+    private static boolean logVerificado = false;
+
     private ServicoIA servicoPrincipal;
     private final ServicoIA servicoFallback;
     private boolean fallbackAtivo = false;
@@ -47,7 +56,8 @@ public class GerenciadorIA {
         if (servicoPrincipal != null && servicoPrincipal.isDisponivel()) {
             try {
                 fallbackAtivo = false;
-                return servicoPrincipal.solicitarRecomendacao(historico, pergunta);
+                return consultar(servicoPrincipal, false, ConsultaIA.TIPO_RECOMENDACAO,
+                                 idPacienteDe(historico), historico, pergunta);
 
             } catch (Exception e) {
                 System.err.println("⚠ Falha no serviço principal de IA: " + e.getMessage());
@@ -58,7 +68,8 @@ public class GerenciadorIA {
 
         // Fallback local
         try {
-            return servicoFallback.solicitarRecomendacao(historico, pergunta);
+            return consultar(servicoFallback, true, ConsultaIA.TIPO_RECOMENDACAO,
+                             idPacienteDe(historico), historico, pergunta);
         } catch (Exception e) {
             return "Erro ao gerar recomendação: " + e.getMessage();
         }
@@ -93,7 +104,7 @@ public class GerenciadorIA {
             .construirPromptConversacional(session, pergunta);
 
         // Adiciona tag para identificar prompt customizado
-        String perguntaComTag = "__CUSTOM_PROMPT__:" + promptConversacional;
+        String perguntaComTag = TAG_PROMPT_CUSTOMIZADO + promptConversacional;
 
         // Usa serviço de IA com fallback
         String resposta;
@@ -108,7 +119,8 @@ public class GerenciadorIA {
                     fallbackAtivo = false;
 
                     // Chama IA com prompt conversacional
-                    resposta = servicoPrincipal.solicitarRecomendacao(
+                    resposta = consultar(servicoPrincipal, false, ConsultaIA.TIPO_CHAT,
+                        session.getIdPaciente(),
                         session.getHistoricoPaciente(),
                         perguntaComTag
                     );
@@ -121,7 +133,8 @@ public class GerenciadorIA {
                     fallbackAtivo = true;
 
                     try {
-                        resposta = servicoFallback.solicitarRecomendacao(
+                        resposta = consultar(servicoFallback, true, ConsultaIA.TIPO_CHAT,
+                            session.getIdPaciente(),
                             session.getHistoricoPaciente(),
                             pergunta
                         );
@@ -136,7 +149,8 @@ public class GerenciadorIA {
                 fallbackAtivo = true;
 
                 try {
-                    resposta = servicoFallback.solicitarRecomendacao(
+                    resposta = consultar(servicoFallback, true, ConsultaIA.TIPO_CHAT,
+                        session.getIdPaciente(),
                         session.getHistoricoPaciente(),
                         pergunta
                     );
@@ -152,7 +166,8 @@ public class GerenciadorIA {
 
                 fallbackAtivo = true;
 
-                resposta = servicoFallback.solicitarRecomendacao(
+                resposta = consultar(servicoFallback, true, ConsultaIA.TIPO_CHAT,
+                    session.getIdPaciente(),
                     session.getHistoricoPaciente(),
                     pergunta
                 );
@@ -168,6 +183,60 @@ public class GerenciadorIA {
         return resposta;
     }
 
+    // Chama o serviço e enfileira o registro da consulta (sucesso ou erro) para TB_CONSULTA_IA
+    private String consultar(ServicoIA servico, boolean fallback, String tipo, Long idPaciente,
+                             List<SinalVital> historico, String pergunta) throws Exception {
+        int tamanhoPrompt = pergunta.startsWith(TAG_PROMPT_CUSTOMIZADO)
+            ? pergunta.length() - TAG_PROMPT_CUSTOMIZADO.length()
+            : pergunta.length();
+        LocalDateTime dataConsulta = LocalDateTime.now();
+        long inicio = System.nanoTime();
+        try {
+            String resposta = servico.solicitarRecomendacao(historico, pergunta);
+            registrarConsulta(new ConsultaIA(idPaciente, dataConsulta, tipo, servico.getNomeProvedor(),
+                fallback, tamanhoPrompt, resposta != null ? resposta.length() : 0,
+                (System.nanoTime() - inicio) / 1_000_000, true, null));
+            return resposta;
+        } catch (Exception e) {
+            registrarConsulta(new ConsultaIA(idPaciente, dataConsulta, tipo, servico.getNomeProvedor(),
+                fallback, tamanhoPrompt, 0, (System.nanoTime() - inicio) / 1_000_000, false,
+                e.getClass().getSimpleName() + ": " + e.getMessage()));
+            throw e;
+        }
+    }
+
+    private static Long idPacienteDe(List<SinalVital> historico) {
+        return historico != null && !historico.isEmpty() ? historico.get(0).getIdPaciente() : null;
+    }
+
+    private static void registrarConsulta(ConsultaIA consulta) {
+        LogConsultasIA log = getLogConsultas();
+        if (log != null) {
+            log.registrar(consulta);
+        }
+    }
+
+    private static synchronized LogConsultasIA getLogConsultas() {
+        if (!logVerificado) {
+            logVerificado = true;
+            if (Boolean.parseBoolean(EnvLoader.get("IA_LOG_HABILITADO", "true"))) {
+                logConsultas = new LogConsultasIA(
+                    new ConsultaIADAOImpl(),
+                    Integer.parseInt(EnvLoader.get("IA_LOG_CAPACIDADE", "1000")),
+                    Integer.parseInt(EnvLoader.get("IA_LOG_LOTE", "100")),
+                    Long.parseLong(EnvLoader.get("IA_LOG_INTERVALO_MS", "2000"))
+                );
+            }
+        }
+        return logConsultas;
+    }
+
+    // null quando o log está desabilitado
+    public static LogConsultasIA.Estatisticas getEstatisticasLog() {
+        LogConsultasIA log = getLogConsultas();
+        return log != null ? log.getEstatisticas() : null;
+    }
+
     public boolean isFallbackAtivo() {
         return fallbackAtivo;
     }
@@ -0,0 +1,167 @@
+package br.com.glicemia.service;
+
+import br.com.glicemia.dao.interfaces.ConsultaIADAO;
+import br.com.glicemia.model.vo.ConsultaIA;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Registro assíncrono das consultas à IA. registrar apenas tenta enfileirar (sem bloquear) em uma
+// fila limitada; uma thread em segundo plano grava o conteúdo da fila em lotes a cada intervalo.
+// É um log de observação, não de auditoria: com a fila cheia as consultas são descartadas e
+// contadas, sem nunca atrasar quem chamou a IA. Um lote que falha no banco é mantido e
+// regravado com espera crescente, até MAXIMO_TENTATIVAS; depois disso é descartado e contado.
+// Enquanto isso as novas consultas se acumulam na fila, que continua limitada.
+public class LogConsultasIA {
+
+    private static final long ESPERA_MAXIMA_RETENTATIVA_MS = 60_000;
+    private static final int MAXIMO_TENTATIVAS = 5;
+
+    private final ConsultaIADAO consultaDAO;
+    private final BlockingQueue<ConsultaIA> fila;
+    private final int tamanhoLote;
+    private final long intervaloMs;
+    private final Thread gravacao;
+
+    private volatile boolean encerrando = false;
+    // Acessado apenas pela thread de gravação
+    private boolean falhando = false;
+
+    private final AtomicLong gravadas = new AtomicLong();
+    private final AtomicLong descartadasFilaCheia = new AtomicLong();
+    private final AtomicLong descartadasFalha = new AtomicLong();
+
+    public LogConsultasIA(ConsultaIADAO consultaDAO, int capacidade, int tamanhoLote, long intervaloMs) {
+        this.consultaDAO = consultaDAO;
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.tamanhoLote = tamanhoLote;
+        this.intervaloMs = intervaloMs;
+
+        this.gravacao = new Thread(this::executarGravacao, "glicemia-log-ia");
+        this.gravacao.setDaemon(true);
+        this.gravacao.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::encerrar, "glicemia-log-ia-shutdown"));
+    }
+
+    public void registrar(ConsultaIA consulta) {
+        if (encerrando || !fila.offer(consulta)) {
+            descartadasFilaCheia.incrementAndGet();
+        }
+    }
+
+    private void executarGravacao() {
+        long espera = intervaloMs;
+        int tentativas = 0;
+        // Lote em gravação; não vazio entre iterações apenas quando aguarda nova tentativa
+        List<ConsultaIA> lote = new ArrayList<>(tamanhoLote);
+
+        while (!encerrando) {
+            // Espera o intervalo para acumular um lote, salvo se o anterior saiu cheio
+            if (!lote.isEmpty() || fila.size() < tamanhoLote) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(espera);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+
+            if (lote.isEmpty()) {
+                fila.drainTo(lote, tamanhoLote);
+                if (lote.isEmpty()) {
+                    continue;
+                }
+            }
+
+            if (gravar(lote)) {
+                lote.clear();
+                tentativas = 0;
+                espera = intervaloMs;
+            } else {
+                if (++tentativas >= MAXIMO_TENTATIVAS) {
+                    descartadasFalha.addAndGet(lote.size());
+                    lote.clear();
+                    tentativas = 0;
+                }
+                espera = Math.min(espera * 2, ESPERA_MAXIMA_RETENTATIVA_MS);
+            }
+        }
+
+        // Último esvaziamento no encerramento, sem novas tentativas
+        while (!lote.isEmpty() || !fila.isEmpty()) {
+            if (lote.isEmpty()) {
+                fila.drainTo(lote, tamanhoLote);
+            }
+            if (!gravar(lote)) {
+                descartadasFalha.addAndGet(lote.size() + fila.size());
+                fila.clear();
+            }
+            lote.clear();
+        }
+    }
+
+    private boolean gravar(List<ConsultaIA> lote) {
+        try {
+            consultaDAO.inserirLote(lote);
+            gravadas.addAndGet(lote.size());
+            falhando = false;
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            // Só avisa na primeira falha de uma sequência, para não poluir o console do chat
+            if (!falhando) {
+                System.err.println("Falha ao gravar log de consultas à IA (" + lote.size() +
+                                   " consultas aguardando nova tentativa): " + e.getMessage());
+                falhando = true;
+            }
+            return false;
+        }
+    }
+
+    public void encerrar() {
+        if (encerrando) {
+            return;
+        }
+        encerrando = true;
+        gravacao.interrupt();
+        try {
+            gravacao.join(intervaloMs + 5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        return new Estatisticas(fila.size(), gravadas.get(), descartadasFilaCheia.get(), descartadasFalha.get());
+    }
+
+    public static class Estatisticas {
+        private final int pendentes;
+        private final long gravadas;
+        private final long descartadasFilaCheia;
+        private final long descartadasFalha;
+
+        Estatisticas(int pendentes, long gravadas, long descartadasFilaCheia, long descartadasFalha) {
+            this.pendentes = pendentes;
+            this.gravadas = gravadas;
+            this.descartadasFilaCheia = descartadasFilaCheia;
+            this.descartadasFalha = descartadasFalha;
+        }
+
+        public int getPendentes() { return pendentes; }
+        public long getGravadas() { return gravadas; }
+        public long getDescartadasFilaCheia() { return descartadasFilaCheia; }
+        public long getDescartadasFalha() { return descartadasFalha; }
+
+        @Override
+        public String toString() {
+            return String.format("Log de consultas à IA: %d pendentes | %d gravadas | " +
+                    "%d descartadas (fila cheia) | %d descartadas (falha no banco)",
+                pendentes, gravadas, descartadasFilaCheia, descartadasFalha);
+        }
+    }
+}
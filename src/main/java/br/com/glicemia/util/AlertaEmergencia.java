@@ -1,6 +1,7 @@
 package br.com.glicemia.util;
 
 import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.vo.EventoRisco;
 import br.com.glicemia.model.vo.SinalVital;
 
 public class AlertaEmergencia {
@@ -82,6 +83,13 @@ public class AlertaEmergencia {
         System.out.println();
     }
 
+    // Leitura de risco gravada em qualquer terminal, recebida pelo feed em tempo real
+    public static void exibirAlertaRemoto(EventoRisco evento) {
+        String cor = evento.getNivelRisco() == NivelRisco.CRITICO ? VERMELHO_BG + BRANCO : LARANJA;
+        System.out.println("\n" + cor + NEGRITO + " 🔔 ALERTA " + evento.getNivelRisco() + " " + RESET +
+                           " " + evento);
+    }
+
     public static void exibirProtocoloEmergencia(String protocolo) {
         System.out.println(VERMELHO + NEGRITO + "╔════════════════════════════════════════════╗");
         System.out.println("║        PROTOCOLO DE EMERGÊNCIA             ║");
@@ -0,0 +1,188 @@
+package br.com.glicemia.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Alocação de IDs no cliente (hi/lo) a partir de uma sequência do PostgreSQL com INCREMENT BY N:
+// cada nextval devolve o início de um bloco de N IDs exclusivo desta instância, distribuídos sem
+// novas idas ao banco. Como o bloco inteiro pertence a quem chamou nextval, inserções que usam o
+// DEFAULT da coluna continuam seguras (cada uma apenas descarta o restante do seu bloco).
+// O tamanho do bloco é lido do catálogo; com INCREMENT BY 1 o alocador funciona, só sem ganho.
+//
+// Os blocos são reservados em uma conexão própria do pool, obtida só quando o bloco atual se
+// esgota; por isso os DAOs reservam os IDs antes de abrir a conexão da escrita. Quem não pode
+// pedir outra conexão (o COPY, com a sua ocupada) reserva blocos inteiros na própria conexão,
+// via reservarBlocos, e distribui os IDs por conta própria. IDs reservados e não usados (inserção que falhou, instância encerrada) são descartados, deixando lacunas.
+public class AlocadorIds {
+
+    private static final String SQL_INCREMENTO =
+            "SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass";
+
+    private static final String SQL_RESERVAR =
+            "SELECT nextval(?::regclass) FROM generate_series(1, ?)";
+
+    // Faixas [início, fim) dos blocos reservados mais recentemente; blocos contíguos são unidos
+    private static final int FAIXAS_RECENTES = 1024;
+
+    private final String sequencia;
+    private long incremento;
+    private long proximoId;
+    private long limiteId;
+
+    private final ArrayDeque<long[]> faixas = new ArrayDeque<>();
+
+    private final AtomicLong idsAtribuidos = new AtomicLong();
+    private final AtomicLong blocosReservados = new AtomicLong();
+
+    public AlocadorIds(String sequencia) {
+        this.sequencia = sequencia;
+    }
+
+    public synchronized long proximo() throws SQLException {
+        return reservar(1)[0];
+    }
+
+    // Reserva quantidade IDs de uma vez; os blocos que faltarem vêm em um único comando
+    public synchronized long[] reservar(int quantidade) throws SQLException {
+        long[] ids = new long[quantidade];
+        int preenchidos = 0;
+        while (preenchidos < quantidade && proximoId < limiteId) {
+            ids[preenchidos++] = proximoId++;
+        }
+
+        if (preenchidos < quantidade) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                long incremento = getIncremento(conn);
+                long faltantes = quantidade - preenchidos;
+                int blocos = (int) ((faltantes + incremento - 1) / incremento);
+
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_RESERVAR)) {
+                    stmt.setString(1, sequencia);
+                    stmt.setInt(2, blocos);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            // A sobra do último bloco fica para as próximas chamadas
+                            proximoId = rs.getLong(1);
+                            limiteId = proximoId + incremento;
+                            registrarFaixa(proximoId, limiteId);
+                            while (preenchidos < quantidade && proximoId < limiteId) {
+                                ids[preenchidos++] = proximoId++;
+                            }
+                        }
+                    }
+                }
+                blocosReservados.addAndGet(blocos);
+            }
+        }
+
+        idsAtribuidos.addAndGet(quantidade);
+        return ids;
+    }
+
+    // Reserva, na conexão do chamador, os blocos que cobrem quantidade IDs e devolve o início de
+    // cada um: o i-ésimo ID é blocos[i / incremento] + i % incremento. Os blocos não se misturam
+    // aos que proximo/reservar distribuem.
+    public synchronized long[] reservarBlocos(Connection conn, long quantidade) throws SQLException {
+        long incremento = getIncremento(conn);
+        int blocos = (int) ((quantidade + incremento - 1) / incremento);
+        long[] inicios = new long[blocos];
+        if (blocos == 0) {
+            return inicios;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_RESERVAR)) {
+            stmt.setString(1, sequencia);
+            stmt.setInt(2, blocos);
+            try (ResultSet rs = stmt.executeQuery()) {
+                int i = 0;
+                while (rs.next()) {
+                    inicios[i] = rs.getLong(1);
+                    registrarFaixa(inicios[i], inicios[i] + incremento);
+                    i++;
+                }
+            }
+        }
+        blocosReservados.addAndGet(blocos);
+        idsAtribuidos.addAndGet(quantidade);
+        return inicios;
+    }
+
+    // Tamanho do bloco, lido do catálogo na primeira chamada
+    public synchronized long getIncremento(Connection conn) throws SQLException {
+        if (incremento == 0) {
+            incremento = lerIncremento(conn);
+        }
+        return incremento;
+    }
+
+    private void registrarFaixa(long inicio, long fim) {
+        long[] ultima = faixas.peekLast();
+        if (ultima != null && ultima[1] == inicio) {
+            ultima[1] = fim;
+            return;
+        }
+        faixas.addLast(new long[]{inicio, fim});
+        if (faixas.size() > FAIXAS_RECENTES) {
+            faixas.removeFirst();
+        }
+    }
+
+    // Se o ID pertence a um dos blocos reservados recentemente por esta instância, isto é, foi
+    // (ou será) atribuído aqui: os blocos de nextval são exclusivos de quem os reservou
+    public synchronized boolean isReservadoAqui(long id) {
+        for (Iterator<long[]> it = faixas.descendingIterator(); it.hasNext(); ) {
+            long[] faixa = it.next();
+            if (id >= faixa[0] && id < faixa[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long lerIncremento(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INCREMENTO)) {
+            stmt.setString(1, sequencia);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Sequência não encontrada: " + sequencia);
+                }
+                long valor = rs.getLong(1);
+                if (valor < 1) {
+                    throw new SQLException("Sequência " + sequencia + " precisa de incremento positivo");
+                }
+                return valor;
+            }
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        return new Estatisticas(sequencia, idsAtribuidos.get(), blocosReservados.get());
+    }
+
+    public static class Estatisticas {
+        private final String sequencia;
+        private final long idsAtribuidos;
+        private final long blocosReservados;
+
+        Estatisticas(String sequencia, long idsAtribuidos, long blocosReservados) {
+            this.sequencia = sequencia;
+            this.idsAtribuidos = idsAtribuidos;
+            this.blocosReservados = blocosReservados;
+        }
+
+        public String getSequencia() { return sequencia; }
+        public long getIdsAtribuidos() { return idsAtribuidos; }
+        public long getBlocosReservados() { return blocosReservados; }
+
+        @Override
+        public String toString() {
+            return String.format("IDs (%s): %d atribuídos | %d blocos reservados",
+                sequencia, idsAtribuidos, blocosReservados);
+        }
+    }
+}
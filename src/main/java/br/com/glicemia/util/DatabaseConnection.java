@@ -13,6 +13,10 @@ public class DatabaseConnection {
     private static String dbUsername;
     private static String dbPassword;
     private static String dbDriver;
+    private static Properties poolConfig = new Properties();
+    private static volatile PoolConexoes pool;
+    private static volatile ReplicaLeitura replica;
+    private static volatile boolean replicaVerificada = false;
 
     static {
         loadConfiguration();
@@ -24,6 +28,13 @@ public class DatabaseConnection {
             dbUsername = EnvLoader.get("DB_USERNAME");
             dbPassword = EnvLoader.get("DB_PASSWORD");
             dbDriver = EnvLoader.get("DB_DRIVER");
+            carregarConfigPool("minSize", EnvLoader.get("DB_POOL_MIN_SIZE"));
+            carregarConfigPool("maxSize", EnvLoader.get("DB_POOL_MAX_SIZE"));
+            carregarConfigPool("maxWaitMs", EnvLoader.get("DB_POOL_MAX_WAIT_MS"));
+            carregarConfigPool("idleTimeoutMs", EnvLoader.get("DB_POOL_IDLE_TIMEOUT_MS"));
+            carregarConfigPool("validationTimeoutSeconds", EnvLoader.get("DB_POOL_VALIDATION_TIMEOUT_SECONDS"));
+            carregarConfigPool("leakThresholdMs", EnvLoader.get("DB_POOL_LEAK_THRESHOLD_MS"));
+            carregarConfigPool("leakReclaimMs", EnvLoader.get("DB_POOL_LEAK_RECLAIM_MS"));
         } else {
             loadFromProperties();
         }
@@ -50,6 +61,12 @@ public class DatabaseConnection {
             dbPassword = resolveProperty(properties.getProperty("db.password"));
             dbDriver = resolveProperty(properties.getProperty("db.driver"));
 
+            for (String chave : new String[]{"minSize", "maxSize", "maxWaitMs", "idleTimeoutMs",
+                                             "validationTimeoutSeconds", "leakThresholdMs",
+                                             "leakReclaimMs"}) {
+                carregarConfigPool(chave, resolveProperty(properties.getProperty("db.pool." + chave)));
+            }
+
         } catch (IOException e) {
             throw new RuntimeException("Erro ao carregar configurações do banco de dados", e);
         }
@@ -74,8 +91,137 @@ public class DatabaseConnection {
         return value;
     }
 
+    private static void carregarConfigPool(String chave, String valor) {
+        // Placeholders não resolvidos (${...}) ficam de fora e o valor padrão é usado
+        if (valor != null && !valor.trim().isEmpty() && !valor.startsWith("${")) {
+            poolConfig.setProperty(chave, valor.trim());
+        }
+    }
+
+    private static long lerConfigPool(String chave, long padrao) {
+        String valor = poolConfig.getProperty(chave);
+        if (valor == null) {
+            return padrao;
+        }
+        try {
+            return Long.parseLong(valor);
+        } catch (NumberFormatException e) {
+            System.err.println("Configuração de pool inválida (" + chave + "=" + valor +
+                "), usando " + padrao);
+            return padrao;
+        }
+    }
+
+    public static PoolConexoes getPool() {
+        if (pool == null) {
+            synchronized (DatabaseConnection.class) {
+                if (pool == null) {
+                    pool = criarPool(dbUrl, dbUsername, dbPassword);
+                    Runtime.getRuntime().addShutdownHook(
+                        new Thread(pool::fechar, "glicemia-pool-shutdown"));
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static PoolConexoes criarPool(String url, String usuario, String senha) {
+        Properties propriedadesConexao = new Properties();
+        if (usuario != null) propriedadesConexao.setProperty("user", usuario);
+        if (senha != null) propriedadesConexao.setProperty("password", senha);
+        // Reescreve lotes de INSERT em INSERTs multi-linha (uma ida ao banco por lote)
+        propriedadesConexao.setProperty("reWriteBatchedInserts",
+            EnvLoader.get("DB_REWRITE_BATCHED_INSERTS", "true"));
+
+        return new PoolConexoes(
+            url,
+            propriedadesConexao,
+            (int) lerConfigPool("minSize", 2),
+            (int) lerConfigPool("maxSize", 10),
+            lerConfigPool("maxWaitMs", 10_000),
+            lerConfigPool("idleTimeoutMs", 300_000),
+            (int) lerConfigPool("validationTimeoutSeconds", 2),
+            lerConfigPool("leakThresholdMs", 60_000),
+            lerConfigPool("leakReclaimMs", 0)
+        );
+    }
+
+    // Conexão com o primário: escritas e leituras que não toleram atraso
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(dbUrl, dbUsername, dbPassword);
+        return getPool().getConnection();
+    }
+
+    // Conexão própria, fora do pool, com o primário. Para sessões de longa duração com estado
+    // (ex.: LISTEN), que não podem voltar ao pool; o chamador a fecha.
+    public static Connection criarConexaoDedicada() throws SQLException {
+        Properties propriedadesConexao = new Properties();
+        if (dbUsername != null) propriedadesConexao.setProperty("user", dbUsername);
+        if (dbPassword != null) propriedadesConexao.setProperty("password", dbPassword);
+        return DriverManager.getConnection(dbUrl, propriedadesConexao);
+    }
+
+    // Conexão para leitura sem paciente associado. Vai à réplica (DB_REPLICA_URL) quando
+    // configurada e em dia; sem réplica, é o próprio primário.
+    public static Connection getConnectionLeitura() throws SQLException {
+        return getConnectionLeitura(null);
+    }
+
+    // Conexão para leitura dos dados de um paciente, respeitando escritas recentes dele
+    public static Connection getConnectionLeitura(Long idPaciente) throws SQLException {
+        ReplicaLeitura roteador = getReplica();
+        return roteador != null ? roteador.getConnection(idPaciente) : getConnection();
+    }
+
+    // Chamado pelos DAOs após confirmar uma escrita (idPaciente null se não se aplica)
+    public static void registrarEscrita(Long idPaciente) {
+        ReplicaLeitura roteador = getReplica();
+        if (roteador != null) {
+            roteador.registrarEscrita(idPaciente);
+        }
+    }
+
+    private static ReplicaLeitura getReplica() {
+        if (!replicaVerificada) {
+            synchronized (DatabaseConnection.class) {
+                if (!replicaVerificada) {
+                    replica = criarReplica();
+                    replicaVerificada = true;
+                }
+            }
+        }
+        return replica;
+    }
+
+    private static ReplicaLeitura criarReplica() {
+        String url = EnvLoader.get("DB_REPLICA_URL", "");
+        if (url.trim().isEmpty()) {
+            return null;
+        }
+
+        // Usuário e senha em branco: os mesmos do primário
+        String usuario = EnvLoader.get("DB_REPLICA_USERNAME", "");
+        String senha = EnvLoader.get("DB_REPLICA_PASSWORD", "");
+        PoolConexoes poolReplica = criarPool(url.trim(),
+            usuario.isEmpty() ? dbUsername : usuario,
+            senha.isEmpty() ? dbPassword : senha);
+        ReplicaLeitura roteador = new ReplicaLeitura(
+            getPool(),
+            poolReplica,
+            Long.parseLong(EnvLoader.get("DB_REPLICA_MAX_LAG_MS", "2000")),
+            Long.parseLong(EnvLoader.get("DB_REPLICA_VERIFICACAO_MS", "1000"))
+        );
+        Runtime.getRuntime().addShutdownHook(new Thread(roteador::fechar, "glicemia-replica-shutdown"));
+        return roteador;
+    }
+
+    // null quando não há réplica configurada
+    public static ReplicaLeitura.Estatisticas getEstatisticasReplica() {
+        ReplicaLeitura roteador = getReplica();
+        return roteador != null ? roteador.getEstatisticas() : null;
+    }
+
+    public static PoolConexoes.Estatisticas getEstatisticasPool() {
+        return getPool().getEstatisticas();
     }
 
     public static void closeConnection(Connection conn) {
@@ -0,0 +1,721 @@
+package br.com.glicemia.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Aplica, na inicialização, as alterações de schema posteriores a database-setup.sql. Cada
+// migração tem um número de versão e é aplicada uma única vez, em ordem, em sua própria transação;
+// as versões aplicadas ficam em TB_SCHEMA_VERSAO. Uma migração com condição só executa seus
+// comandos se a condição valer; caso contrário, a versão é apenas registrada.
+//
+// A versão 0 converte bancos criados antes das tabelas por tipo, com a tabela única TB_REGISTRO
+// (particionada ou não): cria as tabelas por tipo, copia as leituras, recria VW_REGISTRO e o
+// rollup diário e renomeia a tabela antiga para TB_REGISTRO_LEGADO. As migrações seguintes
+// completam os índices. Um advisory lock impede que duas instâncias
+// migrem ao mesmo tempo. Os comandos usam IF [NOT] EXISTS, para que uma migração interrompida
+// possa ser repetida.
+//
+// Índices nas tabelas de leituras (particionadas) não são criados na transação: um CREATE INDEX
+// no pai bloquearia as escritas em todas as partições durante a construção. O índice é criado
+// só no pai (ON ONLY, ainda inválido), construído com CONCURRENTLY em cada partição e anexado;
+// com a última partição anexada, o índice do pai passa a valer. A versão é registrada depois.
+// DROP INDEX em tabela particionada não aceita CONCURRENTLY e bloqueia a tabela, mas por pouco tempo.
+//
+// Com medição habilitada, um conjunto fixo de consultas representativas é cronometrado antes e
+// depois das migrações pendentes, e o relatório traz a mediana de cada uma.
+public class MigradorSchema {
+
+    // Chave do pg_advisory_lock das migrações
+    private static final long CHAVE_LOCK = 7_412_020_230L;
+
+    private static final String[] TABELAS = {"TB_REGISTRO_GLICEMIA", "TB_REGISTRO_PRESSAO", "TB_REGISTRO_PESO"};
+    private static final String[] PREFIXOS = {"glicemia", "pressao", "peso"};
+
+    private static final String SQL_CRIAR_CONTROLE =
+            "CREATE TABLE IF NOT EXISTS TB_SCHEMA_VERSAO (" +
+            "versao INTEGER PRIMARY KEY, descricao VARCHAR(200) NOT NULL, " +
+            "aplicada_em TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, duracao_ms INTEGER NOT NULL)";
+
+    private static final String SQL_REGISTRAR =
+            "INSERT INTO TB_SCHEMA_VERSAO (versao, descricao, duracao_ms) VALUES (?, ?, ?)";
+
+    private static final List<Migracao> MIGRACOES = Arrays.asList(
+        // Leituras sem os campos obrigatórios da tabela do tipo (diastólica, altura) ou fora da
+        // precisão da coluna (peso >= 1000) não são convertidas e ficam em TB_REGISTRO_LEGADO,
+        // que pode ser removida após conferência
+        new Migracao(0, "Converte a tabela única TB_REGISTRO nas tabelas por tipo",
+            "SELECT to_regclass('tb_registro') IS NOT NULL", conversaoTabelaUnica()),
+        // Toda leitura por paciente filtra id_paciente e ordena por data_hora DESC; as colunas
+        // INCLUDE são as de carregarSerie, que passa a ser atendida só pelo índice
+        new Migracao(1, "Índice composto (id_paciente, data_hora DESC, id_registro) com INCLUDE",
+            new Indice("idx_glicemia_historico", "TB_REGISTRO_GLICEMIA", false,
+                "(id_paciente, data_hora DESC, id_registro) INCLUDE (valor_glicemia, nivel_risco, em_jejum)"),
+            new Indice("idx_pressao_historico", "TB_REGISTRO_PRESSAO", false,
+                "(id_paciente, data_hora DESC, id_registro) INCLUDE (sistolica, diastolica, nivel_risco)"),
+            new Indice("idx_peso_historico", "TB_REGISTRO_PESO", false,
+                "(id_paciente, data_hora DESC, id_registro) INCLUDE (peso, nivel_risco)")),
+        // As leituras chegam em ordem aproximada de data_hora, e um BRIN de poucos KB atende as
+        // varreduras por período sem ordem (arquivamento, rollup, contagens por período)
+        new Migracao(2, "Índice BRIN em data_hora para varreduras por período",
+            indicesBrin()),
+        // idx_*_paciente é prefixo do índice composto
+        new Migracao(3, "Remove índices de coluna única cobertos pelos novos",
+            indicesRemovidos()),
+        // IDs atribuídos no cliente por AlocadorIds: o incremento da sequência é o tamanho do bloco
+        new Migracao(4, "Sequências de ID em blocos para alocação no cliente",
+            "ALTER TABLE TB_PACIENTE ALTER COLUMN id_paciente SET GENERATED BY DEFAULT SET INCREMENT BY 20",
+            "ALTER SEQUENCE seq_registro INCREMENT BY 50"),
+        // Leituras anteriores ficam com chave nula, que não conflita com nenhuma outra
+        new Migracao(5, "Chave de idempotência das leituras",
+            colunasIdempotencia(), indicesIdempotencia(), new String[0]),
+        // A retenção percorre as leituras NORMAL em ordem de (data_hora, id_registro), com LIMIT
+        // por lote: o BRIN não devolve linhas ordenadas e cada lote ordenaria todo o restante do
+        // período. Só então idx_*_data sai.
+        new Migracao(6, "Índice parcial das leituras NORMAL para a retenção",
+            new String[0], indicesRetencao(), indicesDataRemovidos())
+    );
+
+    private static final List<Sonda> SONDAS = Arrays.asList(
+        new Sonda("Histórico recente (50 leituras)", true, 3650,
+            "SELECT * FROM VW_REGISTRO WHERE id_paciente = ? AND data_hora >= ? " +
+            "ORDER BY data_hora DESC, id_registro DESC LIMIT 50"),
+        new Sonda("Série de glicemia (30 dias)", true, 30,
+            "SELECT data_hora, valor_glicemia, nivel_risco, em_jejum FROM TB_REGISTRO_GLICEMIA " +
+            "WHERE id_paciente = ? AND data_hora >= ? ORDER BY data_hora"),
+        new Sonda("Leituras do último dia (todos)", false, 1,
+            "SELECT COUNT(*), AVG(valor_principal) FROM VW_REGISTRO WHERE data_hora >= ?")
+    );
+
+    private final boolean medirLatencia;
+    private final int repeticoes;
+
+    public MigradorSchema(boolean medirLatencia, int repeticoes) {
+        this.medirLatencia = medirLatencia;
+        this.repeticoes = Math.max(1, repeticoes);
+    }
+
+    public static boolean isHabilitado() {
+        return Boolean.parseBoolean(EnvLoader.get("MIGRACAO_HABILITADA", "true"));
+    }
+
+    // Migrador com a configuração de MIGRACAO_MEDIR_LATENCIA e MIGRACAO_REPETICOES
+    public static MigradorSchema criar() {
+        return new MigradorSchema(
+            Boolean.parseBoolean(EnvLoader.get("MIGRACAO_MEDIR_LATENCIA", "true")),
+            Integer.parseInt(EnvLoader.get("MIGRACAO_REPETICOES", "20")));
+    }
+
+    // Aplica as migrações pendentes. Uma falha interrompe a sequência: as anteriores permanecem
+    // aplicadas e a que falhou é desfeita.
+    public Relatorio aplicarPendentes() throws SQLException {
+        long inicio = System.nanoTime();
+        Relatorio relatorio = new Relatorio();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SELECT pg_advisory_lock(" + CHAVE_LOCK + ")");
+            }
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(SQL_CRIAR_CONTROLE);
+                }
+                relatorio.versaoInicial = versaoAtual(conn);
+                relatorio.versaoFinal = relatorio.versaoInicial;
+
+                Set<Integer> aplicadas = versoesAplicadas(conn);
+                List<Migracao> pendentes = new ArrayList<>();
+                for (Migracao migracao : MIGRACOES) {
+                    if (!aplicadas.contains(migracao.versao)) {
+                        pendentes.add(migracao);
+                    }
+                }
+
+                if (!pendentes.isEmpty()) {
+                    Long idPaciente = medirLatencia ? pacienteAmostra(conn) : null;
+                    if (medirLatencia) {
+                        medir(conn, idPaciente, relatorio.latenciaAntes);
+                    }
+
+                    for (Migracao migracao : pendentes) {
+                        if (aplicar(conn, migracao)) {
+                            relatorio.aplicadas.add(migracao.versao + " - " + migracao.descricao);
+                        }
+                        relatorio.versaoFinal = Math.max(relatorio.versaoFinal, migracao.versao);
+                    }
+
+                    if (medirLatencia) {
+                        medir(conn, idPaciente, relatorio.latenciaDepois);
+                    }
+                }
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + CHAVE_LOCK + ")");
+                }
+            }
+        }
+
+        relatorio.duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+        return relatorio;
+    }
+
+    // Os comandos rodam em transação antes dos índices, e os finais depois deles. Sem índices, a
+    // versão é registrada na mesma transação dos comandos. Retorna se a migração foi executada
+    // (falso se a condição não valia)
+    private boolean aplicar(Connection conn, Migracao migracao) throws SQLException {
+        long inicio = System.nanoTime();
+        boolean comIndices = migracao.indices.length > 0 || migracao.comandosFinais.length > 0;
+        conn.setAutoCommit(false);
+        try {
+            if (migracao.condicao != null && !condicao(conn, migracao.condicao)) {
+                registrar(conn, migracao, inicio);
+                conn.commit();
+                return false;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                for (String comando : migracao.comandos) {
+                    stmt.execute(comando);
+                }
+            }
+            if (!comIndices) {
+                registrar(conn, migracao, inicio);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw falha(migracao, e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        if (comIndices) {
+            try {
+                for (Indice indice : migracao.indices) {
+                    construir(conn, indice);
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    for (String comando : migracao.comandosFinais) {
+                        stmt.execute(comando);
+                    }
+                }
+                registrar(conn, migracao, inicio);
+            } catch (SQLException e) {
+                throw falha(migracao, e);
+            }
+        }
+        return true;
+    }
+
+    private static boolean condicao(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private static void registrar(Connection conn, Migracao migracao, long inicio) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_REGISTRAR)) {
+            stmt.setInt(1, migracao.versao);
+            stmt.setString(2, migracao.descricao);
+            stmt.setInt(3, (int) ((System.nanoTime() - inicio) / 1_000_000));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static SQLException falha(Migracao migracao, SQLException e) {
+        return new SQLException("Falha na migração " + migracao.versao + " (" + migracao.descricao +
+                                "): " + e.getMessage(), e);
+    }
+
+    // Índice do pai criado com ON ONLY e, em cada partição, construído com CONCURRENTLY e anexado.
+    // Repetível: um índice de partição inválido (construção interrompida) é refeito, e anexar um
+    // índice já anexado não tem efeito. Um índice do pai já válido é mantido como está.
+    private static void construir(Connection conn, Indice indice) throws SQLException {
+        if (Boolean.TRUE.equals(valido(conn, indice.nome))) {
+            return;
+        }
+        String criar = indice.unico ? "CREATE UNIQUE INDEX " : "CREATE INDEX ";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(criar + "IF NOT EXISTS " + indice.nome + " ON ONLY " + indice.tabela + " " +
+                         indice.definicao);
+
+            String prefixo = indice.tabela.toLowerCase() + "_";
+            for (String particao : particoes(conn, indice.tabela)) {
+                String nome = indice.nome + "_" + particao.substring(prefixo.length());
+                if (Boolean.FALSE.equals(valido(conn, nome))) {
+                    stmt.execute("DROP INDEX CONCURRENTLY " + nome);
+                }
+                stmt.execute(criar + "CONCURRENTLY IF NOT EXISTS " + nome + " ON " + particao + " " +
+                             indice.definicao);
+                stmt.execute("ALTER INDEX " + indice.nome + " ATTACH PARTITION " + nome);
+            }
+        }
+    }
+
+    // Validade do índice, ou null se ele não existe
+    private static Boolean valido(Connection conn, String nome) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                "WHERE c.relname = lower(?) AND pg_table_is_visible(c.oid)")) {
+            stmt.setString(1, nome);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getBoolean(1) : null;
+            }
+        }
+    }
+
+    private static List<String> particoes(Connection conn, String tabela) throws SQLException {
+        List<String> particoes = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = ?::regclass ORDER BY c.relname")) {
+            stmt.setString(1, tabela.toLowerCase());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    particoes.add(rs.getString(1));
+                }
+            }
+        }
+        return particoes;
+    }
+
+    private static int versaoAtual(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(versao), 0) FROM TB_SCHEMA_VERSAO")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static Set<Integer> versoesAplicadas(Connection conn) throws SQLException {
+        Set<Integer> versoes = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT versao FROM TB_SCHEMA_VERSAO")) {
+            while (rs.next()) {
+                versoes.add(rs.getInt(1));
+            }
+        }
+        return versoes;
+    }
+
+    private static Long pacienteAmostra(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MIN(id_paciente) FROM TB_PACIENTE")) {
+            rs.next();
+            long id = rs.getLong(1);
+            return rs.wasNull() ? null : id;
+        }
+    }
+
+    // Mediana de cada sonda, após uma execução de aquecimento; sondas por paciente são omitidas
+    // sem paciente de amostra, e as que leem relações ainda inexistentes (banco anterior à
+    // conversão da versão 0), também
+    private void medir(Connection conn, Long idPaciente, Map<String, Double> resultado) throws SQLException {
+        for (Sonda sonda : SONDAS) {
+            if (sonda.porPaciente && idPaciente == null) {
+                continue;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sonda.sql)) {
+                int indice = 1;
+                if (sonda.porPaciente) {
+                    stmt.setLong(indice++, idPaciente);
+                }
+                stmt.setTimestamp(indice, Timestamp.valueOf(LocalDateTime.now().minusDays(sonda.diasAtras)));
+
+                executar(stmt);
+                long[] tempos = new long[repeticoes];
+                for (int i = 0; i < repeticoes; i++) {
+                    long inicio = System.nanoTime();
+                    executar(stmt);
+                    tempos[i] = System.nanoTime() - inicio;
+                }
+                Arrays.sort(tempos);
+                resultado.put(sonda.nome, tempos[repeticoes / 2] / 1_000_000.0);
+            } catch (SQLException e) {
+                if (!"42P01".equals(e.getSQLState())) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void executar(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                // Consome o resultado inteiro, como a aplicação faria
+            }
+        }
+    }
+
+    // Versão 0: mesmo schema de database-setup.sql para as leituras, a partir da tabela única.
+    // As partições dos meses com leituras são criadas antes da cópia, para que as linhas não
+    // passem pela partição padrão; os triggers de NOTIFY vêm depois, para que a cópia não publique
+    // no feed de risco.
+    private static String[] conversaoTabelaUnica() {
+        List<String> comandos = new ArrayList<>();
+        // Uma instância antiga ainda em execução não grava leituras que ficariam para trás
+        comandos.add("LOCK TABLE TB_REGISTRO IN SHARE MODE");
+        comandos.add("CREATE SEQUENCE IF NOT EXISTS seq_registro INCREMENT BY 50");
+
+        comandos.add("CREATE TABLE IF NOT EXISTS TB_REGISTRO_GLICEMIA (" +
+            "id_registro BIGINT NOT NULL DEFAULT nextval('seq_registro'), id_paciente BIGINT NOT NULL, " +
+            "data_hora TIMESTAMP NOT NULL, valor_glicemia NUMERIC(6,2) NOT NULL, em_jejum BOOLEAN NOT NULL, " +
+            "tipo_insulina VARCHAR(50), nivel_risco nivel_risco_enum NOT NULL, observacoes VARCHAR(500), " +
+            "chave_idempotencia VARCHAR(64), " +
+            "CONSTRAINT pk_registro_glicemia PRIMARY KEY (id_registro, data_hora), " +
+            "CONSTRAINT fk_registro_glicemia_paciente FOREIGN KEY (id_paciente) " +
+            "REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE) PARTITION BY RANGE (data_hora)");
+        comandos.add("CREATE TABLE IF NOT EXISTS TB_REGISTRO_PRESSAO (" +
+            "id_registro BIGINT NOT NULL DEFAULT nextval('seq_registro'), id_paciente BIGINT NOT NULL, " +
+            "data_hora TIMESTAMP NOT NULL, sistolica SMALLINT NOT NULL, diastolica SMALLINT NOT NULL, " +
+            "nivel_risco nivel_risco_enum NOT NULL, observacoes VARCHAR(500), chave_idempotencia VARCHAR(64), " +
+            "CONSTRAINT pk_registro_pressao PRIMARY KEY (id_registro, data_hora), " +
+            "CONSTRAINT fk_registro_pressao_paciente FOREIGN KEY (id_paciente) " +
+            "REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE) PARTITION BY RANGE (data_hora)");
+        comandos.add("CREATE TABLE IF NOT EXISTS TB_REGISTRO_PESO (" +
+            "id_registro BIGINT NOT NULL DEFAULT nextval('seq_registro'), id_paciente BIGINT NOT NULL, " +
+            "data_hora TIMESTAMP NOT NULL, peso NUMERIC(5,2) NOT NULL, altura NUMERIC(3,2) NOT NULL, " +
+            "imc NUMERIC(4,2), nivel_risco nivel_risco_enum NOT NULL, observacoes VARCHAR(500), " +
+            "chave_idempotencia VARCHAR(64), " +
+            "CONSTRAINT pk_registro_peso PRIMARY KEY (id_registro, data_hora), " +
+            "CONSTRAINT fk_registro_peso_paciente FOREIGN KEY (id_paciente) " +
+            "REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE) PARTITION BY RANGE (data_hora)");
+        for (String tabela : TABELAS) {
+            comandos.add("CREATE TABLE IF NOT EXISTS " + tabela + "_PADRAO PARTITION OF " + tabela + " DEFAULT");
+        }
+
+        comandos.add("CREATE OR REPLACE FUNCTION fn_criar_particao_registro(tabela TEXT, mes DATE) " +
+            "RETURNS BOOLEAN AS $$\n" +
+            "DECLARE\n" +
+            "    inicio DATE := date_trunc('month', mes)::date;\n" +
+            "    fim DATE := (date_trunc('month', mes) + INTERVAL '1 month')::date;\n" +
+            "    nome TEXT := lower(tabela) || '_' || to_char(mes, 'YYYYMM');\n" +
+            "    padrao TEXT := lower(tabela) || '_padrao';\n" +
+            "BEGIN\n" +
+            "    IF to_regclass(nome) IS NOT NULL THEN\n" +
+            "        RETURN FALSE;\n" +
+            "    END IF;\n" +
+            "    EXECUTE format('LOCK TABLE %I IN SHARE ROW EXCLUSIVE MODE', padrao);\n" +
+            "    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', nome, lower(tabela));\n" +
+            "    EXECUTE format('WITH movidas AS (DELETE FROM %I WHERE data_hora >= %L ' ||\n" +
+            "                   'AND data_hora < %L RETURNING *) INSERT INTO %I SELECT * FROM movidas',\n" +
+            "                   padrao, inicio, fim, nome);\n" +
+            "    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',\n" +
+            "                   lower(tabela), nome, inicio, fim);\n" +
+            "    RETURN TRUE;\n" +
+            "END;\n" +
+            "$$ LANGUAGE plpgsql");
+        comandos.add("CREATE OR REPLACE FUNCTION fn_garantir_particoes_registro(meses_a_frente INTEGER) " +
+            "RETURNS INTEGER AS $$\n" +
+            "DECLARE\n" +
+            "    tabela TEXT;\n" +
+            "    mes DATE;\n" +
+            "    criadas INTEGER := 0;\n" +
+            "BEGIN\n" +
+            "    FOREACH tabela IN ARRAY ARRAY['tb_registro_glicemia', 'tb_registro_pressao', 'tb_registro_peso']\n" +
+            "    LOOP\n" +
+            "        FOR mes IN EXECUTE format(\n" +
+            "            'SELECT DISTINCT date_trunc(''month'', data_hora)::date FROM %I ' ||\n" +
+            "            'UNION SELECT generate_series(date_trunc(''month'', CURRENT_DATE), ' ||\n" +
+            "            'date_trunc(''month'', CURRENT_DATE) + make_interval(months => %s), ' ||\n" +
+            "            'INTERVAL ''1 month'')::date ORDER BY 1', tabela || '_padrao', meses_a_frente)\n" +
+            "        LOOP\n" +
+            "            IF fn_criar_particao_registro(tabela, mes) THEN\n" +
+            "                criadas := criadas + 1;\n" +
+            "            END IF;\n" +
+            "        END LOOP;\n" +
+            "    END LOOP;\n" +
+            "    RETURN criadas;\n" +
+            "END;\n" +
+            "$$ LANGUAGE plpgsql");
+
+        comandos.add("SELECT fn_criar_particao_registro(tabela, mes) FROM (" +
+            "SELECT DISTINCT 'tb_registro_' || lower(tipo_sinal::text) AS tabela, " +
+            "date_trunc('month', data_hora)::date AS mes FROM TB_REGISTRO) m ORDER BY tabela, mes");
+        comandos.add("SELECT fn_garantir_particoes_registro(3)");
+
+        // em_jejum: sim_nao_enum ('S'/'N') para BOOLEAN; pressões: NUMERIC para SMALLINT
+        comandos.add("INSERT INTO TB_REGISTRO_GLICEMIA (id_registro, id_paciente, data_hora, valor_glicemia, " +
+            "em_jejum, tipo_insulina, nivel_risco, observacoes) " +
+            "SELECT id_registro, id_paciente, data_hora, valor_principal, COALESCE(em_jejum = 'S', FALSE), " +
+            "tipo_insulina, nivel_risco, observacoes FROM TB_REGISTRO WHERE tipo_sinal = 'GLICEMIA'");
+        comandos.add("INSERT INTO TB_REGISTRO_PRESSAO (id_registro, id_paciente, data_hora, sistolica, " +
+            "diastolica, nivel_risco, observacoes) " +
+            "SELECT id_registro, id_paciente, data_hora, round(valor_principal)::smallint, " +
+            "round(valor_secundario)::smallint, nivel_risco, observacoes FROM TB_REGISTRO " +
+            "WHERE tipo_sinal = 'PRESSAO' AND valor_secundario IS NOT NULL");
+        comandos.add("INSERT INTO TB_REGISTRO_PESO (id_registro, id_paciente, data_hora, peso, altura, imc, " +
+            "nivel_risco, observacoes) " +
+            "SELECT id_registro, id_paciente, data_hora, valor_principal, altura, imc, nivel_risco, observacoes " +
+            "FROM TB_REGISTRO WHERE tipo_sinal = 'PESO' AND altura IS NOT NULL " +
+            "AND abs(valor_principal) < 1000");
+        // Os novos IDs vêm depois dos antigos, que TB_CONSULTA_IA continua referenciando
+        comandos.add("SELECT setval('seq_registro', GREATEST(" +
+            "(SELECT COALESCE(MAX(id_registro), 0) FROM TB_REGISTRO), " +
+            "(SELECT last_value FROM seq_registro), 1))");
+
+        comandos.add("CREATE OR REPLACE VIEW VW_REGISTRO AS " +
+            "SELECT id_registro, id_paciente, 'GLICEMIA'::tipo_sinal_enum AS tipo_sinal, data_hora, " +
+            "valor_glicemia AS valor_principal, NULL::numeric AS valor_secundario, " +
+            "'mg/dL'::varchar AS unidade_medida, nivel_risco, observacoes, " +
+            "(CASE WHEN em_jejum THEN 'S' ELSE 'N' END)::sim_nao_enum AS em_jejum, tipo_insulina, " +
+            "NULL::numeric AS altura, NULL::numeric AS imc " +
+            "FROM TB_REGISTRO_GLICEMIA " +
+            "UNION ALL " +
+            "SELECT id_registro, id_paciente, 'PRESSAO'::tipo_sinal_enum, data_hora, " +
+            "sistolica::numeric, diastolica::numeric, 'mmHg'::varchar, nivel_risco, observacoes, " +
+            "NULL::sim_nao_enum, NULL::varchar, NULL::numeric, NULL::numeric " +
+            "FROM TB_REGISTRO_PRESSAO " +
+            "UNION ALL " +
+            "SELECT id_registro, id_paciente, 'PESO'::tipo_sinal_enum, data_hora, " +
+            "peso::numeric, NULL::numeric, 'kg'::varchar, nivel_risco, observacoes, " +
+            "NULL::sim_nao_enum, NULL::varchar, altura::numeric, imc::numeric " +
+            "FROM TB_REGISTRO_PESO");
+
+        comandos.add("CREATE TABLE IF NOT EXISTS TB_REGISTRO_HORARIO (" +
+            "id_paciente BIGINT NOT NULL, tipo_sinal tipo_sinal_enum NOT NULL, hora TIMESTAMP NOT NULL, " +
+            "quantidade INTEGER NOT NULL, valor_minimo NUMERIC(6,2) NOT NULL, " +
+            "valor_maximo NUMERIC(6,2) NOT NULL, soma_valores NUMERIC(14,2) NOT NULL, " +
+            "CONSTRAINT pk_registro_horario PRIMARY KEY (id_paciente, tipo_sinal, hora), " +
+            "CONSTRAINT fk_registro_horario_paciente FOREIGN KEY (id_paciente) " +
+            "REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE)");
+        comandos.add("CREATE TABLE IF NOT EXISTS TB_REGISTRO_DIARIO (" +
+            "id_paciente BIGINT NOT NULL, tipo_sinal tipo_sinal_enum NOT NULL, dia DATE NOT NULL, " +
+            "quantidade INTEGER NOT NULL, valor_minimo NUMERIC(6,2) NOT NULL, " +
+            "valor_maximo NUMERIC(6,2) NOT NULL, soma_valores NUMERIC(14,2) NOT NULL, " +
+            "qtd_normal INTEGER NOT NULL DEFAULT 0, qtd_atencao INTEGER NOT NULL DEFAULT 0, " +
+            "qtd_alto INTEGER NOT NULL DEFAULT 0, qtd_critico INTEGER NOT NULL DEFAULT 0, " +
+            "CONSTRAINT pk_registro_diario PRIMARY KEY (id_paciente, tipo_sinal, dia), " +
+            "CONSTRAINT fk_registro_diario_paciente FOREIGN KEY (id_paciente) " +
+            "REFERENCES TB_PACIENTE(id_paciente) ON DELETE CASCADE)");
+        // Rollup refeito das leituras convertidas e dos agregados horários da retenção
+        comandos.add("DELETE FROM TB_REGISTRO_DIARIO");
+        comandos.add("INSERT INTO TB_REGISTRO_DIARIO (id_paciente, tipo_sinal, dia, quantidade, valor_minimo, " +
+            "valor_maximo, soma_valores, qtd_normal, qtd_atencao, qtd_alto, qtd_critico) " +
+            "SELECT id_paciente, tipo_sinal, dia, SUM(quantidade), MIN(valor_minimo), MAX(valor_maximo), " +
+            "SUM(soma_valores), SUM(qtd_normal), SUM(qtd_atencao), SUM(qtd_alto), SUM(qtd_critico) FROM (" +
+            "SELECT id_paciente, tipo_sinal, data_hora::date AS dia, COUNT(*) AS quantidade, " +
+            "MIN(valor_principal) AS valor_minimo, MAX(valor_principal) AS valor_maximo, " +
+            "SUM(valor_principal) AS soma_valores, " +
+            "COUNT(*) FILTER (WHERE nivel_risco = 'NORMAL') AS qtd_normal, " +
+            "COUNT(*) FILTER (WHERE nivel_risco = 'ATENCAO') AS qtd_atencao, " +
+            "COUNT(*) FILTER (WHERE nivel_risco = 'ALTO') AS qtd_alto, " +
+            "COUNT(*) FILTER (WHERE nivel_risco = 'CRITICO') AS qtd_critico " +
+            "FROM VW_REGISTRO GROUP BY id_paciente, tipo_sinal, data_hora::date " +
+            "UNION ALL " +
+            "SELECT id_paciente, tipo_sinal, hora::date, SUM(quantidade), MIN(valor_minimo), " +
+            "MAX(valor_maximo), SUM(soma_valores), SUM(quantidade), 0, 0, 0 " +
+            "FROM TB_REGISTRO_HORARIO GROUP BY id_paciente, tipo_sinal, hora::date) d " +
+            "GROUP BY id_paciente, tipo_sinal, dia");
+
+        // Sem FK para as leituras (chave particionada); id_paciente vem da leitura referenciada
+        comandos.add("ALTER TABLE TB_CONSULTA_IA DROP CONSTRAINT IF EXISTS fk_consulta_registro");
+        comandos.add("ALTER TABLE TB_CONSULTA_IA ALTER COLUMN id_registro DROP NOT NULL, " +
+            "ADD COLUMN IF NOT EXISTS id_paciente BIGINT, " +
+            "ADD COLUMN IF NOT EXISTS tipo_consulta VARCHAR(20), " +
+            "ADD COLUMN IF NOT EXISTS provedor VARCHAR(50), " +
+            "ADD COLUMN IF NOT EXISTS fallback sim_nao_enum, " +
+            "ADD COLUMN IF NOT EXISTS tamanho_prompt INTEGER, " +
+            "ADD COLUMN IF NOT EXISTS tamanho_resposta INTEGER");
+        comandos.add("UPDATE TB_CONSULTA_IA c SET id_paciente = r.id_paciente FROM TB_REGISTRO r " +
+            "WHERE c.id_paciente IS NULL AND c.id_registro = r.id_registro");
+        comandos.add("CREATE INDEX IF NOT EXISTS idx_consulta_data ON TB_CONSULTA_IA(data_consulta)");
+
+        // Os demais índices das leituras são criados pelas migrações seguintes
+        for (int i = 0; i < TABELAS.length; i++) {
+            comandos.add("CREATE INDEX IF NOT EXISTS idx_" + PREFIXOS[i] + "_critico_data ON " + TABELAS[i] +
+                "(data_hora, id_paciente) WHERE nivel_risco = 'CRITICO'");
+            comandos.add("CREATE INDEX IF NOT EXISTS idx_" + PREFIXOS[i] + "_alto_data ON " + TABELAS[i] +
+                "(data_hora, id_paciente) WHERE nivel_risco = 'ALTO'");
+            comandos.add("CREATE INDEX IF NOT EXISTS idx_" + PREFIXOS[i] + "_critico_paciente ON " + TABELAS[i] +
+                "(id_paciente) WHERE nivel_risco = 'CRITICO'");
+        }
+
+        comandos.add("CREATE OR REPLACE FUNCTION fn_notificar_registro_risco() RETURNS trigger AS $$\n" +
+            "BEGIN\n" +
+            "    PERFORM pg_notify('registro_risco', concat_ws('|', NEW.id_registro, NEW.id_paciente,\n" +
+            "        TG_ARGV[0], NEW.nivel_risco, to_jsonb(NEW) ->> TG_ARGV[1],\n" +
+            "        to_char(NEW.data_hora, 'YYYY-MM-DD\"T\"HH24:MI:SS')));\n" +
+            "    RETURN NULL;\n" +
+            "END;\n" +
+            "$$ LANGUAGE plpgsql");
+        String[] colunasValor = {"valor_glicemia", "sistolica", "peso"};
+        String[] tipos = {"GLICEMIA", "PRESSAO", "PESO"};
+        for (int i = 0; i < TABELAS.length; i++) {
+            comandos.add("DROP TRIGGER IF EXISTS trg_" + PREFIXOS[i] + "_risco ON " + TABELAS[i]);
+            comandos.add("CREATE TRIGGER trg_" + PREFIXOS[i] + "_risco AFTER INSERT ON " + TABELAS[i] +
+                " FOR EACH ROW WHEN (NEW.nivel_risco IN ('ALTO', 'CRITICO')) " +
+                "EXECUTE FUNCTION fn_notificar_registro_risco('" + tipos[i] + "', '" + colunasValor[i] + "')");
+        }
+
+        // Restos do TB_REGISTRO particionado por mês: o trigger de NOTIFY da tabela única e a versão
+        // de fn_criar_particao_registro só com o mês, que cria partições dela. As partições
+        // (tb_registro_AAAAMM e tb_registro_padrao) acompanham a tabela renomeada.
+        comandos.add("DROP TRIGGER IF EXISTS trg_registro_risco ON TB_REGISTRO");
+        comandos.add("DROP FUNCTION IF EXISTS fn_criar_particao_registro(DATE)");
+        comandos.add("ALTER TABLE TB_REGISTRO RENAME TO TB_REGISTRO_LEGADO");
+        return comandos.toArray(new String[0]);
+    }
+
+    private static Indice[] indicesBrin() {
+        Indice[] indices = new Indice[TABELAS.length];
+        for (int i = 0; i < TABELAS.length; i++) {
+            indices[i] = new Indice("idx_" + PREFIXOS[i] + "_data_brin", TABELAS[i], false,
+                                    "USING brin (data_hora) WITH (pages_per_range = 32)");
+        }
+        return indices;
+    }
+
+    private static String[] indicesRemovidos() {
+        String[] comandos = new String[PREFIXOS.length];
+        for (int i = 0; i < PREFIXOS.length; i++) {
+            comandos[i] = "DROP INDEX IF EXISTS idx_" + PREFIXOS[i] + "_paciente";
+        }
+        return comandos;
+    }
+
+    private static String[] colunasIdempotencia() {
+        String[] comandos = new String[TABELAS.length];
+        for (int i = 0; i < TABELAS.length; i++) {
+            comandos[i] = "ALTER TABLE " + TABELAS[i] + " ADD COLUMN IF NOT EXISTS chave_idempotencia VARCHAR(64)";
+        }
+        return comandos;
+    }
+
+    private static Indice[] indicesIdempotencia() {
+        Indice[] indices = new Indice[TABELAS.length];
+        for (int i = 0; i < TABELAS.length; i++) {
+            indices[i] = new Indice("uq_" + PREFIXOS[i] + "_chave", TABELAS[i], true,
+                                    "(id_paciente, chave_idempotencia, data_hora)");
+        }
+        return indices;
+    }
+
+    // Executados depois da construção de idx_*_retencao
+    private static String[] indicesDataRemovidos() {
+        String[] comandos = new String[PREFIXOS.length];
+        for (int i = 0; i < PREFIXOS.length; i++) {
+            comandos[i] = "DROP INDEX IF EXISTS idx_" + PREFIXOS[i] + "_data";
+        }
+        return comandos;
+    }
+
+    private static Indice[] indicesRetencao() {
+        Indice[] indices = new Indice[TABELAS.length];
+        for (int i = 0; i < TABELAS.length; i++) {
+            indices[i] = new Indice("idx_" + PREFIXOS[i] + "_retencao", TABELAS[i], false,
+                                    "(data_hora, id_registro) WHERE nivel_risco = 'NORMAL'");
+        }
+        return indices;
+    }
+
+    private static class Migracao {
+        private final int versao;
+        private final String descricao;
+        // SELECT de um booleano; null = sempre executar
+        private final String condicao;
+        private final String[] comandos;
+        private final Indice[] indices;
+        // Comandos executados após os índices, já fora da transação
+        private final String[] comandosFinais;
+
+        Migracao(int versao, String descricao, String... comandos) {
+            this(versao, descricao, comandos, new Indice[0], new String[0]);
+        }
+
+        Migracao(int versao, String descricao, String condicao, String[] comandos) {
+            this(versao, descricao, condicao, comandos, new Indice[0], new String[0]);
+        }
+
+        Migracao(int versao, String descricao, Indice... indices) {
+            this(versao, descricao, new String[0], indices, new String[0]);
+        }
+
+        Migracao(int versao, String descricao, String[] comandos, Indice[] indices,
+                         String[] comandosFinais) {
+            this(versao, descricao, null, comandos, indices, comandosFinais);
+        }
+
+        Migracao(int versao, String descricao, String condicao, String[] comandos, Indice[] indices,
+                 String[] comandosFinais) {
+            this.versao = versao;
+            this.descricao = descricao;
+            this.condicao = condicao;
+            this.comandos = comandos;
+            this.indices = indices;
+            this.comandosFinais = comandosFinais;
+        }
+    }
+
+    private static class Indice {
+        private final String nome;
+        private final String tabela;
+        private final boolean unico;
+        // Método, colunas e predicado, como após "ON tabela"
+        private final String definicao;
+
+        Indice(String nome, String tabela, boolean unico, String definicao) {
+            this.nome = nome;
+            this.tabela = tabela;
+            this.unico = unico;
+            this.definicao = definicao;
+        }
+    }
+
+    private static class Sonda {
+        private final String nome;
+        private final boolean porPaciente;
+        private final int diasAtras;
+        private final String sql;
+
+        Sonda(String nome, boolean porPaciente, int diasAtras, String sql) {
+            this.nome = nome;
+            this.porPaciente = porPaciente;
+            this.diasAtras = diasAtras;
+            this.sql = sql;
+        }
+    }
+
+    public static class Relatorio {
+        private int versaoInicial;
+        private int versaoFinal;
+        private long duracaoMs;
+        private final List<String> aplicadas = new ArrayList<>();
+        private final Map<String, Double> latenciaAntes = new LinkedHashMap<>();
+        private final Map<String, Double> latenciaDepois = new LinkedHashMap<>();
+
+        public int getVersaoInicial() { return versaoInicial; }
+        public int getVersaoFinal() { return versaoFinal; }
+        public long getDuracaoMs() { return duracaoMs; }
+        public List<String> getAplicadas() { return aplicadas; }
+        public Map<String, Double> getLatenciaAntes() { return latenciaAntes; }
+        public Map<String, Double> getLatenciaDepois() { return latenciaDepois; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(
+                "Schema: versão %d -> %d | %d migrações aplicadas | %d ms",
+                versaoInicial, versaoFinal, aplicadas.size(), duracaoMs));
+            for (String migracao : aplicadas) {
+                sb.append("\n  ").append(migracao);
+            }
+            for (Map.Entry<String, Double> antes : latenciaAntes.entrySet()) {
+                Double depois = latenciaDepois.get(antes.getKey());
+                sb.append(String.format("\n  %-35s antes %8.2f ms | depois %8.2f ms",
+                    antes.getKey(), antes.getValue(), depois != null ? depois : Double.NaN));
+            }
+            return sb.toString();
+        }
+    }
+}
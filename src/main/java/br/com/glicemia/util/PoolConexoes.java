@@ -0,0 +1,437 @@
+package br.com.glicemia.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+// Pool de conexões JDBC. Evita o handshake TCP/TLS e a autenticação no PostgreSQL a cada operação dos DAOs.
+//
+// Um empréstimo nunca fechado mantém sua permissão: cada vazamento reduz o pool de vez. Com
+// tempoRecuperacaoVazamentoMs > 0, a conexão emprestada há mais tempo que isso é fechada à força
+// e a permissão, devolvida; o valor precisa superar a operação legítima mais longa (cargas via
+// COPY, migrações), que falharia com a conexão fechada.
+public class PoolConexoes implements DataSource {
+
+    private final String url;
+    private final Properties propriedadesConexao;
+    private final int tamanhoMinimo;
+    private final int tamanhoMaximo;
+    private final long tempoMaximoEsperaMs;
+    private final long tempoMaximoOciosoMs;
+    private final int timeoutValidacaoSegundos;
+    private final long limiteVazamentoMs;
+    private final long tempoRecuperacaoVazamentoMs;
+
+    private final LinkedBlockingDeque<ConexaoFisica> ociosas = new LinkedBlockingDeque<>();
+    private final Map<ConexaoFisica, Emprestimo> emprestadas = new ConcurrentHashMap<>();
+    private final Semaphore permissoes;
+    private final AtomicInteger totalConexoes = new AtomicInteger();
+    private final ScheduledExecutorService manutencao;
+    private volatile boolean fechado = false;
+
+    private final AtomicLong totalEmprestimos = new AtomicLong();
+    private final AtomicLong tempoEsperaTotalNanos = new AtomicLong();
+    private final AtomicLong tempoEsperaMaximoNanos = new AtomicLong();
+    private final AtomicLong conexoesDescartadas = new AtomicLong();
+    private final AtomicLong vazamentosDetectados = new AtomicLong();
+    private final AtomicLong vazamentosRecuperados = new AtomicLong();
+
+    public PoolConexoes(String url, Properties propriedadesConexao, int tamanhoMinimo,
+                        int tamanhoMaximo, long tempoMaximoEsperaMs, long tempoMaximoOciosoMs,
+                        int timeoutValidacaoSegundos, long limiteVazamentoMs,
+                        long tempoRecuperacaoVazamentoMs) {
+        if (tamanhoMaximo < 1 || tamanhoMinimo < 0 || tamanhoMinimo > tamanhoMaximo) {
+            throw new IllegalArgumentException("Tamanho de pool inválido: min=" + tamanhoMinimo +
+                ", max=" + tamanhoMaximo);
+        }
+
+        this.url = url;
+        this.propriedadesConexao = propriedadesConexao;
+        this.tamanhoMinimo = tamanhoMinimo;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.tempoMaximoEsperaMs = tempoMaximoEsperaMs;
+        this.tempoMaximoOciosoMs = tempoMaximoOciosoMs;
+        this.timeoutValidacaoSegundos = timeoutValidacaoSegundos;
+        this.limiteVazamentoMs = limiteVazamentoMs;
+        this.tempoRecuperacaoVazamentoMs = tempoRecuperacaoVazamentoMs;
+        this.permissoes = new Semaphore(tamanhoMaximo, true);
+
+        this.manutencao = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "glicemia-pool-manutencao");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.manutencao.scheduleWithFixedDelay(this::executarManutencao, 0, 30, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (fechado) {
+            throw new SQLException("Pool de conexões encerrado");
+        }
+
+        long inicio = System.nanoTime();
+        try {
+            if (!permissoes.tryAcquire(tempoMaximoEsperaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Tempo esgotado aguardando conexão do pool (" +
+                    tempoMaximoEsperaMs + " ms). Ativas: " + emprestadas.size() +
+                    "/" + tamanhoMaximo);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão do pool", e);
+        }
+
+        try {
+            ConexaoFisica fisica = obterConexaoValida();
+            registrarEspera(System.nanoTime() - inicio);
+
+            boolean rastrear = limiteVazamentoMs > 0 || tempoRecuperacaoVazamentoMs > 0;
+            Emprestimo emprestimo = new Emprestimo(rastrear ? new Throwable() : null);
+            emprestadas.put(fisica, emprestimo);
+            return criarProxy(fisica);
+
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    private ConexaoFisica obterConexaoValida() throws SQLException {
+        ConexaoFisica fisica;
+        while ((fisica = ociosas.pollFirst()) != null) {
+            if (validar(fisica)) {
+                return fisica;
+            }
+            descartar(fisica);
+        }
+        return abrirConexao();
+    }
+
+    private boolean validar(ConexaoFisica fisica) {
+        try {
+            return fisica.conexao.isValid(timeoutValidacaoSegundos);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private ConexaoFisica abrirConexao() throws SQLException {
+        Connection conexao = DriverManager.getConnection(url, propriedadesConexao);
+        totalConexoes.incrementAndGet();
+        return new ConexaoFisica(conexao);
+    }
+
+    private void devolver(ConexaoFisica fisica) {
+        // Já recuperada como vazamento: a conexão foi descartada e a permissão, devolvida
+        if (emprestadas.remove(fisica) == null) {
+            return;
+        }
+
+        try {
+            if (fechado || fisica.conexao.isClosed()) {
+                descartar(fisica);
+            } else {
+                restaurarEstado(fisica.conexao);
+                fisica.ultimoUso = System.currentTimeMillis();
+                ociosas.offerFirst(fisica);
+            }
+        } catch (SQLException e) {
+            descartar(fisica);
+        } finally {
+            permissoes.release();
+        }
+    }
+
+    // Desfaz transações pendentes para que a próxima operação receba a conexão limpa.
+    private void restaurarEstado(Connection conexao) throws SQLException {
+        if (!conexao.getAutoCommit()) {
+            conexao.rollback();
+            conexao.setAutoCommit(true);
+        }
+        if (conexao.isReadOnly()) {
+            conexao.setReadOnly(false);
+        }
+        conexao.clearWarnings();
+    }
+
+    private void descartar(ConexaoFisica fisica) {
+        totalConexoes.decrementAndGet();
+        conexoesDescartadas.incrementAndGet();
+        try {
+            fisica.conexao.close();
+        } catch (SQLException e) {
+            System.err.println("Erro ao descartar conexão do pool: " + e.getMessage());
+        }
+    }
+
+    private void executarManutencao() {
+        try {
+            removerOciosasExpiradas();
+            verificarVazamentos();
+            completarMinimo();
+        } catch (RuntimeException e) {
+            System.err.println("Erro na manutenção do pool: " + e.getMessage());
+        }
+    }
+
+    private void removerOciosasExpiradas() {
+        long limite = System.currentTimeMillis() - tempoMaximoOciosoMs;
+        for (ConexaoFisica fisica : ociosas) {
+            if (totalConexoes.get() <= tamanhoMinimo) {
+                return;
+            }
+            if (fisica.ultimoUso < limite && ociosas.remove(fisica)) {
+                descartar(fisica);
+            }
+        }
+    }
+
+    private void verificarVazamentos() {
+        long agora = System.currentTimeMillis();
+        for (Map.Entry<ConexaoFisica, Emprestimo> entrada : emprestadas.entrySet()) {
+            Emprestimo emprestimo = entrada.getValue();
+            long emprestadaHaMs = agora - emprestimo.inicio;
+
+            if (limiteVazamentoMs > 0 && !emprestimo.reportado && emprestadaHaMs > limiteVazamentoMs) {
+                emprestimo.reportado = true;
+                vazamentosDetectados.incrementAndGet();
+                System.err.println("⚠ Possível vazamento de conexão: emprestada há " + emprestadaHaMs +
+                    " ms sem ser fechada. Origem:\n" + pilha(emprestimo.origem));
+            }
+
+            // remove(chave, valor) decide a corrida com o close() do proxy: só um devolve a permissão
+            if (tempoRecuperacaoVazamentoMs > 0 && emprestadaHaMs > tempoRecuperacaoVazamentoMs &&
+                    emprestadas.remove(entrada.getKey(), emprestimo)) {
+                vazamentosRecuperados.incrementAndGet();
+                descartar(entrada.getKey());
+                permissoes.release();
+                System.err.println("⚠ Conexão emprestada há " + emprestadaHaMs +
+                    " ms fechada à força e devolvida ao pool. Origem:\n" + pilha(emprestimo.origem));
+            }
+        }
+    }
+
+    private static String pilha(Throwable origem) {
+        StringWriter texto = new StringWriter();
+        origem.printStackTrace(new PrintWriter(texto));
+        return texto.toString();
+    }
+
+    private void completarMinimo() {
+        while (!fechado && totalConexoes.get() < tamanhoMinimo) {
+            try {
+                ConexaoFisica fisica = abrirConexao();
+                fisica.ultimoUso = System.currentTimeMillis();
+                ociosas.offerLast(fisica);
+            } catch (SQLException e) {
+                System.err.println("Não foi possível abrir conexão mínima do pool: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        totalEmprestimos.incrementAndGet();
+        tempoEsperaTotalNanos.addAndGet(nanos);
+        tempoEsperaMaximoNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private Connection criarProxy(ConexaoFisica fisica) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean devolvida = false;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String nome = method.getName();
+
+                if ("close".equals(nome)) {
+                    if (!devolvida) {
+                        devolvida = true;
+                        devolver(fisica);
+                    }
+                    return null;
+                }
+                if ("isClosed".equals(nome)) {
+                    return devolvida || fisica.conexao.isClosed();
+                }
+                if ("equals".equals(nome)) {
+                    return proxy == args[0];
+                }
+                if ("hashCode".equals(nome)) {
+                    return System.identityHashCode(proxy);
+                }
+                if ("toString".equals(nome)) {
+                    return "ConexaoPool[" + fisica.conexao + "]";
+                }
+                if (devolvida) {
+                    throw new SQLException("Conexão já devolvida ao pool");
+                }
+
+                try {
+                    return method.invoke(fisica.conexao, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+
+        return (Connection) Proxy.newProxyInstance(
+            PoolConexoes.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    public void fechar() {
+        fechado = true;
+        manutencao.shutdownNow();
+
+        ConexaoFisica fisica;
+        while ((fisica = ociosas.pollFirst()) != null) {
+            descartar(fisica);
+        }
+    }
+
+    public Estatisticas getEstatisticas() {
+        long emprestimos = totalEmprestimos.get();
+        return new Estatisticas(
+            emprestadas.size(),
+            ociosas.size(),
+            totalConexoes.get(),
+            permissoes.getQueueLength(),
+            emprestimos,
+            emprestimos > 0 ? tempoEsperaTotalNanos.get() / emprestimos / 1_000_000.0 : 0.0,
+            tempoEsperaMaximoNanos.get() / 1_000_000.0,
+            conexoesDescartadas.get(),
+            vazamentosDetectados.get(),
+            vazamentosRecuperados.get()
+        );
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pool configurado com credenciais fixas");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return DriverManager.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        DriverManager.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Não é possível converter o pool para " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static class ConexaoFisica {
+        private final Connection conexao;
+        private volatile long ultimoUso = System.currentTimeMillis();
+
+        ConexaoFisica(Connection conexao) {
+            this.conexao = conexao;
+        }
+    }
+
+    private static class Emprestimo {
+        private final long inicio = System.currentTimeMillis();
+        private final Throwable origem;
+        private volatile boolean reportado = false;
+
+        Emprestimo(Throwable origem) {
+            this.origem = origem;
+        }
+    }
+
+    public static class Estatisticas {
+        private final int ativas;
+        private final int ociosas;
+        private final int total;
+        private final int aguardando;
+        private final long totalEmprestimos;
+        private final double tempoMedioEsperaMs;
+        private final double tempoMaximoEsperaMs;
+        private final long descartadas;
+        private final long vazamentos;
+        private final long vazamentosRecuperados;
+
+        Estatisticas(int ativas, int ociosas, int total, int aguardando, long totalEmprestimos,
+                     double tempoMedioEsperaMs, double tempoMaximoEsperaMs,
+                     long descartadas, long vazamentos, long vazamentosRecuperados) {
+            this.ativas = ativas;
+            this.ociosas = ociosas;
+            this.total = total;
+            this.aguardando = aguardando;
+            this.totalEmprestimos = totalEmprestimos;
+            this.tempoMedioEsperaMs = tempoMedioEsperaMs;
+            this.tempoMaximoEsperaMs = tempoMaximoEsperaMs;
+            this.descartadas = descartadas;
+            this.vazamentos = vazamentos;
+            this.vazamentosRecuperados = vazamentosRecuperados;
+        }
+
+        public int getAtivas() { return ativas; }
+        public int getOciosas() { return ociosas; }
+        public int getTotal() { return total; }
+        public int getAguardando() { return aguardando; }
+        public long getTotalEmprestimos() { return totalEmprestimos; }
+        public double getTempoMedioEsperaMs() { return tempoMedioEsperaMs; }
+        public double getTempoMaximoEsperaMs() { return tempoMaximoEsperaMs; }
+        public long getDescartadas() { return descartadas; }
+        public long getVazamentos() { return vazamentos; }
+        public long getVazamentosRecuperados() { return vazamentosRecuperados; }
+
+        @Override
+        public String toString() {
+            return String.format("Pool: %d ativas | %d ociosas | %d total | %d aguardando | " +
+                    "espera média %.2f ms (máx %.2f ms) | %d empréstimos | %d descartadas | " +
+                    "%d vazamentos (%d recuperados)",
+                ativas, ociosas, total, aguardando, tempoMedioEsperaMs, tempoMaximoEsperaMs,
+                totalEmprestimos, descartadas, vazamentos, vazamentosRecuperados);
+        }
+    }
+}
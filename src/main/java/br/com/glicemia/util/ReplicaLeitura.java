@@ -0,0 +1,183 @@
+package br.com.glicemia.util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Roteamento de leituras para uma réplica PostgreSQL. Uma tarefa periódica mede o atraso da
+// réplica; leituras só vão para ela enquanto o atraso estiver dentro do limite configurado.
+// Depois de uma escrita para um paciente, as leituras desse paciente ficam no primário pelo
+// mesmo limite (read-your-writes): passado esse tempo, qualquer réplica aceita já tem a escrita.
+// Leituras sem paciente associado vão ao primário se houve qualquer escrita dentro do limite.
+public class ReplicaLeitura {
+
+    // Em um servidor que não está em recuperação (ex.: segunda instância local) o atraso é zero.
+    // Replay em dia com o que foi recebido só vale como atraso zero com o receptor de WAL
+    // ativo e com mensagem do primário dentro de 10 s; sem isso, o que foi recebido pode estar
+    // arbitrariamente atrasado e o atraso passa a ser o tempo desde a última transação aplicada
+    // (sem nenhuma aplicada, desconhecido: a réplica não é usada). Um usuário sem
+    // pg_read_all_stats não vê o status do receptor e cai sempre no segundo critério.
+    private static final String SQL_ATRASO =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() AND EXISTS (" +
+            "SELECT 1 FROM pg_stat_wal_receiver WHERE status = 'streaming' " +
+            "AND last_msg_receipt_time > now() - INTERVAL '10 seconds') THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, " +
+            "'Infinity'::float8) END";
+
+    private final PoolConexoes primario;
+    private final PoolConexoes replica;
+    private final long atrasoMaximoMs;
+    private final ScheduledExecutorService monitor;
+
+    private final Map<Long, Long> ultimasEscritas = new ConcurrentHashMap<>();
+    private volatile long ultimaEscritaNanos;
+    private volatile long atrasoMedidoMs = Long.MAX_VALUE;
+    private volatile boolean disponivel = false;
+
+    private final AtomicLong leiturasReplica = new AtomicLong();
+    private final AtomicLong leiturasPrimario = new AtomicLong();
+    private final AtomicLong desviosPorAtraso = new AtomicLong();
+    private final AtomicLong desviosPorEscrita = new AtomicLong();
+    private final AtomicLong falhasReplica = new AtomicLong();
+
+    public ReplicaLeitura(PoolConexoes primario, PoolConexoes replica, long atrasoMaximoMs,
+                          long intervaloVerificacaoMs) {
+        this.primario = primario;
+        this.replica = replica;
+        this.atrasoMaximoMs = atrasoMaximoMs;
+
+        this.monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "glicemia-replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.monitor.scheduleWithFixedDelay(this::verificar, 0, intervaloVerificacaoMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection(Long idPaciente) throws SQLException {
+        if (!disponivel || atrasoMedidoMs > atrasoMaximoMs) {
+            desviosPorAtraso.incrementAndGet();
+            return conexaoPrimario();
+        }
+        if (escreveuRecentemente(idPaciente)) {
+            desviosPorEscrita.incrementAndGet();
+            return conexaoPrimario();
+        }
+
+        try {
+            Connection conexao = replica.getConnection();
+            leiturasReplica.incrementAndGet();
+            return conexao;
+        } catch (SQLException e) {
+            // Fica fora de uso até a próxima verificação bem-sucedida
+            disponivel = false;
+            falhasReplica.incrementAndGet();
+            return conexaoPrimario();
+        }
+    }
+
+    public void registrarEscrita(Long idPaciente) {
+        long agora = System.nanoTime();
+        ultimaEscritaNanos = agora;
+        if (idPaciente != null) {
+            ultimasEscritas.put(idPaciente, agora);
+        }
+    }
+
+    private boolean escreveuRecentemente(Long idPaciente) {
+        long limiteNanos = TimeUnit.MILLISECONDS.toNanos(atrasoMaximoMs);
+        long agora = System.nanoTime();
+        if (idPaciente == null) {
+            return ultimaEscritaNanos != 0 && agora - ultimaEscritaNanos <= limiteNanos;
+        }
+        Long escrita = ultimasEscritas.get(idPaciente);
+        return escrita != null && agora - escrita <= limiteNanos;
+    }
+
+    private Connection conexaoPrimario() throws SQLException {
+        leiturasPrimario.incrementAndGet();
+        return primario.getConnection();
+    }
+
+    private void verificar() {
+        try (Connection conexao = replica.getConnection();
+             Statement stmt = conexao.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_ATRASO)) {
+            rs.next();
+            double atraso = rs.getDouble(1);
+            atrasoMedidoMs = Double.isInfinite(atraso) ? Long.MAX_VALUE : (long) atraso;
+            disponivel = true;
+        } catch (SQLException e) {
+            if (disponivel) {
+                System.err.println("Réplica de leitura indisponível, usando o primário: " + e.getMessage());
+            }
+            disponivel = false;
+            falhasReplica.incrementAndGet();
+        }
+
+        // Escritas mais antigas que o limite já não influenciam o roteamento
+        long limiteNanos = TimeUnit.MILLISECONDS.toNanos(atrasoMaximoMs);
+        long agora = System.nanoTime();
+        ultimasEscritas.values().removeIf(escrita -> agora - escrita > limiteNanos);
+    }
+
+    public void fechar() {
+        monitor.shutdownNow();
+        replica.fechar();
+    }
+
+    public Estatisticas getEstatisticas() {
+        return new Estatisticas(disponivel, atrasoMedidoMs, atrasoMaximoMs, leiturasReplica.get(),
+                                leiturasPrimario.get(), desviosPorAtraso.get(), desviosPorEscrita.get(),
+                                falhasReplica.get());
+    }
+
+    public static class Estatisticas {
+        private final boolean disponivel;
+        private final long atrasoMs;
+        private final long atrasoMaximoMs;
+        private final long leiturasReplica;
+        private final long leiturasPrimario;
+        private final long desviosPorAtraso;
+        private final long desviosPorEscrita;
+        private final long falhas;
+
+        Estatisticas(boolean disponivel, long atrasoMs, long atrasoMaximoMs, long leiturasReplica,
+                     long leiturasPrimario, long desviosPorAtraso, long desviosPorEscrita, long falhas) {
+            this.disponivel = disponivel;
+            this.atrasoMs = atrasoMs;
+            this.atrasoMaximoMs = atrasoMaximoMs;
+            this.leiturasReplica = leiturasReplica;
+            this.leiturasPrimario = leiturasPrimario;
+            this.desviosPorAtraso = desviosPorAtraso;
+            this.desviosPorEscrita = desviosPorEscrita;
+            this.falhas = falhas;
+        }
+
+        public boolean isDisponivel() { return disponivel; }
+        public long getAtrasoMs() { return atrasoMs; }
+        public long getAtrasoMaximoMs() { return atrasoMaximoMs; }
+        public long getLeiturasReplica() { return leiturasReplica; }
+        public long getLeiturasPrimario() { return leiturasPrimario; }
+        public long getDesviosPorAtraso() { return desviosPorAtraso; }
+        public long getDesviosPorEscrita() { return desviosPorEscrita; }
+        public long getFalhas() { return falhas; }
+
+        @Override
+        public String toString() {
+            return String.format("Réplica de leitura: %s | atraso %s (máx %d ms) | %d leituras na réplica | " +
+                    "%d no primário (%d por atraso, %d por escrita recente) | %d falhas",
+                disponivel ? "disponível" : "indisponível",
+                atrasoMs == Long.MAX_VALUE ? "desconhecido" : atrasoMs + " ms", atrasoMaximoMs,
+                leiturasReplica, leiturasPrimario, desviosPorAtraso, desviosPorEscrita, falhas);
+        }
+    }
+}
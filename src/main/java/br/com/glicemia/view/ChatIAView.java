@@ -1,6 +1,6 @@
 package br.com.glicemia.view;
 
-import br.com.glicemia.dao.impl.RegistroDAOImpl;
+import br.com.glicemia.bo.GerenciadorRegistroBO;
 import br.com.glicemia.model.NivelRisco;
 import br.com.glicemia.model.vo.SinalVital;
 import br.com.glicemia.service.ConversationSession;
@@ -15,13 +15,13 @@ import java.util.Scanner;
 public class ChatIAView {
 
     private final Scanner scanner;
-    private final RegistroDAOImpl registroDAO;
+    private final GerenciadorRegistroBO registroBO;
     private final GerenciadorIA gerenciadorIA;
     private final TopicValidator validator;
 
     public ChatIAView() {
         this.scanner = new Scanner(System.in);
-        this.registroDAO = new RegistroDAOImpl();
+        this.registroBO = new GerenciadorRegistroBO();
         this.gerenciadorIA = new GerenciadorIA();
         this.validator = new TopicValidator();
     }
@@ -33,7 +33,7 @@ public class ChatIAView {
 
             // Carrega histórico do paciente
             System.out.println("Carregando seu histórico médico...\n");
-            List<SinalVital> historico = registroDAO.buscarUltimosRegistros(idPaciente, 10);
+            List<SinalVital> historico = registroBO.buscarHistoricoRecente(idPaciente, 10);
 
             if (historico.isEmpty()) {
                 System.out.println("⚠ Nenhum registro encontrado. Registre seus sinais vitais primeiro!");
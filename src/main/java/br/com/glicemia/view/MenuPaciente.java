@@ -1,8 +1,14 @@
 package br.com.glicemia.view;
 
 import br.com.glicemia.bo.GerenciadorPacienteBO;
+import br.com.glicemia.bo.ImportadorPacientes;
 import br.com.glicemia.model.vo.Paciente;
 import br.com.glicemia.util.AlertaEmergencia;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -28,6 +34,7 @@ public class MenuPaciente {
             System.out.println("1. Cadastrar Novo Paciente");
             System.out.println("2. Buscar Paciente por CPF");
             System.out.println("3. Listar Todos os Pacientes");
+            System.out.println("4. Importar Pacientes (CSV)");
             System.out.println("0. Voltar");
             System.out.print("\nEscolha uma opção: ");
 
@@ -43,6 +50,9 @@ public class MenuPaciente {
                 case 3:
                     listarPacientes();
                     break;
+                case 4:
+                    importarPacientes();
+                    break;
                 case 0:
                     voltar = true;
                     break;
@@ -135,6 +145,33 @@ public class MenuPaciente {
         aguardarEnter();
     }
 
+    private void importarPacientes() {
+        AlertaEmergencia.exibirCabecalho("Importação de Pacientes");
+
+        try {
+            System.out.println("Colunas: nome;cpf;data_nascimento;email;telefone (com cabeçalho)");
+            System.out.print("Caminho do arquivo CSV: ");
+            Path arquivo = Paths.get(scanner.nextLine().trim());
+
+            ImportadorPacientes.Relatorio relatorio = pacienteBO.importarPacientes(arquivo);
+            AlertaEmergencia.exibirSucesso(relatorio.toString());
+
+            if (!relatorio.getErros().isEmpty()) {
+                Path arquivoErros = arquivo.resolveSibling(arquivo.getFileName() + ".erros.csv");
+                try (Writer saida = Files.newBufferedWriter(arquivoErros, StandardCharsets.UTF_8)) {
+                    relatorio.escreverErros(saida);
+                }
+                relatorio.getErros().stream().limit(10).forEach(System.out::println);
+                System.out.println("\nRelatório completo de erros: " + arquivoErros);
+            }
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Falha na importação: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
     private void exibirDetalhesPaciente(Paciente p) {
         System.out.println("ID: " + p.getIdPaciente());
         System.out.println("Nome: " + p.getNome());
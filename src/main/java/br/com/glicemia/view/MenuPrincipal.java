@@ -1,6 +1,10 @@
 package br.com.glicemia.view;
 
+import br.com.glicemia.bo.GerenciadorRegistroBO;
+import br.com.glicemia.service.FeedLeiturasRisco;
 import br.com.glicemia.util.AlertaEmergencia;
+import br.com.glicemia.util.MigradorSchema;
+import java.sql.SQLException;
 import java.util.Scanner;
 
 // Menu principal do sistema. Ponto de entrada da aplicação.
@@ -9,16 +13,29 @@ public class MenuPrincipal {
     private final Scanner scanner;
     private final MenuPaciente menuPaciente;
     private final MenuRegistro menuRegistro;
+    private final MenuRelatorio menuRelatorio;
 
     public MenuPrincipal() {
         this.scanner = new Scanner(System.in);
         this.menuPaciente = new MenuPaciente(scanner);
         this.menuRegistro = new MenuRegistro(scanner);
+        this.menuRelatorio = new MenuRelatorio(scanner);
     }
 
     public void iniciar() {
         exibirBanner();
 
+        // Alertas de leituras de risco gravadas por outros terminais (FEED_RISCO_HABILITADO); as
+        // gravadas aqui já foram alertadas no registro
+        FeedLeiturasRisco feed = FeedLeiturasRisco.getInstancia();
+        if (feed != null) {
+            feed.assinar(evento -> {
+                if (!GerenciadorRegistroBO.isLeituraDesteTerminal(evento.getIdRegistro())) {
+                    AlertaEmergencia.exibirAlertaRemoto(evento);
+                }
+            });
+        }
+
         boolean continuar = true;
 
         while (continuar) {
@@ -36,10 +53,11 @@ public class MenuPrincipal {
                     iniciarChatIA();
                     break;
                 case 4:
-                    exibirRelatorios();
+                    menuRelatorio.exibir();
                     break;
                 case 0:
                     continuar = false;
+                    GerenciadorRegistroBO.encerrar();
                     exibirDespedida();
                     break;
                 default:
@@ -91,6 +109,25 @@ public class MenuPrincipal {
         }
     }
 
+    // Executado antes de criar os menus: o primeiro GerenciadorRegistroBO inicia os jobs de
+    // retenção, arquivamento e partições, que dependem do schema atualizado. Retorna se o schema
+    // está pronto.
+    private static boolean aplicarMigracoes() {
+        if (!MigradorSchema.isHabilitado()) {
+            return true;
+        }
+        try {
+            MigradorSchema.Relatorio relatorio = MigradorSchema.criar().aplicarPendentes();
+            if (!relatorio.getAplicadas().isEmpty()) {
+                System.out.println(relatorio);
+            }
+            return true;
+        } catch (SQLException e) {
+            AlertaEmergencia.exibirErro("Erro ao atualizar o schema: " + e.getMessage());
+            return false;
+        }
+    }
+
     private int lerOpcao() {
         try {
             return Integer.parseInt(scanner.nextLine());
@@ -99,12 +136,6 @@ public class MenuPrincipal {
         }
     }
 
-    private void exibirRelatorios() {
-        AlertaEmergencia.exibirCabecalho("Relatórios");
-        System.out.println("Funcionalidade em desenvolvimento...");
-        aguardarEnter();
-    }
-
     private void exibirDespedida() {
         System.out.println("\n╔══════════════════════════════════════════════════╗");
         System.out.println("║     Obrigado por usar o sistema GlicemIA!        ║");
@@ -118,6 +149,12 @@ public class MenuPrincipal {
     }
 
     public static void main(String[] args) {
+        // Com o schema parcialmente migrado, a aplicação não inicia
+        if (!aplicarMigracoes()) {
+            System.err.println("Inicialização interrompida. Corrija a falha e inicie novamente; " +
+                               "as migrações já aplicadas não são repetidas.");
+            System.exit(1);
+        }
         MenuPrincipal menu = new MenuPrincipal();
         menu.iniciar();
     }
@@ -9,6 +9,8 @@ import java.util.Scanner;
 // Menu para registro de sinais vitais. Implementa verificação passando pela camada de BO do sistema.
 public class MenuRegistro {
 
+    private static final int TAMANHO_PAGINA = 20;
+
     private final Scanner scanner;
     private final GerenciadorRegistroBO registroBO;
 
@@ -182,19 +184,36 @@ public class MenuRegistro {
             System.out.print("ID do Paciente: ");
             Long idPaciente = Long.parseLong(scanner.nextLine());
 
-            var registros = registroBO.listarTodosRegistros(idPaciente);
+            PaginaRegistros pagina = registroBO.listarHistoricoPaginado(idPaciente, null, TAMANHO_PAGINA);
 
-            if (registros.isEmpty()) {
+            if (pagina.isVazia()) {
                 AlertaEmergencia.exibirAviso("Nenhum registro encontrado para este paciente.");
             } else {
-                System.out.println("\nTotal de registros: " + registros.size() + "\n");
-                for (SinalVital sinal : registros) {
+                int numeroPagina = 1;
+
+                while (true) {
+                    System.out.println("\nPágina " + numeroPagina + "\n");
+                    for (SinalVital sinal : pagina.getRegistros()) {
+                        System.out.println("─────────────────────────────────────");
+                        System.out.println("Data: " + sinal.getDataHora());
+                        System.out.println(sinal.getDescricao());
+                        System.out.println("Risco: " + sinal.getNivelRisco());
+                    }
                     System.out.println("─────────────────────────────────────");
-                    System.out.println("Data: " + sinal.getDataHora());
-                    System.out.println(sinal.getDescricao());
-                    System.out.println("Risco: " + sinal.getNivelRisco());
+
+                    if (!pagina.temProximaPagina()) {
+                        break;
+                    }
+
+                    System.out.print("\nENTER para próxima página ou 0 para encerrar: ");
+                    if (scanner.nextLine().trim().equals("0")) {
+                        break;
+                    }
+
+                    pagina = registroBO.listarHistoricoPaginado(
+                        idPaciente, pagina.getProximoCursor(), TAMANHO_PAGINA);
+                    numeroPagina++;
                 }
-                System.out.println("─────────────────────────────────────");
 
                 // Exibe resumo estatístico
                 System.out.println("\n" + registroBO.gerarResumoEstatistico(idPaciente));
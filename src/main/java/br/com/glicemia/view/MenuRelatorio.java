@@ -0,0 +1,322 @@
+package br.com.glicemia.view;
+
+import br.com.glicemia.bo.GerenciadorPacienteBO;
+import br.com.glicemia.bo.GerenciadorRegistroBO;
+import br.com.glicemia.dao.impl.ArquivamentoRegistros;
+import br.com.glicemia.dao.impl.ParticionamentoRegistros;
+import br.com.glicemia.dao.impl.RetencaoRegistros;
+import br.com.glicemia.model.NivelRisco;
+import br.com.glicemia.model.TipoSinal;
+import br.com.glicemia.model.vo.OcorrenciaRisco;
+import br.com.glicemia.model.vo.Paciente;
+import br.com.glicemia.model.vo.ResumoDiario;
+import br.com.glicemia.model.vo.SerieSinalVital;
+import br.com.glicemia.model.vo.SinalVital;
+import br.com.glicemia.service.ContextoIA;
+import br.com.glicemia.util.AlertaEmergencia;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+// Menu de relatórios. Os resumos por período são lidos do rollup diário (TB_REGISTRO_DIARIO).
+public class MenuRelatorio {
+
+    private static final DateTimeFormatter FORMATO_DATA_HORA = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final Scanner scanner;
+    private final GerenciadorRegistroBO registroBO;
+
+    public MenuRelatorio(Scanner scanner) {
+        this.scanner = scanner;
+        this.registroBO = new GerenciadorRegistroBO();
+    }
+
+    public void exibir() {
+        boolean voltar = false;
+
+        while (!voltar) {
+            AlertaEmergencia.exibirCabecalho("Relatórios");
+            System.out.println("1. Resumo Diário por Período");
+            System.out.println("2. Reconstruir Resumo Diário de um Paciente");
+            System.out.println("3. Arquivar Leituras Antigas");
+            System.out.println("4. Análise de Longo Prazo por Tipo de Sinal");
+            System.out.println("5. Painel de Pacientes (últimas leituras)");
+            System.out.println("6. Pacientes com Leituras Críticas/Altas Recentes");
+            System.out.println("7. Compactar Leituras Antigas (retenção)");
+            System.out.println("8. Partições de Leituras");
+            System.out.println("0. Voltar");
+            System.out.print("\nEscolha uma opção: ");
+
+            int opcao = lerOpcao();
+
+            switch (opcao) {
+                case 1:
+                    exibirResumoDiario();
+                    break;
+                case 2:
+                    reconstruirResumoDiario();
+                    break;
+                case 3:
+                    arquivarLeiturasAntigas();
+                    break;
+                case 4:
+                    exibirAnaliseLongoPrazo();
+                    break;
+                case 5:
+                    exibirPainelPacientes();
+                    break;
+                case 6:
+                    exibirPacientesEmRisco();
+                    break;
+                case 7:
+                    compactarLeiturasAntigas();
+                    break;
+                case 8:
+                    manterParticoes();
+                    break;
+                case 0:
+                    voltar = true;
+                    break;
+                default:
+                    AlertaEmergencia.exibirErro("Opção inválida!");
+            }
+        }
+    }
+
+    private void exibirResumoDiario() {
+        AlertaEmergencia.exibirCabecalho("Resumo Diário");
+
+        try {
+            System.out.print("ID do Paciente: ");
+            Long idPaciente = Long.parseLong(scanner.nextLine());
+
+            System.out.print("Quantidade de dias (ex: 30): ");
+            int dias = Integer.parseInt(scanner.nextLine());
+
+            LocalDate fim = LocalDate.now();
+            LocalDate inicio = fim.minusDays(dias - 1L);
+            List<ResumoDiario> resumos = registroBO.buscarResumoDiario(idPaciente, inicio, fim);
+
+            if (resumos.isEmpty()) {
+                AlertaEmergencia.exibirAviso("Nenhum registro no período.");
+            } else {
+                System.out.println();
+                for (ResumoDiario resumo : resumos) {
+                    System.out.println(resumo);
+                }
+            }
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro ao gerar relatório: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private void reconstruirResumoDiario() {
+        AlertaEmergencia.exibirCabecalho("Reconstruir Resumo Diário");
+
+        try {
+            System.out.print("ID do Paciente: ");
+            Long idPaciente = Long.parseLong(scanner.nextLine());
+
+            System.out.print("Quantidade de dias a recalcular (ex: 365): ");
+            int dias = Integer.parseInt(scanner.nextLine());
+
+            LocalDate fim = LocalDate.now();
+            registroBO.reconstruirResumoDiario(idPaciente, fim.minusDays(dias - 1L), fim);
+            AlertaEmergencia.exibirSucesso("Resumo diário reconstruído.");
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro ao reconstruir resumo: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private void arquivarLeiturasAntigas() {
+        AlertaEmergencia.exibirCabecalho("Arquivar Leituras Antigas");
+
+        if (!GerenciadorRegistroBO.isArquivoHabilitado()) {
+            AlertaEmergencia.exibirAviso("Arquivo desabilitado. Defina ARQUIVO_HABILITADO=true no .env.");
+            aguardarEnter();
+            return;
+        }
+
+        try {
+            ArquivamentoRegistros.Relatorio relatorio = GerenciadorRegistroBO.arquivarLeiturasAntigas();
+            System.out.println(relatorio);
+            for (String falha : relatorio.getFalhas()) {
+                AlertaEmergencia.exibirAviso(falha);
+            }
+            System.out.println(GerenciadorRegistroBO.getEstatisticasArquivo());
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro ao arquivar leituras: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private void compactarLeiturasAntigas() {
+        AlertaEmergencia.exibirCabecalho("Compactar Leituras Antigas");
+
+        if (!GerenciadorRegistroBO.isRetencaoHabilitada()) {
+            AlertaEmergencia.exibirAviso("Retenção desabilitada. Defina RETENCAO_HABILITADA=true no .env.");
+            aguardarEnter();
+            return;
+        }
+
+        try {
+            RetencaoRegistros.Relatorio relatorio = GerenciadorRegistroBO.compactarLeiturasAntigas();
+            if (relatorio.getRetomadaDe() != null) {
+                System.out.println("Retomada do checkpoint em " + relatorio.getRetomadaDe().format(FORMATO_DATA_HORA));
+            }
+            System.out.println(relatorio);
+            for (String falha : relatorio.getFalhas()) {
+                AlertaEmergencia.exibirAviso(falha);
+            }
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro ao compactar leituras: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private void manterParticoes() {
+        AlertaEmergencia.exibirCabecalho("Partições de Leituras");
+
+        try {
+            ParticionamentoRegistros.Relatorio relatorio = GerenciadorRegistroBO.manterParticoes();
+            System.out.println(relatorio);
+            for (String nome : relatorio.getDesanexadas()) {
+                System.out.println("  Desanexada: " + nome);
+            }
+            for (String falha : relatorio.getFalhas()) {
+                AlertaEmergencia.exibirAviso(falha);
+            }
+
+            System.out.println();
+            for (ParticionamentoRegistros.Particao particao : GerenciadorRegistroBO.listarParticoes()) {
+                System.out.println(particao);
+            }
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro na manutenção de partições: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private void exibirAnaliseLongoPrazo() {
+        AlertaEmergencia.exibirCabecalho("Análise de Longo Prazo");
+
+        try {
+            System.out.print("ID do Paciente: ");
+            Long idPaciente = Long.parseLong(scanner.nextLine());
+
+            System.out.print("Tipo (1-Glicemia, 2-Pressão, 3-Peso): ");
+            int opcaoTipo = Integer.parseInt(scanner.nextLine());
+            if (opcaoTipo < 1 || opcaoTipo > TipoSinal.values().length) {
+                AlertaEmergencia.exibirErro("Tipo inválido!");
+                aguardarEnter();
+                return;
+            }
+            TipoSinal tipo = TipoSinal.values()[opcaoTipo - 1];
+
+            System.out.print("Quantidade de dias (ex: 365): ");
+            int dias = Integer.parseInt(scanner.nextLine());
+
+            SerieSinalVital serie = registroBO.carregarSerie(idPaciente, tipo, dias);
+            System.out.println();
+            System.out.println(ContextoIA.criarResumoEstatistico(serie));
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro ao gerar análise: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private void exibirPainelPacientes() {
+        AlertaEmergencia.exibirCabecalho("Painel de Pacientes");
+
+        try {
+            System.out.print("Leituras por paciente (ex: 3): ");
+            int limite = Integer.parseInt(scanner.nextLine());
+
+            List<Paciente> pacientes = new GerenciadorPacienteBO().listarTodosPacientes();
+            List<Long> ids = new ArrayList<>(pacientes.size());
+            for (Paciente paciente : pacientes) {
+                ids.add(paciente.getIdPaciente());
+            }
+            Map<Long, List<SinalVital>> ultimas = registroBO.buscarHistoricoRecentePorPacientes(ids, limite);
+
+            for (Paciente paciente : pacientes) {
+                System.out.println("\n" + paciente.getNome() + " (ID " + paciente.getIdPaciente() + ")");
+                List<SinalVital> leituras = ultimas.get(paciente.getIdPaciente());
+                if (leituras.isEmpty()) {
+                    System.out.println("  Sem leituras");
+                }
+                for (SinalVital sinal : leituras) {
+                    System.out.println("  " + sinal.getDataHora().format(FORMATO_DATA_HORA) + " | " +
+                                       sinal.getDescricao() + " | " + sinal.getNivelRisco());
+                }
+            }
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro ao montar painel: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private void exibirPacientesEmRisco() {
+        AlertaEmergencia.exibirCabecalho("Pacientes em Risco");
+
+        try {
+            System.out.print("Nível (1-Crítico, 2-Alto): ");
+            NivelRisco nivel = "2".equals(scanner.nextLine().trim()) ? NivelRisco.ALTO : NivelRisco.CRITICO;
+
+            System.out.print("Janela em horas (ex: 24): ");
+            int horas = Integer.parseInt(scanner.nextLine());
+
+            List<OcorrenciaRisco> ocorrencias = registroBO.buscarPacientesEmRisco(nivel, horas);
+            if (ocorrencias.isEmpty()) {
+                AlertaEmergencia.exibirSucesso("Nenhum paciente com leituras " + nivel.getDescricao() +
+                                               " nas últimas " + horas + " horas.");
+            } else {
+                System.out.println("\n" + ocorrencias.size() + " paciente(s):");
+                for (OcorrenciaRisco ocorrencia : ocorrencias) {
+                    SinalVital ultima = ocorrencia.getUltimaLeitura();
+                    System.out.println("  Paciente " + ocorrencia.getIdPaciente() + " | " +
+                                       ocorrencia.getQuantidade() + " leitura(s) | última em " +
+                                       ultima.getDataHora().format(FORMATO_DATA_HORA) + ": " +
+                                       ultima.getDescricao());
+                }
+            }
+
+        } catch (Exception e) {
+            AlertaEmergencia.exibirErro("Erro na varredura: " + e.getMessage());
+        }
+
+        aguardarEnter();
+    }
+
+    private int lerOpcao() {
+        try {
+            return Integer.parseInt(scanner.nextLine());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void aguardarEnter() {
+        System.out.print("\nPressione ENTER para continuar...");
+        scanner.nextLine();
+    }
+}